@@ -77,6 +77,8 @@ public class IvyPublish extends IvyTask {
 
     private boolean merge = true;
 
+    private int threads = 0;
+
     private boolean replacedynamicrev = true;
 
     private boolean forcedeliver;
@@ -322,7 +324,8 @@ public class IvyPublish extends IvyTask {
                             (Artifact[]) artifacts.toArray(new Artifact[artifacts.size()]))
                         .setValidate(doValidate(settings)).setOverwrite(overwrite)
                         .setUpdate(update).setMerge(merge).setWarnOnMissing(warnonmissing)
-                        .setHaltOnMissing(haltonmissing).setConfs(splitConfs(conf)));
+                        .setHaltOnMissing(haltonmissing).setConfs(splitConfs(conf))
+                        .setThreads(threads));
         } catch (Exception e) {
             if (e instanceof BuildException) {
                 throw (BuildException) e;
@@ -353,6 +356,14 @@ public class IvyPublish extends IvyTask {
         this.warnonmissing = warnonmissing;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public boolean isHaltonmissing() {
         return haltonmissing;
     }
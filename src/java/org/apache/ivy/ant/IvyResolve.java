@@ -91,6 +91,10 @@ public class IvyResolve extends IvyTask {
 
     private boolean checkIfChanged = true; // for backward compatibility
 
+    private int threads = 0;
+
+    private boolean incremental = false;
+
     private List/* <IvyDependency> */dependencies = new ArrayList();
 
     private List/* <IvyExclude> */excludes = new ArrayList();
@@ -440,7 +444,8 @@ public class IvyResolve extends IvyTask {
                 .setArtifactFilter(FilterHelper.getArtifactTypeFilter(type)).setRevision(revision)
                 .setDate(getPubDate(pubdate, null)).setUseCacheOnly(useCacheOnly)
                 .setRefresh(refresh).setTransitive(transitive).setResolveMode(resolveMode)
-                .setResolveId(resolveId).setCheckIfChanged(checkIfChanged);
+                .setResolveId(resolveId).setCheckIfChanged(checkIfChanged).setThreads(threads)
+                .setIncremental(incremental);
     }
 
     public String getModule() {
@@ -514,4 +519,20 @@ public class IvyResolve extends IvyTask {
     public void setCheckIfChanged(boolean checkIfChanged) {
         this.checkIfChanged = checkIfChanged;
     }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
 }
@@ -52,6 +52,10 @@ public class IvyRetrieve extends IvyPostResolveTask {
 
     private boolean symlinkmass = false;
 
+    private boolean hardlink = false;
+
+    private int threads = 0;
+
     private String overwriteMode = RetrieveOptions.OVERWRITEMODE_NEWER;
 
     private String pathId = null;
@@ -102,7 +106,8 @@ public class IvyRetrieve extends IvyPostResolveTask {
                         .setDestIvyPattern(ivypattern).setArtifactFilter(artifactFilter)
                         .setSync(sync).setOverwriteMode(getOverwriteMode())
                         .setUseOrigin(isUseOrigin()).setMakeSymlinks(symlink)
-                        .setMakeSymlinksInMass(symlinkmass).setResolveId(getResolveId())
+                        .setMakeSymlinksInMass(symlinkmass).setMakeHardLinks(hardlink)
+                        .setThreads(threads).setResolveId(getResolveId())
                         .setMapper(mapper == null ? null : new MapperAdapter(mapper)));
 
             int targetsCopied = report.getNbrArtifactsCopied();
@@ -171,6 +176,21 @@ public class IvyRetrieve extends IvyPostResolveTask {
         this.symlinkmass = symlinkmass;
     }
 
+    /**
+     * Option to create hard links instead of copying.
+     */
+    public void setHardlink(boolean hardlink) {
+        this.hardlink = hardlink;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public void setOverwriteMode(String overwriteMode) {
         if (!OVERWRITEMODE_VALUES.contains(overwriteMode)) {
             throw new IllegalArgumentException("invalid overwriteMode value '" + overwriteMode
@@ -0,0 +1,478 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ivy.core.IvyPatternHelper.OriginalArtifactNameValue;
+import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * An ivy pattern parsed once, which can then be substituted many times.
+ * <p>
+ * Substituting a compiled pattern gives exactly the same result as
+ * {@link IvyPatternHelper#substituteTokens(String, Map)}, optional parts included, but the pattern
+ * is not parsed again and the standard tokens are read directly from their source, without
+ * building a map of tokens. Compiled patterns are immutable, and cached by pattern by
+ * {@link #getInstance(String)}.
+ * </p>
+ */
+public final class CompiledIvyPattern {
+
+    private static final int MAX_CACHED_PATTERNS = 10000;
+
+    private static final ConcurrentMap/* <String, CompiledIvyPattern> */CACHE = new ConcurrentHashMap();
+
+    private static final int LITERAL = 0;
+
+    private static final int TOKEN = 1;
+
+    private static final int START_OPTIONAL = 2;
+
+    private static final int END_OPTIONAL = 3;
+
+    private static final int EXTRA_TOKEN = -1;
+
+    private static final String[] STANDARD_TOKENS = new String[] {
+            IvyPatternHelper.ORGANISATION_KEY, IvyPatternHelper.ORGANISATION_KEY2,
+            IvyPatternHelper.ORGANISATION_PATH_KEY, IvyPatternHelper.MODULE_KEY,
+            IvyPatternHelper.BRANCH_KEY, IvyPatternHelper.REVISION_KEY,
+            IvyPatternHelper.ARTIFACT_KEY, IvyPatternHelper.TYPE_KEY, IvyPatternHelper.EXT_KEY,
+            IvyPatternHelper.CONF_KEY, IvyPatternHelper.ORIGINAL_ARTIFACTNAME_KEY};
+
+    private static final int ORGANISATION = 0;
+
+    private static final int ORGANISATION2 = 1;
+
+    private static final int ORGANISATION_PATH = 2;
+
+    private static final int MODULE = 3;
+
+    private static final int BRANCH = 4;
+
+    private static final int REVISION = 5;
+
+    private static final int ARTIFACT = 6;
+
+    private static final int TYPE = 7;
+
+    private static final int EXT = 8;
+
+    private static final int CONF = 9;
+
+    private static final int ORIGINAL_ARTIFACTNAME = 10;
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final String pattern;
+
+    private final Segment[] segments;
+
+    private final int estimatedLength;
+
+    /**
+     * Returns the compiled form of the given pattern.
+     * 
+     * @param pattern
+     *            the pattern to compile
+     * @return the compiled pattern, never <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the pattern is not a valid ivy pattern
+     */
+    public static CompiledIvyPattern getInstance(String pattern) {
+        CompiledIvyPattern compiled = (CompiledIvyPattern) CACHE.get(pattern);
+        if (compiled == null) {
+            compiled = new CompiledIvyPattern(pattern);
+            if (CACHE.size() >= MAX_CACHED_PATTERNS) {
+                CACHE.clear();
+            }
+            CACHE.put(pattern, compiled);
+        }
+        return compiled;
+    }
+
+    private CompiledIvyPattern(String pattern) {
+        this.pattern = pattern;
+        this.segments = compile(pattern);
+        this.estimatedLength = pattern.length() + 32;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Substitutes this pattern for the ivy file of the given module revision, like
+     * {@link IvyPatternHelper#substitute(String, ModuleRevisionId)}.
+     */
+    public String substitute(ModuleRevisionId mrid) {
+        return substitute(mrid.getOrganisation(), mrid.getName(), mrid.getBranch(),
+            mrid.getRevision(), "ivy", "ivy", "xml", null, null, mrid.getQualifiedExtraAttributes(),
+            null);
+    }
+
+    /**
+     * Substitutes this pattern for the given artifact of the given module revision, like
+     * {@link IvyPatternHelper#substitute(String, ModuleRevisionId, Artifact, String, ArtifactOrigin)}
+     * .
+     */
+    public String substitute(ModuleRevisionId mrid, Artifact artifact, String conf,
+            ArtifactOrigin origin) {
+        return substitute(mrid.getOrganisation(), mrid.getName(), mrid.getBranch(),
+            mrid.getRevision(), artifact.getName(), artifact.getType(), artifact.getExt(), conf,
+            origin, mrid.getQualifiedExtraAttributes(), artifact.getQualifiedExtraAttributes());
+    }
+
+    // CheckStyle:ParameterNumber OFF
+    /**
+     * Substitutes this pattern with the given values, like
+     * {@link IvyPatternHelper#substitute(String, String, String, String, String, String, String, String, String, ArtifactOrigin, Map, Map)}
+     * .
+     */
+    public String substitute(String org, String module, String branch, String revision,
+            String artifact, String type, String ext, String conf, ArtifactOrigin origin,
+            Map extraModuleAttributes, Map extraArtifactAttributes) {
+        return render(new ArtifactTokens(org, module, branch, revision, artifact, type, ext, conf,
+                origin, extraModuleAttributes, extraArtifactAttributes));
+    }
+
+    // CheckStyle:ParameterNumber ON
+
+    /**
+     * Substitutes this pattern with the given tokens, like
+     * {@link IvyPatternHelper#substituteTokens(String, Map)}.
+     */
+    public String substituteTokens(Map tokens) {
+        return render(new MapTokens(tokens));
+    }
+
+    private String render(TokenValues values) {
+        StringBuffer buffer = new StringBuffer(estimatedLength);
+        StringBuffer optionalPart = null;
+        boolean tokenHadValue = false;
+        for (int i = 0; i < segments.length; i++) {
+            Segment segment = segments[i];
+            switch (segment.kind) {
+                case LITERAL:
+                    (segment.optional ? optionalPart : buffer).append(segment.text);
+                    break;
+                case TOKEN:
+                    Object tokenValue = values.getValue(segment);
+                    String value = (tokenValue == null) ? null : tokenValue.toString();
+                    if (segment.optional) {
+                        tokenHadValue = (value != null) && (value.length() > 0);
+                        optionalPart.append(value);
+                    } else if (value == null) {
+                        // the token wasn't set, it's kept as is
+                        buffer.append('[').append(segment.text).append(']');
+                    } else {
+                        buffer.append(value);
+                    }
+                    break;
+                case START_OPTIONAL:
+                    optionalPart = new StringBuffer();
+                    tokenHadValue = false;
+                    break;
+                default:
+                    if (tokenHadValue) {
+                        buffer.append(optionalPart);
+                    } else if (!segment.tokenSeen) {
+                        buffer.append('(').append(optionalPart).append(')');
+                    }
+                    break;
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Parses the pattern, following exactly the same steps as substituting it would, but recording
+     * what to do with each part of the pattern instead of doing it.
+     */
+    private static Segment[] compile(String pattern) {
+        List segments = new ArrayList();
+        char[] chars = pattern.toCharArray();
+
+        StringBuffer literal = new StringBuffer();
+        StringBuffer tokenBuffer = null;
+        boolean insideOptionalPart = false;
+        boolean insideToken = false;
+        boolean tokenSeen = false;
+
+        for (int i = 0; i < chars.length; i++) {
+            switch (chars[i]) {
+                case '(':
+                    if (insideOptionalPart) {
+                        throw new IllegalArgumentException(
+                                "invalid start of optional part at position " + i + " in pattern "
+                                        + pattern);
+                    }
+                    addLiteral(segments, literal, insideOptionalPart);
+                    segments.add(new Segment(START_OPTIONAL, null, false, false));
+                    insideOptionalPart = true;
+                    tokenSeen = false;
+                    break;
+
+                case ')':
+                    if (!insideOptionalPart || insideToken) {
+                        throw new IllegalArgumentException(
+                                "invalid end of optional part at position " + i + " in pattern "
+                                        + pattern);
+                    }
+                    addLiteral(segments, literal, insideOptionalPart);
+                    segments.add(new Segment(END_OPTIONAL, null, false, tokenSeen));
+                    insideOptionalPart = false;
+                    break;
+
+                case '[':
+                    if (insideToken) {
+                        throw new IllegalArgumentException("invalid start of token at position "
+                                + i + " in pattern " + pattern);
+                    }
+                    tokenBuffer = new StringBuffer();
+                    insideToken = true;
+                    break;
+
+                case ']':
+                    if (!insideToken) {
+                        throw new IllegalArgumentException("invalid end of token at position " + i
+                                + " in pattern " + pattern);
+                    }
+                    addLiteral(segments, literal, insideOptionalPart);
+                    segments.add(new Segment(TOKEN, tokenBuffer.toString(), insideOptionalPart,
+                            false));
+                    insideToken = false;
+                    tokenSeen = true;
+                    break;
+
+                default:
+                    if (insideToken) {
+                        tokenBuffer.append(chars[i]);
+                    } else {
+                        literal.append(chars[i]);
+                    }
+                    break;
+            }
+        }
+
+        if (insideToken) {
+            throw new IllegalArgumentException("last token hasn't been closed in pattern "
+                    + pattern);
+        }
+        if (insideOptionalPart) {
+            throw new IllegalArgumentException("optional part hasn't been closed in pattern "
+                    + pattern);
+        }
+        addLiteral(segments, literal, false);
+
+        return (Segment[]) segments.toArray(new Segment[segments.size()]);
+    }
+
+    private static void addLiteral(List segments, StringBuffer literal, boolean optional) {
+        if (literal.length() > 0) {
+            segments.add(new Segment(LITERAL, literal.toString(), optional, false));
+            literal.setLength(0);
+        }
+    }
+
+    private static final class Segment {
+        private final int kind;
+
+        /**
+         * The text of a literal, or the name of a token.
+         */
+        private final String text;
+
+        private final boolean optional;
+
+        /**
+         * For the end of an optional part, indicates if it contained a token.
+         */
+        private final boolean tokenSeen;
+
+        /**
+         * For a token, the index of the standard token it is, or {@link #EXTRA_TOKEN}.
+         */
+        private final int tokenIndex;
+
+        private Segment(int kind, String text, boolean optional, boolean tokenSeen) {
+            this.kind = kind;
+            this.text = text;
+            this.optional = optional;
+            this.tokenSeen = tokenSeen;
+            int index = EXTRA_TOKEN;
+            if (kind == TOKEN) {
+                for (int i = 0; i < STANDARD_TOKENS.length; i++) {
+                    if (STANDARD_TOKENS[i].equals(text)) {
+                        index = i;
+                        break;
+                    }
+                }
+            }
+            this.tokenIndex = index;
+        }
+    }
+
+    private interface TokenValues {
+        Object getValue(Segment token);
+    }
+
+    /**
+     * The tokens of an artifact, read from the artifact properties.
+     */
+    private static final class ArtifactTokens implements TokenValues {
+        private final String org;
+
+        private final String module;
+
+        private final String branch;
+
+        private final String revision;
+
+        private final String artifact;
+
+        private final String type;
+
+        private final String ext;
+
+        private final String conf;
+
+        private final ArtifactOrigin origin;
+
+        private final Map extraModuleAttributes;
+
+        private final Map extraArtifactAttributes;
+
+        private OriginalArtifactNameValue originalName;
+
+        // CheckStyle:ParameterNumber OFF
+        private ArtifactTokens(String org, String module, String branch, String revision,
+                String artifact, String type, String ext, String conf, ArtifactOrigin origin,
+                Map extraModuleAttributes, Map extraArtifactAttributes) {
+            this.org = org;
+            this.module = module;
+            this.branch = branch;
+            this.revision = revision;
+            this.artifact = artifact;
+            this.type = type;
+            this.ext = ext;
+            this.conf = conf;
+            this.origin = origin;
+            this.extraModuleAttributes = extraModuleAttributes;
+            this.extraArtifactAttributes = extraArtifactAttributes;
+        }
+
+        // CheckStyle:ParameterNumber ON
+
+        public Object getValue(Segment token) {
+            switch (token.tokenIndex) {
+                case ORGANISATION:
+                case ORGANISATION2:
+                    return org == null ? "" : org;
+                case ORGANISATION_PATH:
+                    return org == null ? "" : org.replace('.', '/');
+                case MODULE:
+                    return module == null ? "" : module;
+                case BRANCH:
+                    return branch == null ? "" : branch;
+                case REVISION:
+                    return revision == null ? "" : revision;
+                case ARTIFACT:
+                    return artifact == null ? module : artifact;
+                case TYPE:
+                    return type == null ? "jar" : type;
+                case EXT:
+                    return ext == null ? "jar" : ext;
+                case CONF:
+                    return conf == null ? "default" : conf;
+                case ORIGINAL_ARTIFACTNAME:
+                    if (originalName == null) {
+                        originalName = origin == null ? new OriginalArtifactNameValue(org,
+                                module, branch, revision, artifact, type, ext,
+                                extraModuleAttributes, extraArtifactAttributes)
+                                : new OriginalArtifactNameValue(origin);
+                    }
+                    return originalName;
+                default:
+                    // artifact attributes take precedence over module ones
+                    Object value = getExtraAttribute(extraArtifactAttributes, token.text);
+                    if (value == NOT_FOUND) {
+                        value = getExtraAttribute(extraModuleAttributes, token.text);
+                    }
+                    return value == NOT_FOUND ? null : value;
+            }
+        }
+
+        /**
+         * Returns the value of the given attribute, ignoring the namespace of qualified attributes
+         * and keeping the last one found if several attributes have the same name.
+         */
+        private static Object getExtraAttribute(Map attributes, String name) {
+            if (attributes == null || attributes.isEmpty()) {
+                return NOT_FOUND;
+            }
+            Object value = NOT_FOUND;
+            for (Iterator entries = attributes.entrySet().iterator(); entries.hasNext();) {
+                Map.Entry entry = (Map.Entry) entries.next();
+                String key = (String) entry.getKey();
+                int colon = key.indexOf(':');
+                if (colon > 0 ? key.regionMatches(colon + 1, name, 0, name.length())
+                        && key.length() - colon - 1 == name.length() : key.equals(name)) {
+                    value = entry.getValue();
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Tokens given in a map, where organization and orgPath default to values computed from
+     * organisation.
+     */
+    private static final class MapTokens implements TokenValues {
+        private final Map tokens;
+
+        private MapTokens(Map tokens) {
+            this.tokens = tokens;
+        }
+
+        public Object getValue(Segment token) {
+            if (token.tokenIndex == ORGANISATION2 && !tokens.containsKey(token.text)
+                    && tokens.containsKey(IvyPatternHelper.ORGANISATION_KEY)) {
+                return tokens.get(IvyPatternHelper.ORGANISATION_KEY);
+            }
+            if (token.tokenIndex == ORGANISATION_PATH && !tokens.containsKey(token.text)
+                    && tokens.containsKey(IvyPatternHelper.ORGANISATION_KEY)) {
+                String org = (String) tokens.get(IvyPatternHelper.ORGANISATION_KEY);
+                return org == null ? "" : org.replace('.', '/');
+            }
+            return tokens.get(token.text);
+        }
+    }
+}
@@ -18,8 +18,6 @@
 package org.apache.ivy.core;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -128,47 +126,8 @@ public final class IvyPatternHelper {
     public static String substitute(String pattern, String org, String module, String branch,
             String revision, String artifact, String type, String ext, String conf,
             ArtifactOrigin origin, Map extraModuleAttributes, Map extraArtifactAttributes) {
-        Map tokens = new HashMap();
-        if (extraModuleAttributes != null) {
-            for (Iterator entries = extraModuleAttributes.entrySet().iterator(); entries.hasNext();) {
-                Map.Entry entry = (Map.Entry) entries.next();
-                String token = (String) entry.getKey();
-                if (token.indexOf(':') > 0) {
-                    token = token.substring(token.indexOf(':') + 1);
-                }
-                tokens.put(token, entry.getValue());
-            }
-        }
-        if (extraArtifactAttributes != null) {
-            for (Iterator entries = extraArtifactAttributes.entrySet().iterator(); entries
-                    .hasNext();) {
-                Map.Entry entry = (Map.Entry) entries.next();
-                String token = (String) entry.getKey();
-                if (token.indexOf(':') > 0) {
-                    token = token.substring(token.indexOf(':') + 1);
-                }
-                tokens.put(token, entry.getValue());
-            }
-        }
-        tokens.put(ORGANISATION_KEY, org == null ? "" : org);
-        tokens.put(ORGANISATION_KEY2, org == null ? "" : org);
-        tokens.put(ORGANISATION_PATH_KEY, org == null ? "" : org.replace('.', '/'));
-        tokens.put(MODULE_KEY, module == null ? "" : module);
-        tokens.put(BRANCH_KEY, branch == null ? "" : branch);
-        tokens.put(REVISION_KEY, revision == null ? "" : revision);
-        tokens.put(ARTIFACT_KEY, artifact == null ? module : artifact);
-        tokens.put(TYPE_KEY, type == null ? "jar" : type);
-        tokens.put(EXT_KEY, ext == null ? "jar" : ext);
-        tokens.put(CONF_KEY, conf == null ? "default" : conf);
-        if (origin == null) {
-            tokens.put(ORIGINAL_ARTIFACTNAME_KEY, new OriginalArtifactNameValue(org, module,
-                    branch, revision, artifact, type, ext, extraModuleAttributes,
-                    extraArtifactAttributes));
-        } else {
-            tokens.put(ORIGINAL_ARTIFACTNAME_KEY, new OriginalArtifactNameValue(origin));
-        }
-
-        return substituteTokens(pattern, tokens);
+        return CompiledIvyPattern.getInstance(pattern).substitute(org, module, branch, revision,
+            artifact, type, ext, conf, origin, extraModuleAttributes, extraArtifactAttributes);
     }
 
     // CheckStyle:ParameterNumber ON
@@ -224,116 +183,7 @@ public final class IvyPatternHelper {
     }
 
     public static String substituteTokens(String pattern, Map tokens) {
-        Map tokensCopy = new HashMap(tokens);
-        if (tokensCopy.containsKey(ORGANISATION_KEY) && !tokensCopy.containsKey(ORGANISATION_KEY2)) {
-            tokensCopy.put(ORGANISATION_KEY2, tokensCopy.get(ORGANISATION_KEY));
-        }
-        if (tokensCopy.containsKey(ORGANISATION_KEY)
-                && !tokensCopy.containsKey(ORGANISATION_PATH_KEY)) {
-            String org = (String) tokensCopy.get(ORGANISATION_KEY);
-            tokensCopy.put(ORGANISATION_PATH_KEY, org == null ? "" : org.replace('.', '/'));
-        }
-
-        StringBuffer buffer = new StringBuffer();
-
-        char[] chars = pattern.toCharArray();
-
-        StringBuffer optionalPart = null;
-        StringBuffer tokenBuffer = null;
-        boolean insideOptionalPart = false;
-        boolean insideToken = false;
-        boolean tokenSeen = false;
-        boolean tokenHadValue = false;
-
-        for (int i = 0; i < chars.length; i++) {
-            switch (chars[i]) {
-                case '(':
-                    if (insideOptionalPart) {
-                        throw new IllegalArgumentException(
-                                "invalid start of optional part at position " + i + " in pattern "
-                                        + pattern);
-                    }
-
-                    optionalPart = new StringBuffer();
-                    insideOptionalPart = true;
-                    tokenSeen = false;
-                    tokenHadValue = false;
-                    break;
-
-                case ')':
-                    if (!insideOptionalPart || insideToken) {
-                        throw new IllegalArgumentException(
-                                "invalid end of optional part at position " + i + " in pattern "
-                                        + pattern);
-                    }
-
-                    if (tokenHadValue) {
-                        buffer.append(optionalPart.toString());
-                    } else if (!tokenSeen) {
-                        buffer.append('(').append(optionalPart.toString()).append(')');
-                    }
-
-                    insideOptionalPart = false;
-                    break;
-
-                case '[':
-                    if (insideToken) {
-                        throw new IllegalArgumentException("invalid start of token at position "
-                                + i + " in pattern " + pattern);
-                    }
-
-                    tokenBuffer = new StringBuffer();
-                    insideToken = true;
-                    break;
-
-                case ']':
-                    if (!insideToken) {
-                        throw new IllegalArgumentException("invalid end of token at position " + i
-                                + " in pattern " + pattern);
-                    }
-
-                    String token = tokenBuffer.toString();
-                    Object tokenValue = tokensCopy.get(token);
-                    String value = (tokenValue == null) ? null : tokenValue.toString();
-
-                    if (insideOptionalPart) {
-                        tokenHadValue = (value != null) && (value.length() > 0);
-                        optionalPart.append(value);
-                    } else {
-                        if (value == null) { // the token wasn't set, it's kept as is
-                            value = "[" + token + "]";
-                        }
-                        buffer.append(value);
-                    }
-
-                    insideToken = false;
-                    tokenSeen = true;
-                    break;
-
-                default:
-                    if (insideToken) {
-                        tokenBuffer.append(chars[i]);
-                    } else if (insideOptionalPart) {
-                        optionalPart.append(chars[i]);
-                    } else {
-                        buffer.append(chars[i]);
-                    }
-
-                    break;
-            }
-        }
-
-        if (insideToken) {
-            throw new IllegalArgumentException("last token hasn't been closed in pattern "
-                    + pattern);
-        }
-
-        if (insideOptionalPart) {
-            throw new IllegalArgumentException("optional part hasn't been closed in pattern "
-                    + pattern);
-        }
-
-        return buffer.toString();
+        return CompiledIvyPattern.getInstance(pattern).substituteTokens(tokens);
     }
 
     public static String substituteVariable(String pattern, String variable, String value) {
@@ -411,7 +261,7 @@ public final class IvyPatternHelper {
      * having to read the cached datafile containing the original location of the artifact if we
      * don't need it.
      */
-    private static class OriginalArtifactNameValue {
+    static class OriginalArtifactNameValue {
         // module properties
         private String org;
 
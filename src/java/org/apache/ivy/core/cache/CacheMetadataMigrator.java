@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * Copies the metadata of a repository cache from one {@link CacheMetadataStore} to another, for
+ * instance to convert an existing cache to the indexed store.
+ * <p>
+ * The cache should not be used by Ivy while migrating.
+ * </p>
+ */
+public final class CacheMetadataMigrator {
+
+    private CacheMetadataMigrator() {
+    }
+
+    /**
+     * Copies the metadata of all the module revisions found in a store to another one.
+     * 
+     * @param from
+     *            the store to read metadata from
+     * @param to
+     *            the store to write metadata to
+     * @return the number of module revisions migrated
+     */
+    public static int migrate(CacheMetadataStore from, CacheMetadataStore to) {
+        ModuleRevisionId[] mrids = from.listModules();
+        for (int i = 0; i < mrids.length; i++) {
+            to.saveMetadata(mrids[i], from.getMetadata(mrids[i]));
+        }
+        return mrids.length;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3
+                || !DefaultRepositoryCacheManager.isMetadataStoreName(args[1])) {
+            System.out.println("usage: cachemigrator path/to/cache (properties|indexed)"
+                    + " [data-file-pattern]");
+            return;
+        }
+        File cache = new File(args[0]);
+        String pattern = args.length == 3 ? args[2]
+                : DefaultRepositoryCacheManager.DEFAULT_DATA_FILE_PATTERN;
+        String to = args[1];
+        String from = DefaultRepositoryCacheManager.INDEXED_METADATA_STORE.equals(to)
+                ? DefaultRepositoryCacheManager.PROPERTIES_METADATA_STORE
+                : DefaultRepositoryCacheManager.INDEXED_METADATA_STORE;
+        int count = migrate(
+            DefaultRepositoryCacheManager.newMetadataStore(from, cache, pattern),
+            DefaultRepositoryCacheManager.newMetadataStore(to, cache, pattern));
+        System.out.println("migrated metadata of " + count + " module revisions from " + from
+                + " to " + to + " store in " + cache);
+    }
+}
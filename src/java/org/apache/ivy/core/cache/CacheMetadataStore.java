@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.util.Map;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * Stores the metadata the repository cache keeps about each module revision: the resolvers used,
+ * the origin of artifacts, the resolved revision of dynamic revisions, ...
+ * <p>
+ * Metadata is a simple map of string keys to string values per module revision. Callers are
+ * responsible for locking the module metadata (see
+ * {@link org.apache.ivy.plugins.lock.LockStrategy}) around a read / modify / save sequence.
+ * </p>
+ * 
+ * @see DefaultRepositoryCacheManager#setMetadataStore(String)
+ */
+public interface CacheMetadataStore {
+
+    /**
+     * Returns the metadata stored for the given module revision.
+     * 
+     * @param mrid
+     *            the module revision for which metadata should be returned
+     * @return a modifiable copy of the metadata, never <code>null</code>. Modifications are not
+     *         persisted until {@link #saveMetadata(ModuleRevisionId, Map)} is called.
+     */
+    Map/* <String,String> */getMetadata(ModuleRevisionId mrid);
+
+    /**
+     * Replaces the metadata stored for the given module revision.
+     * 
+     * @param mrid
+     *            the module revision for which metadata should be saved
+     * @param metadata
+     *            the new metadata of the module revision
+     */
+    void saveMetadata(ModuleRevisionId mrid, Map/* <String,String> */metadata);
+
+    /**
+     * Lists the module revisions for which metadata is stored.
+     * 
+     * @return the module revisions for which metadata is stored, never <code>null</code>
+     */
+    ModuleRevisionId[] listModules();
+}
@@ -17,17 +17,33 @@
  */
 package org.apache.ivy.core.cache;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 import org.apache.ivy.Ivy;
@@ -67,15 +83,19 @@ import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
 import org.apache.ivy.util.Checks;
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.HexEncoder;
 import org.apache.ivy.util.Message;
-import org.apache.ivy.util.PropertiesFile;
 
 public class DefaultRepositoryCacheManager implements RepositoryCacheManager, IvySettingsAware {
     private static final String DEFAULT_ARTIFACT_PATTERN = "[organisation]/[module](/[branch])/[type]s/[artifact]-[revision](-[classifier])(.[ext])";
 
-    private static final String DEFAULT_DATA_FILE_PATTERN = "[organisation]/[module](/[branch])/ivydata-[revision].properties";
+    static final String DEFAULT_DATA_FILE_PATTERN = "[organisation]/[module](/[branch])/ivydata-[revision].properties";
+
+    static final String PROPERTIES_METADATA_STORE = "properties";
+
+    static final String INDEXED_METADATA_STORE = "indexed";
 
     private static final String DEFAULT_IVY_PATTERN = "[organisation]/[module](/[branch])/ivy-[revision].xml";
 
@@ -114,14 +134,45 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private Boolean useOrigin;
 
+    private boolean artifactLocking = false;
+
     private ModuleRules/* <Long> */ttlRules = new ModuleRules();
 
     private Long defaultTTL = null;
 
+    private Map/* <MapMatcher,Long> */negativeTtlRules = new LinkedHashMap();
+
+    private long defaultNegativeTTL = 0;
+
+    private long listingTTL = 0;
+
+    private int memorySize = DEFAULT_MEMORY_CACHE_SIZE;
+
+    private long memoryMaxBytes = 0;
+
+    private boolean memorySoftReferences = false;
+
     private ModuleDescriptorMemoryCache memoryModuleDescrCache;
 
+    private boolean binaryDescriptors = false;
+
+    private final ModuleDescriptorBinaryCache binaryDescriptorCache =
+            new ModuleDescriptorBinaryCache();
+
+    private String metadataStoreName = PROPERTIES_METADATA_STORE;
+
+    private CacheMetadataStore metadataStore;
+
     private PackagingManager packagingManager = new PackagingManager();
 
+    private int unpackThreads = 1;
+
+    private boolean lazyUnpack = false;
+
+    private ExecutorService unpackExecutor;
+
+    private final List/* <FutureTask> */pendingUnpacks = new ArrayList();
+
     public DefaultRepositoryCacheManager() {
     }
 
@@ -182,8 +233,9 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return basedir;
     }
 
-    public void setBasedir(File cache) {
+    public synchronized void setBasedir(File cache) {
         this.basedir = cache;
+        metadataStore = null;
     }
 
     public long getDefaultTTL() {
@@ -201,13 +253,109 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         this.defaultTTL = new Long(parseDuration(defaultTTL));
     }
 
+    public long getDefaultNegativeTTL() {
+        return defaultNegativeTTL;
+    }
+
+    /**
+     * Sets for how long a resource which a resolver didn't find is considered missing without
+     * asking the repository again, when no negative TTL rule matches. 0, the default, disables the
+     * negative cache.
+     * 
+     * @param defaultNegativeTTL
+     *            the default negative TTL in milliseconds
+     */
+    public void setDefaultNegativeTTL(long defaultNegativeTTL) {
+        this.defaultNegativeTTL = defaultNegativeTTL;
+    }
+
+    public void setDefaultNegativeTTL(String defaultNegativeTTL) {
+        this.defaultNegativeTTL = parseDuration(defaultNegativeTTL);
+    }
+
+    public long getListingTTL() {
+        return listingTTL;
+    }
+
+    /**
+     * Sets for how long the listings of repository locations made by resolvers to find dynamic
+     * revisions are kept in this cache and used instead of listing the repository again. 0, the
+     * default, disables this persistent cache: the listings are then only kept for the duration of
+     * a resolve.
+     * 
+     * @param listingTTL
+     *            the listing TTL in milliseconds
+     */
+    public void setListingTTL(long listingTTL) {
+        this.listingTTL = listingTTL;
+    }
+
+    public void setListingTTL(String listingTTL) {
+        this.listingTTL = parseDuration(listingTTL);
+    }
+
     public String getDataFilePattern() {
         return dataFilePattern;
     }
 
-    public void setDataFilePattern(String dataFilePattern) {
+    public synchronized void setDataFilePattern(String dataFilePattern) {
         CacheUtil.checkCachePattern(dataFilePattern);
         this.dataFilePattern = dataFilePattern;
+        metadataStore = null;
+    }
+
+    public String getMetadataStore() {
+        return metadataStoreName;
+    }
+
+    /**
+     * Sets how the metadata of cached modules (resolvers used, artifact origins, resolved dynamic
+     * revisions) is stored: in a properties file per module revision ("properties", the default),
+     * or in a single indexed file for the whole cache ("indexed").
+     * 
+     * @param name
+     *            the name of the metadata store to use
+     * @see CacheMetadataMigrator
+     */
+    public synchronized void setMetadataStore(String name) {
+        if (!isMetadataStoreName(name)) {
+            throw new IllegalArgumentException("unknown metadata store '" + name
+                    + "': use one of " + PROPERTIES_METADATA_STORE + " or "
+                    + INDEXED_METADATA_STORE);
+        }
+        this.metadataStoreName = name;
+        metadataStore = null;
+    }
+
+    /**
+     * Sets the store used for the metadata of cached modules, overriding the one set with
+     * {@link #setMetadataStore(String)}.
+     * 
+     * @param store
+     *            the metadata store to use
+     */
+    public synchronized void setCacheMetadataStore(CacheMetadataStore store) {
+        this.metadataStore = store;
+    }
+
+    public synchronized CacheMetadataStore getCacheMetadataStore() {
+        if (metadataStore == null) {
+            metadataStore = newMetadataStore(metadataStoreName, getRepositoryCacheRoot(),
+                getDataFilePattern());
+        }
+        return metadataStore;
+    }
+
+    static boolean isMetadataStoreName(String name) {
+        return PROPERTIES_METADATA_STORE.equals(name) || INDEXED_METADATA_STORE.equals(name);
+    }
+
+    static CacheMetadataStore newMetadataStore(String name, File root, String dataFilePattern) {
+        if (INDEXED_METADATA_STORE.equals(name)) {
+            return IndexedCacheMetadataStore.getInstance(new File(root,
+                    IndexedCacheMetadataStore.FILE_NAME));
+        }
+        return new PropertiesCacheMetadataStore(root, dataFilePattern);
     }
 
     public void setIvyPattern(String ivyPattern) {
@@ -243,6 +391,26 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         ttlRules.defineRule(new MapMatcher(attributes, matcher), new Long(duration));
     }
 
+    /**
+     * Adds a negative TTL rule. Besides module revision attributes, the rule attributes can
+     * contain a <code>resolver</code> attribute, matched against the name of the resolver which
+     * didn't find the resource.
+     */
+    public void addNegativeTTL(Map attributes, PatternMatcher matcher, long duration) {
+        negativeTtlRules.put(new MapMatcher(attributes, matcher), new Long(duration));
+    }
+
+    public void addConfiguredNegativeTtl(Map/* <String,String> */attributes) {
+        String duration = (String) attributes.remove("duration");
+        if (duration == null) {
+            throw new IllegalArgumentException("'duration' attribute is mandatory for negativeTtl");
+        }
+        String matcher = (String) attributes.remove("matcher");
+        addNegativeTTL(attributes,
+            matcher == null ? ExactPatternMatcher.INSTANCE : settings.getMatcher(matcher),
+            parseDuration(duration));
+    }
+
     public void addConfiguredTtl(Map/* <String,String> */attributes) {
         String duration = (String) attributes.remove("duration");
         if (duration == null) {
@@ -254,17 +422,54 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             parseDuration(duration));
     }
 
-    public void setMemorySize(int size) {
-        memoryModuleDescrCache = new ModuleDescriptorMemoryCache(size);
+    public synchronized void setMemorySize(int size) {
+        this.memorySize = size;
+        memoryModuleDescrCache = null;
+    }
+
+    /**
+     * Sets the maximum approximate number of bytes used by the parsed module descriptors kept in
+     * memory. 0 or less means that the memory cache is only limited by its size in number of
+     * module descriptors.
+     * 
+     * @param maxBytes
+     *            the maximum approximate number of bytes used by the memory cache
+     */
+    public synchronized void setMemoryMaxBytes(long maxBytes) {
+        this.memoryMaxBytes = maxBytes;
+        memoryModuleDescrCache = null;
+    }
+
+    /**
+     * Sets whether the parsed module descriptors kept in memory can be reclaimed by the garbage
+     * collector when memory runs low.
+     * 
+     * @param softReferences
+     *            true to hold the cached module descriptors through soft references
+     */
+    public synchronized void setMemorySoftReferences(boolean softReferences) {
+        this.memorySoftReferences = softReferences;
+        memoryModuleDescrCache = null;
     }
 
-    public ModuleDescriptorMemoryCache getMemoryCache() {
+    public synchronized ModuleDescriptorMemoryCache getMemoryCache() {
         if (memoryModuleDescrCache == null) {
-            memoryModuleDescrCache = new ModuleDescriptorMemoryCache(DEFAULT_MEMORY_CACHE_SIZE);
+            memoryModuleDescrCache = new ModuleDescriptorMemoryCache(memorySize, memoryMaxBytes,
+                    memorySoftReferences);
         }
         return memoryModuleDescrCache;
     }
 
+    /**
+     * Returns the hits, misses and evictions counters of the memory cache of parsed module
+     * descriptors, to help tuning its size.
+     * 
+     * @return a snapshot of the memory cache statistics
+     */
+    public MemoryCacheStatistics getMemoryCacheStatistics() {
+        return getMemoryCache().getStatistics();
+    }
+
     private static final Pattern DURATION_PATTERN = Pattern
             .compile("(?:(\\d+)d)? ?(?:(\\d+)h)? ?(?:(\\d+)m)? ?(?:(\\d+)s)? ?(?:(\\d+)ms)?");
 
@@ -348,6 +553,183 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         useOrigin = Boolean.valueOf(b);
     }
 
+    /**
+     * Returns true if downloads lock the downloaded artifact only, false if they lock the whole
+     * module metadata.
+     */
+    public boolean isArtifactLocking() {
+        return artifactLocking;
+    }
+
+    /**
+     * Sets the locking granularity used while downloading artifacts.
+     * <p>
+     * By default the module metadata is locked during the whole artifact download, so that two
+     * processes sharing the cache can't download different artifacts of the same module at the
+     * same time. When artifact locking is enabled, only the artifact being downloaded is locked
+     * during the transfer, and the module metadata is locked only while its artifact origin is
+     * read or saved.
+     * </p>
+     * 
+     * @param artifactLocking
+     *            true to lock only the downloaded artifact
+     */
+    public void setArtifactLocking(boolean artifactLocking) {
+        this.artifactLocking = artifactLocking;
+    }
+
+    public int getUnpackThreads() {
+        return unpackThreads;
+    }
+
+    /**
+     * Sets the number of threads used to unpack packed artifacts.
+     * <p>
+     * With more than one thread, artifacts are unpacked on a pool of threads instead of the
+     * downloading thread, and large zip archives are expanded by several threads at once. The
+     * unpacked file of an artifact is available from its download report once it has been
+     * unpacked.
+     * </p>
+     * 
+     * @param unpackThreads
+     *            the maximum number of threads unpacking artifacts, 1 to unpack them in the
+     *            downloading thread
+     */
+    public synchronized void setUnpackThreads(int unpackThreads) {
+        if (unpackThreads < 1) {
+            throw new IllegalArgumentException("unpackThreads must be strictly positive: "
+                    + unpackThreads);
+        }
+        this.unpackThreads = unpackThreads;
+        if (pendingUnpacks.isEmpty()) {
+            ExecutorHelper.shutdown(unpackExecutor);
+            unpackExecutor = null;
+        }
+        // otherwise the pending unpackings may use the current pool: it is replaced once they are
+        // done, by waitForUnpacks()
+    }
+
+    public boolean isLazyUnpack() {
+        return lazyUnpack;
+    }
+
+    /**
+     * Sets whether packed artifacts are only unpacked once all the artifacts have been downloaded,
+     * when {@link #waitForUnpacks()} is called, instead of right after their download.
+     * 
+     * @param lazyUnpack
+     *            true to defer unpacking
+     */
+    public void setLazyUnpack(boolean lazyUnpack) {
+        this.lazyUnpack = lazyUnpack;
+    }
+
+    private synchronized ExecutorService getUnpackExecutor() {
+        if (unpackThreads <= 1) {
+            return null;
+        }
+        if (unpackExecutor == null) {
+            unpackExecutor = ExecutorHelper.newElasticThreadPool("unpack-" + getName(),
+                unpackThreads);
+        }
+        return unpackExecutor;
+    }
+
+    /**
+     * Returns the pool of unpacking threads if it can still be used, <code>null</code> otherwise.
+     * It isn't shut down as long as an unpacking is pending.
+     */
+    private synchronized ExecutorService getRunningUnpackExecutor() {
+        return unpackExecutor == null || unpackExecutor.isShutdown() ? null : unpackExecutor;
+    }
+
+    private synchronized void submitUnpack(FutureTask unpack) {
+        // registered before taking the pool, so that it isn't shut down while still needed
+        pendingUnpacks.add(unpack);
+        ExecutorService executor = getUnpackExecutor();
+        if (!lazyUnpack && executor != null) {
+            executor.execute(unpack);
+        }
+        // otherwise it is run by waitForUnpacks()
+    }
+
+    /**
+     * Waits until the artifacts unpacked on the unpacking threads, or whose unpacking has been
+     * deferred, are unpacked. The deferred unpackings are started by this method. Their download
+     * reports are only complete once it returns: an artifact which couldn't be unpacked is then
+     * reported as failed.
+     * <p>
+     * Once there is nothing left to unpack, the unpacking threads are released.
+     * </p>
+     */
+    public void waitForUnpacks() {
+        FutureTask[] unpacks;
+        synchronized (this) {
+            if (pendingUnpacks.isEmpty()) {
+                return;
+            }
+            unpacks = (FutureTask[]) pendingUnpacks
+                    .toArray(new FutureTask[pendingUnpacks.size()]);
+            ExecutorService executor = getUnpackExecutor();
+            if (lazyUnpack && executor != null) {
+                for (int i = 0; i < unpacks.length; i++) {
+                    // does nothing if the unpacking has already been run
+                    executor.execute(unpacks[i]);
+                }
+            }
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < unpacks.length; i++) {
+            // runs the unpacking in this thread if it hasn't started yet
+            unpacks[i].run();
+            while (true) {
+                try {
+                    unpacks[i].get();
+                    break;
+                } catch (InterruptedException e) {
+                    // the unpacking holds a cache lock and can't be abandoned
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // the failure has been reported on the download report
+                    Message.debug(e.getCause());
+                    break;
+                }
+            }
+        }
+        synchronized (this) {
+            pendingUnpacks.removeAll(Arrays.asList(unpacks));
+            if (pendingUnpacks.isEmpty()) {
+                ExecutorHelper.shutdown(unpackExecutor);
+                unpackExecutor = null;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns true if module descriptors are also stored in a binary form in the cache.
+     */
+    public boolean isBinaryDescriptors() {
+        return binaryDescriptors;
+    }
+
+    /**
+     * Sets whether module descriptors are also stored in a compact binary form next to their xml
+     * form in the cache.
+     * <p>
+     * When enabled, module descriptors found in the cache are loaded from their binary form when it
+     * is up to date, instead of being parsed from xml again.
+     * </p>
+     * 
+     * @param binaryDescriptors
+     *            true to store and use binary module descriptors
+     */
+    public void setBinaryDescriptors(boolean binaryDescriptors) {
+        this.binaryDescriptors = binaryDescriptors;
+    }
+
     /**
      * Returns a File object pointing to where the artifact can be found on the local file system.
      * This is usually in the cache, but it can be directly in the repository if it is local and if
@@ -412,9 +794,9 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
      */
     private void saveResolver(ModuleDescriptor md, String name) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
-        cdf.setProperty("resolver", name);
-        cdf.save();
+        Map cdf = getCachedData(md);
+        cdf.put("resolver", name);
+        saveCachedData(md, cdf);
     }
 
     /**
@@ -434,10 +816,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return;
         }
         try {
-            PropertiesFile cdf = getCachedDataFile(md);
-            cdf.setProperty("resolver", metadataResolverName);
-            cdf.setProperty("artifact.resolver", artifactResolverName);
-            cdf.save();
+            Map cdf = getCachedData(md);
+            cdf.put("resolver", metadataResolverName);
+            cdf.put("artifact.resolver", artifactResolverName);
+            saveCachedData(md, cdf);
         } finally {
             unlockMetadataArtifact(mrid);
         }
@@ -445,37 +827,50 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private String getSavedResolverName(ModuleDescriptor md) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
-        return cdf.getProperty("resolver");
+        Map cdf = getCachedData(md);
+        return (String) cdf.get("resolver");
     }
 
     private String getSavedArtResolverName(ModuleDescriptor md) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
-        return cdf.getProperty("artifact.resolver");
+        Map cdf = getCachedData(md);
+        return (String) cdf.get("artifact.resolver");
     }
 
     void saveArtifactOrigin(Artifact artifact, ArtifactOrigin origin) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
-        cdf.setProperty(getIsLocalKey(artifact), String.valueOf(origin.isLocal()));
-        cdf.setProperty(getLocationKey(artifact), origin.getLocation());
-        cdf.setProperty(getOriginalKey(artifact), getPrefixKey(origin.getArtifact()));
+        Map cdf = getCachedData(artifact.getModuleRevisionId());
+        cdf.put(getIsLocalKey(artifact), String.valueOf(origin.isLocal()));
+        cdf.put(getLocationKey(artifact), origin.getLocation());
+        cdf.put(getOriginalKey(artifact), getPrefixKey(origin.getArtifact()));
         if (origin.getLastChecked() != null) {
-            cdf.setProperty(getLastCheckedKey(artifact), origin.getLastChecked().toString());
+            cdf.put(getLastCheckedKey(artifact), origin.getLastChecked().toString());
+        }
+        cdf.put(getExistsKey(artifact), Boolean.toString(origin.isExists()));
+        saveCachedData(artifact.getModuleRevisionId(), cdf);
+    }
+
+    private void saveArtifactOriginLocked(Artifact artifact, ArtifactOrigin origin) {
+        ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            saveArtifactOrigin(artifact, origin);
+        } finally {
+            unlockMetadataArtifact(mrid);
         }
-        cdf.setProperty(getExistsKey(artifact), Boolean.toString(origin.isExists()));
-        cdf.save();
     }
 
     private void removeSavedArtifactOrigin(Artifact artifact) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
+        Map cdf = getCachedData(artifact.getModuleRevisionId());
         cdf.remove(getLocationKey(artifact));
         cdf.remove(getIsLocalKey(artifact));
         cdf.remove(getLastCheckedKey(artifact));
         cdf.remove(getOriginalKey(artifact));
-        cdf.save();
+        saveCachedData(artifact.getModuleRevisionId(), cdf);
     }
 
     private static final Pattern ARTIFACT_KEY_PATTERN = Pattern
@@ -488,12 +883,12 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return ArtifactOrigin.unkwnown(artifact);
         }
         try {
-            PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
-            String location = cdf.getProperty(getLocationKey(artifact));
-            String local = cdf.getProperty(getIsLocalKey(artifact));
-            String lastChecked = cdf.getProperty(getLastCheckedKey(artifact));
-            String exists = cdf.getProperty(getExistsKey(artifact));
-            String original = cdf.getProperty(getOriginalKey(artifact));
+            Map cdf = getCachedData(artifact.getModuleRevisionId());
+            String location = (String) cdf.get(getLocationKey(artifact));
+            String local = (String) cdf.get(getIsLocalKey(artifact));
+            String lastChecked = (String) cdf.get(getLastCheckedKey(artifact));
+            String exists = (String) cdf.get(getExistsKey(artifact));
+            String original = (String) cdf.get(getOriginalKey(artifact));
 
             boolean isLocal = Boolean.valueOf(local).booleanValue();
 
@@ -660,13 +1055,20 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return prefix + ".original";
     }
 
-    private PropertiesFile getCachedDataFile(ModuleDescriptor md) {
-        return getCachedDataFile(md.getResolvedModuleRevisionId());
+    private Map getCachedData(ModuleDescriptor md) {
+        return getCachedData(md.getResolvedModuleRevisionId());
     }
 
-    private PropertiesFile getCachedDataFile(ModuleRevisionId mRevId) {
-        return new PropertiesFile(new File(getRepositoryCacheRoot(), IvyPatternHelper.substitute(
-            getDataFilePattern(), mRevId)), "ivy cached data file for " + mRevId);
+    private Map getCachedData(ModuleRevisionId mRevId) {
+        return getCacheMetadataStore().getMetadata(mRevId);
+    }
+
+    private void saveCachedData(ModuleDescriptor md, Map cdf) {
+        saveCachedData(md.getResolvedModuleRevisionId(), cdf);
+    }
+
+    private void saveCachedData(ModuleRevisionId mRevId, Map cdf) {
+        getCacheMetadataStore().saveMetadata(mRevId, cdf);
     }
 
     public ResolvedModuleRevision findModuleInCache(DependencyDescriptor dd,
@@ -800,21 +1202,40 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
         private final ParserSettings settings;
 
-        public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser, ParserSettings settings) {
+        private final boolean useBinary;
+
+        public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser,
+                ParserSettings settings, boolean useBinary) {
             this.mdParser = mdParser;
             this.settings = settings;
+            this.useBinary = useBinary;
         }
 
         public ModuleDescriptor provideModule(ParserSettings ivySettings, File descriptorURL,
                 boolean validate) throws ParseException, IOException {
-            return mdParser.parseDescriptor(settings, descriptorURL.toURI().toURL(), validate);
+            if (!useBinary || !isBinaryDescriptors()
+                    || mdParser != XmlModuleDescriptorParser.getInstance()) {
+                return mdParser.parseDescriptor(settings, descriptorURL.toURI().toURL(), validate);
+            }
+            ModuleDescriptor binaryMd = binaryDescriptorCache.read(descriptorURL, settings,
+                mdParser, validate);
+            if (binaryMd != null) {
+                return binaryMd;
+            }
+            ParserSettingsMonitor settingsMonitor = new ParserSettingsMonitor(settings);
+            ModuleDescriptor md = mdParser.parseDescriptor(settingsMonitor.getMonitoredSettings(),
+                descriptorURL.toURI().toURL(), validate);
+            binaryDescriptorCache.write(descriptorURL, md, settingsMonitor.getSubstitutes(),
+                validate);
+            return md;
         }
     }
 
     private ModuleDescriptor getMdFromCache(ModuleDescriptorParser mdParser,
             CacheMetadataOptions options, File ivyFile) throws ParseException, IOException {
         ModuleDescriptorMemoryCache cache = getMemoryCache();
-        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser, settings);
+        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser, settings,
+                true);
         return cache.get(ivyFile, settings, options.isValidate(), mdProvider);
     }
 
@@ -822,8 +1243,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             CacheMetadataOptions options, File ivyFile, ParserSettings parserSettings)
             throws ParseException, IOException {
         ModuleDescriptorMemoryCache cache = getMemoryCache();
+        // this is a freshly downloaded module descriptor, which may not even be the one looked up
+        // later in the cache: there is no point in storing it in binary form
         ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser,
-                parserSettings);
+                parserSettings, false);
         return cache.getStale(ivyFile, settings, options.isValidate(), mdProvider);
     }
 
@@ -838,14 +1261,14 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 Message.verbose("refresh mode: no check for cached resolved revision for " + mrid);
                 return null;
             }
-            PropertiesFile cachedResolvedRevision = getCachedDataFile(mrid);
-            resolvedRevision = cachedResolvedRevision.getProperty("resolved.revision");
+            Map cachedResolvedRevision = getCachedData(mrid);
+            resolvedRevision = (String) cachedResolvedRevision.get("resolved.revision");
             if (resolvedRevision == null) {
                 Message.verbose(getName() + ": no cached resolved revision for " + mrid);
                 return null;
             }
 
-            String resolvedTime = cachedResolvedRevision.getProperty("resolved.time");
+            String resolvedTime = (String) cachedResolvedRevision.get("resolved.time");
             if (resolvedTime == null) {
                 Message.verbose(getName()
                         + ": inconsistent or old cache: no cached resolved time for " + mrid);
@@ -867,22 +1290,268 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
     }
 
+    /**
+     * Returns the time at which the cached resolved revision of the given dynamic revision
+     * expires, or 0 if no resolved revision time is cached for it.
+     * 
+     * @param mrid
+     *            the dynamic module revision id
+     * @return the expiration time in milliseconds, or 0
+     */
+    public long getResolvedRevisionExpiration(ModuleRevisionId mrid) {
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return 0;
+        }
+        try {
+            String resolvedTime = (String) getCachedData(mrid).get("resolved.time");
+            if (resolvedTime == null) {
+                return 0;
+            }
+            long expiration = Long.parseLong(resolvedTime) + getTTL(mrid);
+            // negative expiration means that Long.MAX_VALUE has been exceeded
+            return expiration < 0 ? Long.MAX_VALUE : expiration;
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
     public void saveResolvedRevision(ModuleRevisionId mrid, String revision) {
         if (!lockMetadataArtifact(mrid)) {
             Message.error("impossible to acquire lock for " + mrid);
             return;
         }
         try {
-            PropertiesFile cachedResolvedRevision = getCachedDataFile(mrid);
-            cachedResolvedRevision.setProperty("resolved.time",
+            Map cachedResolvedRevision = getCachedData(mrid);
+            cachedResolvedRevision.put("resolved.time",
                 String.valueOf(System.currentTimeMillis()));
-            cachedResolvedRevision.setProperty("resolved.revision", revision);
-            cachedResolvedRevision.save();
+            cachedResolvedRevision.put("resolved.revision", revision);
+            saveCachedData(mrid, cachedResolvedRevision);
         } finally {
             unlockMetadataArtifact(mrid);
         }
     }
 
+    /**
+     * Returns for how long a resource of the given module which the given resolver didn't find is
+     * considered missing.
+     * 
+     * @param resolverName
+     *            the name of the resolver which didn't find the resource
+     * @param mrid
+     *            the module revision of the resource
+     * @return the negative TTL in milliseconds, 0 or less if misses shouldn't be cached
+     */
+    public long getNegativeTTL(String resolverName, ModuleRevisionId mrid) {
+        if (negativeTtlRules.isEmpty()) {
+            return getDefaultNegativeTTL();
+        }
+        Map attributes = new HashMap(mrid.getAttributes());
+        attributes.put("resolver", resolverName);
+        for (Iterator it = negativeTtlRules.entrySet().iterator(); it.hasNext();) {
+            Map.Entry rule = (Map.Entry) it.next();
+            if (((MapMatcher) rule.getKey()).matches(attributes)) {
+                return ((Long) rule.getValue()).longValue();
+            }
+        }
+        return getDefaultNegativeTTL();
+    }
+
+    /**
+     * Tells whether the given resolver recently found that the given resource of the given module
+     * doesn't exist, so that it doesn't need to ask the repository again.
+     * 
+     * @param resolverName
+     *            the name of the resolver looking for the resource
+     * @param mrid
+     *            the module revision of the resource
+     * @param resource
+     *            the name of the resource in the repository
+     * @return true if the resource is known to be missing
+     */
+    public boolean isKnownMissing(String resolverName, ModuleRevisionId mrid, String resource) {
+        long ttl = getNegativeTTL(resolverName, mrid);
+        if (ttl <= 0) {
+            return false;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return false;
+        }
+        try {
+            String missingTime = (String) getCachedData(mrid).get(
+                getMissingKey(resolverName, resource));
+            if (missingTime == null) {
+                return false;
+            }
+            long expiration = Long.parseLong(missingTime) + ttl;
+            // negative expiration means that Long.MAX_VALUE has been exceeded
+            return expiration < 0 || System.currentTimeMillis() <= expiration;
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    /**
+     * Records that the given resolver didn't find the given resource of the given module, if
+     * misses of this resolver should be cached.
+     * 
+     * @param resolverName
+     *            the name of the resolver which didn't find the resource
+     * @param mrid
+     *            the module revision of the resource
+     * @param resource
+     *            the name of the resource in the repository
+     */
+    public void saveMissing(String resolverName, ModuleRevisionId mrid, String resource) {
+        if (getNegativeTTL(resolverName, mrid) <= 0) {
+            return;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            Map cdf = getCachedData(mrid);
+            cdf.put(getMissingKey(resolverName, resource),
+                String.valueOf(System.currentTimeMillis()));
+            saveCachedData(mrid, cdf);
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    /**
+     * Forgets that the given resolver didn't find the given resource of the given module, once it
+     * has been found.
+     * 
+     * @param resolverName
+     *            the name of the resolver which found the resource
+     * @param mrid
+     *            the module revision of the resource
+     * @param resource
+     *            the name of the resource in the repository
+     */
+    public void removeMissing(String resolverName, ModuleRevisionId mrid, String resource) {
+        if (getNegativeTTL(resolverName, mrid) <= 0) {
+            // misses of this resolver are neither cached nor checked
+            return;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            Map cdf = getCachedData(mrid);
+            if (cdf.remove(getMissingKey(resolverName, resource)) != null) {
+                saveCachedData(mrid, cdf);
+            }
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    private String getMissingKey(String resolverName, String resource) {
+        return "missing:" + resolverName + ":" + resource;
+    }
+
+    /**
+     * Returns the listing of the given repository location made by the given resolver and saved
+     * in this cache, if it has been saved for less than the listing TTL.
+     * 
+     * @param resolverName
+     *            the name of the resolver listing the location
+     * @param parent
+     *            the listed location
+     * @return the names listed in the location, or <code>null</code> if there is no listing up to
+     *         date in the cache
+     * @see #setListingTTL(long)
+     */
+    public List getCachedListing(String resolverName, String parent) {
+        if (listingTTL <= 0) {
+            return null;
+        }
+        File listingFile = getListingFile(resolverName, parent);
+        long expiration = listingFile.lastModified() + listingTTL;
+        // negative expiration means that Long.MAX_VALUE has been exceeded
+        if (!listingFile.exists() || (expiration >= 0 && System.currentTimeMillis() > expiration)) {
+            return null;
+        }
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(
+                    listingFile), "UTF-8"));
+            try {
+                if (!parent.equals(in.readLine())) {
+                    return null;
+                }
+                List listing = new ArrayList();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    listing.add(line);
+                }
+                return listing;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to read cached listing " + listingFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves in this cache the listing of the given repository location made by the given
+     * resolver, if listings should be cached.
+     * 
+     * @param resolverName
+     *            the name of the resolver which listed the location
+     * @param parent
+     *            the listed location
+     * @param listing
+     *            the names listed in the location
+     */
+    public void saveListing(String resolverName, String parent, List listing) {
+        if (listingTTL <= 0) {
+            return;
+        }
+        File listingFile = getListingFile(resolverName, parent);
+        File partFile = new File(listingFile.getParentFile(), listingFile.getName() + ".part");
+        try {
+            listingFile.getParentFile().mkdirs();
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(partFile),
+                    "UTF-8"));
+            try {
+                out.write(parent);
+                out.write('\n');
+                for (Iterator it = listing.iterator(); it.hasNext();) {
+                    out.write((String) it.next());
+                    out.write('\n');
+                }
+            } finally {
+                out.close();
+            }
+            listingFile.delete();
+            if (!partFile.renameTo(listingFile)) {
+                partFile.delete();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to save listing " + listingFile, e);
+            partFile.delete();
+        }
+    }
+
+    private File getListingFile(String resolverName, String parent) {
+        byte[] shaDigest;
+        try {
+            synchronized (SHA_DIGEST) {
+                shaDigest = SHA_DIGEST.digest((resolverName + ":" + parent).getBytes("UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("UTF-8 not supported", e);
+        }
+        return new File(getRepositoryCacheRoot(), "_listings_/" + HexEncoder.encode(shaDigest));
+    }
+
     public long getTTL(ModuleRevisionId mrid) {
         Long ttl = (Long) ttlRules.getRule(mrid);
         return ttl == null ? getDefaultTTL() : ttl.longValue();
@@ -918,17 +1587,32 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     public ArtifactDownloadReport download(Artifact artifact,
             ArtifactResourceResolver resourceResolver, ResourceDownloader resourceDownloader,
             CacheDownloadOptions options) {
+        return download(artifact, resourceResolver, resourceDownloader, options,
+            isArtifactLocking());
+    }
+
+    /**
+     * Downloads the given artifact, either under its own lock if <code>artifactLocking</code> is
+     * true, or under the lock of its module metadata.
+     * <p>
+     * With artifact locking, the module metadata artifact is only locked to read and update the
+     * artifact origin, while the artifact lock is held. The original module descriptors are
+     * downloaded without artifact locking by {@link #cacheModuleDescriptor}, which already holds
+     * the module metadata lock (locks are reentrant). Locks are thus always acquired in the same
+     * order (artifact then module metadata), which prevents dead locks.
+     * </p>
+     */
+    private ArtifactDownloadReport download(Artifact artifact,
+            ArtifactResourceResolver resourceResolver, ResourceDownloader resourceDownloader,
+            CacheDownloadOptions options, boolean artifactLocking) {
         final ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
         boolean useOrigin = isUseOrigin();
 
-        // TODO: see if we could lock on the artifact to download only, instead of the module
-        // metadata artifact. We'd need to store artifact origin and is local in artifact specific
-        // file to do so, or lock the metadata artifact only to update artifact origin, which would
-        // mean acquiring nested locks, which can be a dangerous thing
         ModuleRevisionId mrid = artifact.getModuleRevisionId();
-        if (!lockMetadataArtifact(mrid)) {
+        if (artifactLocking ? !lockArtifact(artifact) : !lockMetadataArtifact(mrid)) {
             adr.setDownloadStatus(DownloadStatus.FAILED);
-            adr.setDownloadDetails("impossible to get lock for " + mrid);
+            adr.setDownloadDetails("impossible to get lock for "
+                    + (artifactLocking ? artifact.toString() : mrid.toString()));
             return adr;
         }
         try {
@@ -936,11 +1620,24 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             if (listener != null) {
                 listener.needArtifact(this, artifact);
             }
-            ArtifactOrigin origin = getSavedArtifactOrigin(artifact);
-            // if we can use origin file, we just ask ivy for the file in cache, and it will
-            // return the original one if possible. If we are not in useOrigin mode, we use the
-            // getArchivePath method which always return a path in the actual cache
-            File archiveFile = getArchiveFileInCache(artifact, origin, useOrigin);
+            if (artifactLocking && !lockMetadataArtifact(mrid)) {
+                adr.setDownloadStatus(DownloadStatus.FAILED);
+                adr.setDownloadDetails("impossible to get lock for " + mrid);
+                return adr;
+            }
+            ArtifactOrigin origin;
+            File archiveFile;
+            try {
+                origin = getSavedArtifactOrigin(artifact);
+                // if we can use origin file, we just ask ivy for the file in cache, and it will
+                // return the original one if possible. If we are not in useOrigin mode, we use
+                // the getArchivePath method which always return a path in the actual cache
+                archiveFile = getArchiveFileInCache(artifact, origin, useOrigin);
+            } finally {
+                if (artifactLocking) {
+                    unlockMetadataArtifact(mrid);
+                }
+            }
 
             if (archiveFile.exists() && !options.isForce()) {
                 adr.setDownloadStatus(DownloadStatus.NO);
@@ -960,7 +1657,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                                 origin.setLocation(((LocalizableResource) artifactRes).getFile()
                                         .getAbsolutePath());
                             }
-                            saveArtifactOrigin(artifact, origin);
+                            saveArtifactOriginLocked(artifact, origin);
                             archiveFile = getArchiveFileInCache(artifact, origin);
                             adr.setDownloadStatus(DownloadStatus.NO);
                             adr.setSize(archiveFile.length());
@@ -980,7 +1677,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
                             resourceDownloader.download(artifact, artifactRes, archiveFile);
                             adr.setSize(archiveFile.length());
-                            saveArtifactOrigin(artifact, origin);
+                            saveArtifactOriginLocked(artifact, origin);
                             adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
                             adr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
                             adr.setArtifactOrigin(origin);
@@ -1006,11 +1703,15 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             }
             return adr;
         } finally {
-            unlockMetadataArtifact(mrid);
+            if (artifactLocking) {
+                unlockArtifact(artifact);
+            } else {
+                unlockMetadataArtifact(mrid);
+            }
         }
     }
 
-    private void unpackArtifact(Artifact artifact, ArtifactDownloadReport adr,
+    private void unpackArtifact(final Artifact artifact, final ArtifactDownloadReport adr,
             CacheDownloadOptions options) {
         Artifact unpacked = packagingManager.getUnpackedArtifact(artifact);
         if (unpacked == null) {
@@ -1018,20 +1719,112 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return;
         }
 
-        File archiveFile = getArchiveFileInCache(unpacked, null, false);
+        final File archiveFile = getUnpackedFileInCache(unpacked);
+        if (archiveFile == null) {
+            adr.setDownloadStatus(DownloadStatus.FAILED);
+            adr.setDownloadDetails("impossible to get lock for " + artifact.getModuleRevisionId());
+            return;
+        }
         if (archiveFile.exists() && !options.isForce()) {
             adr.setUnpackedLocalFile(archiveFile);
-        } else {
-            Message.info("\tUnpacking " + artifact.getId());
-            try {
-                packagingManager.unpackArtifact(artifact, adr.getLocalFile(), archiveFile);
-                adr.setUnpackedLocalFile(archiveFile);
-            } catch (Exception e) {
-                Message.debug(e);
-                adr.setDownloadStatus(DownloadStatus.FAILED);
-                adr.setDownloadDetails("The packed artifact " + artifact.getId()
-                        + " could not be unpacked (" + e.getMessage() + ")");
+            return;
+        }
+        if (getUnpackThreads() <= 1 && !lazyUnpack) {
+            // the download lock is still held
+            adr.setUnpackedLocalFile(unpackArtifact(artifact, adr, archiveFile, null));
+            return;
+        }
+
+        // unpacked out of the download, under the same lock, before waitForUnpacks() returns
+        final boolean force = options.isForce();
+        FutureTask unpack = new FutureTask(ExecutorHelper.inCallerContext(new Callable() {
+            public Object call() {
+                ModuleRevisionId mrid = artifact.getModuleRevisionId();
+                boolean artifactLocking = isArtifactLocking();
+                if (artifactLocking ? !lockArtifact(artifact) : !lockMetadataArtifact(mrid)) {
+                    adr.setDownloadStatus(DownloadStatus.FAILED);
+                    adr.setDownloadDetails("impossible to get lock for "
+                            + (artifactLocking ? artifact.toString() : mrid.toString()));
+                    return null;
+                }
+                try {
+                    if (archiveFile.exists() && !force) {
+                        // unpacked by someone else in the meantime
+                        adr.setUnpackedLocalFile(archiveFile);
+                    } else {
+                        // unpacks in this thread if the pool has been shut down meanwhile
+                        adr.setUnpackedLocalFile(unpackArtifact(artifact, adr, archiveFile,
+                            getRunningUnpackExecutor()));
+                    }
+                    return adr.getUnpackedLocalFile();
+                } catch (RuntimeException e) {
+                    adr.setDownloadStatus(DownloadStatus.FAILED);
+                    adr.setDownloadDetails("The packed artifact " + artifact.getId()
+                            + " could not be unpacked (" + e.getMessage() + ")");
+                    throw e;
+                } finally {
+                    if (artifactLocking) {
+                        unlockArtifact(artifact);
+                    } else {
+                        unlockMetadataArtifact(mrid);
+                    }
+                }
+            }
+        }));
+        submitUnpack(unpack);
+    }
+
+    /**
+     * Returns where the given unpacked artifact is stored in the cache, or <code>null</code> if
+     * the module metadata couldn't be locked. Its path may depend on its saved origin: with
+     * artifact locking, the module metadata isn't locked by the download, so it's locked here.
+     */
+    private File getUnpackedFileInCache(Artifact unpacked) {
+        ModuleRevisionId mrid = unpacked.getModuleRevisionId();
+        boolean artifactLocking = isArtifactLocking();
+        if (artifactLocking && !lockMetadataArtifact(mrid)) {
+            return null;
+        }
+        try {
+            return getArchiveFileInCache(unpacked, null, false);
+        } finally {
+            if (artifactLocking) {
+                unlockMetadataArtifact(mrid);
+            }
+        }
+    }
+
+    /**
+     * Unpacks the artifact downloaded in the given report to the given location. The artifact is
+     * first unpacked next to it and then moved, so that an interrupted unpacking is never taken
+     * for a complete one.
+     * 
+     * @return the unpacked file, or <code>null</code> if the artifact couldn't be unpacked, in
+     *         which case the report is marked as failed
+     */
+    private File unpackArtifact(Artifact artifact, ArtifactDownloadReport adr,
+            File archiveFile, ExecutorService executor) {
+        Message.info("\tUnpacking " + artifact.getId());
+        File partFile = new File(archiveFile.getParentFile(), archiveFile.getName() + ".part");
+        try {
+            if (partFile.exists()) {
+                FileUtil.forceDelete(partFile);
             }
+            packagingManager.unpackArtifact(artifact, adr.getLocalFile(), partFile, executor);
+            if (archiveFile.exists()) {
+                FileUtil.forceDelete(archiveFile);
+            }
+            if (!partFile.renameTo(archiveFile)) {
+                throw new IOException("impossible to move " + partFile + " to " + archiveFile);
+            }
+            return archiveFile;
+        } catch (Exception e) {
+            Message.debug(e);
+            FileUtil.forceDelete(partFile);
+            adr.setDownloadStatus(DownloadStatus.FAILED);
+            adr.setDownloadDetails("The packed artifact " + artifact.getId()
+                    + " could not be unpacked (" + e.getMessage() + ")");
+            return null;
         }
     }
 
@@ -1293,13 +2086,14 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             }
 
             Artifact originalMetadataArtifact = getOriginalMetadataArtifact(moduleArtifact);
-            // now download module descriptor and parse it
+            // now download module descriptor and parse it, under the module metadata lock we
+            // already hold: taking the artifact lock now would invert the lock order
             report = download(originalMetadataArtifact, new ArtifactResourceResolver() {
                 public ResolvedResource resolve(Artifact artifact) {
                     return mdRef;
                 }
             }, backupDownloader, new CacheDownloadOptions().setListener(options.getListener())
-                    .setForce(true));
+                    .setForce(true), false);
             Message.verbose("\t" + report);
 
             if (report.getDownloadStatus() == DownloadStatus.FAILED) {
@@ -1423,20 +2217,26 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return new DefaultArtifact(mrid, new Date(), "metadata", "metadata", "ivy", true);
     }
 
-    // not used any more, but maybe useful for finer grain locking when downloading artifacts
-    // private boolean lockArtifact(Artifact artifact) {
-    // try {
-    // return getLockStrategy().lockArtifact(artifact,
-    // getArchiveFileInCache(artifact, null));
-    // } catch (InterruptedException e) {
-    // Thread.currentThread().interrupt(); // reset interrupt status
-    // throw new RuntimeException("operation interrupted");
-    // }
-    // }
-    //
-    // private void unlockArtifact(Artifact artifact) {
-    // getLockStrategy().unlockArtifact(artifact, getArchiveFileInCache(artifact, null));
-    // }
+    // lock used to download an artifact when artifact locking is enabled
+    private boolean lockArtifact(Artifact artifact) {
+        try {
+            // the lock file must not depend on the saved artifact origin, which can only be read
+            // with a lock on module metadata
+            return getLockStrategy().lockArtifact(artifact, getArtifactLockFile(artifact));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // reset interrupt status
+            throw new RuntimeException("operation interrupted");
+        }
+    }
+
+    private void unlockArtifact(Artifact artifact) {
+        getLockStrategy().unlockArtifact(artifact, getArtifactLockFile(artifact));
+    }
+
+    private File getArtifactLockFile(Artifact artifact) {
+        return new File(getRepositoryCacheRoot(), getArchivePathInCache(artifact,
+            ArtifactOrigin.unkwnown(artifact)));
+    }
 
     public Artifact getOriginalMetadataArtifact(Artifact moduleArtifact) {
         return DefaultArtifact.cloneWithAnotherType(moduleArtifact, moduleArtifact.getType()
@@ -1478,6 +2278,19 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     }
 
     public void clean() {
+        CacheMetadataStore store;
+        synchronized (this) {
+            store = metadataStore;
+        }
+        if (store instanceof IndexedCacheMetadataStore) {
+            // release the store file before deleting it
+            try {
+                ((IndexedCacheMetadataStore) store).close();
+            } catch (IOException e) {
+                Message.warn("impossible to close cached metadata file "
+                        + ((IndexedCacheMetadataStore) store).getFile(), e);
+            }
+        }
         FileUtil.forceDelete(getBasedir());
     }
 
@@ -1486,8 +2299,16 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         Message.debug("\t\tivyPattern: " + getIvyPattern());
         Message.debug("\t\tartifactPattern: " + getArtifactPattern());
         Message.debug("\t\tlockingStrategy: " + getLockStrategy().getName());
+        Message.debug("\t\tartifactLocking: " + isArtifactLocking());
         Message.debug("\t\tchangingPattern: " + getChangingPattern());
         Message.debug("\t\tchangingMatcher: " + getChangingMatcherName());
+        Message.debug("\t\tmemorySize: " + memorySize);
+        Message.debug("\t\tmemoryMaxBytes: " + memoryMaxBytes);
+        Message.debug("\t\tmemorySoftReferences: " + memorySoftReferences);
+        Message.debug("\t\tbinaryDescriptors: " + isBinaryDescriptors());
+        Message.debug("\t\tmetadataStore: " + getMetadataStore());
+        Message.debug("\t\tdefaultNegativeTTL: " + getDefaultNegativeTTL());
+        Message.debug("\t\tlistingTTL: " + getListingTTL());
     }
 
     /**
@@ -125,6 +125,18 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
         return new File(getResolutionCacheRoot(), resolveId + "-" + conf + ".xml");
     }
 
+    /**
+     * Returns the file in which the dependencies selected by the last resolve with the given
+     * resolve id are kept for incremental resolves.
+     * 
+     * @param resolveId
+     *            the resolve id
+     * @return the incremental resolve data file, which may not exist
+     */
+    public File getIncrementalResolveDataInCache(String resolveId) {
+        return new File(getResolutionCacheRoot(), resolveId + "-incremental.properties");
+    }
+
     public File[] getConfigurationResolveReportsInCache(final String resolveId) {
         final String prefix = resolveId + "-";
         final String suffix = ".xml";
@@ -0,0 +1,478 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.Message;
+
+/**
+ * A {@link CacheMetadataStore} keeping the metadata of all the module revisions of a cache in a
+ * single indexed file, instead of one properties file per module revision.
+ * <p>
+ * The file is an append only log: each save appends a record holding the whole metadata of a
+ * module revision, protected by a CRC. An in memory index maps each module revision to its last
+ * record, which is read through a memory mapped buffer. Appends are done while holding a file
+ * lock, and other processes sharing the cache pick up new records by scanning the end of the
+ * file when its size or modification date changes. A truncated or corrupted tail, left by a
+ * process killed while writing, is ignored and overwritten by the next append.
+ * </p>
+ * <p>
+ * When the file holds too many outdated records it is compacted: live records are copied to a
+ * temporary file which is flushed to disk and then renamed over the store file, so that a crash
+ * never leaves a partially compacted store. Each compaction changes the generation number stored
+ * in the file header, which lets other processes know they have to reload their index.
+ * </p>
+ */
+public class IndexedCacheMetadataStore implements CacheMetadataStore {
+
+    /**
+     * The name of the store file in the repository cache root.
+     */
+    public static final String FILE_NAME = "ivydata.index";
+
+    private static final int MAGIC = 0x49564458;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private static final Map/* <File, IndexedCacheMetadataStore> */STORES = new HashMap();
+
+    /**
+     * Returns the store backed by the given file. Stores are shared in the JVM, since file locks
+     * are held on behalf of the whole JVM.
+     * The store keeps its file open until it is closed, which is done when the cache is cleaned.
+     * 
+     * @param file
+     *            the file in which metadata is stored
+     * @return the store backed by the given file
+     */
+    public static IndexedCacheMetadataStore getInstance(File file) {
+        File key;
+        try {
+            key = file.getCanonicalFile();
+        } catch (IOException e) {
+            key = file.getAbsoluteFile();
+        }
+        synchronized (STORES) {
+            IndexedCacheMetadataStore store = (IndexedCacheMetadataStore) STORES.get(key);
+            if (store == null) {
+                store = new IndexedCacheMetadataStore(key);
+                STORES.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    private final File file;
+
+    private RandomAccessFile raf;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private long generation = -1;
+
+    private long validEnd;
+
+    private long knownLength = -1;
+
+    private long knownLastModified = -1;
+
+    private final Map/* <String, Record> */index = new HashMap();
+
+    private long liveSize;
+
+    IndexedCacheMetadataStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized Map getMetadata(ModuleRevisionId mrid) {
+        try {
+            sync();
+            Record record = (Record) index.get(mrid.encodeToString());
+            if (record == null) {
+                return new LinkedHashMap();
+            }
+            return readRecord(record);
+        } catch (IOException e) {
+            Message.warn("impossible to read cached metadata of " + mrid + " from " + file, e);
+            return new LinkedHashMap();
+        }
+    }
+
+    public synchronized void saveMetadata(ModuleRevisionId mrid, Map metadata) {
+        try {
+            append(mrid.encodeToString(), metadata);
+            if (channel.size() > MIN_COMPACTION_SIZE && channel.size() > 2 * liveSize) {
+                compact();
+            }
+        } catch (IOException e) {
+            Message.warn("impossible to save cached metadata of " + mrid + " in " + file, e);
+        }
+    }
+
+    public synchronized ModuleRevisionId[] listModules() {
+        try {
+            sync();
+        } catch (IOException e) {
+            Message.warn("impossible to read cached metadata from " + file, e);
+        }
+        List mrids = new ArrayList();
+        for (Iterator it = index.keySet().iterator(); it.hasNext();) {
+            mrids.add(ModuleRevisionId.decode((String) it.next()));
+        }
+        return (ModuleRevisionId[]) mrids.toArray(new ModuleRevisionId[mrids.size()]);
+    }
+
+    /**
+     * Rewrites the store file with only the last record of each module revision.
+     */
+    public synchronized void compact() throws IOException {
+        FileLock lock = lock();
+        File compacted = new File(file.getPath() + ".compact");
+        try {
+            RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+            try {
+                out.setLength(0);
+                FileChannel outChannel = out.getChannel();
+                outChannel.write(header(generation + 1), 0);
+                long position = HEADER_SIZE;
+                ensureMapped(validEnd);
+                for (Iterator it = index.values().iterator(); it.hasNext();) {
+                    Record record = (Record) it.next();
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.limit((int) (record.offset + record.size));
+                    slice.position((int) record.offset);
+                    while (slice.hasRemaining()) {
+                        position += outChannel.write(slice, position);
+                    }
+                }
+                outChannel.force(true);
+            } finally {
+                out.close();
+            }
+            if (!compacted.renameTo(file)) {
+                // on some platforms an existing file can't be replaced, just keep the log
+                Message.verbose("impossible to compact cached metadata file " + file);
+                compacted.delete();
+                return;
+            }
+            Message.verbose("compacted cached metadata file " + file);
+        } finally {
+            lock.release();
+        }
+        close();
+        sync();
+    }
+
+    /**
+     * Appends a record for the given module while holding the file lock.
+     */
+    private void append(String key, Map metadata) throws IOException {
+        byte[] record = encode(key, metadata);
+        FileLock lock = lock();
+        try {
+            if (validEnd < channel.size()) {
+                // drop a partially written record
+                channel.truncate(validEnd);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(record);
+            long position = validEnd;
+            while (buf.hasRemaining()) {
+                position += channel.write(buf, position);
+            }
+            index(key, validEnd, record.length, countValues(metadata) == 0);
+            validEnd += record.length;
+            knownLength = file.length();
+            knownLastModified = file.lastModified();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Locks the current store file, making sure it is still the store file once locked and that
+     * the index is up to date.
+     */
+    private FileLock lock() throws IOException {
+        while (true) {
+            sync(false);
+            FileLock lock = channel.lock();
+            long currentGeneration = generation;
+            sync(true);
+            if (currentGeneration == generation) {
+                return lock;
+            }
+            // the file has been compacted by another process while waiting for the lock, the
+            // lock has been released when closing the previous file
+            if (lock.isValid()) {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Brings the in memory index up to date with the store file.
+     */
+    private void sync() throws IOException {
+        sync(false);
+    }
+
+    /**
+     * Brings the in memory index up to date with the store file. Unless forced, the file is
+     * checked only if its size or modification date changed.
+     */
+    private void sync(boolean force) throws IOException {
+        if (!force && channel != null && file.length() == knownLength
+                && file.lastModified() == knownLastModified) {
+            return;
+        }
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            init();
+        }
+        RandomAccessFile newRaf = new RandomAccessFile(file, "rw");
+        FileChannel newChannel = newRaf.getChannel();
+        long newGeneration = readGeneration(newChannel);
+        if (channel != null && newGeneration == generation) {
+            newRaf.close();
+        } else {
+            close();
+            raf = newRaf;
+            channel = newChannel;
+            generation = newGeneration;
+            validEnd = HEADER_SIZE;
+        }
+        knownLength = file.length();
+        knownLastModified = file.lastModified();
+        scan();
+    }
+
+    /**
+     * Creates the store file with a header if it doesn't exist yet.
+     */
+    private void init() throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        // leftover of a compaction which has been interrupted
+        new File(file.getPath() + ".compact").delete();
+        RandomAccessFile newRaf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel newChannel = newRaf.getChannel();
+            FileLock lock = newChannel.lock();
+            try {
+                if (newChannel.size() < HEADER_SIZE) {
+                    newChannel.truncate(0);
+                    newChannel.write(header(System.currentTimeMillis()), 0);
+                }
+            } finally {
+                lock.release();
+            }
+        } finally {
+            newRaf.close();
+        }
+    }
+
+    private long readGeneration(FileChannel fileChannel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (fileChannel.read(header, header.position()) < 0) {
+                throw new IOException("truncated cached metadata file " + file);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("unsupported cached metadata file " + file);
+        }
+        return header.getLong();
+    }
+
+    private static ByteBuffer header(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putLong(generation);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Indexes the valid records found after the last known valid one.
+     */
+    private void scan() throws IOException {
+        long size = channel.size();
+        if (size <= validEnd) {
+            return;
+        }
+        ensureMapped(size);
+        CRC32 crc = new CRC32();
+        while (validEnd + RECORD_HEADER_SIZE <= size) {
+            int length = buffer.getInt((int) validEnd);
+            int checksum = buffer.getInt((int) validEnd + 4);
+            if (length <= 0 || validEnd + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) validEnd + RECORD_HEADER_SIZE);
+            slice.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            String key = in.readUTF();
+            int count = in.readInt();
+            index(key, validEnd, RECORD_HEADER_SIZE + length, count == 0);
+            validEnd += RECORD_HEADER_SIZE + length;
+        }
+        if (validEnd < size) {
+            Message.debug("ignoring " + (size - validEnd) + " invalid bytes at the end of "
+                    + file);
+        }
+    }
+
+    private void index(String key, long offset, int size, boolean removed) {
+        Record previous = (Record) index.remove(key);
+        if (previous != null) {
+            liveSize -= previous.size;
+        }
+        if (!removed) {
+            index.put(key, new Record(offset, size));
+            liveSize += size;
+        }
+    }
+
+    private Map readRecord(Record record) throws IOException {
+        ensureMapped(record.offset + record.size);
+        byte[] payload = new byte[record.size - RECORD_HEADER_SIZE];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) record.offset + RECORD_HEADER_SIZE);
+        slice.get(payload);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readUTF();
+        int count = in.readInt();
+        Map metadata = new LinkedHashMap();
+        for (int i = 0; i < count; i++) {
+            metadata.put(in.readUTF(), in.readUTF());
+        }
+        return metadata;
+    }
+
+    private static byte[] encode(String key, Map metadata) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeUTF(key);
+        out.writeInt(countValues(metadata));
+        for (Iterator it = metadata.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (entry.getValue() != null) {
+                out.writeUTF(String.valueOf(entry.getKey()));
+                out.writeUTF(String.valueOf(entry.getValue()));
+            }
+        }
+        out.flush();
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+        record.putInt(bytes.length);
+        record.putInt((int) crc.getValue());
+        record.put(bytes);
+        return record.array();
+    }
+
+    /**
+     * Returns the number of entries stored for the given metadata, entries with a
+     * <code>null</code> value being dropped.
+     */
+    private static int countValues(Map metadata) {
+        int count = 0;
+        for (Iterator it = metadata.values().iterator(); it.hasNext();) {
+            if (it.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void ensureMapped(long end) throws IOException {
+        if (buffer == null || buffer.capacity() < end) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Closes the store file. It is opened again the next time the store is used.
+     */
+    public synchronized void close() throws IOException {
+        buffer = null;
+        index.clear();
+        liveSize = 0;
+        if (raf != null) {
+            raf.close();
+            raf = null;
+            channel = null;
+        }
+    }
+
+    public String toString() {
+        return "indexed";
+    }
+
+    private static final class Record {
+        private final long offset;
+
+        private final int size;
+
+        private Record(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+}
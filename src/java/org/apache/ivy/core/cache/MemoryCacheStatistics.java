@@ -0,0 +1,87 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+/**
+ * A snapshot of the usage statistics of the memory cache of parsed module descriptors, useful to
+ * tune its size.
+ * 
+ * @see DefaultRepositoryCacheManager#getMemoryCacheStatistics()
+ */
+public class MemoryCacheStatistics {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final int size;
+
+    private final long weight;
+
+    public MemoryCacheStatistics(long hits, long misses, long evictions, int size, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the number of lookups which found a valid module descriptor in the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups which didn't find a valid module descriptor in the cache, and
+     * thus required to parse it.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries removed from the cache to honor its size limits, or because
+     * they have been garbage collected.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of entries currently in the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the approximate number of bytes currently used by the entries of the cache.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " size=" + size
+                + " weight=" + weight;
+    }
+}
@@ -0,0 +1,745 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.module.descriptor.AbstractIncludeExcludeRule;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.Configuration.Visibility;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultIncludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExtraInfoHolder;
+import org.apache.ivy.core.module.descriptor.License;
+import org.apache.ivy.core.module.descriptor.MDArtifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * Stores parsed module descriptors in a compact binary form next to the module descriptor files of
+ * the repository cache, so that they can be loaded again without parsing the xml.
+ * <p>
+ * A binary file is only used if the xml file it has been built from has not changed since (same
+ * length and last modification date), if the variables substituted while parsing the xml still
+ * have the same value, and if its content is not corrupted (it is checksummed). Otherwise it is
+ * ignored, and replaced the next time the xml is parsed.
+ * </p>
+ * <p>
+ * Only the module descriptors which can be exactly represented are stored: descriptors using
+ * namespaces, inheritance, conflict managers or dependency overrides are always parsed from xml.
+ * </p>
+ */
+class ModuleDescriptorBinaryCache {
+
+    static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x49564d44; // IVMD
+
+    private static final int FORMAT_VERSION = 1;
+
+    // magic, format version, ivy file length and date, validated flag, checksum, payload length
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 1 + 8 + 4;
+
+    /**
+     * Returns the binary file used for the given module descriptor file.
+     */
+    static File getBinaryFile(File ivyFile) {
+        return new File(ivyFile.getParentFile(), ivyFile.getName() + EXTENSION);
+    }
+
+    /**
+     * Loads the module descriptor stored in binary form for the given module descriptor file.
+     *
+     * @return the module descriptor, or <code>null</code> if there is no valid binary form for the
+     *         given module descriptor file.
+     */
+    ModuleDescriptor read(File ivyFile, ParserSettings settings, ModuleDescriptorParser parser,
+            boolean validated) {
+        File binFile = getBinaryFile(ivyFile);
+        long binLength = binFile.length();
+        if (binLength == 0) {
+            // missing or empty
+            return null;
+        }
+        try {
+            byte[] payload;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                    binFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported binary module descriptor format: " + binFile);
+                    return null;
+                }
+                if (in.readLong() != ivyFile.length() || in.readLong() != ivyFile.lastModified()) {
+                    Message.debug("binary module descriptor is out of date: " + binFile);
+                    return null;
+                }
+                boolean binValidated = in.readBoolean();
+                if (validated && !binValidated) {
+                    Message.debug("binary module descriptor has not been validated: " + binFile);
+                    return null;
+                }
+                long checksum = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length != binLength - HEADER_LENGTH) {
+                    Message.debug("truncated binary module descriptor: " + binFile);
+                    return null;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    Message.debug("corrupted binary module descriptor: " + binFile);
+                    return null;
+                }
+            } finally {
+                in.close();
+            }
+
+            Decoder decoder = new Decoder(payload, settings);
+            Map substitutes = decoder.readMap();
+            if (ParserSettingsMonitor.hasChanged(substitutes, settings)) {
+                Message.debug("settings used by binary module descriptor have changed: "
+                        + binFile);
+                return null;
+            }
+            return decoder.readModuleDescriptor(parser, ivyFile.toURI().toURL());
+        } catch (IOException e) {
+            Message.debug("impossible to read binary module descriptor " + binFile + ": " + e);
+            return null;
+        } catch (RuntimeException e) {
+            Message.debug("impossible to read binary module descriptor " + binFile + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given module descriptor in binary form, next to the module descriptor file it has
+     * been parsed from. Does nothing if the module descriptor can't be represented in binary form.
+     *
+     * @param substitutes
+     *            the substitutions done while parsing the module descriptor file, see
+     *            {@link ParserSettingsMonitor#getSubstitutes()}
+     */
+    void write(File ivyFile, ModuleDescriptor md, Map/* <String,String> */substitutes,
+            boolean validated) {
+        File binFile = getBinaryFile(ivyFile);
+        if (!isSupported(md)) {
+            Message.debug("module descriptor can't be stored in binary form: "
+                    + md.getModuleRevisionId());
+            binFile.delete();
+            return;
+        }
+        File tmpFile = new File(binFile.getParentFile(), binFile.getName() + ".part");
+        try {
+            Encoder encoder = new Encoder();
+            encoder.writeMap(substitutes);
+            encoder.writeModuleDescriptor((DefaultModuleDescriptor) md);
+            byte[] payload = encoder.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(ivyFile.length());
+                out.writeLong(ivyFile.lastModified());
+                out.writeBoolean(validated);
+                out.writeLong(crc.getValue());
+                out.writeInt(payload.length);
+                out.write(payload);
+            } finally {
+                out.close();
+            }
+            binFile.delete();
+            if (!tmpFile.renameTo(binFile)) {
+                FileUtil.copy(tmpFile, binFile, null, true);
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to write binary module descriptor " + binFile + ": " + e);
+            tmpFile.delete();
+            binFile.delete();
+        }
+    }
+
+    static boolean isSupported(ModuleDescriptor md) {
+        if (!(md instanceof DefaultModuleDescriptor)) {
+            return false;
+        }
+        DefaultModuleDescriptor dmd = (DefaultModuleDescriptor) md;
+        if (dmd.getNamespace() != null || dmd.getInheritedDescriptors().length > 0
+                || !dmd.getAllConflictManagers().getAllRules().isEmpty()
+                || !dmd.getAllDependencyDescriptorMediators().getAllRules().isEmpty()) {
+            return false;
+        }
+        Configuration[] confs = dmd.getConfigurations();
+        for (int i = 0; i < confs.length; i++) {
+            if (confs[i].getClass() != Configuration.class) {
+                return false;
+            }
+        }
+        if (getArtifactAdditions(dmd) == null) {
+            return false;
+        }
+        if (!areSupported(dmd.getAllExcludeRules(), DefaultExcludeRule.class)) {
+            return false;
+        }
+        DependencyDescriptor[] dds = dmd.getDependencies();
+        for (int i = 0; i < dds.length; i++) {
+            if (dds[i].getClass() != DefaultDependencyDescriptor.class
+                    || dds[i].getNamespace() != null
+                    || !areSupported(dds[i].getAllDependencyArtifacts(),
+                        DefaultDependencyArtifactDescriptor.class)
+                    || !areSupported(dds[i].getAllIncludeRules(), DefaultIncludeRule.class)
+                    || !areSupported(dds[i].getAllExcludeRules(), DefaultExcludeRule.class)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes a sequence of calls to {@link DefaultModuleDescriptor#addArtifact(String, Artifact)}
+     * which rebuilds the artifacts of the given module descriptor, both in their global order and
+     * in their order in each configuration.
+     *
+     * @return a list of {configuration name, artifact} pairs, or <code>null</code> if the artifacts
+     *         of the module descriptor can't be rebuilt that way.
+     */
+    private static List/* <Object[]> */getArtifactAdditions(DefaultModuleDescriptor md) {
+        String[] confs = md.getConfigurationsNames();
+        List[] artifactsByConf = new List[confs.length];
+        for (int i = 0; i < confs.length; i++) {
+            artifactsByConf[i] = Arrays.asList(md.getArtifacts(confs[i]));
+            for (Iterator it = artifactsByConf[i].iterator(); it.hasNext();) {
+                Artifact artifact = (Artifact) it.next();
+                if (artifact.getClass() != MDArtifact.class || artifact.isMetadata()) {
+                    return null;
+                }
+            }
+        }
+        List additions = new ArrayList();
+        List[] rebuiltByConf = new List[confs.length];
+        Artifact[] artifacts = md.getAllArtifacts();
+        for (int i = 0; i < confs.length; i++) {
+            rebuiltByConf[i] = new ArrayList();
+        }
+        for (int k = 0; k < artifacts.length; k++) {
+            for (int i = 0; i < confs.length; i++) {
+                for (Iterator it = artifactsByConf[i].iterator(); it.hasNext();) {
+                    Artifact artifact = (Artifact) it.next();
+                    if (artifact.equals(artifacts[k])) {
+                        additions.add(new Object[] {confs[i], artifact});
+                        rebuiltByConf[i].add(artifact);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < confs.length; i++) {
+            if (!isSameSequence(artifactsByConf[i], rebuiltByConf[i])) {
+                return null;
+            }
+        }
+        return additions;
+    }
+
+    private static boolean isSameSequence(List l1, List l2) {
+        if (l1.size() != l2.size()) {
+            return false;
+        }
+        for (int i = 0; i < l1.size(); i++) {
+            if (l1.get(i) != l2.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean areSupported(Object[] items, Class supportedClass) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].getClass() != supportedClass) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        byte[] toByteArray() throws IOException {
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        void writeModuleDescriptor(DefaultModuleDescriptor md) throws IOException {
+            writeModuleRevisionId(md.getModuleRevisionId());
+            writeModuleRevisionId(md.getResolvedModuleRevisionId());
+            writeString(md.getStatus());
+            writeDate(md.getPublicationDate());
+            writeDate(md.getResolvedPublicationDate());
+            out.writeLong(md.getLastModified());
+            out.writeBoolean(md.isDefault());
+            writeString(md.getHomePage());
+            writeString(md.getDescription());
+            writeString(md.getDefaultConf());
+            writeString(md.getDefaultConfMapping());
+            out.writeBoolean(md.isMappingOverride());
+            writeMap(md.getExtraAttributesNamespaces());
+            writeMap(md.getExtraInfo());
+            writeExtraInfos(md.getExtraInfos());
+
+            License[] licenses = md.getLicenses();
+            out.writeInt(licenses.length);
+            for (int i = 0; i < licenses.length; i++) {
+                writeString(licenses[i].getName());
+                writeString(licenses[i].getUrl());
+            }
+
+            Configuration[] confs = md.getConfigurations();
+            out.writeInt(confs.length);
+            for (int i = 0; i < confs.length; i++) {
+                writeString(confs[i].getName());
+                writeString(confs[i].getVisibility().toString());
+                writeString(confs[i].getDescription());
+                writeStrings(confs[i].getExtends());
+                out.writeBoolean(confs[i].isTransitive());
+                writeString(confs[i].getDeprecated());
+                writeMap(confs[i].getQualifiedExtraAttributes());
+                writeModuleRevisionId(confs[i].getSourceModule());
+            }
+
+            // artifacts are written once, then referenced by index from each configuration
+            List additions = getArtifactAdditions(md);
+            Map indexes = new IdentityHashMap();
+            List artifacts = new ArrayList();
+            for (Iterator it = additions.iterator(); it.hasNext();) {
+                Artifact artifact = (Artifact) ((Object[]) it.next())[1];
+                if (!indexes.containsKey(artifact)) {
+                    indexes.put(artifact, new Integer(artifacts.size()));
+                    artifacts.add(artifact);
+                }
+            }
+            out.writeInt(artifacts.size());
+            for (Iterator it = artifacts.iterator(); it.hasNext();) {
+                Artifact artifact = (Artifact) it.next();
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeUrl(artifact.getUrl());
+                writeMap(artifact.getQualifiedExtraAttributes());
+                writeStrings(artifact.getConfigurations());
+            }
+            out.writeInt(additions.size());
+            for (Iterator it = additions.iterator(); it.hasNext();) {
+                Object[] addition = (Object[]) it.next();
+                writeString((String) addition[0]);
+                out.writeInt(((Integer) indexes.get(addition[1])).intValue());
+            }
+
+            DependencyDescriptor[] dds = md.getDependencies();
+            out.writeInt(dds.length);
+            for (int i = 0; i < dds.length; i++) {
+                writeDependency((DefaultDependencyDescriptor) dds[i]);
+            }
+
+            writeRules(md.getAllExcludeRules());
+        }
+
+        private void writeDependency(DefaultDependencyDescriptor dd) throws IOException {
+            writeModuleRevisionId(dd.getDependencyRevisionId());
+            writeModuleRevisionId(dd.getDynamicConstraintDependencyRevisionId());
+            out.writeBoolean(dd.isForce());
+            out.writeBoolean(dd.isChanging());
+            out.writeBoolean(dd.isTransitive());
+            String[] moduleConfs = dd.getModuleConfigurations();
+            out.writeInt(moduleConfs.length);
+            for (int i = 0; i < moduleConfs.length; i++) {
+                writeString(moduleConfs[i]);
+                writeStrings(dd.getDeclaredDependencyConfigurations(moduleConfs[i]));
+            }
+
+            DependencyArtifactDescriptor[] dads = dd.getAllDependencyArtifacts();
+            out.writeInt(dads.length);
+            for (int i = 0; i < dads.length; i++) {
+                writeString(dads[i].getName());
+                writeString(dads[i].getType());
+                writeString(dads[i].getExt());
+                writeUrl(dads[i].getUrl());
+                writeMap(dads[i].getQualifiedExtraAttributes());
+                writeStrings(dads[i].getConfigurations());
+            }
+            writeRules(dd.getAllIncludeRules());
+            writeRules(dd.getAllExcludeRules());
+        }
+
+        private void writeRules(Object[] rules) throws IOException {
+            out.writeInt(rules.length);
+            for (int i = 0; i < rules.length; i++) {
+                AbstractIncludeExcludeRule rule = (AbstractIncludeExcludeRule) rules[i];
+                ArtifactId aid = rule.getId();
+                writeString(aid.getModuleId().getOrganisation());
+                writeString(aid.getModuleId().getName());
+                writeString(aid.getName());
+                writeString(aid.getType());
+                writeString(aid.getExt());
+                writeString(rule.getMatcher().getName());
+                writeMap(rule.getQualifiedExtraAttributes());
+                writeStrings(rule.getConfigurations());
+            }
+        }
+
+        private void writeExtraInfos(List/* <ExtraInfoHolder> */extraInfos) throws IOException {
+            out.writeInt(extraInfos.size());
+            for (Iterator it = extraInfos.iterator(); it.hasNext();) {
+                ExtraInfoHolder extraInfo = (ExtraInfoHolder) it.next();
+                writeString(extraInfo.getName());
+                writeMap(extraInfo.getAttributes());
+                writeString(extraInfo.getContent());
+                writeExtraInfos(extraInfo.getNestedExtraInfoHolder());
+            }
+        }
+
+        private void writeModuleRevisionId(ModuleRevisionId mrid) throws IOException {
+            out.writeBoolean(mrid != null);
+            if (mrid != null) {
+                writeString(mrid.getOrganisation());
+                writeString(mrid.getName());
+                writeString(mrid.getBranch());
+                writeString(mrid.getRevision());
+                writeMap(mrid.getQualifiedExtraAttributes());
+            }
+        }
+
+        private void writeDate(Date date) throws IOException {
+            out.writeBoolean(date != null);
+            if (date != null) {
+                out.writeLong(date.getTime());
+            }
+        }
+
+        private void writeUrl(URL url) throws IOException {
+            writeString(url == null ? null : url.toExternalForm());
+        }
+
+        void writeMap(Map map) throws IOException {
+            out.writeInt(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                writeString((String) entry.getKey());
+                writeString((String) entry.getValue());
+            }
+        }
+
+        private void writeStrings(String[] strings) throws IOException {
+            out.writeInt(strings.length);
+            for (int i = 0; i < strings.length; i++) {
+                writeString(strings[i]);
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] b = s.getBytes("UTF-8");
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+    }
+
+    private static final class Decoder {
+        private final DataInputStream in;
+
+        private final ParserSettings settings;
+
+        Decoder(byte[] payload, ParserSettings settings) {
+            this.in = new DataInputStream(new ByteArrayInputStream(payload));
+            this.settings = settings;
+        }
+
+        ModuleDescriptor readModuleDescriptor(ModuleDescriptorParser parser, URL url)
+                throws IOException {
+            DefaultModuleDescriptor md = new DefaultModuleDescriptor(parser, new URLResource(url));
+            md.setModuleRevisionId(readModuleRevisionId());
+            md.setResolvedModuleRevisionId(readModuleRevisionId());
+            md.setStatus(readString());
+            Date pubDate = readDate();
+            if (pubDate != null) {
+                md.setPublicationDate(pubDate);
+            }
+            Date resolvedPubDate = readDate();
+            if (resolvedPubDate != null) {
+                md.setResolvedPublicationDate(resolvedPubDate);
+            }
+            md.setLastModified(in.readLong());
+            md.setDefault(in.readBoolean());
+            md.setHomePage(readString());
+            md.setDescription(readString());
+            md.setDefaultConf(readString());
+            md.setDefaultConfMapping(readString());
+            md.setMappingOverride(in.readBoolean());
+            Map namespaces = readMap();
+            for (Iterator it = namespaces.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                md.addExtraAttributeNamespace((String) entry.getKey(), (String) entry.getValue());
+            }
+            Map extraInfo = readMap();
+            for (Iterator it = extraInfo.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                md.addExtraInfo((String) entry.getKey(), (String) entry.getValue());
+            }
+            for (Iterator it = readExtraInfos().iterator(); it.hasNext();) {
+                md.addExtraInfo((ExtraInfoHolder) it.next());
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                md.addLicense(new License(readString(), readString()));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Configuration conf = new Configuration(readString(),
+                        Visibility.getVisibility(readString()), readString(), readStrings(),
+                        in.readBoolean(), readString());
+                Map extraAttributes = readMap();
+                for (Iterator it = extraAttributes.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    conf.setExtraAttribute((String) entry.getKey(), (String) entry.getValue());
+                }
+                ModuleRevisionId sourceModule = readModuleRevisionId();
+                md.addConfiguration(sourceModule == null ? conf : new Configuration(conf,
+                        sourceModule));
+            }
+
+            MDArtifact[] artifacts = new MDArtifact[readCount()];
+            for (int i = 0; i < artifacts.length; i++) {
+                artifacts[i] = new MDArtifact(md, readString(), readString(), readString(),
+                        readUrl(), readMap());
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    artifacts[i].addConfiguration(confs[j]);
+                }
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                md.addArtifact(readString(), artifacts[in.readInt()]);
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                md.addDependency(readDependency(md));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DefaultExcludeRule rule = new DefaultExcludeRule(readArtifactId(), readMatcher(),
+                        readMap());
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    rule.addConfiguration(confs[j]);
+                }
+                md.addExcludeRule(rule);
+            }
+
+            md.setModuleArtifact(DefaultArtifact.newIvyArtifact(md.getResolvedModuleRevisionId(),
+                md.getPublicationDate()));
+            return md;
+        }
+
+        private DefaultDependencyDescriptor readDependency(DefaultModuleDescriptor md)
+                throws IOException {
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md,
+                    readModuleRevisionId(), readModuleRevisionId(), in.readBoolean(),
+                    in.readBoolean(), in.readBoolean());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String moduleConf = readString();
+                String[] depConfs = readStrings();
+                for (int j = 0; j < depConfs.length; j++) {
+                    dd.addDependencyConfiguration(moduleConf, depConfs[j]);
+                }
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DefaultDependencyArtifactDescriptor dad = new DefaultDependencyArtifactDescriptor(
+                        dd, readString(), readString(), readString(), readUrl(), readMap());
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    dad.addConfiguration(confs[j]);
+                    dd.addDependencyArtifact(confs[j], dad);
+                }
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DefaultIncludeRule rule = new DefaultIncludeRule(readArtifactId(), readMatcher(),
+                        readMap());
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    rule.addConfiguration(confs[j]);
+                    dd.addIncludeRule(confs[j], rule);
+                }
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DefaultExcludeRule rule = new DefaultExcludeRule(readArtifactId(), readMatcher(),
+                        readMap());
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    rule.addConfiguration(confs[j]);
+                    dd.addExcludeRule(confs[j], rule);
+                }
+            }
+            return dd;
+        }
+
+        private ArtifactId readArtifactId() throws IOException {
+            ModuleId mid = new ModuleId(readString(), readString());
+            return new ArtifactId(mid, readString(), readString(), readString());
+        }
+
+        private PatternMatcher readMatcher() throws IOException {
+            String name = readString();
+            PatternMatcher matcher = settings.getMatcher(name);
+            if (matcher == null) {
+                throw new IOException("unknown matcher " + name);
+            }
+            return matcher;
+        }
+
+        private List/* <ExtraInfoHolder> */readExtraInfos() throws IOException {
+            int count = in.readInt();
+            List extraInfos = new ArrayList(count);
+            for (int i = 0; i < count; i++) {
+                ExtraInfoHolder extraInfo = new ExtraInfoHolder(readString(), null);
+                extraInfo.setAttributes(readMap());
+                extraInfo.setContent(readString());
+                extraInfo.setNestedExtraInfoHolder(readExtraInfos());
+                extraInfos.add(extraInfo);
+            }
+            return extraInfos;
+        }
+
+        private ModuleRevisionId readModuleRevisionId() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            return ModuleRevisionId.newInstance(readString(), readString(), readString(),
+                readString(), readMap(), false);
+        }
+
+        private Date readDate() throws IOException {
+            return in.readBoolean() ? new Date(in.readLong()) : null;
+        }
+
+        private URL readUrl() throws IOException {
+            String url = readString();
+            return url == null ? null : new URL(url);
+        }
+
+        Map readMap() throws IOException {
+            int count = in.readInt();
+            Map map = new LinkedHashMap();
+            for (int i = 0; i < count; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        private String[] readStrings() throws IOException {
+            String[] strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString();
+            }
+            return strings;
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            checkCount(length);
+            byte[] b = new byte[length];
+            in.readFully(b);
+            return new String(b, "UTF-8");
+        }
+
+        /**
+         * Reads a number of elements to allocate, each of them being stored on at least one byte.
+         */
+        private int readCount() throws IOException {
+            int count = in.readInt();
+            checkCount(count);
+            return count;
+        }
+
+        private void checkCount(int count) throws IOException {
+            // the payload is in memory: the bytes available are the ones remaining
+            if (count < 0 || count > in.available()) {
+                throw new IOException("invalid length " + count + ": " + in.available()
+                        + " bytes remaining");
+            }
+        }
+    }
+}
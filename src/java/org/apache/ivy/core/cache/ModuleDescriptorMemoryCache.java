@@ -19,6 +19,7 @@ package org.apache.ivy.core.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.text.ParseException;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -32,21 +33,70 @@ import org.apache.ivy.util.Message;
  * instance), it is parsed only once. This cache is has a limited size, and keep the most recently
  * used entries. The entry in the cache are invalidated if there is a change to one variable used in
  * the module descriptor.
+ * <p>
+ * The size of the cache can be limited both in number of entries and in approximate memory
+ * footprint (see {@link #estimateWeight(ModuleDescriptor)}). Entries can optionally be held through
+ * soft references, letting the garbage collector reclaim them under memory pressure.
+ * </p>
+ * <p>
+ * This cache is thread safe. Module descriptors are parsed outside of any lock, so concurrent
+ * resolves only contend for the short time needed to look up or store an entry.
+ * </p>
  */
 class ModuleDescriptorMemoryCache {
 
+    /**
+     * Approximate number of bytes used by a parsed module descriptor, regardless of its content.
+     */
+    private static final int BASE_WEIGHT = 512;
+
+    private static final int DEPENDENCY_WEIGHT = 256;
+
+    private static final int ARTIFACT_WEIGHT = 128;
+
+    private static final int CONFIGURATION_WEIGHT = 64;
+
     private final int maxSize;
 
+    private final long maxWeight;
+
+    private final boolean softReferences;
+
     private final LinkedHashMap/* <File,CacheEntry> */valueMap;
 
+    private long weight;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
     /**
      * Create a cache of the given size
      * 
      * @param size
      */
     public ModuleDescriptorMemoryCache(int size) {
+        this(size, 0, false);
+    }
+
+    /**
+     * Create a cache of the given size and weight.
+     * 
+     * @param size
+     *            the maximum number of entries. 0 or less disables the cache.
+     * @param maxWeight
+     *            the maximum approximate number of bytes used by cached entries. 0 or less means no
+     *            limit other than the number of entries.
+     * @param softReferences
+     *            true to let the garbage collector reclaim cached entries under memory pressure
+     */
+    public ModuleDescriptorMemoryCache(int size, long maxWeight, boolean softReferences) {
         this.maxSize = size;
-        this.valueMap = new LinkedHashMap(size);
+        this.maxWeight = maxWeight;
+        this.softReferences = softReferences;
+        this.valueMap = new LinkedHashMap(Math.max(size, 0), 0.75f, true);
     }
 
     public ModuleDescriptor get(File ivyFile, ParserSettings ivySettings, boolean validated,
@@ -71,58 +121,109 @@ class ModuleDescriptorMemoryCache {
         return descriptor;
     }
 
-    ModuleDescriptor getFromCache(File ivyFile, ParserSettings ivySettings, boolean validated) {
+    synchronized ModuleDescriptor getFromCache(File ivyFile, ParserSettings ivySettings,
+            boolean validated) {
         if (maxSize <= 0) {
             // cache is disbaled
             return null;
         }
         CacheEntry entry = (CacheEntry) valueMap.get(ivyFile);
         if (entry != null) {
-            if (entry.isStale(validated, ivySettings)) {
+            ModuleDescriptor md = entry.getModuleDescriptor();
+            if (md == null) {
+                Message.debug("Entry of the ModuleDescriptorCache has been garbage collected : "
+                        + ivyFile);
+                remove(ivyFile);
+                evictions++;
+                misses++;
+                return null;
+            } else if (entry.isStale(validated, ivySettings)) {
                 Message.debug("Entry is found in the ModuleDescriptorCache but entry should be "
                         + "reevaluated : " + ivyFile);
-                valueMap.remove(ivyFile);
+                remove(ivyFile);
+                misses++;
                 return null;
             } else {
-                // Move the entry at the end of the list
-                valueMap.remove(ivyFile);
-                valueMap.put(ivyFile, entry);
+                // the map is in access order: the entry has been moved at the end of the list
                 Message.debug("Entry is found in the ModuleDescriptorCache : " + ivyFile);
-                return entry.md;
+                hits++;
+                return md;
             }
         } else {
             Message.debug("No entry is found in the ModuleDescriptorCache : " + ivyFile);
+            misses++;
             return null;
         }
     }
 
-    void putInCache(File url, ParserSettingsMonitor ivySettingsMonitor, boolean validated,
-            ModuleDescriptor descriptor) {
+    synchronized void putInCache(File url, ParserSettingsMonitor ivySettingsMonitor,
+            boolean validated, ModuleDescriptor descriptor) {
         if (maxSize <= 0) {
             // cache is disabled
             return;
         }
-        if (valueMap.size() >= maxSize) {
+        remove(url);
+        CacheEntry entry = new CacheEntry(descriptor, validated, ivySettingsMonitor,
+                softReferences);
+        valueMap.put(url, entry);
+        weight += entry.weight;
+        Iterator it = valueMap.values().iterator();
+        while (valueMap.size() > maxSize || (maxWeight > 0 && weight > maxWeight)) {
             Message.debug("ModuleDescriptorCache is full, remove one entry");
-            Iterator it = valueMap.values().iterator();
-            it.next();
+            CacheEntry eldest = (CacheEntry) it.next();
             it.remove();
+            weight -= eldest.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     */
+    synchronized MemoryCacheStatistics getStatistics() {
+        return new MemoryCacheStatistics(hits, misses, evictions, valueMap.size(), weight);
+    }
+
+    private void remove(File ivyFile) {
+        CacheEntry entry = (CacheEntry) valueMap.remove(ivyFile);
+        if (entry != null) {
+            weight -= entry.weight;
         }
-        valueMap.put(url, new CacheEntry(descriptor, validated, ivySettingsMonitor));
+    }
+
+    /**
+     * Returns the approximate number of bytes used in memory by the given module descriptor. This
+     * is a cheap estimate based on the number of dependencies, artifacts and configurations of the
+     * module, not an exact measure.
+     */
+    static long estimateWeight(ModuleDescriptor md) {
+        return BASE_WEIGHT + (long) DEPENDENCY_WEIGHT * md.getDependencies().length
+                + (long) ARTIFACT_WEIGHT * md.getAllArtifacts().length
+                + (long) CONFIGURATION_WEIGHT * md.getConfigurations().length;
     }
 
     private static class CacheEntry {
-        private final ModuleDescriptor md;
+        private final Object md;
 
         private final boolean validated;
 
         private final ParserSettingsMonitor parserSettingsMonitor;
 
+        private final long weight;
+
         CacheEntry(ModuleDescriptor md, boolean validated,
-                ParserSettingsMonitor parserSettingsMonitor) {
-            this.md = md;
+                ParserSettingsMonitor parserSettingsMonitor, boolean softReference) {
+            this.md = softReference ? (Object) new SoftReference(md) : md;
             this.validated = validated;
             this.parserSettingsMonitor = parserSettingsMonitor;
+            this.weight = estimateWeight(md);
+        }
+
+        ModuleDescriptor getModuleDescriptor() {
+            if (md instanceof SoftReference) {
+                return (ModuleDescriptor) ((SoftReference) md).get();
+            }
+            return (ModuleDescriptor) md;
         }
 
         boolean isStale(boolean validated, ParserSettings newParserSettings) {
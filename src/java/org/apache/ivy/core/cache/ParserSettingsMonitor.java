@@ -79,6 +79,22 @@ class ParserSettingsMonitor {
      * Only the info that was actually used is compared.
      */
     public boolean hasChanged(ParserSettings newSettings) {
+        return hasChanged(substitutes, newSettings);
+    }
+
+    /**
+     * @return the substitutions which have been done through the monitored settings, as a map of
+     *         original values to substituted values.
+     */
+    Map/* <String,String> */getSubstitutes() {
+        return substitutes;
+    }
+
+    /**
+     * Check if the given substitutions, as returned by {@link #getSubstitutes()}, would give a
+     * different result with newSettings.
+     */
+    static boolean hasChanged(Map/* <String,String> */substitutes, ParserSettings newSettings) {
         for (Iterator it = substitutes.entrySet().iterator(); it.hasNext();) {
             Map.Entry entry = (Entry) it.next();
             String key = (String) entry.getKey();
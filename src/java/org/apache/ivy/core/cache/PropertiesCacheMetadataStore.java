@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.PropertiesFile;
+
+/**
+ * A {@link CacheMetadataStore} storing the metadata of each module revision in its own properties
+ * file, located in the cache according to a pattern.
+ * <p>
+ * This is the historical layout of the repository cache, and the default store.
+ * </p>
+ */
+public class PropertiesCacheMetadataStore implements CacheMetadataStore {
+
+    private final File root;
+
+    private final String dataFilePattern;
+
+    public PropertiesCacheMetadataStore(File root, String dataFilePattern) {
+        this.root = root;
+        this.dataFilePattern = dataFilePattern;
+    }
+
+    public Map getMetadata(ModuleRevisionId mrid) {
+        return new PropertiesFile(getDataFile(mrid), getHeader(mrid));
+    }
+
+    public void saveMetadata(ModuleRevisionId mrid, Map metadata) {
+        if (metadata instanceof PropertiesFile) {
+            // most of the time we save what getMetadata returned, no need to copy it
+            PropertiesFile cdf = (PropertiesFile) metadata;
+            if (getDataFile(mrid).equals(cdf.getFile())) {
+                cdf.save();
+                return;
+            }
+        }
+        PropertiesFile cdf = new PropertiesFile(getDataFile(mrid), getHeader(mrid));
+        cdf.clear();
+        cdf.putAll(metadata);
+        cdf.save();
+    }
+
+    /**
+     * Lists the module revisions for which a properties file exists, by matching the files of the
+     * cache against the data file pattern. Only organisation, module, branch and revision tokens
+     * are supported, other tokens are considered as extra attributes.
+     */
+    public ModuleRevisionId[] listModules() {
+        List tokens = new ArrayList();
+        Pattern pattern = Pattern.compile(toRegexp(dataFilePattern, tokens));
+        List mrids = new ArrayList();
+        listModules(root, "", pattern, tokens, mrids);
+        return (ModuleRevisionId[]) mrids.toArray(new ModuleRevisionId[mrids.size()]);
+    }
+
+    private void listModules(File dir, String path, Pattern pattern, List tokens, List mrids) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            String filePath = path + files[i].getName();
+            if (files[i].isDirectory()) {
+                listModules(files[i], filePath + "/", pattern, tokens, mrids);
+                continue;
+            }
+            Matcher m = pattern.matcher(filePath);
+            if (!m.matches()) {
+                continue;
+            }
+            Map values = new HashMap();
+            for (int j = 0; j < tokens.size(); j++) {
+                values.put(tokens.get(j), m.group(j + 1));
+            }
+            String org = (String) values.remove(IvyPatternHelper.ORGANISATION_KEY);
+            String module = (String) values.remove(IvyPatternHelper.MODULE_KEY);
+            String branch = (String) values.remove(IvyPatternHelper.BRANCH_KEY);
+            String rev = (String) values.remove(IvyPatternHelper.REVISION_KEY);
+            if (org == null || module == null || rev == null) {
+                continue;
+            }
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance(org, module, branch, rev, values,
+                false);
+            if (getDataFile(mrid).equals(files[i])) {
+                mrids.add(mrid);
+            }
+        }
+    }
+
+    /**
+     * Converts an ivy pattern into a regular expression capturing the values of its tokens, in the
+     * order given by the tokens list.
+     */
+    private static String toRegexp(String ivyPattern, List tokens) {
+        StringBuffer regexp = new StringBuffer();
+        StringBuffer literal = new StringBuffer();
+        for (int i = 0; i < ivyPattern.length(); i++) {
+            char c = ivyPattern.charAt(i);
+            if (c == '[' || c == '(' || c == ')') {
+                if (literal.length() > 0) {
+                    regexp.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '[') {
+                    int end = ivyPattern.indexOf(']', i);
+                    tokens.add(ivyPattern.substring(i + 1, end));
+                    regexp.append("([^/]+?)");
+                    i = end;
+                } else if (c == '(') {
+                    regexp.append("(?:");
+                } else {
+                    regexp.append(")?");
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regexp.append(Pattern.quote(literal.toString()));
+        }
+        return regexp.toString();
+    }
+
+    private File getDataFile(ModuleRevisionId mrid) {
+        return new File(root, IvyPatternHelper.substitute(dataFilePattern, mrid));
+    }
+
+    private String getHeader(ModuleRevisionId mrid) {
+        return "ivy cached data file for " + mrid;
+    }
+
+    public String toString() {
+        return "properties";
+    }
+}
@@ -57,11 +57,20 @@ public class EventManager implements TransferListener {
         return Arrays.asList(listeners.getListeners(IvyListener.class)).contains(listener);
     }
 
+    /**
+     * Fires the given event to the registered Ivy listeners.
+     * <p>
+     * Events may be fired from several threads (when downloading artifacts concurrently for
+     * instance), but listeners are never notified concurrently.
+     * </p>
+     */
     public void fireIvyEvent(IvyEvent evt) {
         Object[] listeners = this.listeners.getListenerList();
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == IvyListener.class) {
-                ((IvyListener) listeners[i + 1]).progress(evt);
+        synchronized (this) {
+            for (int i = listeners.length - 2; i >= 0; i -= 2) {
+                if (listeners[i] == IvyListener.class) {
+                    ((IvyListener) listeners[i + 1]).progress(evt);
+                }
             }
         }
     }
@@ -80,9 +89,11 @@ public class EventManager implements TransferListener {
 
     protected void fireTransferEvent(TransferEvent evt) {
         Object[] listeners = this.listeners.getListenerList();
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == TransferListener.class) {
-                ((TransferListener) listeners[i + 1]).transferProgress(evt);
+        synchronized (this) {
+            for (int i = listeners.length - 2; i >= 0; i -= 2) {
+                if (listeners[i] == TransferListener.class) {
+                    ((TransferListener) listeners[i + 1]).transferProgress(evt);
+                }
             }
         }
     }
@@ -242,6 +242,18 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
         return getDependencyConfigurations(moduleConfiguration, moduleConfiguration);
     }
 
+    /**
+     * Return the dependency configurations mapped to the given moduleConfiguration as they have
+     * been declared, without any fallback, wildcard or configuration extension processing.
+     */
+    public String[] getDeclaredDependencyConfigurations(String moduleConfiguration) {
+        List confsList = (List) confs.get(moduleConfiguration);
+        if (confsList == null) {
+            return new String[0];
+        }
+        return (String[]) confsList.toArray(new String[confsList.size()]);
+    }
+
     /**
      * Return the dependency configurations mapped to the given moduleConfiguration, actually
      * resolved because of the given requestedConfiguration
@@ -17,9 +17,12 @@
  */
 package org.apache.ivy.core.pack;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
 
 public abstract class ArchivePacking {
 
@@ -27,6 +30,37 @@ public abstract class ArchivePacking {
 
     public abstract void unpack(InputStream packed, File dest) throws IOException;
 
+    /**
+     * Unpacks the given packed file into dest.
+     * <p>
+     * By default the file is read as a stream and unpacked with {@link #unpack(InputStream, File)}.
+     * Packings able to read a file randomly may override this method to unpack several parts of
+     * the archive at once on the given executor.
+     * </p>
+     * 
+     * @param packed
+     *            the packed file
+     * @param dest
+     *            where to unpack it
+     * @param executor
+     *            the executor on which parts of the archive may be unpacked, or <code>null</code>
+     *            to unpack it in the calling thread only
+     * @throws IOException
+     *             if the file can't be unpacked
+     */
+    public void unpack(File packed, File dest, ExecutorService executor) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(packed));
+        try {
+            unpack(in, dest);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
     public abstract String getUnpackedExtension(String ext);
 
 }
@@ -17,10 +17,12 @@
  */
 package org.apache.ivy.core.pack;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -73,6 +75,30 @@ public class PackagingManager implements IvySettingsAware {
 
     public void unpackArtifact(Artifact artifact, File localFile, File archiveFile)
             throws IOException {
+        unpackArtifact(artifact, localFile, archiveFile, null);
+    }
+
+    /**
+     * Unpacks the given packed artifact.
+     * <p>
+     * When the artifact is packed with a single archive packing, the packing reads the packed file
+     * directly, and may unpack several parts of it at once on the given executor. A chain of
+     * packings is always unpacked as a stream, in the calling thread.
+     * </p>
+     * 
+     * @param artifact
+     *            the packed artifact
+     * @param localFile
+     *            the packed file
+     * @param archiveFile
+     *            where to unpack the artifact
+     * @param executor
+     *            the executor on which the unpacking may be split, or <code>null</code>
+     * @throws IOException
+     *             if the artifact can't be unpacked
+     */
+    public void unpackArtifact(Artifact artifact, File localFile, File archiveFile,
+            ExecutorService executor) throws IOException {
         String packaging = artifact.getExtraAttribute("packaging");
         if (packaging == null) {
             // not declared as packed, nothing to do
@@ -80,9 +106,18 @@ public class PackagingManager implements IvySettingsAware {
         }
 
         String[] packings = packaging.split(",");
+        if (packings.length == 1) {
+            ArchivePacking packing = settings.getPackingRegistry().get(packings[0]);
+            if (packing == null) {
+                throw new IllegalStateException("Unknown packing type '" + packings[0]
+                        + "' in the packing chain: " + packaging);
+            }
+            packing.unpack(localFile, archiveFile, executor);
+            return;
+        }
         InputStream in = null;
         try {
-            in = new FileInputStream(localFile);
+            in = new BufferedInputStream(new FileInputStream(localFile));
             for (int i = packings.length - 1; i >= 1; i--) {
                 ArchivePacking packing = settings.getPackingRegistry().get(packings[i]);
                 if (packing == null) {
@@ -21,9 +21,18 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 
@@ -31,6 +40,16 @@ public class ZipPacking extends ArchivePacking {
 
     private static final String[] NAMES = {"zip", "jar", "war"};
 
+    /**
+     * Archives smaller than this size, in bytes, are always expanded by a single thread.
+     */
+    static final long MIN_PARALLEL_SIZE = 1024 * 1024;
+
+    /**
+     * Number of entries expanded by each parallel task.
+     */
+    static final int ENTRIES_PER_TASK = 16;
+
     @Override
     public String[] getNames() {
         return NAMES;
@@ -66,16 +85,7 @@ public class ZipPacking extends ArchivePacking {
                 if (entry.isDirectory()) {
                     f.mkdirs();
                 } else {
-                    FileOutputStream out = new FileOutputStream(f);
-                    try {
-                        FileUtil.copy(zip, out, null, false);
-                    } finally {
-                        try {
-                            out.close();
-                        } catch (IOException e) {
-                            // ignore
-                        }
-                    }
+                    writeEntry(zip, f);
                 }
 
                 f.setLastModified(entry.getTime());
@@ -91,4 +101,119 @@ public class ZipPacking extends ArchivePacking {
         }
     }
 
+    /**
+     * Expands the given zip file. Large archives are expanded by several threads of the given
+     * executor, each one writing a part of the entries.
+     */
+    @Override
+    public void unpack(File packed, File dest, ExecutorService executor) throws IOException {
+        if (executor == null || packed.length() < MIN_PARALLEL_SIZE) {
+            super.unpack(packed, dest, executor);
+            return;
+        }
+        final ZipFile zip = new ZipFile(packed);
+        try {
+            // directories are created first, so that the tasks only write files
+            List<ZipEntry> files = new ArrayList<ZipEntry>();
+            List<ZipEntry> dirs = new ArrayList<ZipEntry>();
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries
+                    .hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+                File f = new File(dest, entry.getName());
+                if (entry.isDirectory()) {
+                    f.mkdirs();
+                    dirs.add(entry);
+                } else {
+                    File dirF = f.getParentFile();
+                    if (dirF != null) {
+                        dirF.mkdirs();
+                    }
+                    files.add(entry);
+                }
+            }
+
+            List<Future> tasks = new ArrayList<Future>();
+            for (int i = 0; i < files.size(); i += ENTRIES_PER_TASK) {
+                tasks.add(executor.submit(ExecutorHelper.inCallerContext(new ExpandEntriesTask(
+                        zip, files.subList(i, Math.min(i + ENTRIES_PER_TASK, files.size())),
+                        dest))));
+            }
+            try {
+                for (Future task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while expanding " + packed);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                IOException ioe = new IOException("impossible to expand " + packed + ": "
+                        + e.getCause());
+                ioe.initCause(e.getCause());
+                throw ioe;
+            } finally {
+                for (Future task : tasks) {
+                    task.cancel(true);
+                }
+            }
+
+            // writing the files changed the last modification date of the directories
+            for (ZipEntry dir : dirs) {
+                new File(dest, dir.getName()).setLastModified(dir.getTime());
+            }
+        } finally {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static void writeEntry(InputStream in, File f) throws IOException {
+        FileOutputStream out = new FileOutputStream(f);
+        try {
+            FileUtil.copy(in, out, null, false);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static final class ExpandEntriesTask implements Callable {
+        private final ZipFile zip;
+
+        private final List<ZipEntry> entries;
+
+        private final File dest;
+
+        private ExpandEntriesTask(ZipFile zip, List<ZipEntry> entries, File dest) {
+            this.zip = zip;
+            this.entries = entries;
+            this.dest = dest;
+        }
+
+        public Object call() throws IOException {
+            for (ZipEntry entry : entries) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+                File f = new File(dest, entry.getName());
+                Message.verbose("\t\texpanding " + entry.getName() + " to " + f);
+                InputStream in = zip.getInputStream(entry);
+                try {
+                    writeEntry(in, f);
+                } finally {
+                    in.close();
+                }
+                f.setLastModified(entry.getTime());
+            }
+            return null;
+        }
+    }
 }
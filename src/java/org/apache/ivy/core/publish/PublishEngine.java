@@ -29,9 +29,15 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -49,6 +55,7 @@ import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorUpdater;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.util.ConfigurationUtils;
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.Message;
 import org.xml.sax.SAXException;
 
@@ -227,6 +234,7 @@ public class PublishEngine {
                 missing.add(artifact);
             }
         }
+        Artifact ivyArtifact = null;
         if (options.getSrcIvyPattern() != null) {
             Artifact artifact = MDArtifact.newIvyArtifact(md);
             File artifactFile = settings.resolveFile(IvyPatternHelper.substitute(
@@ -245,19 +253,31 @@ public class PublishEngine {
                 missing.add(artifact);
             } else {
                 artifactsFiles.put(artifact, artifactFile);
+                ivyArtifact = artifact;
             }
         }
 
         // and now do actual publishing
+        int threads = options.getThreads() > 0 ? options.getThreads() : settings
+                .getPublishThreads();
         boolean successfullyPublished = false;
         try {
             resolver.beginPublishTransaction(md.getModuleRevisionId(), options.isOverwrite());
-            // for each declared published artifact in this descriptor, do:
-            for (Iterator iter = artifactsFiles.entrySet().iterator(); iter.hasNext();) {
-                Map.Entry entry = (Entry) iter.next();
-                Artifact artifact = (Artifact) entry.getKey();
-                File artifactFile = (File) entry.getValue();
-                publish(artifact, artifactFile, resolver, options.isOverwrite());
+            if (threads > 1) {
+                // the ivy file is published last, once all the other artifacts are
+                File ivyFile = (File) artifactsFiles.remove(ivyArtifact);
+                publishConcurrently(artifactsFiles, resolver, options.isOverwrite(), threads);
+                if (ivyFile != null) {
+                    publish(ivyArtifact, ivyFile, resolver, options.isOverwrite());
+                }
+            } else {
+                // for each declared published artifact in this descriptor, do:
+                for (Iterator iter = artifactsFiles.entrySet().iterator(); iter.hasNext();) {
+                    Map.Entry entry = (Entry) iter.next();
+                    Artifact artifact = (Artifact) entry.getKey();
+                    File artifactFile = (File) entry.getValue();
+                    publish(artifact, artifactFile, resolver, options.isOverwrite());
+                }
             }
             resolver.commitPublishTransaction();
             successfullyPublished = true;
@@ -269,6 +289,67 @@ public class PublishEngine {
         return missing;
     }
 
+    /**
+     * Publishes the given artifacts on a pool of threads, and waits for all of them to be
+     * published. If an artifact fails to be published, the artifacts which aren't published yet
+     * are not published at all, and the failure is thrown once the ones being published are done.
+     */
+    private void publishConcurrently(Map/* <Artifact,File> */artifactsFiles,
+            final DependencyResolver resolver, final boolean overwrite, int threads)
+            throws IOException {
+        if (artifactsFiles.isEmpty()) {
+            return;
+        }
+        int poolSize = Math.min(threads, artifactsFiles.size());
+        Message.verbose("\tpublishing artifacts with " + poolSize + " threads");
+        ExecutorService executor = ExecutorHelper.newFixedThreadPool("publish", poolSize);
+        try {
+            List/* <Future> */published = new ArrayList();
+            for (Iterator iter = artifactsFiles.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Entry) iter.next();
+                final Artifact artifact = (Artifact) entry.getKey();
+                final File artifactFile = (File) entry.getValue();
+                published.add(executor.submit(ExecutorHelper.inCallerContext(new Callable() {
+                    public Object call() throws IOException {
+                        publish(artifact, artifactFile, resolver, overwrite);
+                        return null;
+                    }
+                })));
+            }
+            Throwable failure = null;
+            for (Iterator iter = published.iterator(); iter.hasNext();) {
+                Future future = (Future) iter.next();
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        // don't start publishing the remaining artifacts
+                        for (Iterator it = published.iterator(); it.hasNext();) {
+                            ((Future) it.next()).cancel(false);
+                        }
+                    }
+                } catch (CancellationException e) {
+                    // cancelled after a failure
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("operation interrupted", e);
+                }
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw (IOException) new IOException(String.valueOf(failure)).initCause(failure);
+            }
+        } finally {
+            ExecutorHelper.shutdown(executor);
+        }
+    }
+
     private void publish(Artifact artifact, File src, DependencyResolver resolver, boolean overwrite)
             throws IOException {
         IvyContext.getContext().checkInterrupted();
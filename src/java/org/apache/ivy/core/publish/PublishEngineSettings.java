@@ -29,4 +29,6 @@ public interface PublishEngineSettings extends ParserSettings {
 
     DependencyResolver getResolver(String resolverName);
 
+    int getPublishThreads();
+
 }
@@ -63,6 +63,8 @@ public class PublishOptions {
 
     private boolean warnonmissing;
 
+    private int threads = 0;
+
     public String[] getConfs() {
         return confs;
     }
@@ -180,4 +182,29 @@ public class PublishOptions {
         return this;
     }
 
+    /**
+     * Returns the number of threads to use to upload artifacts, or 0 to use settings configured
+     * number of threads.
+     * 
+     * @return the number of threads to use.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads to use to upload artifacts. The artifacts are uploaded
+     * concurrently within the publish transaction, each one followed by its checksums and
+     * signature, and the module descriptor is uploaded once all the other artifacts are published.
+     * 
+     * @param threads
+     *            the number of threads to use, 1 to publish artifacts one after the other, or 0 to
+     *            use settings configured number of threads.
+     * @return this
+     */
+    public PublishOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
 }
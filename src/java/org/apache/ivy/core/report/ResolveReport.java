@@ -70,6 +70,8 @@ public class ResolveReport {
 
     private long downloadSize;
 
+    private int restartCount;
+
     public ResolveReport(ModuleDescriptor md) {
         this(md, ResolveOptions.getDefaultResolveId(md));
     }
@@ -322,6 +324,21 @@ public class ResolveReport {
         return downloadSize;
     }
 
+    public void setRestartCount(int restartCount) {
+        this.restartCount = restartCount;
+    }
+
+    /**
+     * The number of times the resolve process has been restarted, which happens when a conflict
+     * manager blacklists a revision to solve a conflict, like the latest-compatible one does.
+     * 
+     * @return the number of restarts of the resolve process, over all the resolved
+     *         configurations.
+     */
+    public int getRestartCount() {
+        return restartCount;
+    }
+
     public String getResolveId() {
         return resolveId;
     }
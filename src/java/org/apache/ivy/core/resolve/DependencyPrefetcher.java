@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.ExecutorHelper;
+import org.apache.ivy.util.Message;
+
+/**
+ * Fetches the metadata of sibling dependencies concurrently, ahead of the graph traversal.
+ * <p>
+ * The traversal itself, and thus conflict resolution and eviction, stays sequential: this class
+ * only calls {@link DependencyResolver#getDependency(DependencyDescriptor, ResolveData)} for all
+ * the not yet loaded dependencies of a node at once, and keeps the results until
+ * {@link IvyNode#loadData(String, IvyNode, String, String, boolean, IvyNodeUsage)} asks for them in
+ * the usual order. Results are kept only for the current traversal: they are discarded when
+ * the resolve process is restarted or when a node is blacklisted.
+ * </p>
+ */
+class DependencyPrefetcher {
+
+    private final ExecutorService executor;
+
+    private final Map/* <IvyNode, Fetch> */fetched = new IdentityHashMap();
+
+    DependencyPrefetcher(int threads) {
+        this.executor = ExecutorHelper.newFixedThreadPool("resolve", threads);
+    }
+
+    /**
+     * Fetches the metadata of the given dependencies of the given node, and blocks until they are
+     * all fetched.
+     */
+    void prefetch(VisitNode parent, Collection/* <VisitNode> */dependencies) {
+        final ResolveData data = parent.getNode().getData();
+        List/* <Callable> */tasks = new ArrayList();
+        for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
+            VisitNode dep = (VisitNode) iter.next();
+            final IvyNode node = dep.getNode();
+            if (node.isLoaded() || node.hasProblem() || fetched.containsKey(node)) {
+                continue;
+            }
+            final DependencyDescriptor dd = node.getDependencyDescriptor(parent.getNode());
+            final DependencyResolver resolver = data.getSettings().getResolver(node.getId());
+            if (dd == null || resolver == null) {
+                continue;
+            }
+            final VisitNode visitNode = dep;
+            tasks.add(ExecutorHelper.inCallerContext(new Callable() {
+                public Object call() throws Exception {
+                    ResolveData workerData = new ResolveData(data, data.isValidate());
+                    workerData.setCurrentVisitNode(visitNode);
+                    workerData.setCurrentResolvedModuleRevision(null);
+                    IvyContext.getContext().setResolveData(workerData);
+                    return new Fetch(node, dd, resolver, resolver.getDependency(dd, workerData));
+                }
+            }));
+        }
+        if (tasks.size() < 2) {
+            // nothing to gain, let the traversal fetch it as usual
+            return;
+        }
+        Message.debug("prefetching " + tasks.size() + " dependencies of " + parent);
+        try {
+            List futures = executor.invokeAll(tasks);
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                Future future = (Future) iter.next();
+                try {
+                    Fetch fetch = (Fetch) future.get();
+                    fetched.put(fetch.node, fetch);
+                } catch (ExecutionException e) {
+                    // the dependency will be fetched again during traversal, which will report
+                    // the problem as usual
+                    Message.debug("prefetching failed: " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns and forgets the result fetched for the given node, or <code>null</code> if none is
+     * available for the given dependency descriptor and resolver.
+     */
+    Fetch take(IvyNode node, DependencyDescriptor dd, DependencyResolver resolver) {
+        Fetch fetch = (Fetch) fetched.remove(node);
+        if (fetch != null && fetch.dd == dd && fetch.resolver == resolver) {
+            return fetch;
+        }
+        return null;
+    }
+
+    void clear() {
+        fetched.clear();
+    }
+
+    void shutdown() {
+        clear();
+        ExecutorHelper.shutdown(executor);
+    }
+
+    static final class Fetch {
+        private final IvyNode node;
+
+        private final DependencyDescriptor dd;
+
+        private final DependencyResolver resolver;
+
+        private final ResolvedModuleRevision moduleRevision;
+
+        Fetch(IvyNode node, DependencyDescriptor dd, DependencyResolver resolver,
+                ResolvedModuleRevision moduleRevision) {
+            this.node = node;
+            this.dd = dd;
+            this.resolver = resolver;
+            this.moduleRevision = moduleRevision;
+        }
+
+        ResolvedModuleRevision getModuleRevision() {
+            return moduleRevision;
+        }
+    }
+}
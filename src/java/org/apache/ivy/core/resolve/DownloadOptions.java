@@ -21,7 +21,36 @@ import org.apache.ivy.core.LogOptions;
 
 public class DownloadOptions extends LogOptions {
 
+    /**
+     * The number of threads to use to download artifacts, or 0 to use settings configured number
+     * of threads.
+     */
+    private int threads = 0;
+
     public DownloadOptions() {
     }
 
+    /**
+     * Returns the number of threads to use to download artifacts, or 0 to use settings configured
+     * number of threads.
+     * 
+     * @return the number of threads to use.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads to use to download artifacts of a resolve report.
+     * 
+     * @param threads
+     *            the number of threads to use, 1 to download artifacts one after the other, or 0
+     *            to use settings configured number of threads.
+     * @return this
+     */
+    public DownloadOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
 }
@@ -0,0 +1,305 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.plugins.report.XmlReportParser;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.filter.FilterHelper;
+
+/**
+ * Keeps track of the dependencies selected by a resolve, so that the next resolve with the same
+ * resolve id can take them from the cache without asking the resolvers.
+ * <p>
+ * The previous selection is replayed only if the fingerprint of the resolve inputs (the module
+ * descriptor, the settings and the resolve options) is unchanged, and if none of the cached
+ * resolved revisions of the dynamic dependencies has expired. A selection is only kept if all the
+ * dependencies were found in the cache, without accessing any repository: as soon as a
+ * dependency is changing, checked for modification, or has an expired dynamic revision, the next
+ * resolve is a full resolve.
+ * </p>
+ */
+class IncrementalResolveData {
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+
+    private static final String EXPIRATION_KEY = "expiration";
+
+    private static final String SEPARATOR = "|";
+
+    private final ResolveEngineSettings settings;
+
+    private final File file;
+
+    private final String fingerprint;
+
+    // Map (ModuleRevisionId -> String[]): the selection to replay, or null
+    private final Map previous;
+
+    // Map (ModuleRevisionId -> String[])
+    private final Map selected = new HashMap();
+
+    private long expiration = Long.MAX_VALUE;
+
+    private boolean reusable = true;
+
+    private IncrementalResolveData(ResolveEngineSettings settings, File file,
+            String fingerprint, Map previous) {
+        this.settings = settings;
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the data stored by the previous resolve in the given file, or returns
+     * <code>null</code> if the given options can't be used for an incremental resolve.
+     */
+    static IncrementalResolveData load(ResolveEngineSettings settings, File file,
+            ModuleDescriptor md, ResolveOptions options) throws IOException {
+        if (options.isRefresh() || options.getArtifactFilter() != FilterHelper.NO_FILTER) {
+            Message.verbose("\tincremental resolve disabled by refresh or artifact filter");
+            return null;
+        }
+        String fingerprint = getFingerprint(settings, md, options);
+        Map previous = null;
+        if (file.exists()) {
+            Properties props = new Properties();
+            InputStream in = new FileInputStream(file);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+            previous = readSelection(props, fingerprint);
+        }
+        return new IncrementalResolveData(settings, file, fingerprint, previous);
+    }
+
+    private static Map readSelection(Properties props, String fingerprint) {
+        if (!fingerprint.equals(props.getProperty(FINGERPRINT_KEY))) {
+            Message.verbose("\tresolve inputs changed since the previous resolve");
+            return null;
+        }
+        try {
+            long expiration = Long.parseLong(props.getProperty(EXPIRATION_KEY));
+            if (System.currentTimeMillis() > expiration) {
+                Message.verbose("\tdynamic revisions selected by the previous resolve expired");
+                return null;
+            }
+            Map selection = new HashMap();
+            for (Iterator iter = props.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                String key = (String) entry.getKey();
+                if (FINGERPRINT_KEY.equals(key) || EXPIRATION_KEY.equals(key)) {
+                    continue;
+                }
+                String[] value = ((String) entry.getValue()).split("\\" + SEPARATOR, 4);
+                if (value.length != 4) {
+                    throw new IllegalArgumentException("badly encoded selection: " + entry);
+                }
+                selection.put(ModuleRevisionId.decode(key), value);
+            }
+            return selection;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            Message.verbose("\tignoring corrupted incremental resolve data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String getFingerprint(ResolveEngineSettings settings, ModuleDescriptor md,
+            ResolveOptions options) throws IOException {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(Ivy.getIvyVersion()).append(SEPARATOR);
+        buffer.append(settings.getFingerprint()).append(SEPARATOR);
+        buffer.append(Arrays.asList(options.getConfs())).append(SEPARATOR);
+        buffer.append(options.isTransitive()).append(SEPARATOR);
+        buffer.append(options.isDownload()).append(SEPARATOR);
+        buffer.append(options.isUseCacheOnly()).append(SEPARATOR);
+        buffer.append(options.isValidate()).append(SEPARATOR);
+        buffer.append(options.getResolveMode()).append(SEPARATOR);
+        buffer.append(options.getDate() == null ? "" : String.valueOf(options.getDate().getTime()))
+                .append(SEPARATOR);
+        buffer.append(md.getResolvedModuleRevisionId().encodeToString()).append(SEPARATOR);
+        File mdFile = File.createTempFile("ivy", ".xml");
+        try {
+            XmlModuleDescriptorWriter.write(md, mdFile);
+            buffer.append(FileUtil.readEntirely(mdFile));
+        } finally {
+            mdFile.delete();
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            return ChecksumHelper.byteArrayToHexString(digest.digest(buffer.toString().getBytes(
+                "UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The SHA1 algorithm is not available: " + e);
+        }
+    }
+
+    /**
+     * Returns true if the selection of the previous resolve is replayed.
+     */
+    boolean isReplaying() {
+        return previous != null;
+    }
+
+    /**
+     * Returns the revision selected by the previous resolve for the given dependency, taken from
+     * the cache, or <code>null</code> if it isn't available.
+     */
+    ResolvedModuleRevision find(DependencyDescriptor dd, ResolveData data) {
+        if (previous == null) {
+            return null;
+        }
+        String[] selection = (String[]) previous.get(dd.getDependencyRevisionId());
+        if (selection == null || !settings.hasResolver(selection[0])
+                || !settings.hasResolver(selection[1])) {
+            return null;
+        }
+        DependencyResolver resolver = settings.getResolver(selection[0]);
+        DependencyResolver artifactResolver = settings.getResolver(selection[1]);
+        ModuleRevisionId resolvedId = ModuleRevisionId.decode(selection[3]);
+        ResolvedModuleRevision cached = resolver.getRepositoryCacheManager().findModuleInCache(
+            dd, resolvedId, new CacheMetadataOptions().setValidate(data.isValidate()),
+            resolver.getName());
+        if (cached == null) {
+            return null;
+        }
+        Message.debug("\tincremental resolve: using " + resolvedId + " for "
+                + dd.getDependencyRevisionId());
+        return new ResolvedModuleRevision(resolver, artifactResolver, cached.getDescriptor(),
+                cached.getReport(), Boolean.valueOf(selection[2]).booleanValue());
+    }
+
+    /**
+     * Records the revision selected for the given requested revision.
+     */
+    void record(ModuleRevisionId requestedRevisionId, ResolvedModuleRevision module) {
+        if (!reusable) {
+            return;
+        }
+        if (module == null || module.getReport() == null || module.getReport().isSearched()) {
+            discard(requestedRevisionId + " was not found in the cache");
+            return;
+        }
+        String[] selection = new String[] {module.getResolver().getName(),
+                module.getArtifactResolver().getName(), String.valueOf(module.isForce()),
+                module.getId().encodeToString()};
+        String[] other = (String[]) selected.put(requestedRevisionId, selection);
+        if (other != null && !Arrays.equals(other, selection)) {
+            discard("several revisions were selected for " + requestedRevisionId);
+            return;
+        }
+        if (settings.getVersionMatcher().isDynamic(requestedRevisionId)) {
+            RepositoryCacheManager cache = module.getResolver().getRepositoryCacheManager();
+            long resolvedExpiration = 0;
+            if (cache instanceof DefaultRepositoryCacheManager) {
+                resolvedExpiration = ((DefaultRepositoryCacheManager) cache)
+                        .getResolvedRevisionExpiration(requestedRevisionId);
+            }
+            if (resolvedExpiration == 0) {
+                discard("no cached resolved revision for " + requestedRevisionId);
+                return;
+            }
+            expiration = Math.min(expiration, resolvedExpiration);
+        }
+    }
+
+    private void discard(String reason) {
+        Message.verbose("\tresolve can't be reused by the next incremental resolve: " + reason);
+        reusable = false;
+    }
+
+    /**
+     * Stores the recorded selection for the next resolve if it can be replayed, or deletes the
+     * previously stored selection otherwise.
+     */
+    void store(boolean hasError) throws IOException {
+        if (!reusable || hasError) {
+            file.delete();
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty(FINGERPRINT_KEY, fingerprint);
+        props.setProperty(EXPIRATION_KEY, String.valueOf(expiration));
+        for (Iterator iter = selected.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            String[] selection = (String[]) entry.getValue();
+            props.setProperty(((ModuleRevisionId) entry.getKey()).encodeToString(), selection[0]
+                    + SEPARATOR + selection[1] + SEPARATOR + selection[2] + SEPARATOR
+                    + selection[3]);
+        }
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            props.store(out, "incremental resolve data");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the artifact reports of the given configuration reports, by artifact revision id.
+     * Returns an empty map if one of the reports can't be read.
+     */
+    static Map/* <ArtifactRevisionId, ArtifactDownloadReport> */readArtifactReports(
+            File[] confReports) {
+        Map reports = new HashMap();
+        try {
+            for (int i = 0; i < confReports.length; i++) {
+                XmlReportParser parser = new XmlReportParser();
+                parser.parse(confReports[i]);
+                ArtifactDownloadReport[] adrs = parser.getArtifactReports();
+                for (int j = 0; j < adrs.length; j++) {
+                    reports.put(adrs[j].getArtifact().getId(), adrs[j]);
+                }
+            }
+        } catch (Exception e) {
+            Message.verbose("\tprevious reports can't be reused: " + e.getMessage());
+            reports.clear();
+        }
+        return reports;
+    }
+}
@@ -167,7 +167,17 @@ public class IvyNode implements Comparable {
                     data.getEventManager().fireIvyEvent(
                         new StartResolveDependencyEvent(resolver, dependencyDescriptor,
                                 requestedRevisionId));
-                    module = resolver.getDependency(dependencyDescriptor, data);
+                    DependencyPrefetcher.Fetch fetch = data.takePrefetched(this,
+                        dependencyDescriptor, resolver);
+                    if (fetch != null) {
+                        module = fetch.getModuleRevision();
+                    } else {
+                        module = data.findIncrementalRevision(dependencyDescriptor);
+                        if (module == null) {
+                            module = resolver.getDependency(dependencyDescriptor, data);
+                        }
+                    }
+                    data.recordResolvedRevision(requestedRevisionId, module);
                     data.getEventManager().fireIvyEvent(
                         new EndResolveDependencyEvent(resolver, dependencyDescriptor,
                                 requestedRevisionId, module, System.currentTimeMillis() - start));
@@ -371,6 +381,7 @@ public class IvyNode implements Comparable {
 
             depNode.addCaller(rootModuleConf, this, conf, requestedConf, dependencyConfigurations,
                 dd);
+            data.getRangeConstraints().add(rootModuleConf, this, requestedDependencyRevisionId);
             dependencies.put(requestedDependencyRevisionId, depNode);
         }
         return dependencies.values();
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.IvyNodeCallers.Caller;
+import org.apache.ivy.plugins.version.VersionMatcher;
+
+/**
+ * Collects the revisions asked for each module by the dependencies met during a resolve, so that
+ * a version range can be resolved to a revision compatible with all of them at once.
+ * <p>
+ * The constraints are kept when the resolve process is restarted, which lets the traversal
+ * following a restart take into account all the constraints met before, instead of finding the
+ * same incompatibilities again one at a time. Only the constraints of the callers which are still
+ * part of the graph (not blacklisted nor evicted) are taken into account.
+ * </p>
+ */
+public class RangeConstraints {
+
+    // Map (root module conf -> Map (ModuleId -> Map (caller IvyNode -> asked ModuleRevisionId)))
+    private final Map constraints = new HashMap();
+
+    void add(String rootModuleConf, IvyNode caller, ModuleRevisionId asked) {
+        Map byModule = (Map) constraints.get(rootModuleConf);
+        if (byModule == null) {
+            byModule = new HashMap();
+            constraints.put(rootModuleConf, byModule);
+        }
+        Map byCaller = (Map) byModule.get(asked.getModuleId());
+        if (byCaller == null) {
+            byCaller = new LinkedHashMap();
+            byModule.put(asked.getModuleId(), byCaller);
+        }
+        byCaller.put(caller, asked);
+    }
+
+    /**
+     * Returns the revisions asked for the module of the given revision in the given root module
+     * configuration, by the callers still part of the graph, the given revision excepted.
+     */
+    public Collection/* <ModuleRevisionId> */getConstraints(String rootModuleConf,
+            ModuleRevisionId asked) {
+        Map byModule = (Map) constraints.get(rootModuleConf);
+        Map byCaller = byModule == null ? null : (Map) byModule.get(asked.getModuleId());
+        if (byCaller == null) {
+            return new ArrayList();
+        }
+        Collection result = new LinkedHashSet();
+        // what is known of the nodes met while walking up to the root, shared by all the callers
+        Set inGraph = new HashSet();
+        Set notInGraph = new HashSet();
+        for (Iterator iter = byCaller.entrySet().iterator(); iter.hasNext();) {
+            Entry entry = (Entry) iter.next();
+            ModuleRevisionId other = (ModuleRevisionId) entry.getValue();
+            if (other.equals(asked) || result.contains(other)) {
+                continue;
+            }
+            Set visited = new HashSet();
+            if (isInGraph(rootModuleConf, (IvyNode) entry.getKey(), visited, inGraph,
+                notInGraph)) {
+                result.add(other);
+            } else {
+                // none of the nodes reachable from this caller leads to the root
+                notInGraph.addAll(visited);
+            }
+        }
+        return new ArrayList(result);
+    }
+
+    /**
+     * Tells whether the given revision is accepted by all the given constraints. The constraints
+     * which need a module descriptor to decide are considered as accepting it.
+     */
+    public static boolean accept(VersionMatcher versionMatcher,
+            Collection/* <ModuleRevisionId> */constraints, ModuleRevisionId found) {
+        for (Iterator iter = constraints.iterator(); iter.hasNext();) {
+            ModuleRevisionId constraint = (ModuleRevisionId) iter.next();
+            if (versionMatcher.needModuleDescriptor(constraint, found)) {
+                continue;
+            }
+            if (!versionMatcher.accept(constraint, found)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the given node is connected to the root through callers still part of the
+     * graph. The nodes found to be connected are added to <code>inGraph</code>. When it returns
+     * false, none of the nodes added to <code>visited</code> is connected.
+     */
+    private boolean isInGraph(String rootModuleConf, IvyNode node, Set visited, Set inGraph,
+            Set notInGraph) {
+        if (node.isRoot() || inGraph.contains(node)) {
+            return true;
+        }
+        if (notInGraph.contains(node) || !visited.add(node)
+                || node.isBlacklisted(rootModuleConf) || node.isEvicted(rootModuleConf)) {
+            return false;
+        }
+        Caller[] callers = node.getCallers(rootModuleConf);
+        for (int i = 0; i < callers.length; i++) {
+            IvyNode caller = node.findNode(callers[i].getModuleRevisionId());
+            if (caller != null
+                    && isInGraph(rootModuleConf, caller, visited, inGraph, notInGraph)) {
+                inGraph.add(node);
+                return true;
+            }
+        }
+        return false;
+    }
+}
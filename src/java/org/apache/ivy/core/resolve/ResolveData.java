@@ -26,12 +26,15 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.plugins.conflict.LatestCompatibleConflictManager;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.util.Message;
 
 public class ResolveData {
@@ -47,9 +50,28 @@ public class ResolveData {
 
     private ResolvedModuleRevision currentResolvedModuleRevision;
 
+    private DependencyPrefetcher prefetcher;
+
+    private IncrementalResolveData incrementalData;
+
+    // shared map of the modules loaded outside of the graph, like parent poms:
+    // Map (ModuleRevisionId -> ResolvedModuleRevision)
+    private Map externalModules = new ConcurrentHashMap();
+
+    // shared map of the repository listings made during this resolve:
+    // Map (Object key -> List)
+    private Map listings = new ConcurrentHashMap();
+
+    // the revisions asked for each module, kept when the resolve process is restarted
+    private RangeConstraints rangeConstraints = new RangeConstraints();
+
     public ResolveData(ResolveData data, boolean validate) {
         this(data.engine, new ResolveOptions(data.options).setValidate(validate), data.report,
                 data.visitData);
+        this.externalModules = data.externalModules;
+        this.listings = data.listings;
+        this.rangeConstraints = data.rangeConstraints;
+        this.incrementalData = data.incrementalData;
         setCurrentVisitNode(data.currentVisitNode);
         setCurrentResolvedModuleRevision(data.currentResolvedModuleRevision);
     }
@@ -258,6 +280,10 @@ public class ResolveData {
     }
 
     void blacklist(IvyNode node) {
+        if (prefetcher != null) {
+            // prefetched metadata may depend on the blacklisted nodes
+            prefetcher.clear();
+        }
         for (Iterator iter = visitData.entrySet().iterator(); iter.hasNext();) {
             Entry entry = (Entry) iter.next();
             VisitData vdata = (VisitData) entry.getValue();
@@ -348,4 +374,138 @@ public class ResolveData {
     public ResolvedModuleRevision getCurrentResolvedModuleRevision() {
         return currentResolvedModuleRevision;
     }
+
+    /**
+     * Returns the module revision with the given id which has already been loaded during this
+     * resolve, outside of the dependency graph, or <code>null</code> if it hasn't been loaded yet.
+     * <p>
+     * This is used by module descriptor parsers to load the modules they depend on, like parent
+     * poms, only once per resolve.
+     * </p>
+     * 
+     * @param mrid
+     *            the id of the module revision to look for
+     * @return the module revision loaded for the given id, or <code>null</code>
+     */
+    public ResolvedModuleRevision getExternalModule(ModuleRevisionId mrid) {
+        return (ResolvedModuleRevision) externalModules.get(mrid);
+    }
+
+    /**
+     * Records a module revision loaded during this resolve outside of the dependency graph.
+     * 
+     * @param mrid
+     *            the id with which the module revision has been requested
+     * @param module
+     *            the loaded module revision, must not be <code>null</code>
+     * @see #getExternalModule(ModuleRevisionId)
+     */
+    public void setExternalModule(ModuleRevisionId mrid, ResolvedModuleRevision module) {
+        externalModules.put(mrid, module);
+    }
+
+    /**
+     * Returns the listing recorded under the given key during this resolve, or <code>null</code>
+     * if there is none.
+     * <p>
+     * This is used to list the content of a repository location only once per resolve, even when
+     * several dynamic revisions need it.
+     * </p>
+     * 
+     * @param key
+     *            the key identifying the listed location, including the lister
+     * @return the recorded listing, or <code>null</code>
+     */
+    public List getListing(Object key) {
+        return (List) listings.get(key);
+    }
+
+    /**
+     * Records the listing of a repository location made during this resolve. The listing must not
+     * be modified afterwards.
+     * 
+     * @param key
+     *            the key identifying the listed location, including the lister
+     * @param listing
+     *            the listing, must not be <code>null</code>
+     * @see #getListing(Object)
+     */
+    public void setListing(Object key, List listing) {
+        listings.put(key, listing);
+    }
+
+    RangeConstraints getRangeConstraints() {
+        return rangeConstraints;
+    }
+
+    /**
+     * Returns the revisions asked for the module of the given dynamic revision by the other
+     * dependencies met so far in the current root module configuration, when they should be taken
+     * into account to resolve it.
+     * <p>
+     * This is only the case when the conflict manager of the module tries to find a set of
+     * compatible revisions, like the {@link LatestCompatibleConflictManager}: resolving the
+     * dynamic revision to the latest revision compatible with the other constraints then avoids a
+     * conflict, which this conflict manager would solve by restarting the resolve process.
+     * </p>
+     * 
+     * @param dd
+     *            the dependency descriptor asking for the dynamic revision
+     * @param asked
+     *            the dynamic revision asked, in the system namespace
+     * @return the other revisions asked for the same module, or <code>null</code> if there is none
+     *         to take into account
+     */
+    public Collection/* <ModuleRevisionId> */getRangeConstraints(DependencyDescriptor dd,
+            ModuleRevisionId asked) {
+        if (report == null || dd == null || !dd.getDependencyId().equals(asked.getModuleId())
+                || !getSettings().getVersionMatcher().isDynamic(asked)) {
+            return null;
+        }
+        IvyNode parent = getNode(dd.getParentRevisionId());
+        if (parent == null
+                || !(parent.getConflictManager(asked.getModuleId()) instanceof LatestCompatibleConflictManager)) {
+            return null;
+        }
+        Collection constraints = rangeConstraints.getConstraints(report.getConfiguration(), asked);
+        return constraints.isEmpty() ? null : constraints;
+    }
+
+    void setPrefetcher(DependencyPrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    DependencyPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    DependencyPrefetcher.Fetch takePrefetched(IvyNode node, DependencyDescriptor dd,
+            DependencyResolver resolver) {
+        if (prefetcher == null || currentResolvedModuleRevision != null) {
+            return null;
+        }
+        return prefetcher.take(node, dd, resolver);
+    }
+
+    void setIncrementalData(IncrementalResolveData incrementalData) {
+        this.incrementalData = incrementalData;
+    }
+
+    boolean isReplayingIncrementalResolve() {
+        return incrementalData != null && incrementalData.isReplaying();
+    }
+
+    ResolvedModuleRevision findIncrementalRevision(DependencyDescriptor dd) {
+        if (incrementalData == null || currentResolvedModuleRevision != null) {
+            return null;
+        }
+        return incrementalData.find(dd, this);
+    }
+
+    void recordResolvedRevision(ModuleRevisionId requestedRevisionId,
+            ResolvedModuleRevision module) {
+        if (incrementalData != null) {
+            incrementalData.record(requestedRevisionId, module);
+        }
+    }
 }
@@ -36,11 +36,18 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.LogOptions;
 import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.DefaultResolutionCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.event.download.PrepareDownloadEvent;
@@ -64,11 +71,14 @@ import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.core.sort.SortEngine;
 import org.apache.ivy.core.sort.SortOptions;
 import org.apache.ivy.plugins.conflict.ConflictManager;
+import org.apache.ivy.plugins.matcher.AbstractPatternMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.version.VersionMatcher;
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.filter.Filter;
 
@@ -232,6 +242,18 @@ public class ResolveEngine {
             ResolveData data = new ResolveData(this, options);
             context.setResolveData(data);
 
+            IncrementalResolveData incrementalData = null;
+            Map previousArtifactReports = Collections.EMPTY_MAP;
+            if (options.isIncremental()) {
+                incrementalData = loadIncrementalData(md, options);
+                data.setIncrementalData(incrementalData);
+                if (incrementalData != null && incrementalData.isReplaying()
+                        && options.isDownload()) {
+                    // read before the reports are replaced by the reports of this resolve
+                    previousArtifactReports = loadPreviousArtifactReports(options);
+                }
+            }
+
             // resolve dependencies
             IvyNode[] dependencies = getDependencies(md, options, report);
             report.setDependencies(Arrays.asList(dependencies), options.getArtifactFilter());
@@ -335,15 +357,21 @@ public class ResolveEngine {
 
                 DownloadOptions downloadOptions = new DownloadOptions();
                 downloadOptions.setLog(options.getLog());
-                downloadArtifacts(report, options.getArtifactFilter(), downloadOptions);
+                downloadArtifacts(report, options.getArtifactFilter(), downloadOptions,
+                    previousArtifactReports);
             }
 
             if (options.isOutputReport()) {
                 outputReport(report, cacheManager, options);
             }
 
+            if (incrementalData != null) {
+                incrementalData.store(report.hasError());
+            }
+
             Message.verbose("\tresolve done (" + report.getResolveTime() + "ms resolve - "
                     + report.getDownloadTime() + "ms download)");
+            logMemoryCacheStatistics();
             Message.sumupProblems();
 
             eventManager.fireIvyEvent(new EndResolveEvent(md, confs, report));
@@ -359,6 +387,60 @@ public class ResolveEngine {
         }
     }
 
+    private IncrementalResolveData loadIncrementalData(ModuleDescriptor md,
+            ResolveOptions options) throws IOException {
+        ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
+        if (!(cacheManager instanceof DefaultResolutionCacheManager)) {
+            Message.verbose("\tincremental resolve not supported by " + cacheManager);
+            return null;
+        }
+        File file = ((DefaultResolutionCacheManager) cacheManager)
+                .getIncrementalResolveDataInCache(options.getResolveId());
+        IncrementalResolveData incrementalData = IncrementalResolveData.load(settings, file, md,
+            options);
+        if (incrementalData != null && incrementalData.isReplaying()) {
+            Message.verbose("\treusing the dependencies selected by the previous resolve");
+        }
+        return incrementalData;
+    }
+
+    private Map loadPreviousArtifactReports(ResolveOptions options) {
+        ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
+        String[] confs = options.getConfs();
+        File[] reports = new File[confs.length];
+        for (int i = 0; i < confs.length; i++) {
+            reports[i] = cacheManager.getConfigurationResolveReportInCache(
+                options.getResolveId(), confs[i]);
+        }
+        return IncrementalResolveData.readArtifactReports(reports);
+    }
+
+    private void waitForUnpacks() {
+        RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] instanceof DefaultRepositoryCacheManager) {
+                ((DefaultRepositoryCacheManager) caches[i]).waitForUnpacks();
+            }
+        }
+    }
+
+    private void logMemoryCacheStatistics() {
+        RepositoryCacheManager[] caches = settings.getRepositoryCacheManagers();
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] instanceof DefaultRepositoryCacheManager) {
+                Message.debug("\tmemory cache of " + caches[i].getName() + ": "
+                        + ((DefaultRepositoryCacheManager) caches[i]).getMemoryCacheStatistics());
+            }
+        }
+        for (Iterator iter = settings.getMatcherNames().iterator(); iter.hasNext();) {
+            PatternMatcher matcher = settings.getMatcher((String) iter.next());
+            if (matcher instanceof AbstractPatternMatcher) {
+                Message.debug("\tmatcher cache of " + matcher.getName() + ": "
+                        + ((AbstractPatternMatcher) matcher).getCacheStatistics());
+            }
+        }
+    }
+
     public void outputReport(ResolveReport report, ResolutionCacheManager cacheMgr,
             ResolveOptions options) throws IOException {
         if (ResolveOptions.LOG_DEFAULT.equals(options.getLog())) {
@@ -375,6 +457,12 @@ public class ResolveEngine {
 
     public void downloadArtifacts(ResolveReport report, Filter artifactFilter,
             DownloadOptions options) {
+        downloadArtifacts(report, artifactFilter, options, Collections.EMPTY_MAP);
+    }
+
+    private void downloadArtifacts(ResolveReport report, Filter artifactFilter,
+            DownloadOptions options, Map/* <ArtifactRevisionId, ArtifactDownloadReport> */
+            previousArtifactReports) {
         long start = System.currentTimeMillis();
         IvyNode[] dependencies = (IvyNode[]) report.getDependencies().toArray(
             new IvyNode[report.getDependencies().size()]);
@@ -382,49 +470,182 @@ public class ResolveEngine {
         eventManager.fireIvyEvent(new PrepareDownloadEvent((Artifact[]) report.getArtifacts()
                 .toArray(new Artifact[report.getArtifacts().size()])));
 
-        long totalSize = 0;
+        int threads = options.getThreads() > 0 ? options.getThreads() : settings
+                .getDownloadThreads();
+        Map/* <IvyNode, DownloadReport> */previousDownloads = new HashMap();
         for (int i = 0; i < dependencies.length; i++) {
-            checkInterrupted();
-            // download artifacts required in all asked configurations
-            if (!dependencies[i].isCompletelyEvicted() && !dependencies[i].hasProblem()
-                    && dependencies[i].getModuleRevision() != null) {
-                DependencyResolver resolver = dependencies[i].getModuleRevision()
-                        .getArtifactResolver();
-                Artifact[] selectedArtifacts = dependencies[i].getSelectedArtifacts(artifactFilter);
-                DownloadReport dReport = resolver.download(selectedArtifacts, options);
-                ArtifactDownloadReport[] adrs = dReport.getArtifactsReports();
-                for (int j = 0; j < adrs.length; j++) {
-                    if (adrs[j].getDownloadStatus() == DownloadStatus.FAILED) {
-                        if (adrs[j].getArtifact().getExtraAttribute("ivy:merged") != null) {
-                            Message.warn("\tmerged artifact not found: " + adrs[j].getArtifact()
-                                    + ". It was required in "
-                                    + adrs[j].getArtifact().getExtraAttribute("ivy:merged"));
-                        } else {
-                            Message.warn("\t" + adrs[j]);
-                            resolver.reportFailure(adrs[j].getArtifact());
-                        }
-                    } else if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
-                        totalSize += adrs[j].getSize();
+            if (isToDownload(dependencies[i])) {
+                DownloadReport dReport = getPreviousDownloadReport(dependencies[i],
+                    artifactFilter, previousArtifactReports);
+                if (dReport != null) {
+                    previousDownloads.put(dependencies[i], dReport);
+                }
+            }
+        }
+        Map/* <IvyNode, Future[]> */pendingDownloads = new HashMap();
+        ExecutorService executor = null;
+        try {
+            if (threads > 1) {
+                Message.verbose("\tdownloading artifacts with " + threads + " threads");
+                executor = ExecutorHelper.newFixedThreadPool("download", threads);
+                // start all transfers at once, reports are then handled in the usual order
+                for (int i = 0; i < dependencies.length; i++) {
+                    if (isToDownload(dependencies[i])
+                            && !previousDownloads.containsKey(dependencies[i])) {
+                        pendingDownloads.put(dependencies[i],
+                            submitDownloads(executor, dependencies[i], artifactFilter, options));
                     }
                 }
-                // update concerned reports
-                String[] dconfs = dependencies[i].getRootModuleConfigurations();
-                for (int j = 0; j < dconfs.length; j++) {
-                    // the report itself is responsible to take into account only
-                    // artifacts required in its corresponding configuration
-                    // (as described by the Dependency object)
-                    if (dependencies[i].isEvicted(dconfs[j])
-                            || dependencies[i].isBlacklisted(dconfs[j])) {
-                        report.getConfigurationReport(dconfs[j]).addDependency(dependencies[i]);
+            }
+
+            DownloadReport[] dReports = new DownloadReport[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                checkInterrupted();
+                // download artifacts required in all asked configurations
+                if (isToDownload(dependencies[i])) {
+                    DownloadReport dReport = (DownloadReport) previousDownloads
+                            .get(dependencies[i]);
+                    Future[] downloads = (Future[]) pendingDownloads.remove(dependencies[i]);
+                    if (dReport != null) {
+                        Message.debug("\treusing previous download reports of " + dependencies[i]);
+                    } else if (downloads != null) {
+                        dReport = getDownloadReport(downloads);
                     } else {
-                        report.getConfigurationReport(dconfs[j]).addDependency(dependencies[i],
-                            dReport);
+                        Artifact[] selectedArtifacts = dependencies[i]
+                                .getSelectedArtifacts(artifactFilter);
+                        dReport = dependencies[i].getModuleRevision().getArtifactResolver()
+                                .download(selectedArtifacts, options);
                     }
+                    dReports[i] = dReport;
                 }
             }
+            // unpacking failures are only known once the unpackings are done
+            waitForUnpacks();
+
+            long totalSize = 0;
+            for (int i = 0; i < dependencies.length; i++) {
+                if (dReports[i] != null) {
+                    DependencyResolver resolver = dependencies[i].getModuleRevision()
+                            .getArtifactResolver();
+                    DownloadReport dReport = dReports[i];
+                    ArtifactDownloadReport[] adrs = dReport.getArtifactsReports();
+                    for (int j = 0; j < adrs.length; j++) {
+                        if (adrs[j].getDownloadStatus() == DownloadStatus.FAILED) {
+                            if (adrs[j].getArtifact().getExtraAttribute("ivy:merged") != null) {
+                                Message.warn("\tmerged artifact not found: "
+                                        + adrs[j].getArtifact() + ". It was required in "
+                                        + adrs[j].getArtifact().getExtraAttribute("ivy:merged"));
+                            } else {
+                                Message.warn("\t" + adrs[j]);
+                                resolver.reportFailure(adrs[j].getArtifact());
+                            }
+                        } else if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                            totalSize += adrs[j].getSize();
+                        }
+                    }
+                    // update concerned reports
+                    String[] dconfs = dependencies[i].getRootModuleConfigurations();
+                    for (int j = 0; j < dconfs.length; j++) {
+                        // the report itself is responsible to take into account only
+                        // artifacts required in its corresponding configuration
+                        // (as described by the Dependency object)
+                        if (dependencies[i].isEvicted(dconfs[j])
+                                || dependencies[i].isBlacklisted(dconfs[j])) {
+                            report.getConfigurationReport(dconfs[j]).addDependency(
+                                dependencies[i]);
+                        } else {
+                            report.getConfigurationReport(dconfs[j]).addDependency(
+                                dependencies[i], dReport);
+                        }
+                    }
+                }
+            }
+            report.setDownloadTime(System.currentTimeMillis() - start);
+            report.setDownloadSize(totalSize);
+        } finally {
+            ExecutorHelper.shutdown(executor);
+        }
+    }
+
+    /**
+     * Returns a report built from the reports of the previous resolve if all the selected artifacts
+     * of the given node were available in the cache, or <code>null</code> otherwise.
+     */
+    private DownloadReport getPreviousDownloadReport(IvyNode node, Filter artifactFilter,
+            Map previousArtifactReports) {
+        if (previousArtifactReports.isEmpty()) {
+            return null;
+        }
+        Artifact[] selectedArtifacts = node.getSelectedArtifacts(artifactFilter);
+        DownloadReport dReport = new DownloadReport();
+        for (int i = 0; i < selectedArtifacts.length; i++) {
+            Artifact artifact = selectedArtifacts[i];
+            ArtifactDownloadReport previous = (ArtifactDownloadReport) previousArtifactReports
+                    .get(artifact.getId());
+            if (previous == null || previous.getDownloadStatus() == DownloadStatus.FAILED
+                    || previous.getLocalFile() == null || !previous.getLocalFile().exists()
+                    || (previous.getUnpackedLocalFile() != null && !previous
+                            .getUnpackedLocalFile().exists())) {
+                return null;
+            }
+            ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
+            adr.setDownloadStatus(DownloadStatus.NO);
+            adr.setSize(previous.getSize());
+            adr.setLocalFile(previous.getLocalFile());
+            adr.setUnpackedLocalFile(previous.getUnpackedLocalFile());
+            ArtifactOrigin origin = previous.getArtifactOrigin();
+            if (origin != null) {
+                adr.setArtifactOrigin(ArtifactOrigin.isUnknown(origin) ? ArtifactOrigin
+                        .unkwnown(artifact) : new ArtifactOrigin(artifact, origin.isLocal(), origin
+                        .getLocation()));
+            }
+            dReport.addArtifactReport(adr);
+        }
+        return dReport;
+    }
+
+    private boolean isToDownload(IvyNode node) {
+        return !node.isCompletelyEvicted() && !node.hasProblem()
+                && node.getModuleRevision() != null;
+    }
+
+    private Future[] submitDownloads(ExecutorService executor, IvyNode node,
+            Filter artifactFilter, final DownloadOptions options) {
+        final DependencyResolver resolver = node.getModuleRevision().getArtifactResolver();
+        Artifact[] selectedArtifacts = node.getSelectedArtifacts(artifactFilter);
+        Future[] downloads = new Future[selectedArtifacts.length];
+        for (int i = 0; i < selectedArtifacts.length; i++) {
+            final Artifact artifact = selectedArtifacts[i];
+            downloads[i] = executor.submit(ExecutorHelper.inCallerContext(new Callable() {
+                public Object call() {
+                    return resolver.download(new Artifact[] {artifact}, options);
+                }
+            }));
+        }
+        return downloads;
+    }
+
+    private DownloadReport getDownloadReport(Future[] downloads) {
+        DownloadReport dReport = new DownloadReport();
+        for (int i = 0; i < downloads.length; i++) {
+            try {
+                ArtifactDownloadReport[] adrs = ((DownloadReport) downloads[i].get())
+                        .getArtifactsReports();
+                for (int j = 0; j < adrs.length; j++) {
+                    dReport.addArtifactReport(adrs[j]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("operation interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause.getMessage(), cause);
+            }
         }
-        report.setDownloadTime(System.currentTimeMillis() - start);
-        report.setDownloadSize(totalSize);
+        return dReport;
     }
 
     /**
@@ -446,6 +667,7 @@ public class ResolveEngine {
     public ArtifactDownloadReport download(Artifact artifact, DownloadOptions options) {
         DependencyResolver resolver = settings.getResolver(artifact.getModuleRevisionId());
         DownloadReport r = resolver.download(new Artifact[] {artifact}, options);
+        waitForUnpacks();
         return r.getArtifactReport(artifact);
     }
 
@@ -488,7 +710,9 @@ public class ResolveEngine {
     public ArtifactDownloadReport download(ArtifactOrigin origin, DownloadOptions options) {
         DependencyResolver resolver = settings.getResolver(origin.getArtifact()
                 .getModuleRevisionId());
-        return resolver.download(origin, options);
+        ArtifactDownloadReport adr = resolver.download(origin, options);
+        waitForUnpacks();
+        return adr;
     }
 
     /**
@@ -570,10 +794,19 @@ public class ResolveEngine {
             }
             IvyNode rootNode = new IvyNode(data, md);
 
+            int threads = options.getThreads() > 0 ? options.getThreads() : settings
+                    .getResolveThreads();
+            if (threads > 1 && !data.isReplayingIncrementalResolve()) {
+                Message.verbose("\tfetching dependencies metadata with " + threads + " threads");
+                data.setPrefetcher(new DependencyPrefetcher(threads));
+            }
+
+            int restarts = 0;
             for (int i = 0; i < confs.length; i++) {
                 Message.verbose("resolving dependencies for configuration '" + confs[i] + "'");
                 // for each configuration we clear the cache of what's been fetched
                 fetchedSet.clear();
+                clearPrefetched(data);
 
                 ConfigurationResolveReport confReport = null;
                 if (report != null) {
@@ -603,7 +836,9 @@ public class ResolveEngine {
                         Message.verbose("=           RESTARTING RESOLVE PROCESS");
                         Message.verbose("= " + restart.getMessage());
                         Message.verbose("====================================================");
+                        restarts++;
                         fetchedSet.clear();
+                        clearPrefetched(data);
                     }
                 }
 
@@ -614,6 +849,13 @@ public class ResolveEngine {
                 }
             }
 
+            if (restarts > 0) {
+                Message.verbose("\tresolve process restarted " + restarts + " times");
+            }
+            if (report != null) {
+                report.setRestartCount(restarts);
+            }
+
             // prune and reverse sort fectched dependencies
             Collection nodes = data.getNodes();
             // use a Set to avoid duplicates, linked to preserve order
@@ -631,10 +873,21 @@ public class ResolveEngine {
 
             return (IvyNode[]) dependencies.toArray(new IvyNode[dependencies.size()]);
         } finally {
+            ResolveData data = context.getResolveData();
+            if (data != null && data.getPrefetcher() != null) {
+                data.getPrefetcher().shutdown();
+                data.setPrefetcher(null);
+            }
             IvyContext.popContext();
         }
     }
 
+    private void clearPrefetched(ResolveData data) {
+        if (data.getPrefetcher() != null) {
+            data.getPrefetcher().clear();
+        }
+    }
+
     private void handleTransiviteEviction(ModuleDescriptor md, String[] confs, ResolveData data,
             List sortedDependencies) {
         // handle transitive eviction now:
@@ -794,6 +1047,11 @@ public class ResolveEngine {
         // now we can actually resolve this configuration dependencies
         if (!isDependenciesFetched(node.getNode(), conf) && node.isTransitive()) {
             Collection/* <VisitNode> */dependencies = node.getDependencies(conf);
+            DependencyPrefetcher prefetcher = node.getNode().getData().getPrefetcher();
+            if (prefetcher != null) {
+                // fetch siblings metadata at once, the traversal below will then use it in order
+                prefetcher.prefetch(node, dependencies);
+            }
             for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
                 VisitNode dep = (VisitNode) iter.next();
                 dep.useRealNode(); // the node may have been resolved to another real one while
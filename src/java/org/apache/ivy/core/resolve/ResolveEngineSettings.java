@@ -17,6 +17,8 @@
  */
 package org.apache.ivy.core.resolve;
 
+import java.util.Collection;
+
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.conflict.ConflictManager;
@@ -42,4 +44,16 @@ public interface ResolveEngineSettings extends ResolverSettings {
 
     boolean logResolvedRevision();
 
+    int getResolveThreads();
+
+    int getDownloadThreads();
+
+    Collection getMatcherNames();
+
+    boolean hasResolver(String resolverName);
+
+    DependencyResolver getResolver(String resolverName);
+
+    String getFingerprint();
+
 }
@@ -120,6 +120,17 @@ public class ResolveOptions extends LogOptions {
      **/
     private boolean checkIfChanged = false;
 
+    /**
+     * The number of threads to use to fetch dependencies metadata, or 0 to use settings
+     * configured number of threads.
+     */
+    private int threads = 0;
+
+    /**
+     * True if the resolve may reuse the previous resolution when its inputs are unchanged.
+     */
+    private boolean incremental = false;
+
     public ResolveOptions() {
     }
 
@@ -138,6 +149,8 @@ public class ResolveOptions extends LogOptions {
         artifactFilter = options.artifactFilter;
         resolveId = options.resolveId;
         checkIfChanged = options.checkIfChanged;
+        threads = options.threads;
+        incremental = options.incremental;
     }
 
     public Filter getArtifactFilter() {
@@ -300,6 +313,52 @@ public class ResolveOptions extends LogOptions {
         return checkIfChanged;
     }
 
+    /**
+     * Returns the number of threads to use to fetch dependencies metadata, or 0 to use settings
+     * configured number of threads.
+     * 
+     * @return the number of threads to use.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads to use to fetch dependencies metadata. With more than one thread,
+     * the metadata of the dependencies of a module are fetched concurrently, while the graph
+     * traversal and conflict resolution stay sequential. Note that in this mode the metadata of
+     * revisions which end up evicted may be fetched too.
+     * 
+     * @param threads
+     *            the number of threads to use, 1 for a sequential resolve, or 0 to use settings
+     *            configured number of threads.
+     * @return this
+     */
+    public ResolveOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets whether the resolve may reuse the previous resolution with the same resolve id. When
+     * the module descriptor, the settings and the options are unchanged since the previous
+     * resolve, and the cached resolved revisions of dynamic dependencies haven't expired, the
+     * dependencies are taken from the cache with the revisions selected by the previous resolve,
+     * without asking the resolvers, and the artifacts are taken from the previous reports.
+     * 
+     * @param incremental
+     *            true to reuse the previous resolution when possible
+     * @return this
+     */
+    public ResolveOptions setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
     public static String getDefaultResolveId(ModuleDescriptor md) {
         ModuleId module = md.getModuleRevisionId().getModuleId();
         return getDefaultResolveId(module);
@@ -31,6 +31,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -48,6 +52,7 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.plugins.report.XmlReportParser;
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 
@@ -112,6 +117,7 @@ public class RetrieveEngine {
             this.eventManager.fireIvyEvent(new StartRetrieveEvent(mrid, confs, options));
         }
 
+        ExecutorService executor = null;
         try {
             Map/* <File, File> */destToSrcMap = null;
             // Map<ArtifactDownloadReport, Set<String>>
@@ -133,6 +139,16 @@ public class RetrieveEngine {
                 destToSrcMap = new HashMap();
             }
 
+            int threads = options.getThreads() > 0 ? options.getThreads() : settings
+                    .getRetrieveThreads();
+            Map/* <File, Future> */pendingTransfers = new HashMap();
+            if (threads > 1 && !options.isMakeSymlinksInMass()) {
+                Message.verbose("\tretrieving artifacts with " + threads + " threads");
+                executor = ExecutorHelper.newFixedThreadPool("retrieve", threads);
+                // start all transfers at once, results are then handled in the usual order
+                submitTransfers(executor, artifactsToCopy, options, pendingTransfers);
+            }
+
             // do retrieve
             long totalCopiedSize = 0;
             for (Iterator iter = artifactsToCopy.keySet().iterator(); iter.hasNext();) {
@@ -150,7 +166,9 @@ public class RetrieveEngine {
                 for (Iterator it2 = dest.iterator(); it2.hasNext();) {
                     IvyContext.getContext().checkInterrupted();
                     File destFile = settings.resolveFile((String) it2.next());
-                    if (!settings.isCheckUpToDate() || !upToDate(archive, destFile, options)) {
+                    Future transfer = (Future) pendingTransfers.remove(destFile);
+                    if (transfer != null || !settings.isCheckUpToDate()
+                            || !upToDate(archive, destFile, options)) {
                         Message.verbose("\t\tto " + destFile);
                         if (this.eventManager != null) {
                             // There is no unitary event for the mass sym linking.
@@ -164,10 +182,10 @@ public class RetrieveEngine {
                             if (FileUtil.prepareCopy(archive, destFile, true)) {
                                 destToSrcMap.put(destFile, archive);
                             }
-                        } else if (options.isMakeSymlinks()) {
-                            FileUtil.symlink(archive, destFile, null, true);
+                        } else if (transfer != null) {
+                            waitFor(transfer);
                         } else {
-                            FileUtil.copy(archive, destFile, null, true);
+                            transfer(archive, destFile, options);
                         }
                         if (this.eventManager != null) {
                             // There is no unitary event for the mass sym linking.
@@ -247,6 +265,69 @@ public class RetrieveEngine {
             return report;
         } catch (Exception ex) {
             throw new RuntimeException("problem during retrieve of " + moduleId + ": " + ex, ex);
+        } finally {
+            ExecutorHelper.shutdown(executor);
+        }
+    }
+
+    private void submitTransfers(ExecutorService executor, Map artifactsToCopy,
+            final RetrieveOptions options, Map/* <File, Future> */pendingTransfers) {
+        for (Iterator iter = artifactsToCopy.keySet().iterator(); iter.hasNext();) {
+            ArtifactDownloadReport artifact = (ArtifactDownloadReport) iter.next();
+            File archive = artifact.getLocalFile();
+            if (artifact.getUnpackedLocalFile() != null) {
+                archive = artifact.getUnpackedLocalFile();
+            }
+            if (archive == null) {
+                continue;
+            }
+            final File source = archive;
+            Set dest = (Set) artifactsToCopy.get(artifact);
+            for (Iterator it2 = dest.iterator(); it2.hasNext();) {
+                final File destFile = settings.resolveFile((String) it2.next());
+                if (!settings.isCheckUpToDate() || !upToDate(source, destFile, options)) {
+                    pendingTransfers.put(destFile,
+                        executor.submit(ExecutorHelper.inCallerContext(new Callable() {
+                            public Object call() throws IOException {
+                                transfer(source, destFile, options);
+                                return null;
+                            }
+                        })));
+                }
+            }
+        }
+    }
+
+    private void waitFor(Future transfer) throws IOException, InterruptedException {
+        try {
+            transfer.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            IOException ioex = new IOException(String.valueOf(cause));
+            ioex.initCause(cause);
+            throw ioex;
+        }
+    }
+
+    private void transfer(File archive, File destFile, RetrieveOptions options)
+            throws IOException {
+        if (destFile.isFile()) {
+            // never write through an existing link to a file in the cache
+            destFile.delete();
+        }
+        if (options.isMakeSymlinks()) {
+            FileUtil.symlink(archive, destFile, null, true);
+        } else if (options.isMakeHardLinks()) {
+            FileUtil.hardLink(archive, destFile, null, true);
+        } else {
+            FileUtil.copy(archive, destFile, null, true);
         }
     }
 
@@ -83,6 +83,18 @@ public class RetrieveOptions extends LogOptions {
      */
     private boolean makeSymlinksInMass = false;
 
+    /**
+     * True if hard links should be created instead of plain copy. Files are copied when a hard link
+     * can't be created, for instance across file systems.
+     */
+    private boolean makeHardLinks = false;
+
+    /**
+     * The number of threads to use to copy or link artifacts, or 0 to use settings configured
+     * number of threads.
+     */
+    private int threads = 0;
+
     /**
      * The id used to store the resolve information.
      */
@@ -104,6 +116,8 @@ public class RetrieveOptions extends LogOptions {
         this.useOrigin = options.useOrigin;
         this.makeSymlinks = options.makeSymlinks;
         this.makeSymlinksInMass = options.makeSymlinksInMass;
+        this.makeHardLinks = options.makeHardLinks;
+        this.threads = options.threads;
         this.resolveId = options.resolveId;
         this.mapper = options.mapper;
     }
@@ -171,6 +185,48 @@ public class RetrieveOptions extends LogOptions {
         return this;
     }
 
+    public boolean isMakeHardLinks() {
+        return makeHardLinks;
+    }
+
+    /**
+     * Sets whether hard links to the files in the cache should be created instead of copies. Note
+     * that a hard link shares its content with the file in the cache, so retrieved files must not
+     * be modified in place.
+     * 
+     * @param makeHardLinks
+     *            true to create hard links, false to copy the artifacts
+     * @return this
+     */
+    public RetrieveOptions setMakeHardLinks(boolean makeHardLinks) {
+        this.makeHardLinks = makeHardLinks;
+        return this;
+    }
+
+    /**
+     * Returns the number of threads to use to copy or link artifacts, or 0 to use settings
+     * configured number of threads.
+     * 
+     * @return the number of threads to use.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads to use to copy or link artifacts. This has no effect when
+     * symbolic links are created in mass.
+     * 
+     * @param threads
+     *            the number of threads to use, 1 to retrieve artifacts one after the other, or 0 to
+     *            use settings configured number of threads.
+     * @return this
+     */
+    public RetrieveOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
     public boolean isSync() {
         return sync;
     }
@@ -27,6 +27,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessControlException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -36,6 +38,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -104,6 +107,7 @@ import org.apache.ivy.plugins.version.LatestVersionMatcher;
 import org.apache.ivy.plugins.version.SubVersionMatcher;
 import org.apache.ivy.plugins.version.VersionMatcher;
 import org.apache.ivy.plugins.version.VersionRangeMatcher;
+import org.apache.ivy.util.ChecksumHelper;
 import org.apache.ivy.util.Checks;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
@@ -218,6 +222,8 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
 
     private PackingRegistry packingRegistry = new PackingRegistry();
 
+    private StringBuffer loadedSettings = new StringBuffer();
+
     public IvySettings() {
         this(new IvyVariableContainerImpl());
     }
@@ -652,6 +658,47 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return variableContainer;
     }
 
+    /**
+     * Records a settings element loaded by the settings parser, with its substituted attributes.
+     */
+    synchronized void settingsElementLoaded(String name, Map attributes) {
+        loadedSettings.append('<').append(name);
+        for (Iterator iter = new TreeMap(attributes).entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            loadedSettings.append(' ').append(entry.getKey()).append("=\"")
+                    .append(entry.getValue()).append('"');
+        }
+        loadedSettings.append('>');
+    }
+
+    /**
+     * Returns a fingerprint of these settings, which changes when other settings files are
+     * loaded, when loaded settings files are changed, or when resolvers are added.
+     * <p>
+     * Settings changed through the API without adding resolvers are not taken into account.
+     * </p>
+     * 
+     * @return a hexadecimal SHA-1 digest of the loaded settings
+     */
+    public synchronized String getFingerprint() {
+        StringBuffer buffer = new StringBuffer(loadedSettings.toString());
+        for (Iterator iter = new TreeMap(resolversMap).entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            buffer.append('|').append(entry.getKey()).append('=')
+                    .append(entry.getValue().getClass().getName());
+        }
+        buffer.append('|').append(defaultResolverName);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            return ChecksumHelper.byteArrayToHexString(digest.digest(buffer.toString().getBytes(
+                "UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The SHA1 algorithm is not available: " + e);
+        } catch (IOException e) {
+            throw new IllegalStateException("UTF-8 is not supported: " + e);
+        }
+    }
+
     public synchronized Class typeDef(String name, String className) {
         return typeDef(name, className, false);
     }
@@ -1315,6 +1362,63 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return var == null || Boolean.valueOf(var).booleanValue();
     }
 
+    /**
+     * Returns the number of threads used by default to fetch dependencies metadata during resolve,
+     * as configured by the <code>ivy.resolve.threads</code> variable. Defaults to 1, which means a
+     * sequential resolve.
+     * 
+     * @return the default number of resolve threads
+     */
+    public synchronized int getResolveThreads() {
+        return getThreadsVariable("ivy.resolve.threads");
+    }
+
+    /**
+     * Returns the number of threads used by default to download artifacts during resolve, as
+     * configured by the <code>ivy.download.threads</code> variable. Defaults to 1, which means
+     * artifacts are downloaded one after the other.
+     * 
+     * @return the default number of download threads
+     */
+    public synchronized int getDownloadThreads() {
+        return getThreadsVariable("ivy.download.threads");
+    }
+
+    /**
+     * Returns the number of threads used by default to copy or link artifacts during retrieve, as
+     * configured by the <code>ivy.retrieve.threads</code> variable. Defaults to 1, which means
+     * artifacts are retrieved one after the other.
+     * 
+     * @return the default number of retrieve threads
+     */
+    public synchronized int getRetrieveThreads() {
+        return getThreadsVariable("ivy.retrieve.threads");
+    }
+
+    /**
+     * Returns the number of threads used by default to upload artifacts during publish, as
+     * configured by the <code>ivy.publish.threads</code> variable. Defaults to 1, which means
+     * artifacts are published one after the other.
+     * 
+     * @return the default number of publish threads
+     */
+    public synchronized int getPublishThreads() {
+        return getThreadsVariable("ivy.publish.threads");
+    }
+
+    private int getThreadsVariable(String name) {
+        String var = getVariable(name);
+        if (var == null) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(var.trim()));
+        } catch (NumberFormatException e) {
+            Message.warn("invalid value for " + name + ": " + var + ". Using 1.");
+            return 1;
+        }
+    }
+
     public synchronized boolean debugConflictResolution() {
         if (debugConflictResolution == null) {
             String var = getVariable("ivy.log.conflict.resolution");
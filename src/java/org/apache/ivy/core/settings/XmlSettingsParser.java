@@ -190,6 +190,7 @@ public class XmlSettingsParser extends DefaultHandler {
         for (int i = 0; i < att.getLength(); i++) {
             attributes.put(att.getQName(i), ivy.substitute(att.getValue(i)));
         }
+        ivy.settingsElementLoaded(qName, attributes);
 
         try {
             if ("ivyconf".equals(qName)) {
@@ -26,14 +26,20 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.Collections;
 
 import org.apache.ivy.core.cache.CacheResourceOptions;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
 import org.apache.ivy.osgi.obr.xml.OBRXMLParser;
 import org.apache.ivy.osgi.repo.AbstractOSGiResolver;
-import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.osgi.repo.BundleRepoDescriptor;
+import org.apache.ivy.osgi.repo.RepoDescriptor;
+import org.apache.ivy.osgi.repo.RepoDescriptorCache;
+import org.apache.ivy.osgi.repo.RepoDescriptorCache.Source;
 import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.Message;
 import org.xml.sax.SAXException;
 
 public class OBRResolver extends AbstractOSGiResolver {
@@ -69,7 +75,15 @@ public class OBRResolver extends AbstractOSGiResolver {
         }
         if (repoXmlFile != null) {
             File f = new File(repoXmlFile);
-            loadRepoFromFile(f.getParentFile().toURI(), f, repoXmlFile);
+            RepoDescriptorCache cache = RepoDescriptorCache.getInstance(
+                getRepositoryCacheManager(), f.getAbsolutePath());
+            if (loadRepoFromCache(cache, null)) {
+                return;
+            }
+            BundleRepoDescriptor repo = loadRepoFromFile(f.getParentFile().toURI(), f,
+                repoXmlFile);
+            setRepoDescriptor(repo);
+            saveRepoToCache(cache, Source.forFile(f), repo);
         } else if (repoXmlURL != null) {
             final URL url;
             try {
@@ -79,19 +93,25 @@ public class OBRResolver extends AbstractOSGiResolver {
                         + " couldn't be configured: repoXmlURL '" + repoXmlURL + "' is not an URL");
             }
 
+            CacheResourceOptions options = new CacheResourceOptions();
+            if (metadataTtl != null) {
+                options.setTtl(metadataTtl.longValue());
+            }
+            if (forceMetadataUpdate != null) {
+                options.setForce(forceMetadataUpdate.booleanValue());
+            }
+            RepoDescriptorCache cache = RepoDescriptorCache.getInstance(
+                getRepositoryCacheManager(), repoXmlURL);
+
+            URLResource obrResource = new URLResource(url);
             ArtifactDownloadReport report;
             EventManager eventManager = getEventManager();
             try {
                 if (eventManager != null) {
                     getRepository().addTransferListener(eventManager);
                 }
-                Resource obrResource = new URLResource(url);
-                CacheResourceOptions options = new CacheResourceOptions();
-                if (metadataTtl != null) {
-                    options.setTtl(metadataTtl.longValue());
-                }
-                if (forceMetadataUpdate != null) {
-                    options.setForce(forceMetadataUpdate.booleanValue());
+                if (loadRepoFromCache(cache, options)) {
+                    return;
                 }
                 report = getRepositoryCacheManager().downloadRepositoryResource(obrResource, "obr",
                     "obr", "xml", options, getRepository());
@@ -107,7 +127,11 @@ public class OBRResolver extends AbstractOSGiResolver {
             } catch (URISyntaxException e) {
                 throw new RuntimeException("illegal uri");
             }
-            loadRepoFromFile(baseURI, report.getLocalFile(), repoXmlURL);
+            BundleRepoDescriptor repo = loadRepoFromFile(baseURI, report.getLocalFile(),
+                repoXmlURL);
+            setRepoDescriptor(repo);
+            saveRepoToCache(cache, Source.forDownload(obrResource, "obr", "obr", "xml", report),
+                repo);
 
         } else {
             throw new RuntimeException("The OBR repository resolver " + getName()
@@ -115,7 +139,29 @@ public class OBRResolver extends AbstractOSGiResolver {
         }
     }
 
-    private void loadRepoFromFile(URI baseUri, File repoFile, String sourceLocation) {
+    private boolean loadRepoFromCache(RepoDescriptorCache cache, CacheResourceOptions options) {
+        if (cache == null) {
+            return false;
+        }
+        RepoDescriptor repo = cache.load(getRepositoryCacheManager(), getRepository(), options,
+            ExecutionEnvironmentProfileProvider.getInstance());
+        if (repo == null) {
+            return false;
+        }
+        Message.verbose("\tOBR repository loaded from " + cache.getFile());
+        setRepoDescriptor(repo);
+        return true;
+    }
+
+    private void saveRepoToCache(RepoDescriptorCache cache, Source source,
+            BundleRepoDescriptor repo) {
+        if (cache != null) {
+            cache.save(Collections.singletonList(source), repo);
+        }
+    }
+
+    private BundleRepoDescriptor loadRepoFromFile(URI baseUri, File repoFile,
+            String sourceLocation) {
         FileInputStream in;
         try {
             in = new FileInputStream(repoFile);
@@ -123,8 +169,9 @@ public class OBRResolver extends AbstractOSGiResolver {
             throw new RuntimeException("The OBR repository resolver " + getName()
                     + " couldn't be configured: the file " + sourceLocation + " was not found");
         }
+        BundleRepoDescriptor repo;
         try {
-            setRepoDescriptor(OBRXMLParser.parse(baseUri, in));
+            repo = OBRXMLParser.parse(baseUri, in);
         } catch (ParseException e) {
             throw new RuntimeException("The OBR repository resolver " + getName()
                     + " couldn't be configured: the file " + sourceLocation
@@ -143,5 +190,6 @@ public class OBRResolver extends AbstractOSGiResolver {
         } catch (IOException e) {
             // don't care
         }
+        return repo;
     }
 }
@@ -50,6 +50,7 @@ import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.BundleInfoAdapter;
 import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.repository.url.URLRepository;
 import org.apache.ivy.plugins.repository.url.URLResource;
@@ -141,8 +142,8 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
             throw new RuntimeException("Unsupported OSGi module Id: " + mrid.getModuleId());
         }
         String id = mrid.getName();
-        Collection<ModuleDescriptor> mds = ModuleDescriptorWrapper.unwrap(getRepoDescriptor()
-                .findModules(osgiType, id));
+        Collection<ModuleDescriptor> mds = ModuleDescriptorWrapper.unwrap(findModules(osgiType,
+            id, mrid.getRevision()));
         if (mds == null || mds.isEmpty()) {
             Message.verbose("\t " + id + " not found.");
             return null;
@@ -163,6 +164,24 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
         return found;
     }
 
+    /**
+     * Returns the modules providing the given capability. When the revision asked for is a version
+     * range, only the modules providing a version of the capability in the range are returned,
+     * so that no resolved resource is built for the others.
+     */
+    private Collection<ModuleDescriptorWrapper> findModules(String osgiType, String id,
+            String revision) {
+        if (revision != null && (revision.startsWith("[") || revision.startsWith("("))) {
+            try {
+                return getRepoDescriptor().findModules(osgiType, id, new VersionRange(revision));
+            } catch (ParseException e) {
+                Message.debug("\t" + revision + " is not an OSGi version range: "
+                        + e.getMessage());
+            }
+        }
+        return getRepoDescriptor().findModules(osgiType, id);
+    }
+
     public ResolvedResource[] findBundle(DependencyDescriptor dd, ResolveData data,
             Collection<ModuleDescriptor> mds) {
         ResolvedResource[] ret = new ResolvedResource[mds.size()];
@@ -17,12 +17,16 @@
  */
 package org.apache.ivy.osgi.repo;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.apache.ivy.osgi.util.VersionRange;
+
 public class AggregatedRepoDescriptor extends RepoDescriptor {
 
     private List<RepoDescriptor> repos;
@@ -97,6 +101,21 @@ public class AggregatedRepoDescriptor extends RepoDescriptor {
         return ret;
     }
 
+    @Override
+    public List<ModuleDescriptorWrapper> findModules(String requirement, String value,
+            VersionRange range) {
+        if (repos.size() == 1) {
+            return repos.get(0).findModules(requirement, value, range);
+        }
+        Set<ModuleDescriptorWrapper> ret = new LinkedHashSet<ModuleDescriptorWrapper>();
+        for (RepoDescriptor repo : repos) {
+            ret.addAll(repo.findModules(requirement, value, range));
+        }
+        List<ModuleDescriptorWrapper> found = new ArrayList<ModuleDescriptorWrapper>(ret);
+        sortMostRecentFirst(found, requirement, value);
+        return found;
+    }
+
     @Override
     public Set<String> getCapabilityValues(String capabilityName) {
         Set<String> ret = new HashSet<String>();
@@ -0,0 +1,168 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+import org.apache.ivy.util.Message;
+
+/**
+ * Index of the modules of a repository by capability and version.
+ * <p>
+ * For each capability type and value, the modules providing it are kept sorted by the version of
+ * the capability, most recent first, so that the modules matching a version range are found by
+ * binary search instead of checking every candidate. Equal versions are shared by all the entries
+ * of the index.
+ * </p>
+ * <p>
+ * The index is filled while the repository descriptor is built. Once filled, it can be queried by
+ * several threads.
+ * </p>
+ */
+class CapabilityIndex {
+
+    private static final Comparator<Entry> MOST_RECENT_FIRST = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            return e2.version.compareTo(e1.version);
+        }
+    };
+
+    private final Map<String, Map<String, List<Entry>>> exportsByType = new HashMap<String, Map<String, List<Entry>>>();
+
+    private final Map<Version, Version> versions = new HashMap<Version, Version>();
+
+    /**
+     * Returns the shared instance equal to the given version.
+     */
+    Version intern(Version version) {
+        Version interned = versions.get(version);
+        if (interned == null) {
+            versions.put(version, version);
+            interned = version;
+        }
+        return interned;
+    }
+
+    void add(String type, String value, Version version, ModuleDescriptorWrapper md) {
+        Map<String, List<Entry>> exportsByValue = exportsByType.get(type);
+        if (exportsByValue == null) {
+            exportsByValue = new HashMap<String, List<Entry>>();
+            exportsByType.put(type, exportsByValue);
+        }
+        List<Entry> exports = exportsByValue.get(value);
+        if (exports == null) {
+            exports = new ArrayList<Entry>(1);
+            exportsByValue.put(value, exports);
+        }
+        try {
+            Entry entry = new Entry(intern(version == null ? RepoDescriptor.NO_VERSION : version), md);
+            int i = Collections.binarySearch(exports, entry, MOST_RECENT_FIRST);
+            exports.add(i < 0 ? -i - 1 : i, entry);
+        } catch (RuntimeException e) {
+            // ill formed version, which can't be in any range
+            Message.debug("Unindexed " + type + " " + value + ";" + version + ": "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the modules providing the given capability with a version in the given range, the
+     * ones with the most recent version first, or an empty list if there is none.
+     */
+    List<ModuleDescriptorWrapper> find(String type, String value, VersionRange range) {
+        List<Entry> entries = getExports(type, value);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+
+        // the most recent version in the range, then every version down to the start of the range
+        int from = 0;
+        if (range.getEndVersion() != null) {
+            from = firstNotAfter(entries, range.getEndVersion(), range.isEndExclusive());
+        }
+        List<ModuleDescriptorWrapper> found = new ArrayList<ModuleDescriptorWrapper>();
+        for (int i = from; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int diff = entry.version.compareUnqualified(range.getStartVersion());
+            if (diff < 0 || (diff == 0 && range.isStartExclusive())) {
+                break;
+            }
+            found.add(entry.md);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the module providing the given capability with exactly the given version, or
+     * <code>null</code> if there is none.
+     */
+    ModuleDescriptorWrapper find(String type, String value, Version version) {
+        List<Entry> entries = getExports(type, value);
+        if (entries == null) {
+            return null;
+        }
+        int i = Collections.binarySearch(entries, new Entry(version, null), MOST_RECENT_FIRST);
+        return i < 0 ? null : entries.get(i).md;
+    }
+
+    private List<Entry> getExports(String type, String value) {
+        Map<String, List<Entry>> exportsByValue = exportsByType.get(type);
+        if (exportsByValue == null) {
+            return null;
+        }
+        return exportsByValue.get(value);
+    }
+
+    /**
+     * Returns the index of the first entry whose version, ignoring its qualifier, is lower than
+     * the given end version, or equal to it if the end is inclusive.
+     */
+    private static int firstNotAfter(List<Entry> entries, Version end, boolean endExclusive) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int diff = entries.get(mid).version.compareUnqualified(end);
+            boolean after = endExclusive ? diff >= 0 : diff > 0;
+            if (after) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Entry {
+        private final Version version;
+
+        private final ModuleDescriptorWrapper md;
+
+        Entry(Version version, ModuleDescriptorWrapper md) {
+            this.version = version;
+            this.md = md;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -29,6 +30,7 @@ import org.apache.ivy.osgi.core.BundleCapability;
 import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
 import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
 import org.apache.ivy.util.Message;
 
 public class EditableRepoDescriptor extends RepoDescriptor {
@@ -37,6 +39,8 @@ public class EditableRepoDescriptor extends RepoDescriptor {
 
     private final Set<ModuleDescriptorWrapper> modules = new HashSet<ModuleDescriptorWrapper>();
 
+    private final CapabilityIndex index = new CapabilityIndex();
+
     private final ExecutionEnvironmentProfileProvider profileProvider;
 
     private final URI baseUri;
@@ -76,17 +80,14 @@ public class EditableRepoDescriptor extends RepoDescriptor {
         return modules.get(value);
     }
 
+    @Override
+    public List<ModuleDescriptorWrapper> findModules(String requirement, String value,
+            VersionRange range) {
+        return index.find(requirement, value, range);
+    }
+
     public ModuleDescriptorWrapper findModule(String symbolicName, Version version) {
-        Set<ModuleDescriptorWrapper> modules = findModules(BundleInfo.BUNDLE_TYPE, symbolicName);
-        if (modules == null) {
-            return null;
-        }
-        for (ModuleDescriptorWrapper module : modules) {
-            if (module.getBundleInfo().getVersion().equals(version)) {
-                return module;
-            }
-        }
-        return null;
+        return index.find(BundleInfo.BUNDLE_TYPE, symbolicName, version);
     }
 
     public Set<String> getCapabilityValues(String capabilityName) {
@@ -98,7 +99,7 @@ public class EditableRepoDescriptor extends RepoDescriptor {
         return modules.keySet();
     }
 
-    private void add(String type, String value, ModuleDescriptorWrapper md) {
+    private void add(String type, String value, Version version, ModuleDescriptorWrapper md) {
         modules.add(md);
         Map<String, Set<ModuleDescriptorWrapper>> map = moduleByCapabilities.get(type);
         if (map == null) {
@@ -110,7 +111,9 @@ public class EditableRepoDescriptor extends RepoDescriptor {
             bundleReferences = new HashSet<ModuleDescriptorWrapper>();
             map.put(value, bundleReferences);
         }
-        if (!bundleReferences.add(md)) {
+        if (bundleReferences.add(md)) {
+            index.add(type, value, version, md);
+        } else {
             if (logLevel <= Message.MSG_DEBUG) {
                 Message.debug("Duplicate module in the repo " + baseUri + " for " + type + " "
                         + value + ": " + md.getBundleInfo().getSymbolicName() + "#"
@@ -129,9 +132,9 @@ public class EditableRepoDescriptor extends RepoDescriptor {
         }
         ModuleDescriptorWrapper md = new ModuleDescriptorWrapper(bundleInfo, baseUri,
                 profileProvider);
-        add(BundleInfo.BUNDLE_TYPE, bundleInfo.getSymbolicName(), md);
+        add(BundleInfo.BUNDLE_TYPE, bundleInfo.getSymbolicName(), bundleInfo.getVersion(), md);
         for (BundleCapability capability : bundleInfo.getCapabilities()) {
-            add(capability.getType(), capability.getName(), md);
+            add(capability.getType(), capability.getName(), capability.getVersion(), md);
         }
     }
 
@@ -17,17 +17,79 @@
  */
 package org.apache.ivy.osgi.repo;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.ivy.osgi.core.BundleCapability;
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+
 public abstract class RepoDescriptor {
 
+    static final Version NO_VERSION = new Version(0, 0, 0, null);
+
     abstract public Iterator<ModuleDescriptorWrapper> getModules();
 
     abstract public Set<String> getCapabilities();
 
     abstract public Set<ModuleDescriptorWrapper> findModules(String requirement, String value);
 
+    /**
+     * Returns the modules providing the given capability with a version in the given range, the
+     * one with the most recent version first, or an empty list if there is none.
+     * <p>
+     * This implementation checks the version of every module returned by
+     * {@link #findModules(String, String)}. Descriptors which index their modules by version
+     * should override it.
+     * </p>
+     */
+    public List<ModuleDescriptorWrapper> findModules(String requirement, String value,
+            VersionRange range) {
+        Set<ModuleDescriptorWrapper> modules = findModules(requirement, value);
+        if (modules == null) {
+            return Collections.emptyList();
+        }
+        List<ModuleDescriptorWrapper> found = new ArrayList<ModuleDescriptorWrapper>();
+        for (ModuleDescriptorWrapper module : modules) {
+            if (range.contains(getVersion(module, requirement, value))) {
+                found.add(module);
+            }
+        }
+        sortMostRecentFirst(found, requirement, value);
+        return found;
+    }
+
+    /**
+     * Sorts the given modules by the version of the given capability they provide, the most
+     * recent first.
+     */
+    static void sortMostRecentFirst(List<ModuleDescriptorWrapper> modules, final String type,
+            final String name) {
+        Collections.sort(modules, new Comparator<ModuleDescriptorWrapper>() {
+            public int compare(ModuleDescriptorWrapper md1, ModuleDescriptorWrapper md2) {
+                return getVersion(md2, type, name).compareTo(getVersion(md1, type, name));
+            }
+        });
+    }
+
+    private static Version getVersion(ModuleDescriptorWrapper module, String type, String name) {
+        BundleInfo bundleInfo = module.getBundleInfo();
+        if (BundleInfo.BUNDLE_TYPE.equals(type)) {
+            return bundleInfo.getVersion();
+        }
+        for (BundleCapability capability : bundleInfo.getCapabilities()) {
+            if (capability.getType().equals(type) && capability.getName().equals(name)) {
+                return capability.getVersion() == null ? NO_VERSION : capability.getVersion();
+            }
+        }
+        return NO_VERSION;
+    }
+
     abstract public Set<String> getCapabilityValues(String capabilityName);
 
 }
@@ -0,0 +1,601 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.cache.CacheResourceOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.osgi.core.BundleArtifact;
+import org.apache.ivy.osgi.core.BundleCapability;
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.BundleRequirement;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
+import org.apache.ivy.osgi.core.ExportPackage;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+import org.apache.ivy.plugins.repository.Repository;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.HexEncoder;
+import org.apache.ivy.util.Message;
+
+/**
+ * Stores the bundles of a parsed repository descriptor in a compact binary form in the repository
+ * cache, so that the OSGi resolvers can load them again without parsing the index of the
+ * repository.
+ * <p>
+ * The binary form records the resources it has been built from, with the length and the last
+ * modification date of their local copy. It is only used if these resources are unchanged: the
+ * ones downloaded from a repository are checked again through the repository cache manager, which
+ * applies the usual time to live of the repository metadata and downloads them again if they are
+ * out of date. The bundles are read from a memory mapped file, and only once the resources have
+ * been found up to date.
+ * </p>
+ */
+public final class RepoDescriptorCache {
+
+    private static final int MAGIC = 0x49564f52; // IVOR
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NEW_STRING = -2;
+
+    private static final int NULL_STRING = -1;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * A resource a repository descriptor has been built from.
+     */
+    public static final class Source {
+        private final String location;
+
+        private final String name;
+
+        private final String type;
+
+        private final String extension;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private Source(String location, String name, String type, String extension,
+                long length, long lastModified) {
+            this.location = location;
+            this.name = name;
+            this.type = type;
+            this.extension = extension;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Describes a resource downloaded through the repository cache manager, as reported by
+         * the given download report.
+         */
+        public static Source forDownload(URLResource resource, String name, String type,
+                String extension, ArtifactDownloadReport report) {
+            File file = report.getDownloadStatus() == DownloadStatus.FAILED ? null : report
+                    .getLocalFile();
+            return new Source(resource.getName(), name, type, extension, length(file),
+                    lastModified(file));
+        }
+
+        /**
+         * Describes a file read directly from the local file system.
+         */
+        public static Source forFile(File file) {
+            return new Source(file.getAbsolutePath(), null, null, null, length(file),
+                    lastModified(file));
+        }
+
+        private static long length(File file) {
+            return file == null || !file.exists() ? -1 : file.length();
+        }
+
+        private static long lastModified(File file) {
+            return file == null || !file.exists() ? -1 : file.lastModified();
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        boolean isUpToDate(RepositoryCacheManager cacheManager, Repository repository,
+                CacheResourceOptions options) throws IOException {
+            Source current;
+            if (name == null) {
+                current = forFile(new File(location));
+            } else {
+                URLResource resource = new URLResource(new URL(location));
+                current = forDownload(resource, name, type, extension,
+                    cacheManager.downloadRepositoryResource(resource, name, type, extension,
+                        options, repository));
+            }
+            return current.length == length && current.lastModified == lastModified;
+        }
+    }
+
+    private final File file;
+
+    public RepoDescriptorCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the cache for the descriptor of the repository at the given location, in the given
+     * repository cache, or <code>null</code> if this kind of repository cache cannot store it.
+     */
+    public static RepoDescriptorCache getInstance(RepositoryCacheManager cacheManager,
+            String location) {
+        if (!(cacheManager instanceof DefaultRepositoryCacheManager)) {
+            return null;
+        }
+        File root = ((DefaultRepositoryCacheManager) cacheManager).getRepositoryCacheRoot();
+        return new RepoDescriptorCache(new File(root, "_repository_metadata_/" + hash(location)
+                + "/repodescriptor.bin"));
+    }
+
+    private static String hash(String location) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            return HexEncoder.encode(digest.digest(location.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("The SHA1 algorithm is not available in your classpath", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("UTF-8 not supported", e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the repository descriptor stored in this cache, or <code>null</code> if there is
+     * none, or if one of the resources it has been built from has changed since.
+     *
+     * @param cacheManager
+     *            the cache manager through which the resources of the repository are downloaded
+     * @param repository
+     *            the repository from which they are downloaded
+     * @param options
+     *            the options of these downloads
+     * @param profileProvider
+     *            the provider of the execution environments of the loaded descriptor
+     */
+    public EditableRepoDescriptor load(RepositoryCacheManager cacheManager,
+            Repository repository, CacheResourceOptions options,
+            ExecutionEnvironmentProfileProvider profileProvider) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            long checksum;
+            int payloadLength;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                    file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported repository descriptor cache format: " + file);
+                    return null;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String location = in.readUTF();
+                    String name = readNullableUTF(in);
+                    String type = readNullableUTF(in);
+                    String extension = readNullableUTF(in);
+                    Source source = new Source(location, name, type, extension, in.readLong(),
+                            in.readLong());
+                    if (!source.isUpToDate(cacheManager, repository, options)) {
+                        Message.verbose("\t" + location + " has changed since " + file
+                                + " has been written");
+                        return null;
+                    }
+                }
+                checksum = in.readLong();
+                payloadLength = in.readInt();
+            } finally {
+                in.close();
+            }
+            // the payload ends the file
+            return readPayload(file.length() - payloadLength, payloadLength, checksum,
+                profileProvider);
+        } catch (IOException e) {
+            Message.debug("impossible to read repository descriptor cache " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private EditableRepoDescriptor readPayload(long offset, int length, long checksum,
+            ExecutionEnvironmentProfileProvider profileProvider) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        ByteBuffer buffer;
+        try {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } finally {
+            raf.close();
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[BUFFER_SIZE];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        if (crc.getValue() != checksum) {
+            Message.debug("corrupted repository descriptor cache: " + file);
+            return null;
+        }
+        buffer.rewind();
+
+        try {
+            return new Decoder(buffer).readDescriptor(profileProvider);
+        } catch (RuntimeException e) {
+            // buffer underflow or unknown string reference
+            Message.debug("corrupted repository descriptor cache: " + file + ": " + e);
+            return null;
+        } catch (URISyntaxException e) {
+            Message.debug("corrupted repository descriptor cache: " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the bundles of the given repository descriptor, built from the given resources.
+     * Failures are only logged, the descriptor being then parsed again the next time it is
+     * needed.
+     */
+    public void save(List<Source> sources, EditableRepoDescriptor descriptor) {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".part");
+        try {
+            Encoder encoder = new Encoder();
+            encoder.writeDescriptor(descriptor);
+            byte[] payload = encoder.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            file.getParentFile().mkdirs();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(sources.size());
+                for (Source source : sources) {
+                    out.writeUTF(source.location);
+                    writeNullableUTF(out, source.name);
+                    writeNullableUTF(out, source.type);
+                    writeNullableUTF(out, source.extension);
+                    out.writeLong(source.length);
+                    out.writeLong(source.lastModified);
+                }
+                out.writeLong(crc.getValue());
+                out.writeInt(payload.length);
+                out.write(payload);
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (!tmpFile.renameTo(file)) {
+                FileUtil.copy(tmpFile, file, null, true);
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to write repository descriptor cache " + file + ": " + e);
+            tmpFile.delete();
+        } catch (RuntimeException e) {
+            // typically an ill formed version which could not be parsed
+            Message.debug("impossible to write repository descriptor cache " + file + ": " + e);
+            tmpFile.delete();
+        }
+    }
+
+    // the optional attributes of the sources are never empty
+    private static void writeNullableUTF(DataOutputStream out, String s) throws IOException {
+        out.writeUTF(s == null ? "" : s);
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        String s = in.readUTF();
+        return s.length() == 0 ? null : s;
+    }
+
+    /**
+     * Writes the bundles of a descriptor, each string being written once and then referenced by
+     * its index.
+     */
+    private static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        byte[] toByteArray() throws IOException {
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        void writeDescriptor(EditableRepoDescriptor descriptor) throws IOException {
+            writeString(descriptor.getBaseUri() == null ? null : descriptor.getBaseUri()
+                    .toString());
+            List<BundleInfo> bundles = new ArrayList<BundleInfo>();
+            Iterator<ModuleDescriptorWrapper> it = descriptor.getModules();
+            while (it.hasNext()) {
+                bundles.add(it.next().getBundleInfo());
+            }
+            out.writeInt(bundles.size());
+            for (BundleInfo bundle : bundles) {
+                writeBundle(bundle);
+            }
+        }
+
+        private void writeBundle(BundleInfo bundle) throws IOException {
+            writeString(bundle.getSymbolicName());
+            writeVersion(bundle.getRawVersion());
+            writeString(bundle.getId());
+            writeString(bundle.getPresentationName());
+            writeString(bundle.getDescription());
+            writeString(bundle.getDocumentation());
+            writeString(bundle.getLicense());
+            out.writeInt(bundle.getSize() == null ? -1 : bundle.getSize().intValue());
+            out.writeBoolean(bundle.isSource());
+            writeString(bundle.getSymbolicNameTarget());
+            writeVersion(bundle.getVersionTarget());
+            out.writeBoolean(bundle.hasInnerClasspath());
+            writeStrings(bundle.getClasspath());
+            writeStrings(bundle.getExecutionEnvironments());
+
+            out.writeInt(bundle.getRequirements().size());
+            for (BundleRequirement requirement : bundle.getRequirements()) {
+                writeString(requirement.getType());
+                writeString(requirement.getName());
+                writeVersionRange(requirement.getVersion());
+                writeString(requirement.getResolution());
+            }
+
+            out.writeInt(bundle.getCapabilities().size());
+            for (BundleCapability capability : bundle.getCapabilities()) {
+                if (capability instanceof ExportPackage) {
+                    out.writeBoolean(true);
+                    writeString(capability.getName());
+                    writeVersion(capability.getRawVersion());
+                    writeStrings(((ExportPackage) capability).getUses());
+                } else {
+                    out.writeBoolean(false);
+                    writeString(capability.getType());
+                    writeString(capability.getName());
+                    writeVersion(capability.getRawVersion());
+                }
+            }
+
+            out.writeInt(bundle.getArtifacts().size());
+            for (BundleArtifact artifact : bundle.getArtifacts()) {
+                out.writeBoolean(artifact.isSource());
+                writeString(artifact.getUri() == null ? null : artifact.getUri().toString());
+                writeString(artifact.getFormat());
+            }
+        }
+
+        private void writeVersionRange(VersionRange range) throws IOException {
+            out.writeBoolean(range != null);
+            if (range != null) {
+                out.writeBoolean(range.isStartExclusive());
+                writeVersion(range.getStartVersion());
+                out.writeBoolean(range.isEndExclusive());
+                writeVersion(range.getEndVersion());
+            }
+        }
+
+        private void writeVersion(Version version) throws IOException {
+            writeString(version == null ? null : version.toString());
+        }
+
+        private void writeStrings(Collection<String> c) throws IOException {
+            out.writeInt(c == null ? -1 : c.size());
+            if (c != null) {
+                for (String s : c) {
+                    writeString(s);
+                }
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(NULL_STRING);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index.intValue());
+                return;
+            }
+            strings.put(s, Integer.valueOf(strings.size()));
+            byte[] b = s.getBytes("UTF-8");
+            out.writeInt(NEW_STRING);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    /**
+     * Reads back what {@link Encoder} has written. The strings and the versions are shared between
+     * the bundles.
+     */
+    private static final class Decoder {
+        private final ByteBuffer in;
+
+        private final List<String> strings = new ArrayList<String>();
+
+        private final Map<String, Version> versions = new HashMap<String, Version>();
+
+        Decoder(ByteBuffer in) {
+            this.in = in;
+        }
+
+        EditableRepoDescriptor readDescriptor(ExecutionEnvironmentProfileProvider profileProvider)
+                throws IOException, URISyntaxException {
+            String baseUri = readString();
+            EditableRepoDescriptor descriptor = new EditableRepoDescriptor(baseUri == null ? null
+                    : new URI(baseUri), profileProvider);
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                descriptor.addBundle(readBundle());
+            }
+            return descriptor;
+        }
+
+        private BundleInfo readBundle() throws IOException, URISyntaxException {
+            BundleInfo bundle = new BundleInfo(readString(), readVersion());
+            bundle.setId(readString());
+            bundle.setPresentationName(readString());
+            bundle.setDescription(readString());
+            bundle.setDocumentation(readString());
+            bundle.setLicense(readString());
+            int size = in.getInt();
+            bundle.setSize(size < 0 ? null : Integer.valueOf(size));
+            bundle.setSource(readBoolean());
+            bundle.setSymbolicNameTarget(readString());
+            bundle.setVersionTarget(readVersion());
+            bundle.setHasInnerClasspath(readBoolean());
+            bundle.setClasspath(readStrings());
+            // the requirements of the execution environments are read with the other ones
+            for (String executionEnvironment : readStrings()) {
+                bundle.addExecutionEnvironment(executionEnvironment);
+            }
+
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                bundle.addRequirement(new BundleRequirement(readString(), readString(),
+                        readVersionRange(), readString()));
+            }
+
+            count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                if (readBoolean()) {
+                    ExportPackage exportPackage = new ExportPackage(readString(), readVersion());
+                    List<String> uses = readStrings();
+                    for (String use : uses) {
+                        exportPackage.addUse(use);
+                    }
+                    bundle.addCapability(exportPackage);
+                } else {
+                    bundle.addCapability(new BundleCapability(readString(), readString(),
+                            readVersion()));
+                }
+            }
+
+            count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                boolean source = readBoolean();
+                String uri = readString();
+                bundle.addArtifact(new BundleArtifact(source, uri == null ? null : new URI(uri),
+                        readString()));
+            }
+            return bundle;
+        }
+
+        private VersionRange readVersionRange() throws IOException {
+            if (!readBoolean()) {
+                return null;
+            }
+            return new VersionRange(readBoolean(), readVersion(), readBoolean(), readVersion());
+        }
+
+        private Version readVersion() throws IOException {
+            String s = readString();
+            if (s == null) {
+                return null;
+            }
+            Version version = versions.get(s);
+            if (version == null) {
+                try {
+                    version = new Version(s);
+                } catch (ParseException e) {
+                    throw new IOException("Ill formed version " + s + ": " + e.getMessage());
+                }
+                versions.put(s, version);
+            }
+            return version;
+        }
+
+        private boolean readBoolean() {
+            return in.get() != 0;
+        }
+
+        private List<String> readStrings() throws IOException {
+            int count = in.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<String> list = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(readString());
+            }
+            return list;
+        }
+
+        private String readString() throws IOException {
+            int index = in.getInt();
+            if (index == NULL_STRING) {
+                return null;
+            }
+            if (index != NEW_STRING) {
+                return strings.get(index);
+            }
+            byte[] b = new byte[in.getInt()];
+            in.get(b);
+            String s = new String(b, "UTF-8");
+            strings.add(s);
+            return s;
+        }
+    }
+}
@@ -24,6 +24,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -38,7 +40,10 @@ import org.apache.ivy.osgi.p2.P2CompositeParser;
 import org.apache.ivy.osgi.p2.P2Descriptor;
 import org.apache.ivy.osgi.p2.P2MetadataParser;
 import org.apache.ivy.osgi.p2.XMLInputParser;
+import org.apache.ivy.osgi.repo.EditableRepoDescriptor;
 import org.apache.ivy.osgi.repo.RepoDescriptor;
+import org.apache.ivy.osgi.repo.RepoDescriptorCache;
+import org.apache.ivy.osgi.repo.RepoDescriptorCache.Source;
 import org.apache.ivy.osgi.updatesite.xml.EclipseFeature;
 import org.apache.ivy.osgi.updatesite.xml.EclipseUpdateSiteParser;
 import org.apache.ivy.osgi.updatesite.xml.FeatureParser;
@@ -59,6 +64,9 @@ public class UpdateSiteLoader {
 
     private int logLevel = Message.MSG_INFO;
 
+    /** the resources read by the current load, from which its descriptor is built */
+    private final List<Source> sources = new ArrayList<Source>();
+
     public UpdateSiteLoader(RepositoryCacheManager repositoryCacheManager,
             EventManager eventManager, CacheResourceOptions options) {
         this.repositoryCacheManager = repositoryCacheManager;
@@ -81,8 +89,29 @@ public class UpdateSiteLoader {
             }
         }
         Message.info("Loading the update site " + repoUri);
+        RepoDescriptorCache cache = RepoDescriptorCache.getInstance(repositoryCacheManager,
+            repoUri.toString());
+        if (cache != null) {
+            EditableRepoDescriptor repo = cache.load(repositoryCacheManager, urlRepository,
+                options, ExecutionEnvironmentProfileProvider.getInstance());
+            if (repo != null) {
+                Message.verbose("\tUpdate site loaded from " + cache.getFile());
+                repo.setLogLevel(logLevel);
+                return repo;
+            }
+        }
+        sources.clear();
+        EditableRepoDescriptor repo = loadRepo(repoUri);
+        if (repo != null && cache != null) {
+            cache.save(sources, repo);
+        }
+        return repo;
+    }
+
+    private EditableRepoDescriptor loadRepo(URI repoUri) throws IOException, ParseException,
+            SAXException {
         // first look for a p2 repository
-        RepoDescriptor repo = loadP2(repoUri);
+        EditableRepoDescriptor repo = loadP2(repoUri);
         if (repo != null) {
             return repo;
         }
@@ -176,19 +205,13 @@ public class UpdateSiteLoader {
             throws IOException, ParseException, SAXException {
         InputStream readIn = null; // the input stream from which the xml should be read
 
-        URL contentUrl = repoUri.resolve(baseName + ".jar").toURL();
-        URLResource res = new URLResource(contentUrl);
-
-        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-            baseName, baseName, "jar", options, urlRepository);
+        ArtifactDownloadReport report = download(repoUri.resolve(baseName + ".jar").toURL(),
+            baseName, baseName, "jar");
 
         if (report.getDownloadStatus() == DownloadStatus.FAILED) {
             // no jar file, try the xml one
-            contentUrl = repoUri.resolve(baseName + ".xml").toURL();
-            res = new URLResource(contentUrl);
-
-            report = repositoryCacheManager.downloadRepositoryResource(res, baseName, baseName,
-                "xml", options, urlRepository);
+            report = download(repoUri.resolve(baseName + ".xml").toURL(), baseName, baseName,
+                "xml");
 
             if (report.getDownloadStatus() == DownloadStatus.FAILED) {
                 // no xml either
@@ -226,9 +249,7 @@ public class UpdateSiteLoader {
         URI siteUri = normalizeSiteUri(repoUri, null);
         URL u = siteUri.resolve("site.xml").toURL();
 
-        URLResource res = new URLResource(u);
-        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-            "site", "updatesite", "xml", options, urlRepository);
+        ArtifactDownloadReport report = download(u, "site", "updatesite", "xml");
         if (report.getDownloadStatus() == DownloadStatus.FAILED) {
             return null;
         }
@@ -275,9 +296,7 @@ public class UpdateSiteLoader {
         URL digest = digestBaseUri.resolve("digest.zip").toURL();
         Message.verbose("\tReading " + digest);
 
-        URLResource res = new URLResource(digest);
-        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-            "digest", "digest", "zip", options, urlRepository);
+        ArtifactDownloadReport report = download(digest, "digest", "digest", "zip");
         if (report.getDownloadStatus() == DownloadStatus.FAILED) {
             return null;
         }
@@ -301,9 +320,7 @@ public class UpdateSiteLoader {
         for (EclipseFeature feature : site.getFeatures()) {
             URL url = site.getUri().resolve(feature.getUrl()).toURL();
 
-            URLResource res = new URLResource(url);
-            ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-                feature.getId(), "feature", "jar", options, urlRepository);
+            ArtifactDownloadReport report = download(url, feature.getId(), "feature", "jar");
             if (report.getDownloadStatus() == DownloadStatus.FAILED) {
                 return null;
             }
@@ -324,6 +341,14 @@ public class UpdateSiteLoader {
         return repoDescriptor;
     }
 
+    private ArtifactDownloadReport download(URL url, String name, String type, String extension) {
+        URLResource res = new URLResource(url);
+        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
+            name, type, extension, options, urlRepository);
+        sources.add(Source.forDownload(res, name, type, extension, report));
+        return report;
+    }
+
     private ZipInputStream findEntry(InputStream in, String entryName) throws IOException {
         ZipInputStream zipped = new ZipInputStream(in);
         ZipEntry zipEntry = zipped.getNextEntry();
@@ -17,8 +17,11 @@
  */
 package org.apache.ivy.plugins.latest;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -33,57 +36,9 @@ public class LatestRevisionStrategy extends ComparatorLatestStrategy {
      */
     final class MridComparator implements Comparator {
         public int compare(Object o1, Object o2) {
-            String rev1 = ((ModuleRevisionId) o1).getRevision();
-            String rev2 = ((ModuleRevisionId) o2).getRevision();
-
-            rev1 = rev1.replaceAll("([a-zA-Z])(\\d)", "$1.$2");
-            rev1 = rev1.replaceAll("(\\d)([a-zA-Z])", "$1.$2");
-            rev2 = rev2.replaceAll("([a-zA-Z])(\\d)", "$1.$2");
-            rev2 = rev2.replaceAll("(\\d)([a-zA-Z])", "$1.$2");
-
-            String[] parts1 = rev1.split("[\\._\\-\\+]");
-            String[] parts2 = rev2.split("[\\._\\-\\+]");
-
-            int i = 0;
-            for (; i < parts1.length && i < parts2.length; i++) {
-                if (parts1[i].equals(parts2[i])) {
-                    continue;
-                }
-                boolean is1Number = isNumber(parts1[i]);
-                boolean is2Number = isNumber(parts2[i]);
-                if (is1Number && !is2Number) {
-                    return 1;
-                }
-                if (is2Number && !is1Number) {
-                    return -1;
-                }
-                if (is1Number && is2Number) {
-                    return Long.valueOf(parts1[i]).compareTo(Long.valueOf(parts2[i]));
-                }
-                // both are strings, we compare them taking into account special meaning
-                Map specialMeanings = getSpecialMeanings();
-                Integer sm1 = (Integer) specialMeanings.get(parts1[i].toLowerCase(Locale.US));
-                Integer sm2 = (Integer) specialMeanings.get(parts2[i].toLowerCase(Locale.US));
-                if (sm1 != null) {
-                    sm2 = sm2 == null ? new Integer(0) : sm2;
-                    return sm1.compareTo(sm2);
-                }
-                if (sm2 != null) {
-                    return new Integer(0).compareTo(sm2);
-                }
-                return parts1[i].compareTo(parts2[i]);
-            }
-            if (i < parts1.length) {
-                return isNumber(parts1[i]) ? 1 : -1;
-            }
-            if (i < parts2.length) {
-                return isNumber(parts2[i]) ? -1 : 1;
-            }
-            return 0;
-        }
-
-        private boolean isNumber(String str) {
-            return str.matches("\\d+");
+            RevisionKey rev1 = RevisionKey.valueOf(((ModuleRevisionId) o1).getRevision());
+            RevisionKey rev2 = RevisionKey.valueOf(((ModuleRevisionId) o2).getRevision());
+            return rev1.compareTo(rev2, getSpecialMeanings());
         }
     }
 
@@ -94,33 +49,52 @@ public class LatestRevisionStrategy extends ComparatorLatestStrategy {
      */
     final class ArtifactInfoComparator implements Comparator {
         public int compare(Object o1, Object o2) {
-            String rev1 = ((ArtifactInfo) o1).getRevision();
-            String rev2 = ((ArtifactInfo) o2).getRevision();
-
-            /*
-             * The revisions can still be not resolved, so we use the current version matcher to
-             * know if one revision is dynamic, and in this case if it should be considered greater
-             * or lower than the other one. Note that if the version matcher compare method returns
-             * 0, it's because it's not possible to know which revision is greater. In this case we
-             * consider the dynamic one to be greater, because most of the time it will then be
-             * actually resolved and a real comparison will occur.
-             */
             VersionMatcher vmatcher = IvyContext.getContext().getSettings().getVersionMatcher();
-            ModuleRevisionId mrid1 = ModuleRevisionId.newInstance("", "", rev1);
-            ModuleRevisionId mrid2 = ModuleRevisionId.newInstance("", "", rev2);
-
-            if (vmatcher.isDynamic(mrid1)) {
-                int c = vmatcher.compare(mrid1, mrid2, mridComparator);
-                return c >= 0 ? 1 : -1;
-            } else if (vmatcher.isDynamic(mrid2)) {
-                int c = vmatcher.compare(mrid2, mrid1, mridComparator);
-                return c >= 0 ? -1 : 1;
-            }
+            return compareRevisions(new Revision((ArtifactInfo) o1, vmatcher), new Revision(
+                    (ArtifactInfo) o2, vmatcher), vmatcher);
+        }
+    }
+
+    /**
+     * An ArtifactInfo with what is needed to compare its revision.
+     */
+    private static final class Revision {
+        private final ArtifactInfo info;
+
+        private final ModuleRevisionId mrid;
+
+        private final RevisionKey key;
 
-            return mridComparator.compare(mrid1, mrid2);
+        private final boolean dynamic;
+
+        private Revision(ArtifactInfo info, VersionMatcher vmatcher) {
+            this.info = info;
+            this.mrid = ModuleRevisionId.newInstance("", "", info.getRevision());
+            this.key = RevisionKey.valueOf(info.getRevision());
+            this.dynamic = vmatcher.isDynamic(mrid);
         }
     }
 
+    private int compareRevisions(Revision rev1, Revision rev2, VersionMatcher vmatcher) {
+        /*
+         * The revisions can still be not resolved, so we use the current version matcher to know
+         * if one revision is dynamic, and in this case if it should be considered greater or lower
+         * than the other one. Note that if the version matcher compare method returns 0, it's
+         * because it's not possible to know which revision is greater. In this case we consider
+         * the dynamic one to be greater, because most of the time it will then be actually
+         * resolved and a real comparison will occur.
+         */
+        if (rev1.dynamic) {
+            int c = vmatcher.compare(rev1.mrid, rev2.mrid, mridComparator);
+            return c >= 0 ? 1 : -1;
+        } else if (rev2.dynamic) {
+            int c = vmatcher.compare(rev2.mrid, rev1.mrid, mridComparator);
+            return c >= 0 ? -1 : 1;
+        }
+
+        return rev1.key.compareTo(rev2.key, getSpecialMeanings());
+    }
+
     public static class SpecialMeaning {
         private String name;
 
@@ -173,6 +147,31 @@ public class LatestRevisionStrategy extends ComparatorLatestStrategy {
         setName("latest-revision");
     }
 
+    /**
+     * Sorts the given infos by revision, preparing the comparison of each revision only once
+     * instead of at each comparison.
+     */
+    public List sort(ArtifactInfo[] infos) {
+        if (getComparator() != artifactInfoComparator) {
+            return super.sort(infos);
+        }
+        final VersionMatcher vmatcher = IvyContext.getContext().getSettings().getVersionMatcher();
+        Revision[] revisions = new Revision[infos.length];
+        for (int i = 0; i < infos.length; i++) {
+            revisions[i] = new Revision(infos[i], vmatcher);
+        }
+        Arrays.sort(revisions, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return compareRevisions((Revision) o1, (Revision) o2, vmatcher);
+            }
+        });
+        List ret = new ArrayList(revisions.length);
+        for (int i = 0; i < revisions.length; i++) {
+            ret.add(revisions[i].info);
+        }
+        return ret;
+    }
+
     public void addConfiguredSpecialMeaning(SpecialMeaning meaning) {
         meaning.validate();
         getSpecialMeanings().put(meaning.getName().toLowerCase(Locale.US), meaning.getValue());
@@ -0,0 +1,224 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.latest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A revision split in the parts compared by {@link LatestRevisionStrategy}.
+ * <p>
+ * A revision is split on '.', '-', '_' and '+', and between letters and digits, so that
+ * <code>1.0rc2</code> gives the parts <code>1</code>, <code>0</code>, <code>rc</code> and
+ * <code>2</code>. Keys are cached by revision, so that comparing a revision many times, while
+ * sorting a list of revisions for instance, only splits it once.
+ * </p>
+ */
+final class RevisionKey {
+
+    private static final int MAX_CACHED_KEYS = 10000;
+
+    private static final ConcurrentMap/* <String, RevisionKey> */CACHE = new ConcurrentHashMap();
+
+    private static final long NOT_A_NUMBER = -1;
+
+    /**
+     * Value of numeric parts too large for a long, which are then compared as strings.
+     */
+    private static final long LARGE_NUMBER = -2;
+
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final Integer ZERO = new Integer(0);
+
+    private final String[] parts;
+
+    private final long[] numbers;
+
+    private final String[] lowerCaseParts;
+
+    static RevisionKey valueOf(String revision) {
+        RevisionKey key = (RevisionKey) CACHE.get(revision);
+        if (key == null) {
+            key = new RevisionKey(revision);
+            if (CACHE.size() >= MAX_CACHED_KEYS) {
+                CACHE.clear();
+            }
+            CACHE.put(revision, key);
+        }
+        return key;
+    }
+
+    private RevisionKey(String revision) {
+        parts = split(revision);
+        numbers = new long[parts.length];
+        lowerCaseParts = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            numbers[i] = toNumber(parts[i]);
+            if (numbers[i] == NOT_A_NUMBER) {
+                lowerCaseParts[i] = parts[i].toLowerCase(Locale.US);
+            }
+        }
+    }
+
+    /**
+     * Compares this revision to the given one. Numbers are greater than strings, strings having a
+     * special meaning are compared by this meaning, others are compared lexicographically. When a
+     * revision has more parts than the other one, it is greater if its first extra part is a
+     * number, lower otherwise.
+     * 
+     * @param other
+     *            the revision to compare to
+     * @param specialMeanings
+     *            the values of special meanings, by lower case name
+     * @return a negative value, zero or a positive value if this revision is lower than, equal to
+     *         or greater than the other one
+     */
+    int compareTo(RevisionKey other, Map/* <String, Integer> */specialMeanings) {
+        String[] parts1 = parts;
+        String[] parts2 = other.parts;
+        int i = 0;
+        for (; i < parts1.length && i < parts2.length; i++) {
+            if (parts1[i].equals(parts2[i])) {
+                continue;
+            }
+            long n1 = numbers[i];
+            long n2 = other.numbers[i];
+            if (n1 != NOT_A_NUMBER && n2 == NOT_A_NUMBER) {
+                return 1;
+            }
+            if (n2 != NOT_A_NUMBER && n1 == NOT_A_NUMBER) {
+                return -1;
+            }
+            if (n1 != NOT_A_NUMBER && n2 != NOT_A_NUMBER) {
+                // parts may differ and still be equal numbers (01 and 1): in this case
+                // revisions are considered equal
+                return compareNumbers(parts1[i], n1, parts2[i], n2);
+            }
+            // both are strings, we compare them taking into account special meaning
+            Integer sm1 = (Integer) specialMeanings.get(lowerCaseParts[i]);
+            Integer sm2 = (Integer) specialMeanings.get(other.lowerCaseParts[i]);
+            if (sm1 != null) {
+                sm2 = sm2 == null ? ZERO : sm2;
+                return sm1.compareTo(sm2);
+            }
+            if (sm2 != null) {
+                return ZERO.compareTo(sm2);
+            }
+            return parts1[i].compareTo(parts2[i]);
+        }
+        if (i < parts1.length) {
+            return numbers[i] != NOT_A_NUMBER ? 1 : -1;
+        }
+        if (i < parts2.length) {
+            return other.numbers[i] != NOT_A_NUMBER ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private static int compareNumbers(String part1, long n1, String part2, long n2) {
+        if (n1 != LARGE_NUMBER && n2 != LARGE_NUMBER) {
+            return n1 < n2 ? -1 : (n1 == n2 ? 0 : 1);
+        }
+        if (n1 != LARGE_NUMBER) {
+            return -1;
+        }
+        if (n2 != LARGE_NUMBER) {
+            return 1;
+        }
+        String digits1 = stripLeadingZeros(part1);
+        String digits2 = stripLeadingZeros(part2);
+        if (digits1.length() != digits2.length()) {
+            return digits1.length() < digits2.length() ? -1 : 1;
+        }
+        int c = digits1.compareTo(digits2);
+        return c < 0 ? -1 : (c == 0 ? 0 : 1);
+    }
+
+    /**
+     * Splits the given revision like splitting it on '.', '-', '_' and '+' with
+     * {@link String#split(String)} after having inserted a '.' between each letter and digit.
+     */
+    private static String[] split(String revision) {
+        List parts = new ArrayList();
+        int start = 0;
+        boolean separated = false;
+        int length = revision.length();
+        for (int i = 0; i < length; i++) {
+            char c = revision.charAt(i);
+            if (c == '.' || c == '-' || c == '_' || c == '+') {
+                parts.add(revision.substring(start, i));
+                start = i + 1;
+                separated = true;
+            } else if (i > start && isBoundary(revision.charAt(i - 1), c)) {
+                parts.add(revision.substring(start, i));
+                start = i;
+                separated = true;
+            }
+        }
+        parts.add(revision.substring(start));
+        if (separated) {
+            // like String.split, ignore trailing empty parts
+            while (!parts.isEmpty() && ((String) parts.get(parts.size() - 1)).length() == 0) {
+                parts.remove(parts.size() - 1);
+            }
+        }
+        return (String[]) parts.toArray(new String[parts.size()]);
+    }
+
+    private static boolean isBoundary(char previous, char c) {
+        return (isLetter(previous) && isDigit(c)) || (isDigit(previous) && isLetter(c));
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long toNumber(String part) {
+        int length = part.length();
+        if (length == 0) {
+            return NOT_A_NUMBER;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!isDigit(part.charAt(i))) {
+                return NOT_A_NUMBER;
+            }
+        }
+        String digits = stripLeadingZeros(part);
+        if (digits.length() > MAX_LONG_DIGITS) {
+            return LARGE_NUMBER;
+        }
+        return digits.length() == 0 ? 0 : Long.parseLong(digits);
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int i = 0;
+        while (i < digits.length() && digits.charAt(i) == '0') {
+            i++;
+        }
+        return digits.substring(i);
+    }
+}
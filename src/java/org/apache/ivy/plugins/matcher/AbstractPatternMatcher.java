@@ -20,10 +20,21 @@ package org.apache.ivy.plugins.matcher;
 
 /**
  * An abstract implementation of the pattern matcher providing base template methods
+ * <p>
+ * The matchers returned by {@link #newMatcher(String)} are cached by expression and shared, so they
+ * must be immutable and thread safe.
+ * </p>
  */
 public abstract class AbstractPatternMatcher implements PatternMatcher {
+    /**
+     * The maximum number of matchers cached by each pattern matcher.
+     */
+    public static final int MATCHER_CACHE_SIZE = 1000;
+
     private final String name;
 
+    private final MatcherCache cache = new MatcherCache(MATCHER_CACHE_SIZE);
+
     /**
      * Create a new instance of a pattern matcher
      * 
@@ -41,7 +52,12 @@ public abstract class AbstractPatternMatcher implements PatternMatcher {
         if (ANY_EXPRESSION.equals(expression)) {
             return AnyMatcher.INSTANCE;
         }
-        return newMatcher(expression);
+        Matcher matcher = cache.get(expression);
+        if (matcher == null) {
+            matcher = newMatcher(expression);
+            cache.put(expression, matcher);
+        }
+        return matcher;
     }
 
     public/* @NotNull */String getName() {
@@ -57,6 +73,20 @@ public abstract class AbstractPatternMatcher implements PatternMatcher {
      */
     protected abstract/* @NotNull */Matcher newMatcher(/* @NotNull */String expression);
 
+    /**
+     * Returns a snapshot of the statistics of the cache of matchers of this pattern matcher.
+     */
+    public MatcherCacheStatistics getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Removes all the matchers cached by this pattern matcher.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
     public String toString() {
         return getName();
     }
@@ -42,9 +42,10 @@ public/* @Immutable */final class GlobPatternMatcher extends AbstractPatternMatc
     public static final GlobPatternMatcher INSTANCE = new GlobPatternMatcher();
 
     /*
-     * NOTE: GlobCompiler does ~100K compilation/s - If necessary look into using ThreadLocal for
-     * GlobCompiler/Perl5Matcher to cut on useless object creation - If expression are reused over
-     * and over a LRU cache could make sense
+     * NOTE: GlobCompiler does ~100K compilation/s - matchers are cached by expression in
+     * AbstractPatternMatcher, so each expression is usually compiled only once. The compiled
+     * pattern can be shared between threads, but not the Perl5Matcher, which is created for each
+     * match
      */
 
     public GlobPatternMatcher() {
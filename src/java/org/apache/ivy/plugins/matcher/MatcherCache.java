@@ -0,0 +1,77 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.matcher;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the matchers created by a pattern matcher, keyed by expression.
+ * <p>
+ * The cache can be used concurrently. When it is full it is emptied, which is cheap and good
+ * enough for the small and stable sets of expressions found in settings and module descriptors.
+ * </p>
+ */
+final class MatcherCache {
+
+    private final int maxSize;
+
+    private final ConcurrentMap/* <String, Matcher> */matchers = new ConcurrentHashMap();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    MatcherCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached matcher of the given expression, or <code>null</code> if there is none.
+     */
+    Matcher get(String expression) {
+        Matcher matcher = (Matcher) matchers.get(expression);
+        if (matcher == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return matcher;
+    }
+
+    void put(String expression, Matcher matcher) {
+        if (matchers.size() >= maxSize) {
+            int size = matchers.size();
+            matchers.clear();
+            evictions.addAndGet(size);
+        }
+        matchers.put(expression, matcher);
+    }
+
+    void clear() {
+        matchers.clear();
+    }
+
+    MatcherCacheStatistics getStatistics() {
+        return new MatcherCacheStatistics(hits.get(), misses.get(), evictions.get(),
+                matchers.size());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.matcher;
+
+/**
+ * A snapshot of the usage statistics of the cache of compiled matchers of a pattern matcher.
+ * 
+ * @see AbstractPatternMatcher#getCacheStatistics()
+ */
+public class MatcherCacheStatistics {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final int size;
+
+    public MatcherCacheStatistics(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of lookups which found the matcher in the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups which didn't find the matcher in the cache, and thus required
+     * to compile the expression.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of lookups which found the matcher in the cache, between 0 and 1, or 0 if
+     * the cache hasn't been used.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the number of matchers removed from the cache to honor its size limit.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of matchers currently in the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " hitRate=" + Math.round(getHitRate() * 100)
+                + "% evictions=" + evictions + " size=" + size;
+    }
+}
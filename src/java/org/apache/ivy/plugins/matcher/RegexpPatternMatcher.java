@@ -29,9 +29,8 @@ public final/* @Immutable */class RegexpPatternMatcher extends AbstractPatternMa
     public static final RegexpPatternMatcher INSTANCE = new RegexpPatternMatcher();
 
     /*
-     * NOTE: Regexp compiler does ~200K compilation/s - If necessary look into using ThreadLocal
-     * Pattern to cut on useless object creation - If expression are reused over and over a LRU
-     * cache could make sense
+     * NOTE: Regexp compiler does ~200K compilation/s - matchers are cached by expression in
+     * AbstractPatternMatcher, so each expression is usually compiled only once
      */
 
     public RegexpPatternMatcher() {
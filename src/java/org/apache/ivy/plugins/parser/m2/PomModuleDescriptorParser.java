@@ -365,7 +365,16 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
             return null;
         } else {
             dd = NameSpaceHelper.toSystem(dd, ivySettings.getContextNamespace());
-            ResolvedModuleRevision otherModule = resolver.getDependency(dd, data);
+            // parents and imported poms are usually shared by many modules of a graph, they are
+            // loaded only once per resolve
+            ResolvedModuleRevision otherModule = data.getExternalModule(dd
+                    .getDependencyRevisionId());
+            if (otherModule == null) {
+                otherModule = resolver.getDependency(dd, data);
+                if (otherModule != null) {
+                    data.setExternalModule(dd.getDependencyRevisionId(), otherModule);
+                }
+            }
             return otherModule;
         }
     }
@@ -25,12 +25,17 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.License;
@@ -39,17 +44,18 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.util.XMLHelper;
 import org.apache.ivy.util.url.URLHandlerRegistry;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
+import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * Provides the method to read some data out of the DOM tree of a pom file.
+ * Provides the method to read some data out of a pom file.
+ * <p>
+ * The pom is parsed with a streaming parser which only keeps the elements read by this class, in a
+ * lightweight tree, instead of building the DOM of the whole pom.
+ * </p>
  */
 public class PomReader {
 
@@ -107,11 +113,43 @@ public class PomReader {
 
     private static final String TYPE = "type";
 
+    private static final String BUILD = "build";
+
+    private static final String[] DEPENDENCY_PATHS = new String[] {GROUP_ID, ARTIFACT_ID,
+            VERSION, SCOPE, CLASSIFIER, TYPE, OPTIONAL, EXCLUSIONS, EXCLUSIONS + "/" + EXCLUSION,
+            EXCLUSIONS + "/" + EXCLUSION + "/" + GROUP_ID,
+            EXCLUSIONS + "/" + EXCLUSION + "/" + ARTIFACT_ID};
+
+    /**
+     * The paths, relative to the project element, of the elements read by this class. The children
+     * of the properties element are kept too.
+     */
+    private static final Set/* <String> */KEPT_PATHS = new HashSet(Arrays.asList(new String[] {
+            GROUP_ID, ARTIFACT_ID, VERSION, PACKAGING, HOMEPAGE, DESCRIPTION, PARENT,
+            PARENT + "/" + GROUP_ID, PARENT + "/" + ARTIFACT_ID, PARENT + "/" + VERSION, LICENSES,
+            LICENSES + "/" + LICENSE, LICENSES + "/" + LICENSE + "/" + LICENSE_NAME,
+            LICENSES + "/" + LICENSE + "/" + LICENSE_URL, DISTRIBUTION_MGT,
+            DISTRIBUTION_MGT + "/" + RELOCATION, DISTRIBUTION_MGT + "/" + RELOCATION + "/" + GROUP_ID,
+            DISTRIBUTION_MGT + "/" + RELOCATION + "/" + ARTIFACT_ID,
+            DISTRIBUTION_MGT + "/" + RELOCATION + "/" + VERSION, DEPENDENCIES,
+            DEPENDENCIES + "/" + DEPENDENCY, DEPENDENCY_MGT, DEPENDENCY_MGT + "/" + DEPENDENCIES,
+            DEPENDENCY_MGT + "/" + DEPENDENCIES + "/" + DEPENDENCY, BUILD, BUILD + "/" + PLUGINS,
+            BUILD + "/" + PLUGINS + "/" + PLUGIN, BUILD + "/" + PLUGINS + "/" + PLUGIN + "/" + GROUP_ID,
+            BUILD + "/" + PLUGINS + "/" + PLUGIN + "/" + ARTIFACT_ID,
+            BUILD + "/" + PLUGINS + "/" + PLUGIN + "/" + VERSION, PROPERTIES}));
+    static {
+        for (int i = 0; i < DEPENDENCY_PATHS.length; i++) {
+            KEPT_PATHS.add(DEPENDENCIES + "/" + DEPENDENCY + "/" + DEPENDENCY_PATHS[i]);
+            KEPT_PATHS.add(DEPENDENCY_MGT + "/" + DEPENDENCIES + "/" + DEPENDENCY + "/"
+                    + DEPENDENCY_PATHS[i]);
+        }
+    }
+
     private HashMap properties = new HashMap();
 
-    private final Element projectElement;
+    private final PomElement projectElement;
 
-    private final Element parentElement;
+    private final PomElement parentElement;
 
     public PomReader(URL descriptorURL, Resource res) throws IOException, SAXException {
         InputStream stream = new AddDTDFilterInputStream(URLHandlerRegistry.getDefault()
@@ -119,23 +157,12 @@ public class PomReader {
         InputSource source = new InputSource(stream);
         source.setSystemId(XMLHelper.toSystemId(descriptorURL));
         try {
-            Document pomDomDoc = XMLHelper.parseToDom(source, new EntityResolver() {
-                public InputSource resolveEntity(String publicId, String systemId)
-                        throws SAXException, IOException {
-                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
-                        return new InputSource(PomReader.class
-                                .getResourceAsStream("m2-entities.ent"));
-                    }
-                    return null;
-                }
-            });
-            projectElement = pomDomDoc.getDocumentElement();
-            if (!PROJECT.equals(projectElement.getNodeName())
-                    && !MODEL.equals(projectElement.getNodeName())) {
-                throw new SAXParseException("project must be the root tag", res.getName(),
-                        res.getName(), 0, 0);
-            }
+            PomHandler handler = new PomHandler(res);
+            XMLHelper.parse(source, null, handler, null);
+            projectElement = handler.root;
             parentElement = getFirstChildElement(projectElement, PARENT);
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
         } finally {
             try {
                 stream.close();
@@ -233,15 +260,14 @@ public class PomReader {
     }
 
     public License[] getLicenses() {
-        Element licenses = getFirstChildElement(projectElement, LICENSES);
+        PomElement licenses = getFirstChildElement(projectElement, LICENSES);
         if (licenses == null) {
             return new License[0];
         }
-        licenses.normalize();
         List/* <License> */lics = new ArrayList();
         for (Iterator it = getAllChilds(licenses).iterator(); it.hasNext();) {
-            Element license = (Element) it.next();
-            if (LICENSE.equals(license.getNodeName())) {
+            PomElement license = (PomElement) it.next();
+            if (LICENSE.equals(license.name)) {
                 String name = getFirstChildText(license, LICENSE_NAME);
                 String url = getFirstChildText(license, LICENSE_URL);
 
@@ -262,8 +288,8 @@ public class PomReader {
     }
 
     public ModuleRevisionId getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt, RELOCATION);
+        PomElement distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
+        PomElement relocation = getFirstChildElement(distrMgt, RELOCATION);
         if (relocation == null) {
             return null;
         } else {
@@ -278,44 +304,38 @@ public class PomReader {
     }
 
     public List /* <PomDependencyData> */getDependencies() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCIES);
+        PomElement dependenciesElement = getFirstChildElement(projectElement, DEPENDENCIES);
         LinkedList dependencies = new LinkedList();
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyData((Element) node));
-                }
+        for (Iterator it = getAllChilds(dependenciesElement).iterator(); it.hasNext();) {
+            PomElement element = (PomElement) it.next();
+            if (DEPENDENCY.equals(element.name)) {
+                dependencies.add(new PomDependencyData(element));
             }
         }
         return dependencies;
     }
 
     public List /* <PomDependencyMgt> */getDependencyMgt() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCY_MGT);
+        PomElement dependenciesElement = getFirstChildElement(projectElement, DEPENDENCY_MGT);
         dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
         LinkedList dependencies = new LinkedList();
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyMgtElement((Element) node));
-                }
+        for (Iterator it = getAllChilds(dependenciesElement).iterator(); it.hasNext();) {
+            PomElement element = (PomElement) it.next();
+            if (DEPENDENCY.equals(element.name)) {
+                dependencies.add(new PomDependencyMgtElement(element));
             }
         }
         return dependencies;
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final PomElement depElement;
 
         public PomDependencyMgtElement(PomDependencyMgtElement copyFrom) {
             this(copyFrom.depElement);
         }
 
-        PomDependencyMgtElement(Element depElement) {
+        PomDependencyMgtElement(PomElement depElement) {
             this.depElement = depElement;
         }
 
@@ -355,18 +375,15 @@ public class PomReader {
         }
 
         public List /* <ModuleId> */getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
+            PomElement exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             LinkedList exclusions = new LinkedList();
-            if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
-                        if ((groupId != null) && (artifactId != null)) {
-                            exclusions.add(ModuleId.newInstance(groupId, artifactId));
-                        }
+            for (Iterator it = getAllChilds(exclusionsElement).iterator(); it.hasNext();) {
+                PomElement exclusion = (PomElement) it.next();
+                if (EXCLUSION.equals(exclusion.name)) {
+                    String groupId = getFirstChildText(exclusion, GROUP_ID);
+                    String artifactId = getFirstChildText(exclusion, ARTIFACT_ID);
+                    if ((groupId != null) && (artifactId != null)) {
+                        exclusions.add(ModuleId.newInstance(groupId, artifactId));
                     }
                 }
             }
@@ -377,28 +394,21 @@ public class PomReader {
     public List /* <PomPluginElement> */getPlugins() {
         LinkedList plugins = new LinkedList();
 
-        Element buildElement = getFirstChildElement(projectElement, "build");
-        if (buildElement == null) {
-            return plugins;
-        }
-
-        Element pluginsElement = getFirstChildElement(buildElement, PLUGINS);
-        if (pluginsElement != null) {
-            NodeList childs = pluginsElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && PLUGIN.equals(node.getNodeName())) {
-                    plugins.add(new PomPluginElement((Element) node));
-                }
+        PomElement buildElement = getFirstChildElement(projectElement, BUILD);
+        PomElement pluginsElement = getFirstChildElement(buildElement, PLUGINS);
+        for (Iterator it = getAllChilds(pluginsElement).iterator(); it.hasNext();) {
+            PomElement plugin = (PomElement) it.next();
+            if (PLUGIN.equals(plugin.name)) {
+                plugins.add(new PomPluginElement(plugin));
             }
         }
         return plugins;
     }
 
     public class PomPluginElement implements PomDependencyMgt {
-        private Element pluginElement;
+        private PomElement pluginElement;
 
-        PomPluginElement(Element pluginElement) {
+        PomPluginElement(PomElement pluginElement) {
             this.pluginElement = pluginElement;
         }
 
@@ -427,13 +437,13 @@ public class PomReader {
     }
 
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
+        private final PomElement depElement;
 
         public PomDependencyData(PomDependencyData copyFrom) {
             this(copyFrom.depElement);
         }
 
-        PomDependencyData(Element depElement) {
+        PomDependencyData(PomElement depElement) {
             super(depElement);
             this.depElement = depElement;
         }
@@ -454,7 +464,7 @@ public class PomReader {
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL);
+            PomElement e = getFirstChildElement(depElement, OPTIONAL);
             return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
         }
 
@@ -465,13 +475,10 @@ public class PomReader {
      */
     public Map/* <String,String> */getPomProperties() {
         Map pomProperties = new HashMap();
-        Element propsEl = getFirstChildElement(projectElement, PROPERTIES);
-        if (propsEl != null) {
-            propsEl.normalize();
-        }
+        PomElement propsEl = getFirstChildElement(projectElement, PROPERTIES);
         for (Iterator it = getAllChilds(propsEl).iterator(); it.hasNext();) {
-            Element prop = (Element) it.next();
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
+            PomElement prop = (PomElement) it.next();
+            pomProperties.put(prop.name, getTextContent(prop));
         }
         return pomProperties;
     }
@@ -484,28 +491,12 @@ public class PomReader {
         }
     }
 
-    private static String getTextContent(Element element) {
-        StringBuffer result = new StringBuffer();
-
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
-
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
-                    break;
-                default:
-                    break;
-            }
-        }
-
-        return result.toString();
+    private static String getTextContent(PomElement element) {
+        return element.text == null ? "" : element.text.toString();
     }
 
-    private static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
+    private static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
         if (node != null) {
             return getTextContent(node);
         } else {
@@ -513,32 +504,129 @@ public class PomReader {
         }
     }
 
-    private static Element getFirstChildElement(Element parentElem, String name) {
-        if (parentElem == null) {
+    private static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null || parentElem.children == null) {
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+        for (Iterator it = parentElem.children.iterator(); it.hasNext();) {
+            PomElement child = (PomElement) it.next();
+            if (name.equals(child.name)) {
+                return child;
             }
         }
         return null;
     }
 
-    private static List/* <Element> */getAllChilds(Element parent) {
-        List r = new LinkedList();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add(node);
+    private static List/* <PomElement> */getAllChilds(PomElement parent) {
+        if (parent == null || parent.children == null) {
+            return Collections.EMPTY_LIST;
+        }
+        return parent.children;
+    }
+
+    /**
+     * An element of the pom, with its text and the children which have been kept.
+     */
+    private static final class PomElement {
+        private final String name;
+
+        private StringBuffer text;
+
+        private List/* <PomElement> */children;
+
+        private PomElement(String name) {
+            this.name = name;
+        }
+
+        private void addChild(PomElement child) {
+            if (children == null) {
+                children = new ArrayList();
+                // the text of elements with kept children is never read
+                text = null;
+            }
+            children.add(child);
+        }
+
+        private void appendText(char[] ch, int start, int length) {
+            if (children != null) {
+                return;
+            }
+            if (text == null) {
+                text = new StringBuffer(length);
+            }
+            text.append(ch, start, length);
+        }
+    }
+
+    /**
+     * Builds the tree of the elements of the pom which are read by the reader, skipping all the
+     * other elements.
+     */
+    private static final class PomHandler extends DefaultHandler {
+        private final Resource res;
+
+        private PomElement root;
+
+        private final LinkedList/* <PomElement> */elements = new LinkedList();
+
+        private final LinkedList/* <String> */paths = new LinkedList();
+
+        private int skippedDepth = 0;
+
+        private PomHandler(Resource res) {
+            this.res = res;
+        }
+
+        public InputSource resolveEntity(String publicId, String systemId) throws SAXException,
+                IOException {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new InputSource(PomReader.class.getResourceAsStream("m2-entities.ent"));
+            }
+            return null;
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) throws SAXException {
+            if (skippedDepth > 0) {
+                skippedDepth++;
+                return;
+            }
+            if (root == null) {
+                if (!PROJECT.equals(qName) && !MODEL.equals(qName)) {
+                    throw new SAXParseException("project must be the root tag", res.getName(),
+                            res.getName(), 0, 0);
                 }
+                root = new PomElement(qName);
+                elements.addLast(root);
+                paths.addLast("");
+                return;
+            }
+            String parentPath = (String) paths.getLast();
+            String path = parentPath.length() == 0 ? qName : parentPath + "/" + qName;
+            if (KEPT_PATHS.contains(path) || PROPERTIES.equals(parentPath)) {
+                PomElement element = new PomElement(qName);
+                ((PomElement) elements.getLast()).addChild(element);
+                elements.addLast(element);
+                paths.addLast(path);
+            } else {
+                skippedDepth = 1;
+            }
+        }
+
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (skippedDepth > 0) {
+                skippedDepth--;
+            } else {
+                elements.removeLast();
+                paths.removeLast();
+            }
+        }
+
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (skippedDepth == 0 && !elements.isEmpty()) {
+                ((PomElement) elements.getLast()).appendText(ch, start, length);
             }
         }
-        return r;
     }
 
     private static final class AddDTDFilterInputStream extends FilterInputStream {
@@ -0,0 +1,370 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.report;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * Stores what {@link XmlReportParser} reads from an xml report in a compact binary form next to
+ * the report, so that the post resolve tasks can load it again without parsing the xml. The binary
+ * form is written along with the xml report, and when an xml report is parsed.
+ * <p>
+ * A binary file is only used if the xml report it has been built from has not changed since (same
+ * length and last modification date), and if its content is not corrupted (it is checksummed).
+ * Otherwise it is ignored, and replaced the next time the xml report is parsed.
+ * </p>
+ */
+final class BinaryReportCache {
+
+    static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x49565250; // IVRP
+
+    private static final int FORMAT_VERSION = 1;
+
+    // magic, format version, report length and date, checksum, payload length
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 8 + 4;
+
+    private BinaryReportCache() {
+    }
+
+    /**
+     * Returns the binary file used for the given xml report.
+     */
+    static File getBinaryFile(File report) {
+        return new File(report.getParentFile(), report.getName() + EXTENSION);
+    }
+
+    /**
+     * Returns the content stored in binary form for the given xml report, or <code>null</code> if
+     * there is no valid binary form for it.
+     */
+    static Decoder read(File report) {
+        File binFile = getBinaryFile(report);
+        long binLength = binFile.length();
+        if (binLength == 0) {
+            // missing or empty
+            return null;
+        }
+        try {
+            byte[] payload;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                    binFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported binary report format: " + binFile);
+                    return null;
+                }
+                if (in.readLong() != report.length() || in.readLong() != report.lastModified()) {
+                    Message.debug("binary report is out of date: " + binFile);
+                    return null;
+                }
+                long checksum = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length != binLength - HEADER_LENGTH) {
+                    Message.debug("truncated binary report: " + binFile);
+                    return null;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    Message.debug("corrupted binary report: " + binFile);
+                    return null;
+                }
+            } finally {
+                in.close();
+            }
+            return new Decoder(payload);
+        } catch (IOException e) {
+            Message.debug("impossible to read binary report " + binFile + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the content written by the given encoder as the binary form of the given xml report.
+     */
+    static void write(File report, Encoder encoder) {
+        File binFile = getBinaryFile(report);
+        File tmpFile = new File(binFile.getParentFile(), binFile.getName() + ".part");
+        try {
+            byte[] payload = encoder.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(report.length());
+                out.writeLong(report.lastModified());
+                out.writeLong(crc.getValue());
+                out.writeInt(payload.length);
+                out.write(payload);
+            } finally {
+                out.close();
+            }
+            binFile.delete();
+            if (!tmpFile.renameTo(binFile)) {
+                FileUtil.copy(tmpFile, binFile, null, true);
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to write binary report " + binFile + ": " + e);
+            tmpFile.delete();
+            binFile.delete();
+        }
+    }
+
+    static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        byte[] toByteArray() throws IOException {
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        void writeBoolean(boolean b) throws IOException {
+            out.writeBoolean(b);
+        }
+
+        void writeInt(int i) throws IOException {
+            out.writeInt(i);
+        }
+
+        void writeArtifactReport(ArtifactDownloadReport adr) throws IOException {
+            Artifact artifact = adr.getArtifact();
+            writeModuleRevisionId(artifact.getModuleRevisionId());
+            writeDate(artifact.getPublicationDate());
+            writeString(artifact.getName());
+            writeString(artifact.getType());
+            writeString(artifact.getExt());
+            writeMap(artifact.getExtraAttributes());
+            writeString(adr.getDownloadStatus() == null ? null : adr.getDownloadStatus()
+                    .toString());
+            writeString(adr.getDownloadDetails());
+            out.writeLong(adr.getSize());
+            out.writeLong(adr.getDownloadTimeMillis());
+            writeFile(adr.getLocalFile());
+            writeFile(adr.getUnpackedLocalFile());
+            writeOrigin(adr.getArtifactOrigin());
+        }
+
+        void writeMetadataArtifactReport(MetadataArtifactDownloadReport madr) throws IOException {
+            writeModuleRevisionId(madr.getArtifact().getModuleRevisionId());
+            writeDate(madr.getArtifact().getPublicationDate());
+            writeString(madr.getDownloadStatus() == null ? null : madr.getDownloadStatus()
+                    .toString());
+            writeString(madr.getDownloadDetails());
+            out.writeLong(madr.getSize());
+            out.writeLong(madr.getDownloadTimeMillis());
+            out.writeBoolean(madr.isSearched());
+            writeFile(madr.getLocalFile());
+            writeFile(madr.getOriginalLocalFile());
+            writeOrigin(madr.getArtifactOrigin());
+        }
+
+        void writeModuleRevisionId(ModuleRevisionId mrid) throws IOException {
+            out.writeBoolean(mrid != null);
+            if (mrid != null) {
+                writeString(mrid.getOrganisation());
+                writeString(mrid.getName());
+                writeString(mrid.getBranch());
+                writeString(mrid.getRevision());
+                writeMap(mrid.getExtraAttributes());
+            }
+        }
+
+        private void writeOrigin(ArtifactOrigin origin) throws IOException {
+            if (origin == null) {
+                out.writeByte(0);
+            } else if (ArtifactOrigin.isUnknown(origin)) {
+                out.writeByte(1);
+            } else {
+                out.writeByte(2);
+                out.writeBoolean(origin.isLocal());
+                writeString(origin.getLocation());
+            }
+        }
+
+        private void writeFile(File file) throws IOException {
+            writeString(file == null ? null : file.getPath());
+        }
+
+        private void writeDate(Date date) throws IOException {
+            out.writeBoolean(date != null);
+            if (date != null) {
+                out.writeLong(date.getTime());
+            }
+        }
+
+        private void writeMap(Map map) throws IOException {
+            out.writeInt(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+                Entry entry = (Entry) it.next();
+                writeString((String) entry.getKey());
+                writeString((String) entry.getValue());
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] b = s.getBytes("UTF-8");
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+    }
+
+    static final class Decoder {
+        private final DataInputStream in;
+
+        Decoder(byte[] payload) {
+            this.in = new DataInputStream(new ByteArrayInputStream(payload));
+        }
+
+        boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+
+        int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        ArtifactDownloadReport readArtifactReport() throws IOException {
+            ModuleRevisionId mrid = readModuleRevisionId();
+            Artifact artifact = new DefaultArtifact(mrid, readDate(), readString(), readString(),
+                    readString(), readMap());
+            ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
+            readStatus(adr);
+            adr.setDownloadDetails(readString());
+            adr.setSize(in.readLong());
+            adr.setDownloadTimeMillis(in.readLong());
+            adr.setLocalFile(readFile());
+            adr.setUnpackedLocalFile(readFile());
+            adr.setArtifactOrigin(readOrigin(artifact));
+            return adr;
+        }
+
+        MetadataArtifactDownloadReport readMetadataArtifactReport() throws IOException {
+            ModuleRevisionId mrid = readModuleRevisionId();
+            Artifact artifact = DefaultArtifact.newIvyArtifact(mrid, readDate());
+            MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(artifact);
+            readStatus(madr);
+            madr.setDownloadDetails(readString());
+            madr.setSize(in.readLong());
+            madr.setDownloadTimeMillis(in.readLong());
+            madr.setSearched(in.readBoolean());
+            madr.setLocalFile(readFile());
+            madr.setOriginalLocalFile(readFile());
+            madr.setArtifactOrigin(readOrigin(artifact));
+            return madr;
+        }
+
+        ModuleRevisionId readModuleRevisionId() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            return ModuleRevisionId.newInstance(readString(), readString(), readString(),
+                readString(), readMap());
+        }
+
+        private void readStatus(ArtifactDownloadReport adr) throws IOException {
+            String status = readString();
+            if (status != null) {
+                adr.setDownloadStatus(DownloadStatus.fromString(status));
+            }
+        }
+
+        private ArtifactOrigin readOrigin(Artifact artifact) throws IOException {
+            switch (in.readByte()) {
+                case 0:
+                    return null;
+                case 1:
+                    return ArtifactOrigin.unkwnown(artifact);
+                default:
+                    return new ArtifactOrigin(artifact, in.readBoolean(), readString());
+            }
+        }
+
+        private File readFile() throws IOException {
+            String path = readString();
+            return path == null ? null : new File(path);
+        }
+
+        private Date readDate() throws IOException {
+            return in.readBoolean() ? new Date(in.readLong()) : null;
+        }
+
+        private Map readMap() throws IOException {
+            int count = in.readInt();
+            Map map = new LinkedHashMap();
+            for (int i = 0; i < count; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            // the payload is in memory: the bytes available are the ones remaining
+            if (length > in.available()) {
+                throw new IOException("invalid length " + length + ": " + in.available()
+                        + " bytes remaining");
+            }
+            byte[] b = new byte[length];
+            in.readFully(b);
+            return new String(b, "UTF-8");
+        }
+    }
+}
@@ -54,9 +54,13 @@ public class XmlReportOutputter implements ReportOutputter {
             report.getConfiguration());
         File reportParentDir = reportFile.getParentFile();
         reportParentDir.mkdirs();
+        // the binary form of the previous report must not be taken for the binary form of this one
+        BinaryReportCache.getBinaryFile(reportFile).delete();
         OutputStream stream = new FileOutputStream(reportFile);
         writer.output(report, confs, stream);
         stream.close();
+        // the post resolve tasks load the report from its binary form
+        XmlReportParser.writeBinary(report, reportFile);
 
         Message.verbose("\treport for " + report.getModuleDescriptor().getModuleRevisionId() + " "
                 + report.getConfiguration() + " produced in " + reportFile);
@@ -18,6 +18,7 @@
 package org.apache.ivy.plugins.report;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -33,11 +34,16 @@ import javax.xml.parsers.SAXParserFactory;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ConfigurationResolveReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.util.DateUtil;
+import org.apache.ivy.util.Message;
 import org.apache.ivy.util.extendable.ExtendableItemHelper;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -94,16 +100,6 @@ public class XmlReportParser {
                         mrid = ModuleRevisionId.newInstance(organisation, module, branch, revision,
                             ExtendableItemHelper.getExtraAttributes(attributes, "extra-"));
                         mrids.add(mrid);
-                        if (isDefault) {
-                            defaultMrids.add(mrid);
-                        } else {
-                            Artifact metadataArtifact = DefaultArtifact.newIvyArtifact(mrid,
-                                pubdate);
-                            MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
-                                    metadataArtifact);
-                            metadataReports.put(mrid, madr);
-                            realMrids.add(mrid);
-                        }
                         try {
                             String pubDateAttr = attributes.getValue("pubdate");
                             if (pubDateAttr != null) {
@@ -115,6 +111,16 @@ public class XmlReportParser {
                                     + organisation + " " + module + " " + revision + ": "
                                     + attributes.getValue("pubdate"));
                         }
+                        if (isDefault) {
+                            defaultMrids.add(mrid);
+                        } else {
+                            Artifact metadataArtifact = DefaultArtifact.newIvyArtifact(mrid,
+                                pubdate);
+                            MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
+                                    metadataArtifact);
+                            metadataReports.put(mrid, madr);
+                            realMrids.add(mrid);
+                        }
                     }
                 } else if ("metadata-artifact".equals(qName)) {
                     if (skip) {
@@ -249,6 +255,204 @@ public class XmlReportParser {
             saxParser.parse(report, new XmlReportParserHandler());
         }
 
+        /**
+         * Builds what would be parsed from the xml report written by {@link XmlReportWriter} for
+         * the given configuration report, without reading it.
+         */
+        static SaxXmlReportParser fromReport(ConfigurationResolveReport report, File reportFile) {
+            SaxXmlReportParser parser = new SaxXmlReportParser(reportFile);
+            String conf = report.getConfiguration();
+            ModuleRevisionId resolved = report.getModuleDescriptor().getModuleRevisionId();
+            parser.mRevisionId = ModuleRevisionId.newInstance(resolved.getOrganisation(),
+                resolved.getName(), resolved.getBranch(), resolved.getRevision(),
+                toStrings(resolved.getExtraAttributes()));
+
+            List<?> dependencies = new ArrayList<Object>(report.getModuleRevisionIds());
+            SortedMap<Integer, List<ArtifactDownloadReport>> revisionsMap = new TreeMap<Integer, List<ArtifactDownloadReport>>();
+            // as in the xml report, a revision without publication date takes the previous one
+            Date pubdate = null;
+            for (Object mid : report.getModuleIds()) {
+                ModuleId moduleId = (ModuleId) mid;
+                for (Object node : report.getNodes(moduleId)) {
+                    IvyNode dep = (IvyNode) node;
+                    if (dep.hasProblem()) {
+                        parser.hasError = true;
+                        continue;
+                    }
+                    if (dep.isEvicted(conf)) {
+                        continue;
+                    }
+                    ModuleRevisionId resolvedId = dep.getResolvedId();
+                    ResolvedModuleRevision moduleRevision = dep.getModuleRevision();
+                    Map<?, ?> extraAttributes = moduleRevision != null ? moduleRevision
+                            .getDescriptor().getExtraAttributes() : resolvedId
+                            .getExtraAttributes();
+                    ModuleRevisionId mrid = ModuleRevisionId.newInstance(
+                        moduleId.getOrganisation(), moduleId.getName(), resolvedId.getBranch(),
+                        resolvedId.getRevision(), toStrings(extraAttributes));
+                    parser.mrids.add(mrid);
+                    if (dep.isLoaded()) {
+                        pubdate = toReportDate(new Date(dep.getPublication()));
+                    }
+                    if (dep.getDescriptor() != null && dep.getDescriptor().isDefault()) {
+                        parser.defaultMrids.add(mrid);
+                    } else {
+                        MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
+                                DefaultArtifact.newIvyArtifact(mrid, pubdate));
+                        if (moduleRevision != null) {
+                            copy(moduleRevision.getReport(), madr);
+                            madr.setSearched(moduleRevision.getReport().isSearched());
+                            madr.setOriginalLocalFile(toReportFile(moduleRevision.getReport()
+                                    .getOriginalLocalFile()));
+                        }
+                        parser.metadataReports.put(mrid, madr);
+                        parser.realMrids.add(mrid);
+                    }
+
+                    List<ArtifactDownloadReport> revisionArtifacts = new ArrayList<ArtifactDownloadReport>();
+                    ArtifactDownloadReport[] adrs = report.getDownloadReports(resolvedId);
+                    for (int i = 0; i < adrs.length; i++) {
+                        ArtifactDownloadReport adr = new ArtifactDownloadReport(new DefaultArtifact(
+                                mrid, pubdate, adrs[i].getName(), adrs[i].getType(),
+                                adrs[i].getExt(), toStrings(adrs[i].getArtifact()
+                                        .getExtraAttributes())));
+                        copy(adrs[i], adr);
+                        adr.setUnpackedLocalFile(toReportFile(adrs[i].getUnpackedLocalFile()));
+                        revisionArtifacts.add(adr);
+                    }
+                    revisionsMap.put(new Integer(dependencies.indexOf(resolvedId)),
+                        revisionArtifacts);
+                }
+            }
+            for (List<ArtifactDownloadReport> artifactReports : revisionsMap.values()) {
+                parser.artifactReports.addAll(artifactReports);
+                for (ArtifactDownloadReport artifactReport : artifactReports) {
+                    if (artifactReport.getDownloadStatus() != DownloadStatus.FAILED) {
+                        parser.artifacts.add(artifactReport.getArtifact());
+                    }
+                }
+            }
+            return parser;
+        }
+
+        /**
+         * Copies what the xml report holds about a download from one report to another.
+         */
+        private static void copy(ArtifactDownloadReport from, ArtifactDownloadReport to) {
+            to.setDownloadStatus(from.getDownloadStatus());
+            // a missing detail is written as "null"
+            to.setDownloadDetails(String.valueOf(from.getDownloadDetails()));
+            to.setSize(from.getSize());
+            to.setDownloadTimeMillis(from.getDownloadTimeMillis());
+            to.setLocalFile(toReportFile(from.getLocalFile()));
+            ArtifactOrigin origin = from.getArtifactOrigin();
+            if (origin != null) {
+                if (ArtifactOrigin.isUnknown(origin.getLocation())) {
+                    to.setArtifactOrigin(ArtifactOrigin.unkwnown(to.getArtifact()));
+                } else {
+                    to.setArtifactOrigin(new ArtifactOrigin(to.getArtifact(), origin.isLocal(),
+                            origin.getLocation()));
+                }
+            }
+        }
+
+        private static Map<String, String> toStrings(Map<?, ?> extraAttributes) {
+            Map<String, String> strings = new HashMap<String, String>();
+            for (Map.Entry<?, ?> entry : extraAttributes.entrySet()) {
+                strings.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+            }
+            return strings;
+        }
+
+        private static File toReportFile(File file) {
+            return file == null ? null : file.getAbsoluteFile();
+        }
+
+        private static Date toReportDate(Date date) {
+            // the xml report only keeps the seconds
+            try {
+                return DateUtil.parse(DateUtil.format(date));
+            } catch (ParseException e) {
+                throw new IllegalStateException("invalid publication date " + date + ": " + e);
+            }
+        }
+
+        /**
+         * Loads what has been parsed from the given report from its binary form, or returns
+         * <code>null</code> if it has no valid binary form.
+         */
+        static SaxXmlReportParser readBinary(File report) {
+            BinaryReportCache.Decoder decoder = BinaryReportCache.read(report);
+            if (decoder == null) {
+                return null;
+            }
+            SaxXmlReportParser parser = new SaxXmlReportParser(report);
+            try {
+                parser.mRevisionId = decoder.readModuleRevisionId();
+                parser.hasError = decoder.readBoolean();
+                readModuleRevisionIds(decoder, parser.mrids);
+                readModuleRevisionIds(decoder, parser.realMrids);
+                for (int i = decoder.readInt(); i > 0; i--) {
+                    MetadataArtifactDownloadReport madr = decoder.readMetadataArtifactReport();
+                    parser.metadataReports.put(madr.getArtifact().getModuleRevisionId(), madr);
+                }
+                for (int i = decoder.readInt(); i > 0; i--) {
+                    ArtifactDownloadReport adr = decoder.readArtifactReport();
+                    parser.artifactReports.add(adr);
+                    if (adr.getDownloadStatus() != DownloadStatus.FAILED) {
+                        parser.artifacts.add(adr.getArtifact());
+                    }
+                }
+                return parser;
+            } catch (IOException e) {
+                Message.debug("impossible to read binary report of " + report + ": " + e);
+                return null;
+            } catch (RuntimeException e) {
+                Message.debug("impossible to read binary report of " + report + ": " + e);
+                return null;
+            }
+        }
+
+        private static void readModuleRevisionIds(BinaryReportCache.Decoder decoder,
+                List<ModuleRevisionId> mrids) throws IOException {
+            for (int i = decoder.readInt(); i > 0; i--) {
+                mrids.add(decoder.readModuleRevisionId());
+            }
+        }
+
+        /**
+         * Stores what has been parsed in binary form, next to the report.
+         */
+        void writeBinary() {
+            BinaryReportCache.Encoder encoder = new BinaryReportCache.Encoder();
+            try {
+                encoder.writeModuleRevisionId(mRevisionId);
+                encoder.writeBoolean(hasError);
+                writeModuleRevisionIds(encoder, mrids);
+                writeModuleRevisionIds(encoder, realMrids);
+                encoder.writeInt(metadataReports.size());
+                for (MetadataArtifactDownloadReport madr : metadataReports.values()) {
+                    encoder.writeMetadataArtifactReport(madr);
+                }
+                encoder.writeInt(artifactReports.size());
+                for (ArtifactDownloadReport adr : artifactReports) {
+                    encoder.writeArtifactReport(adr);
+                }
+            } catch (IOException e) {
+                Message.debug("impossible to encode binary report of " + report + ": " + e);
+                return;
+            }
+            BinaryReportCache.write(report, encoder);
+        }
+
+        private static void writeModuleRevisionIds(BinaryReportCache.Encoder encoder,
+                List<ModuleRevisionId> mrids) throws IOException {
+            encoder.writeInt(mrids.size());
+            for (ModuleRevisionId mrid : mrids) {
+                encoder.writeModuleRevisionId(mrid);
+            }
+        }
+
         private static boolean parseBoolean(String str) {
             return (str != null) && str.equalsIgnoreCase("true");
         }
@@ -286,6 +490,10 @@ public class XmlReportParser {
                     + "' does not exist.");
         }
 
+        parser = SaxXmlReportParser.readBinary(report);
+        if (parser != null) {
+            return;
+        }
         parser = new SaxXmlReportParser(report);
         try {
             parser.parse();
@@ -295,6 +503,15 @@ public class XmlReportParser {
             pe.initCause(e);
             throw pe;
         }
+        parser.writeBinary();
+    }
+
+    /**
+     * Stores in binary form what would be parsed from the xml report just written for the given
+     * configuration report, so that it doesn't have to be parsed.
+     */
+    static void writeBinary(ConfigurationResolveReport report, File reportFile) {
+        SaxXmlReportParser.fromReport(report, reportFile).writeBinary();
     }
 
     public Artifact[] getArtifacts() {
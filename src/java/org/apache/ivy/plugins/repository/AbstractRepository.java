@@ -30,7 +30,8 @@ public abstract class AbstractRepository implements Repository {
 
     private String name;
 
-    private TransferEvent evt;
+    // the event of the transfer made by each thread, transfers can run concurrently
+    private final ThreadLocal/* <TransferEvent> */currentEvent = new ThreadLocal();
 
     public void addTransferListener(TransferListener listener) {
         listeners.add(TransferListener.class, listener);
@@ -45,16 +46,20 @@ public abstract class AbstractRepository implements Repository {
     }
 
     protected void fireTransferInitiated(Resource res, int requestType) {
-        evt = new TransferEvent(this, res, TransferEvent.TRANSFER_INITIATED, requestType);
+        TransferEvent evt = new TransferEvent(this, res, TransferEvent.TRANSFER_INITIATED,
+                requestType);
+        currentEvent.set(evt);
         fireTransferEvent(evt);
     }
 
     protected void fireTransferStarted() {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_STARTED);
         fireTransferEvent(evt);
     }
 
     protected void fireTransferStarted(long totalLength) {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_STARTED);
         evt.setTotalLength(totalLength);
         evt.setTotalLengthSet(true);
@@ -62,6 +67,7 @@ public abstract class AbstractRepository implements Repository {
     }
 
     protected void fireTransferProgress(long length) {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_PROGRESS);
         evt.setLength(length);
         if (!evt.isTotalLengthSet()) {
@@ -71,6 +77,7 @@ public abstract class AbstractRepository implements Repository {
     }
 
     protected void fireTransferCompleted() {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_COMPLETED);
         if (evt.getTotalLength() > 0 && !evt.isTotalLengthSet()) {
             evt.setTotalLengthSet(true);
@@ -79,6 +86,7 @@ public abstract class AbstractRepository implements Repository {
     }
 
     protected void fireTransferCompleted(long totalLength) {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_COMPLETED);
         evt.setTotalLength(totalLength);
         evt.setTotalLengthSet(true);
@@ -86,11 +94,13 @@ public abstract class AbstractRepository implements Repository {
     }
 
     protected void fireTransferError() {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_ERROR);
         fireTransferEvent(evt);
     }
 
     protected void fireTransferError(Exception ex) {
+        TransferEvent evt = (TransferEvent) currentEvent.get();
         evt.setEventType(TransferEvent.TRANSFER_ERROR);
         evt.setException(ex);
         fireTransferEvent(evt);
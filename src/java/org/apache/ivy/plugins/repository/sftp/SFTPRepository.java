@@ -18,6 +18,7 @@
 package org.apache.ivy.plugins.repository.sftp;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -36,7 +37,6 @@ import org.apache.ivy.util.Message;
 
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.ChannelSftp.LsEntry;
-import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
@@ -87,8 +87,11 @@ public class SFTPRepository extends AbstractSshBasedRepository {
      *         further connection
      */
     public Resource resolveResource(String path) {
+        Session session = null;
+        ChannelSftp c = null;
         try {
-            ChannelSftp c = getSftpChannel(path);
+            session = acquireSession(path);
+            c = acquireSftpChannel(session);
 
             Collection r = c.ls(getPath(path));
 
@@ -106,16 +109,38 @@ public class SFTPRepository extends AbstractSshBasedRepository {
         } catch (Exception e) {
             Message.debug("Error while resolving resource " + path, e);
             // silent fail, return unexisting resource
+        } finally {
+            release(session, c);
         }
 
         return new BasicResource(path, false, 0, 0, false);
     }
 
     public InputStream openStream(SFTPResource resource) throws IOException {
-        ChannelSftp c = getSftpChannel(resource.getName());
+        final Session session = acquireSession(resource.getName());
+        ChannelSftp c = null;
+        boolean streaming = false;
         try {
+            c = acquireSftpChannel(session);
             String path = getPath(resource.getName());
-            return c.get(path);
+            final ChannelSftp channel = c;
+            InputStream stream = new FilterInputStream(c.get(path)) {
+                private boolean closed = false;
+
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // the channel is busy until the stream is closed
+                        if (!closed) {
+                            closed = true;
+                            release(session, channel);
+                        }
+                    }
+                }
+            };
+            streaming = true;
+            return stream;
         } catch (SftpException e) {
             IOException ex = new IOException("impossible to open stream for " + resource + " on "
                     + getHost() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
@@ -126,13 +151,19 @@ public class SFTPRepository extends AbstractSshBasedRepository {
                     + getHost() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
             ex.initCause(e);
             throw ex;
+        } finally {
+            if (!streaming) {
+                release(session, c);
+            }
         }
     }
 
     public void get(String source, File destination) throws IOException {
         fireTransferInitiated(getResource(source), TransferEvent.REQUEST_GET);
-        ChannelSftp c = getSftpChannel(source);
+        Session session = acquireSession(source);
+        ChannelSftp c = null;
         try {
+            c = acquireSftpChannel(session);
             String path = getPath(source);
             c.get(path, destination.getAbsolutePath(), new MyProgressMonitor());
         } catch (SftpException e) {
@@ -145,13 +176,17 @@ public class SFTPRepository extends AbstractSshBasedRepository {
                     + (e.getMessage() != null ? ": " + e.getMessage() : ""));
             ex.initCause(e);
             throw ex;
+        } finally {
+            release(session, c);
         }
     }
 
     public void put(File source, String destination, boolean overwrite) throws IOException {
         fireTransferInitiated(getResource(destination), TransferEvent.REQUEST_PUT);
-        ChannelSftp c = getSftpChannel(destination);
+        Session session = acquireSession(destination);
+        ChannelSftp c = null;
         try {
+            c = acquireSftpChannel(session);
             String path = getPath(destination);
             if (!overwrite && checkExistence(path, c)) {
                 throw new IOException("destination file exists and overwrite == false");
@@ -168,6 +203,8 @@ public class SFTPRepository extends AbstractSshBasedRepository {
             IOException ex = new IOException(e.getMessage());
             ex.initCause(e);
             throw ex;
+        } finally {
+            release(session, c);
         }
     }
 
@@ -200,8 +237,10 @@ public class SFTPRepository extends AbstractSshBasedRepository {
     }
 
     public List list(String parent) throws IOException {
+        Session session = acquireSession(parent);
+        ChannelSftp c = null;
         try {
-            ChannelSftp c = getSftpChannel(parent);
+            c = acquireSftpChannel(session);
             String path = getPath(parent);
             Collection r = c.ls(path);
             if (r != null) {
@@ -229,6 +268,8 @@ public class SFTPRepository extends AbstractSshBasedRepository {
             IOException ex = new IOException("Failed to return a listing for '" + parent + "'");
             ex.initCause(usex);
             throw ex;
+        } finally {
+            release(session, c);
         }
         return null;
     }
@@ -254,31 +295,30 @@ public class SFTPRepository extends AbstractSshBasedRepository {
     }
 
     /**
-     * Establish the connection to the server if not yet connected, and listen to ivy events for
-     * closing connection when resolve is finished. Not meant to be used in multi threaded
-     * environment.
+     * Returns an sftp channel of the given session which isn't used by another transfer,
+     * establishing it if necessary. Several transfers can thus run at once, each on its own
+     * channel. The channel must be given back with {@link #release(Session, ChannelSftp)}.
      * 
+     * @param session
+     *            acquired for the transfer
      * @return the ChannelSftp with which a connection is established
      * @throws IOException
      *             if any connection problem occurs
      */
-    private ChannelSftp getSftpChannel(String pathOrUri) throws IOException {
-        Session session = getSession(pathOrUri);
-        String host = session.getHost();
-        ChannelSftp channel = SshCache.getInstance().getChannelSftp(session);
-        if (channel == null) {
-            try {
-                channel = (ChannelSftp) session.openChannel("sftp");
-                channel.connect();
-                Message.verbose(":: SFTP :: connected to " + host + "!");
-                SshCache.getInstance().attachChannelSftp(session, channel);
-            } catch (JSchException e) {
-                IOException ex = new IOException(e.getMessage());
-                ex.initCause(e);
-                throw ex;
-            }
+    private ChannelSftp acquireSftpChannel(Session session) throws IOException {
+        return SshCache.getInstance().acquireChannelSftp(session);
+    }
+
+    /**
+     * gives back the given channel, if any, and the given session once a transfer is done
+     */
+    private void release(Session session, ChannelSftp channel) {
+        if (channel != null) {
+            SshCache.getInstance().releaseChannelSftp(session, channel);
+        }
+        if (session != null) {
+            returnSession(session);
         }
-        return channel;
     }
 
     protected String getRepositoryScheme() {
@@ -49,6 +49,10 @@ public abstract class AbstractSshBasedRepository extends AbstractRepository {
 
     private boolean allowedAgentUse = false;
 
+    private int maxSessions = 1;
+
+    private long idleTimeout = 0;
+
     public AbstractSshBasedRepository() {
         super();
     }
@@ -69,6 +73,33 @@ public abstract class AbstractSshBasedRepository extends AbstractRepository {
      * @return matching Session
      */
     protected Session getSession(String pathOrUri) throws IOException {
+        return getSession(pathOrUri, false);
+    }
+
+    /**
+     * get a session for a transfer, like {@link #getSession(String)}, from the pool of sessions of
+     * the host. The session must be given back with {@link #returnSession(Session)} once the
+     * transfer is done, so that other transfers can use it.
+     * 
+     * @param pathOrUri
+     *            might be just a path or a full ssh or sftp uri
+     * @return matching Session
+     */
+    protected Session acquireSession(String pathOrUri) throws IOException {
+        return getSession(pathOrUri, true);
+    }
+
+    /**
+     * gives back a session acquired with {@link #acquireSession(String)}
+     * 
+     * @param session
+     *            the session which isn't used anymore by the transfer
+     */
+    protected void returnSession(Session session) {
+        SshCache.getInstance().releaseSession(session);
+    }
+
+    private Session getSession(String pathOrUri, boolean acquire) throws IOException {
         URI uri = parseURI(pathOrUri);
         String host = getHost();
         int port = getPort();
@@ -105,6 +136,11 @@ public abstract class AbstractSshBasedRepository extends AbstractRepository {
                 Message.error("username is not set");
             }
         }
+        if (acquire) {
+            return SshCache.getInstance().acquireSession(host, port, user, userPassword,
+                getKeyFile(), getKeyFilePassword(), getPassFile(), isAllowedAgentUse(),
+                getMaxSessions(), getIdleTimeout());
+        }
         return SshCache.getInstance().getSession(host, port, user, userPassword, getKeyFile(),
             getKeyFilePassword(), getPassFile(), isAllowedAgentUse());
     }
@@ -315,6 +351,42 @@ public abstract class AbstractSshBasedRepository extends AbstractRepository {
         this.allowedAgentUse = allowedAgentUse;
     }
 
+    /**
+     * @return the maximum number of sessions opened at once to a host
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Sets the maximum number of sessions opened at once to a host. Each session carries up to 8
+     * transfers at once, a new session is opened only when all the others are in use.
+     * 
+     * @param maxSessions
+     *            the maximum number of sessions, 1 by default
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * @return the time in milliseconds after which the sessions which aren't used are closed
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time after which the sessions and channels which aren't used anymore are closed. By
+     * default they are kept until the end of the resolve.
+     * 
+     * @param idleTimeout
+     *            the timeout in milliseconds, 0 to close the sessions at the end of the resolve
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
     protected abstract String getRepositoryScheme();
 
 }
@@ -0,0 +1,395 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.repository.ssh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * A pool of the sessions opened to a host with the same credentials, and of the channels opened
+ * on them.
+ * <p>
+ * A session carries several transfers at once, each on its own channel, up to
+ * {@link #MAX_CHANNELS_PER_SESSION} channels. A new session is connected only when all the
+ * sessions of the pool are in use and the pool isn't full. When all of them carry as many channels
+ * as they can, the transfers wait for one to be released. The sessions and channels which aren't
+ * used anymore are kept to be reused, and closed once they have been idle for longer than the idle
+ * timeout, if any. They are closed by a daemon timer while the pool holds idle sessions or
+ * channels, so that they don't stay open when the pool isn't used anymore.
+ * </p>
+ * <p>
+ * The connections themselves are left to the subclasses.
+ * </p>
+ */
+abstract class SessionPool {
+
+    /**
+     * The maximum number of channels opened at once on a session, below the default limit of
+     * OpenSSH servers.
+     */
+    static final int MAX_CHANNELS_PER_SESSION = 8;
+
+    private static final class PooledSession {
+        private final Object session;
+
+        private int uses = 0;
+
+        private long lastUsed = System.currentTimeMillis();
+
+        // the channels which aren't used, most recently released first
+        private final LinkedList/* <IdleChannel> */idleChannels = new LinkedList();
+
+        // the channel shared by all the users of the session which don't release it
+        private Object sharedChannel;
+
+        private PooledSession(Object session) {
+            this.session = session;
+        }
+    }
+
+    private static final class IdleChannel {
+        private final Object channel;
+
+        private final long since = System.currentTimeMillis();
+
+        private IdleChannel(Object channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static Timer evictionTimer;
+
+    private final List/* <PooledSession> */sessions = new ArrayList();
+
+    // the eviction of the idle sessions and channels scheduled on the timer, if any
+    private TimerTask eviction;
+
+    private int connecting = 0;
+
+    private int maxSessions = 1;
+
+    private long idleTimeout = 0;
+
+    /**
+     * Sets the maximum number of sessions of this pool, and for how long the sessions and channels
+     * which aren't used are kept.
+     * 
+     * @param maxSessions
+     *            the maximum number of sessions, at least 1
+     * @param idleTimeout
+     *            the idle timeout in milliseconds, 0 or less to keep them until {@link #clear()}
+     */
+    public synchronized void configure(int maxSessions, long idleTimeout) {
+        this.maxSessions = Math.max(1, maxSessions);
+        this.idleTimeout = idleTimeout;
+        cancelEviction();
+        scheduleEviction();
+        notifyAll();
+    }
+
+    public synchronized long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns a session to use for a transfer, connecting a new one if needed. The session must be
+     * given back with {@link #releaseSession(Object)} once the transfer is done.
+     */
+    public Object acquireSession() throws IOException {
+        synchronized (this) {
+            while (true) {
+                evictIdle();
+                PooledSession leastUsed = null;
+                for (Iterator it = sessions.iterator(); it.hasNext();) {
+                    PooledSession pooled = (PooledSession) it.next();
+                    if (!isSessionConnected(pooled.session)) {
+                        if (pooled.uses == 0) {
+                            it.remove();
+                            close(pooled);
+                        }
+                        continue;
+                    }
+                    if (leastUsed == null || pooled.uses < leastUsed.uses) {
+                        leastUsed = pooled;
+                    }
+                }
+                boolean full = sessions.size() + connecting >= maxSessions;
+                if (leastUsed != null && leastUsed.uses < MAX_CHANNELS_PER_SESSION
+                        && (leastUsed.uses == 0 || full)) {
+                    leastUsed.uses++;
+                    // leave room for the channel of the new use
+                    int maxIdle = MAX_CHANNELS_PER_SESSION - leastUsed.uses;
+                    while (leastUsed.idleChannels.size() > maxIdle) {
+                        closeChannel(((IdleChannel) leastUsed.idleChannels.removeLast()).channel);
+                    }
+                    return leastUsed.session;
+                }
+                if (!full) {
+                    connecting++;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw (IOException) new IOException("interrupted while waiting for a session")
+                            .initCause(e);
+                }
+            }
+        }
+        Object session = null;
+        try {
+            session = connect();
+            return session;
+        } finally {
+            synchronized (this) {
+                connecting--;
+                if (session != null) {
+                    PooledSession pooled = new PooledSession(session);
+                    pooled.uses = 1;
+                    sessions.add(pooled);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Gives back a session acquired with {@link #acquireSession()}.
+     */
+    public synchronized void releaseSession(Object session) {
+        PooledSession pooled = find(session);
+        if (pooled != null && pooled.uses > 0) {
+            pooled.uses--;
+            pooled.lastUsed = System.currentTimeMillis();
+            scheduleEviction();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns a connected session of this pool, connecting one if there is none, without
+     * acquiring it.
+     */
+    public Object getSession() throws IOException {
+        Object session = acquireSession();
+        releaseSession(session);
+        return session;
+    }
+
+    /**
+     * Returns a channel which isn't used on the given session, opening a new one if needed. The
+     * channel must be given back with {@link #releaseChannel(Object, Object)} once the transfer is
+     * done.
+     */
+    public Object acquireChannel(Object session) throws IOException {
+        synchronized (this) {
+            PooledSession pooled = find(session);
+            while (pooled != null && !pooled.idleChannels.isEmpty()) {
+                Object channel = ((IdleChannel) pooled.idleChannels.removeFirst()).channel;
+                if (isChannelConnected(channel)) {
+                    return channel;
+                }
+                closeChannel(channel);
+            }
+        }
+        return openChannel(session);
+    }
+
+    /**
+     * Gives back a channel acquired with {@link #acquireChannel(Object)}, which is kept to be
+     * reused if it's still connected.
+     */
+    public synchronized void releaseChannel(Object session, Object channel) {
+        PooledSession pooled = find(session);
+        if (pooled != null && isChannelConnected(channel)
+                && pooled.uses + pooled.idleChannels.size() <= MAX_CHANNELS_PER_SESSION) {
+            pooled.idleChannels.addFirst(new IdleChannel(channel));
+            scheduleEviction();
+        } else {
+            closeChannel(channel);
+        }
+    }
+
+    public synchronized Object getSharedChannel(Object session) {
+        PooledSession pooled = find(session);
+        if (pooled == null || pooled.sharedChannel == null) {
+            return null;
+        }
+        if (!isChannelConnected(pooled.sharedChannel)) {
+            closeChannel(pooled.sharedChannel);
+            pooled.sharedChannel = null;
+        }
+        return pooled.sharedChannel;
+    }
+
+    public synchronized void setSharedChannel(Object session, Object channel) {
+        PooledSession pooled = find(session);
+        if (pooled == null) {
+            throw new IllegalArgumentException("No entry for " + session + " in the cache");
+        }
+        if (pooled.sharedChannel != null && channel != null) {
+            throw new IllegalStateException("Only one sftp channelSftp per session allowed");
+        }
+        pooled.sharedChannel = channel;
+    }
+
+    public synchronized boolean contains(Object session) {
+        return find(session) != null;
+    }
+
+    /**
+     * Removes the given session from this pool and closes it, with its channels.
+     */
+    public synchronized void discardSession(Object session) {
+        PooledSession pooled = find(session);
+        if (pooled != null) {
+            sessions.remove(pooled);
+            close(pooled);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Closes all the sessions of this pool.
+     */
+    public synchronized void clear() {
+        for (Iterator it = sessions.iterator(); it.hasNext();) {
+            close((PooledSession) it.next());
+        }
+        sessions.clear();
+        cancelEviction();
+        notifyAll();
+    }
+
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    private PooledSession find(Object session) {
+        for (Iterator it = sessions.iterator(); it.hasNext();) {
+            PooledSession pooled = (PooledSession) it.next();
+            if (pooled.session == session) {
+                return pooled;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the sessions and channels which have been idle for longer than the idle timeout.
+     * 
+     * @return the earliest time at which one of the remaining idle sessions or channels expires,
+     *         or -1 if there is none
+     */
+    private long evictIdle() {
+        if (idleTimeout <= 0) {
+            return -1;
+        }
+        long expired = System.currentTimeMillis() - idleTimeout;
+        long oldestIdle = Long.MAX_VALUE;
+        for (Iterator it = sessions.iterator(); it.hasNext();) {
+            PooledSession pooled = (PooledSession) it.next();
+            while (!pooled.idleChannels.isEmpty()
+                    && ((IdleChannel) pooled.idleChannels.getLast()).since < expired) {
+                closeChannel(((IdleChannel) pooled.idleChannels.removeLast()).channel);
+            }
+            if (pooled.uses == 0 && pooled.lastUsed < expired) {
+                it.remove();
+                close(pooled);
+                continue;
+            }
+            if (!pooled.idleChannels.isEmpty()) {
+                oldestIdle = Math.min(oldestIdle,
+                    ((IdleChannel) pooled.idleChannels.getLast()).since);
+            }
+            if (pooled.uses == 0) {
+                oldestIdle = Math.min(oldestIdle, pooled.lastUsed);
+            }
+        }
+        return oldestIdle == Long.MAX_VALUE ? -1 : oldestIdle + idleTimeout;
+    }
+
+    /**
+     * Schedules the eviction of the idle sessions and channels on the timer, unless it is already
+     * scheduled or there is no idle timeout.
+     */
+    private void scheduleEviction() {
+        if (idleTimeout <= 0 || eviction != null) {
+            return;
+        }
+        long next = evictIdle();
+        if (next < 0) {
+            return;
+        }
+        eviction = new TimerTask() {
+            public void run() {
+                synchronized (SessionPool.this) {
+                    if (eviction != this) {
+                        return;
+                    }
+                    eviction = null;
+                    scheduleEviction();
+                }
+            }
+        };
+        getEvictionTimer().schedule(eviction, Math.max(1, next - System.currentTimeMillis()));
+    }
+
+    private void cancelEviction() {
+        if (eviction != null) {
+            eviction.cancel();
+            eviction = null;
+        }
+    }
+
+    private static synchronized Timer getEvictionTimer() {
+        if (evictionTimer == null) {
+            evictionTimer = new Timer("ivy-ssh-idle-eviction", true);
+        }
+        return evictionTimer;
+    }
+
+    private void close(PooledSession pooled) {
+        for (Iterator it = pooled.idleChannels.iterator(); it.hasNext();) {
+            closeChannel(((IdleChannel) it.next()).channel);
+        }
+        pooled.idleChannels.clear();
+        if (pooled.sharedChannel != null) {
+            closeChannel(pooled.sharedChannel);
+            pooled.sharedChannel = null;
+        }
+        closeSession(pooled.session);
+    }
+
+    protected abstract Object connect() throws IOException;
+
+    protected abstract boolean isSessionConnected(Object session);
+
+    protected abstract void closeSession(Object session);
+
+    protected abstract Object openChannel(Object session) throws IOException;
+
+    protected abstract boolean isChannelConnected(Object channel);
+
+    protected abstract void closeChannel(Object channel);
+}
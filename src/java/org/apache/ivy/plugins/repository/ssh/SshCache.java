@@ -47,7 +47,8 @@ import com.jcraft.jsch.agentproxy.RemoteIdentityRepository;
 /**
  * a class to cache SSH Connections and Channel for the SSH Repository each session is defined by
  * connecting user / host / port two maps are used to find cache entries one map is using the above
- * keys, the other uses the session itself
+ * keys, the other uses the session itself. Each entry is a pool of sessions, on which the sftp
+ * channels are pooled as well, so that several transfers to the same host can run at once.
  */
 public final class SshCache {
 
@@ -62,89 +63,143 @@ public final class SshCache {
         return instance;
     }
 
-    private class Entry {
-        private Session session = null;
-
-        private ChannelSftp channelSftp = null;
-
+    /**
+     * The pool of the sessions of a user / host / port, which also knows how to connect them.
+     */
+    private class Entry extends SessionPool {
         private String host = null;
 
         private String user = null;
 
         private int port = SSH_DEFAULT_PORT;
 
-        /**
-         * @return the host
-         */
-        public String getHost() {
-            return host;
-        }
+        private String userPassword;
 
-        /**
-         * @return the port
-         */
-        public int getPort() {
-            return port;
-        }
+        private File pemFile;
 
-        /**
-         * @return the user
-         */
-        public String getUser() {
-            return user;
-        }
+        private String pemPassword;
+
+        private File passFile;
+
+        private boolean allowedAgentUse;
 
-        public Entry(Session newSession, String newUser, String newHost, int newPort) {
-            session = newSession;
+        public Entry(String newUser, String newHost, int newPort) {
             host = newHost;
             user = newUser;
             port = newPort;
-            IvyContext.getContext().getEventManager().addIvyListener(new IvyListener() {
-                public void progress(IvyEvent event) {
-                    event.getSource().removeIvyListener(this);
-                    clearSession(session);
-                }
-            }, EndResolveEvent.NAME);
         }
 
         /**
-         * attach an sftp channel to this cache entry
-         * 
-         * @param newChannel
-         *            to attach
+         * sets the credentials used to connect the next sessions
          */
-        public void setChannelSftp(ChannelSftp newChannel) {
-            if (channelSftp != null && newChannel != null) {
-                throw new IllegalStateException("Only one sftp channelSftp per session allowed");
+        private synchronized void setCredentials(String userPassword, File pemFile,
+                String pemPassword, File passFile, boolean allowedAgentUse) {
+            this.userPassword = userPassword;
+            this.pemFile = pemFile;
+            this.pemPassword = pemPassword;
+            this.passFile = passFile;
+            this.allowedAgentUse = allowedAgentUse;
+        }
+
+        protected Object connect() throws IOException {
+            String userPassword;
+            File pemFile;
+            String pemPassword;
+            File passFile;
+            boolean allowedAgentUse;
+            synchronized (this) {
+                userPassword = this.userPassword;
+                pemFile = this.pemFile;
+                pemPassword = this.pemPassword;
+                passFile = this.passFile;
+                allowedAgentUse = this.allowedAgentUse;
+            }
+            Message.verbose(":: SSH :: connecting to " + host + "...");
+            try {
+                JSch jsch = new JSch();
+                final Session session;
+                if (port != -1) {
+                    session = jsch.getSession(user, host, port);
+                } else {
+                    session = jsch.getSession(user, host);
+                }
+                if (allowedAgentUse) {
+                    attemptAgentUse(jsch);
+                }
+                if (pemFile != null) {
+                    jsch.addIdentity(pemFile.getAbsolutePath(), pemPassword);
+                }
+                session.setUserInfo(new CfUserInfo(host, user, userPassword, pemFile,
+                        pemPassword, passFile));
+                session.setDaemonThread(true);
+
+                Properties config = new Properties();
+                config.setProperty("PreferredAuthentications",
+                    "publickey,keyboard-interactive,password");
+                session.setConfig(config);
+
+                session.connect();
+                Message.verbose(":: SSH :: connected to " + host + "!");
+                synchronized (SshCache.this) {
+                    sessionCacheMap.put(session, this);
+                }
+                if (getIdleTimeout() <= 0) {
+                    // without idle timeout, the sessions are closed at the end of the resolve
+                    IvyContext.getContext().getEventManager().addIvyListener(new IvyListener() {
+                        public void progress(IvyEvent event) {
+                            event.getSource().removeIvyListener(this);
+                            clearSession(session);
+                        }
+                    }, EndResolveEvent.NAME);
+                }
+                return session;
+            } catch (JSchException e) {
+                if (passFile != null && passFile.exists()) {
+                    passFile.delete();
+                }
+                IOException ex = new IOException(e.getMessage());
+                ex.initCause(e);
+                throw ex;
             }
-            this.channelSftp = newChannel;
         }
 
-        /**
-         * @return the attached sftp channel
-         */
-        public ChannelSftp getChannelSftp() {
-            return channelSftp;
+        protected boolean isSessionConnected(Object session) {
+            return ((Session) session).isConnected();
         }
 
-        /**
-         * @return the session
-         */
-        private Session getSession() {
-            return session;
+        protected void closeSession(Object session) {
+            synchronized (SshCache.this) {
+                sessionCacheMap.remove(session);
+            }
+            if (((Session) session).isConnected()) {
+                Message.verbose(":: SSH :: closing ssh connection from " + host + "...");
+                ((Session) session).disconnect();
+                Message.verbose(":: SSH :: ssh connection closed from " + host);
+            }
         }
 
-        /**
-         * remove channelSftp and disconnect if necessary
-         */
-        public void releaseChannelSftp() {
-            if (channelSftp != null) {
-                if (channelSftp.isConnected()) {
-                    Message.verbose(":: SFTP :: closing sftp connection from " + host + "...");
-                    channelSftp.disconnect();
-                    channelSftp = null;
-                    Message.verbose(":: SFTP :: sftp connection closed from " + host);
-                }
+        protected Object openChannel(Object session) throws IOException {
+            try {
+                ChannelSftp channel = (ChannelSftp) ((Session) session).openChannel("sftp");
+                channel.connect();
+                Message.verbose(":: SFTP :: connected to " + host + "!");
+                return channel;
+            } catch (JSchException e) {
+                IOException ex = new IOException(e.getMessage());
+                ex.initCause(e);
+                throw ex;
+            }
+        }
+
+        protected boolean isChannelConnected(Object channel) {
+            return ((ChannelSftp) channel).isConnected();
+        }
+
+        protected void closeChannel(Object channel) {
+            if (((ChannelSftp) channel).isConnected()) {
+                Message.verbose(":: SFTP :: closing sftp connection from " + host + "...");
+                ((ChannelSftp) channel).disconnect();
+                Message.verbose(":: SFTP :: sftp connection closed from " + host);
             }
         }
     }
@@ -162,14 +217,24 @@ public final class SshCache {
     private Map sessionCacheMap = new HashMap();
 
     /**
-     * retrieves a session entry for a given hostname from the cache
+     * retrieves the entry for a given user / host / port from the cache, creating it if necessary
      * 
-     * @param hostname
-     *            to retrieve session for
-     * @return null or the existing entry
+     * @return the entry, with the given credentials
      */
-    private Entry getCacheEntry(String user, String host, int port) {
-        return (Entry) uriCacheMap.get(createCacheKey(user, host, port));
+    private Entry getCacheEntry(String user, String host, int port, String userPassword,
+            File pemFile, String pemPassword, File passFile, boolean allowedAgentUse) {
+        String key = createCacheKey(user, host, port);
+        Entry entry;
+        synchronized (this) {
+            entry = (Entry) uriCacheMap.get(key);
+            if (entry == null) {
+                entry = new Entry(user, host, port);
+                uriCacheMap.put(key, entry);
+            }
+        }
+        // the entry is locked out of the cache lock, the entry calls the cache with its own lock
+        entry.setCredentials(userPassword, pemFile, pemPassword, passFile, allowedAgentUse);
+        return entry;
     }
 
     /**
@@ -199,48 +264,10 @@ public final class SshCache {
      *            to retrieve cache entry for
      * @return null or the existing entry
      */
-    private Entry getCacheEntry(Session session) {
+    private synchronized Entry getCacheEntry(Session session) {
         return (Entry) sessionCacheMap.get(session);
     }
 
-    /**
-     * Sets a session to a given combined key into the cache If an old session object already
-     * exists, close and remove it
-     * 
-     * @param user
-     *            of the session
-     * @param host
-     *            of the session
-     * @param port
-     *            of the session
-     * @param newSession
-     *            Session to save
-     */
-    private void setSession(String user, String host, int port, Session newSession) {
-        Entry entry = (Entry) uriCacheMap.get(createCacheKey(user, host, port));
-        Session oldSession = null;
-        if (entry != null) {
-            oldSession = entry.getSession();
-        }
-        if (oldSession != null && !oldSession.equals(newSession) && oldSession.isConnected()) {
-            entry.releaseChannelSftp();
-            String oldhost = oldSession.getHost();
-            Message.verbose(":: SSH :: closing ssh connection from " + oldhost + "...");
-            oldSession.disconnect();
-            Message.verbose(":: SSH :: ssh connection closed from " + oldhost);
-        }
-        if ((newSession == null) && (entry != null)) {
-            uriCacheMap.remove(createCacheKey(user, host, port));
-            if (entry.getSession() != null) {
-                sessionCacheMap.remove(entry.getSession());
-            }
-        } else {
-            Entry newEntry = new Entry(newSession, user, host, port);
-            uriCacheMap.put(createCacheKey(user, host, port), newEntry);
-            sessionCacheMap.put(newSession, newEntry);
-        }
-    }
-
     /**
      * discardes session entries from the cache
      * 
@@ -248,34 +275,26 @@ public final class SshCache {
      *            to clear
      */
     public void clearSession(Session session) {
-        Entry entry = (Entry) sessionCacheMap.get(session);
+        Entry entry = getCacheEntry(session);
         if (entry != null) {
-            setSession(entry.getUser(), entry.getHost(), entry.getPort(), null);
+            entry.discardSession(session);
         }
     }
 
     /**
-     * retrieves an sftp channel from the cache
+     * retrieves the sftp channel shared by the users of a session from the cache
      * 
      * @param session
      *            to connect to
      * @return channelSftp or null if not successful (channel not existent or dead)
      */
     public ChannelSftp getChannelSftp(Session session) throws IOException {
-        ChannelSftp channel = null;
         Entry entry = getCacheEntry(session);
-        if (entry != null) {
-            channel = entry.getChannelSftp();
-            if (channel != null && !channel.isConnected()) {
-                entry.releaseChannelSftp();
-                channel = null;
-            }
-        }
-        return channel;
+        return entry == null ? null : (ChannelSftp) entry.getSharedChannel(session);
     }
 
     /**
-     * attaches a channelSftp to an existing session cache entry
+     * attaches a channelSftp shared by the users of a session to an existing session cache entry
      * 
      * @param session
      *            to attach the channel to
@@ -287,7 +306,40 @@ public final class SshCache {
         if (entry == null) {
             throw new IllegalArgumentException("No entry for " + session + " in the cache");
         }
-        entry.setChannelSftp(channel);
+        entry.setSharedChannel(session, channel);
+    }
+
+    /**
+     * Returns an sftp channel of the given session which isn't used by another transfer, opening
+     * a new one if necessary. It must be given back with
+     * {@link #releaseChannelSftp(Session, ChannelSftp)} once the transfer is done.
+     * 
+     * @param session
+     *            acquired with {@link #acquireSession(String, int, String, String, File, String,
+     *            File, boolean, int, long)}
+     * @return a connected channel
+     */
+    public ChannelSftp acquireChannelSftp(Session session) throws IOException {
+        Entry entry = getCacheEntry(session);
+        if (entry == null) {
+            throw new IllegalArgumentException("No entry for " + session + " in the cache");
+        }
+        return (ChannelSftp) entry.acquireChannel(session);
+    }
+
+    /**
+     * Gives back an sftp channel acquired with {@link #acquireChannelSftp(Session)}, to let other
+     * transfers reuse it.
+     */
+    public void releaseChannelSftp(Session session, ChannelSftp channel) {
+        Entry entry = getCacheEntry(session);
+        if (entry == null) {
+            if (channel.isConnected()) {
+                channel.disconnect();
+            }
+        } else {
+            entry.releaseChannel(session, channel);
+        }
     }
 
     /**
@@ -334,48 +386,60 @@ public final class SshCache {
             throws IOException {
         Checks.checkNotNull(host, "host");
         Checks.checkNotNull(username, "user");
-        Entry entry = getCacheEntry(username, host, port);
-        Session session = null;
-        if (entry != null) {
-            session = entry.getSession();
-        }
-        if (session == null || !session.isConnected()) {
-            Message.verbose(":: SSH :: connecting to " + host + "...");
-            try {
-                JSch jsch = new JSch();
-                if (port != -1) {
-                    session = jsch.getSession(username, host, port);
-                } else {
-                    session = jsch.getSession(username, host);
-                }
-                if (allowedAgentUse) {
-                    attemptAgentUse(jsch);
-                }
-                if (pemFile != null) {
-                    jsch.addIdentity(pemFile.getAbsolutePath(), pemPassword);
-                }
-                session.setUserInfo(new CfUserInfo(host, username, userPassword, pemFile,
-                        pemPassword, passFile));
-                session.setDaemonThread(true);
+        return (Session) getCacheEntry(username, host, port, userPassword, pemFile, pemPassword,
+            passFile, allowedAgentUse).getSession();
+    }
 
-                Properties config = new Properties();
-                config.setProperty("PreferredAuthentications",
-                    "publickey,keyboard-interactive,password");
-                session.setConfig(config);
+    /**
+     * Gets a session for a transfer from the pool of sessions of the given user / host / port,
+     * which establishes a new session if all of them are in use and the pool isn't full, or waits
+     * for a session to be released if the pool is full. The session must be given back with
+     * {@link #releaseSession(Session)} once the transfer is done.
+     * 
+     * @param host
+     *            to connect to
+     * @param port
+     *            to use for session (-1 == use standard port)
+     * @param username
+     *            for the session to use
+     * @param userPassword
+     *            to use for authentication (optional)
+     * @param pemFile
+     *            File to use for public key authentication
+     * @param pemPassword
+     *            to use for accessing the pemFile (optional)
+     * @param passFile
+     *            to store credentials
+     * @param allowedAgentUse
+     *            Whether to communicate with an agent for authentication
+     * @param maxSessions
+     *            the maximum number of sessions opened at once to the host
+     * @param idleTimeout
+     *            the time in milliseconds after which sessions and channels which aren't used are
+     *            closed, 0 to close them at the end of the resolve
+     * @return a connected session
+     */
+    public Session acquireSession(String host, int port, String username, String userPassword,
+            File pemFile, String pemPassword, File passFile, boolean allowedAgentUse,
+            int maxSessions, long idleTimeout) throws IOException {
+        Checks.checkNotNull(host, "host");
+        Checks.checkNotNull(username, "user");
+        Entry entry = getCacheEntry(username, host, port, userPassword, pemFile, pemPassword,
+            passFile, allowedAgentUse);
+        entry.configure(maxSessions, idleTimeout);
+        return (Session) entry.acquireSession();
+    }
 
-                session.connect();
-                Message.verbose(":: SSH :: connected to " + host + "!");
-                setSession(username, host, port, session);
-            } catch (JSchException e) {
-                if (passFile != null && passFile.exists()) {
-                    passFile.delete();
-                }
-                IOException ex = new IOException(e.getMessage());
-                ex.initCause(e);
-                throw ex;
-            }
+    /**
+     * Gives back a session acquired with
+     * {@link #acquireSession(String, int, String, String, File, String, File, boolean, int, long)}
+     * , to let other transfers use it.
+     */
+    public void releaseSession(Session session) {
+        Entry entry = getCacheEntry(session);
+        if (entry != null) {
+            entry.releaseSession(session);
         }
-        return session;
     }
 
     /**
@@ -79,7 +79,7 @@ public class SshRepository extends AbstractSshBasedRepository {
         SshResource result = null;
         Session session = null;
         try {
-            session = getSession(source);
+            session = acquireSession(source);
             Scp myCopy = new Scp(session);
             Scp.FileInfo fileInfo = myCopy.getFileinfo(new URI(source).getPath());
             result = new SshResource(this, source, true, fileInfo.getLength(),
@@ -96,6 +96,10 @@ public class SshRepository extends AbstractSshBasedRepository {
             result = new SshResource();
         } catch (RemoteScpException e) {
             result = new SshResource();
+        } finally {
+            if (session != null) {
+                returnSession(session);
+            }
         }
         Message.debug("SShRepository:resolveResource end.");
         return result;
@@ -165,8 +169,6 @@ public class SshRepository extends AbstractSshBasedRepository {
         ArrayList result = new ArrayList();
         Session session = null;
         ChannelExec channel = null;
-        session = getSession(parent);
-        channel = getExecChannel(session);
         URI parentUri = null;
         try {
             parentUri = new URI(parent);
@@ -175,21 +177,27 @@ public class SshRepository extends AbstractSshBasedRepository {
             ioe.initCause(e);
             throw ioe;
         }
-        String fullCmd = replaceArgument(listCommand, parentUri.getPath());
-        channel.setCommand(fullCmd);
-        StringBuffer stdOut = new StringBuffer();
-        StringBuffer stdErr = new StringBuffer();
-        readSessionOutput(channel, stdOut, stdErr);
-        if (channel.getExitStatus() != 0) {
-            Message.error("Ssh ListCommand exited with status != 0");
-            Message.error(stdErr.toString());
-            return null;
-        } else {
-            BufferedReader br = new BufferedReader(new StringReader(stdOut.toString()));
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                result.add(line);
+        session = acquireSession(parent);
+        try {
+            channel = getExecChannel(session);
+            String fullCmd = replaceArgument(listCommand, parentUri.getPath());
+            channel.setCommand(fullCmd);
+            StringBuffer stdOut = new StringBuffer();
+            StringBuffer stdErr = new StringBuffer();
+            readSessionOutput(channel, stdOut, stdErr);
+            if (channel.getExitStatus() != 0) {
+                Message.error("Ssh ListCommand exited with status != 0");
+                Message.error(stdErr.toString());
+                return null;
+            } else {
+                BufferedReader br = new BufferedReader(new StringReader(stdOut.toString()));
+                String line = null;
+                while ((line = br.readLine()) != null) {
+                    result.add(line);
+                }
             }
+        } finally {
+            returnSession(session);
         }
         return result;
     }
@@ -235,8 +243,6 @@ public class SshRepository extends AbstractSshBasedRepository {
      */
     public void put(File source, String destination, boolean overwrite) throws IOException {
         Message.debug("SShRepository:put called: " + destination);
-        Session session = getSession(destination);
-
         URI destinationUri = null;
         try {
             destinationUri = new URI(destination);
@@ -246,6 +252,8 @@ public class SshRepository extends AbstractSshBasedRepository {
             throw ioe;
         }
 
+        Session session = acquireSession(destination);
+
         try {
             String filePath = destinationUri.getPath();
             int lastSep = filePath.lastIndexOf(fileSeparator);
@@ -275,6 +283,8 @@ public class SshRepository extends AbstractSshBasedRepository {
             throw e;
         } catch (RemoteScpException e) {
             throw new IOException(e.getMessage());
+        } finally {
+            returnSession(session);
         }
     }
 
@@ -347,8 +357,6 @@ public class SshRepository extends AbstractSshBasedRepository {
         if (destination.getParentFile() != null) {
             destination.getParentFile().mkdirs();
         }
-        Session session = getSession(source);
-
         URI sourceUri = null;
         try {
             sourceUri = new URI(source);
@@ -358,6 +366,8 @@ public class SshRepository extends AbstractSshBasedRepository {
             throw ioe;
         }
 
+        Session session = acquireSession(source);
+
         try {
             Scp myCopy = new Scp(session);
             myCopy.get(sourceUri.getPath(), destination.getCanonicalPath());
@@ -368,6 +378,8 @@ public class SshRepository extends AbstractSshBasedRepository {
             throw e;
         } catch (RemoteScpException e) {
             throw new IOException(e.getMessage());
+        } finally {
+            returnSession(session);
         }
     }
 
@@ -455,10 +467,10 @@ public class SshRepository extends AbstractSshBasedRepository {
      * @return InputStream of the resource data
      */
     public InputStream openStream(SshResource resource) throws IOException {
-        Session session = getSession(resource.getName());
-        Scp scp = new Scp(session);
+        Session session = acquireSession(resource.getName());
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         try {
+            Scp scp = new Scp(session);
             scp.get(resource.getName(), os);
         } catch (IOException e) {
             if (session != null) {
@@ -467,6 +479,8 @@ public class SshRepository extends AbstractSshBasedRepository {
             throw e;
         } catch (RemoteScpException e) {
             throw new IOException(e.getMessage());
+        } finally {
+            returnSession(session);
         }
         return new ByteArrayInputStream(os.toByteArray());
     }
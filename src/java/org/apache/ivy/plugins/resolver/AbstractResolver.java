@@ -20,6 +20,7 @@ package org.apache.ivy.plugins.resolver;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
@@ -48,6 +49,7 @@ import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.RangeConstraints;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
@@ -160,6 +162,7 @@ public abstract class AbstractResolver implements DependencyResolver, HasLatestS
 
     protected void checkInterrupted() {
         IvyContext.getContext().getIvy().checkInterrupted();
+        ChainResolver.checkLookupCancelled();
     }
 
     public void reportFailure() {
@@ -356,6 +359,14 @@ public abstract class AbstractResolver implements DependencyResolver, HasLatestS
                     + " for " + dd + ", but it is blacklisted");
             return null;
         }
+        Collection constraints = data.getRangeConstraints(dd, dd.getDependencyRevisionId());
+        if (constraints != null
+                && !RangeConstraints.accept(getSettings().getVersionMatcher(), constraints,
+                    rmr.getId())) {
+            Message.verbose("\t" + getName() + ": found revision in cache: " + rmr.getId()
+                    + " for " + dd + ", but it is not compatible with " + constraints);
+            return null;
+        }
         return rmr;
     }
 
@@ -539,6 +550,7 @@ public abstract class AbstractResolver implements DependencyResolver, HasLatestS
             ResolvedModuleRevision newModuleFound) {
         if (newModuleFound != null
                 && getSettings().getVersionMatcher().isDynamic(dd.getDependencyRevisionId())) {
+            ChainResolver.checkLookupCancelled();
             getRepositoryCacheManager().saveResolvedRevision(dd.getDependencyRevisionId(),
                 newModuleFound.getId().getRevision());
         }
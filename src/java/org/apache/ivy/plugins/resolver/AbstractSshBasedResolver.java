@@ -143,5 +143,28 @@ public abstract class AbstractSshBasedResolver extends RepositoryResolver {
         getSshBasedRepository().setPort(port);
     }
 
+    /**
+     * sets the maximum number of sessions opened at once to a host, to run several transfers at
+     * once. Each session carries up to 8 transfers, a new session is only opened when all the
+     * others are in use. Default is 1.
+     * 
+     * @param maxSessions
+     *            the maximum number of sessions per host
+     */
+    public void setMaxSessions(int maxSessions) {
+        getSshBasedRepository().setMaxSessions(maxSessions);
+    }
+
+    /**
+     * sets the time after which the sessions which aren't used anymore are closed. By default they
+     * are closed at the end of the resolve.
+     * 
+     * @param idleTimeout
+     *            the timeout in milliseconds, 0 to close the sessions at the end of the resolve
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        getSshBasedRepository().setIdleTimeout(idleTimeout);
+    }
+
     public abstract String getTypeName();
 }
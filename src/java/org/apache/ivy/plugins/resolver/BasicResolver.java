@@ -36,6 +36,10 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -55,6 +59,7 @@ import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.RangeConstraints;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.search.ModuleEntry;
@@ -77,7 +82,9 @@ import org.apache.ivy.plugins.resolver.util.ResolvedResource;
 import org.apache.ivy.plugins.resolver.util.ResourceMDParser;
 import org.apache.ivy.plugins.version.VersionMatcher;
 import org.apache.ivy.util.Checks;
+import org.apache.ivy.util.ChecksumCollector;
 import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.HostUtil;
 import org.apache.ivy.util.Message;
 
@@ -129,6 +136,12 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyyMMddHHmmss");
 
+    /**
+     * The maximum number of checksum files downloaded at once, alongside the resources they
+     * describe. Further ones are downloaded before their resource.
+     */
+    private static final int CHECKSUM_THREADS = 4;
+
     private String workspaceName;
 
     /**
@@ -138,9 +151,9 @@ public abstract class BasicResolver extends AbstractResolver {
      */
     private boolean envDependent = true;
 
-    private List ivyattempts = new ArrayList();
+    private List ivyattempts = Collections.synchronizedList(new ArrayList());
 
-    private Map artattempts = new HashMap();
+    private Map artattempts = Collections.synchronizedMap(new HashMap());
 
     private boolean checkconsistency = true;
 
@@ -154,6 +167,11 @@ public abstract class BasicResolver extends AbstractResolver {
 
     // external artifacts
 
+    private ExecutorService checksumExecutor;
+
+    // the number of checksum fetches not ended yet, the executor is shut down when it drops to 0
+    private int checksumFetches = 0;
+
     public BasicResolver() {
         workspaceName = HostUtil.getLocalHostName();
     }
@@ -308,6 +326,7 @@ public abstract class BasicResolver extends AbstractResolver {
             checkNotConvertedExclusionRule(systemMd, ivyRef, data);
 
             if (ivyRef == null || ivyRef.getResource() != null) {
+                checkInterrupted();
                 cacheModuleDescriptor(systemMd, systemMrid, ivyRef, rmr);
             }
 
@@ -667,6 +686,10 @@ public abstract class BasicResolver extends AbstractResolver {
         List rejected = new ArrayList();
         List foundBlacklisted = new ArrayList();
         IvyContext context = IvyContext.getContext();
+        ResolveData data = context.getResolveData();
+        Collection constraints = data == null ? null : data.getRangeConstraints(
+            context.getDependencyDescriptor(), toSystem(mrid));
+        ResolvedResource incompatible = null;
 
         for (ListIterator iter = sorted.listIterator(sorted.size()); iter.hasPrevious();) {
             ResolvedResource rres = (ResolvedResource) iter.previous();
@@ -680,7 +703,6 @@ public abstract class BasicResolver extends AbstractResolver {
             }
             ModuleRevisionId foundMrid = ModuleRevisionId.newInstance(mrid, rres.getRevision());
 
-            ResolveData data = context.getResolveData();
             if (data != null && data.getReport() != null
                     && data.isBlacklisted(data.getReport().getConfiguration(), foundMrid)) {
                 Message.debug("\t" + name + ": blacklisted: " + rres);
@@ -731,10 +753,24 @@ public abstract class BasicResolver extends AbstractResolver {
                 found = rres;
             }
 
+            if (found != null && constraints != null
+                    && !RangeConstraints.accept(versionMatcher, constraints, toSystem(foundMrid))) {
+                Message.debug("\t" + name + ": not compatible with " + constraints + ": " + rres);
+                if (incompatible == null) {
+                    incompatible = found;
+                }
+                found = null;
+                continue;
+            }
             if (found != null) {
                 break;
             }
         }
+        if (found == null && incompatible != null) {
+            // no revision is compatible with all the other constraints, the conflict manager will
+            // have to handle the conflict
+            found = incompatible;
+        }
         if (found == null && !rejected.isEmpty()) {
             logAttempt(rejected.toString());
         }
@@ -776,12 +812,14 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected void logArtifactAttempt(Artifact art, String attempt) {
-        List attempts = (List) artattempts.get(art);
-        if (attempts == null) {
-            attempts = new ArrayList();
-            artattempts.put(art, attempts);
+        synchronized (artattempts) {
+            List attempts = (List) artattempts.get(art);
+            if (attempts == null) {
+                attempts = new ArrayList();
+                artattempts.put(art, attempts);
+            }
+            attempts.add(attempt);
         }
-        attempts.add(attempt);
         Message.verbose("\t\ttried " + attempt);
     }
 
@@ -831,7 +869,7 @@ public abstract class BasicResolver extends AbstractResolver {
     public DownloadReport download(Artifact[] artifacts, DownloadOptions options) {
         RepositoryCacheManager cacheManager = getRepositoryCacheManager();
 
-        clearArtifactAttempts();
+        clearArtifactAttempts(artifacts);
         DownloadReport dr = new DownloadReport();
         for (int i = 0; i < artifacts.length; i++) {
             ArtifactDownloadReport adr = cacheManager.download(artifacts[i],
@@ -857,6 +895,16 @@ public abstract class BasicResolver extends AbstractResolver {
         artattempts.clear();
     }
 
+    /**
+     * Clears the attempts logged for the given artifacts only, leaving the attempts of artifacts
+     * downloaded concurrently untouched.
+     */
+    protected void clearArtifactAttempts(Artifact[] artifacts) {
+        for (int i = 0; i < artifacts.length; i++) {
+            artattempts.remove(artifacts[i]);
+        }
+    }
+
     public ArtifactDownloadReport download(final ArtifactOrigin origin, DownloadOptions options) {
         Checks.checkNotNull(origin, "origin");
         return getRepositoryCacheManager().download(origin.getArtifact(),
@@ -978,17 +1026,153 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected long getAndCheck(Resource resource, File dest) throws IOException {
-        long size = get(resource, dest);
         String[] checksums = getChecksumAlgorithms();
-        boolean checked = false;
-        for (int i = 0; i < checksums.length && !checked; i++) {
-            checked = check(resource, dest, checksums[i]);
+        if (checksums.length == 0) {
+            return get(resource, dest);
+        }
+        // the checksums are computed while the resource is downloaded
+        ChecksumCollector collector = ChecksumCollector.start(dest, checksums);
+        File csFile = File.createTempFile("ivytmp", "checksum");
+        ChecksumFetch fetch = new ChecksumFetch(resource, checksums, csFile);
+        Future checksum = acquireChecksumExecutor().submit(
+            ExecutorHelper.inCallerContext(fetch));
+        try {
+            long size;
+            try {
+                size = get(resource, dest);
+            } finally {
+                collector.stop();
+            }
+            String algorithm = waitFor(checksum);
+            if (algorithm != null) {
+                check(resource, dest, algorithm, collector.getChecksum(algorithm), csFile);
+            }
+            return size;
+        } finally {
+            // a running fetch isn't interrupted, which could break a connection or a channel
+            // shared with other transfers: it completes and its result is discarded
+            checksum.cancel(false);
+            fetch.discard();
+        }
+    }
+
+    private synchronized ExecutorService acquireChecksumExecutor() {
+        if (checksumExecutor == null) {
+            checksumExecutor = ExecutorHelper.newElasticThreadPool("checksum-" + getName(),
+                CHECKSUM_THREADS);
+        }
+        checksumFetches++;
+        return checksumExecutor;
+    }
+
+    private synchronized void releaseChecksumExecutor() {
+        checksumFetches--;
+        if (checksumFetches == 0) {
+            // the threads don't outlive the downloads
+            checksumExecutor.shutdown();
+            checksumExecutor = null;
+        }
+    }
+
+    /**
+     * Downloads the first checksum file available for a resource, concurrently with the resource
+     * itself. Once the fetch is discarded, the checksum file is deleted as soon as it isn't written
+     * anymore.
+     */
+    private final class ChecksumFetch implements Callable {
+        private final Resource resource;
+
+        private final String[] algorithms;
+
+        private final File csFile;
+
+        private boolean started = false;
+
+        private boolean ended = false;
+
+        private boolean discarded = false;
+
+        private ChecksumFetch(Resource resource, String[] algorithms, File csFile) {
+            this.resource = resource;
+            this.algorithms = algorithms;
+            this.csFile = csFile;
+        }
+
+        /**
+         * @return the algorithm of the downloaded checksum file, or <code>null</code> if none was
+         *         available
+         */
+        public Object call() throws IOException {
+            synchronized (this) {
+                if (discarded) {
+                    return null;
+                }
+                started = true;
+            }
+            try {
+                for (int i = 0; i < algorithms.length; i++) {
+                    Resource csRes = resource.clone(resource.getName() + "." + algorithms[i]);
+                    if (csRes.exists()) {
+                        Message.debug(algorithms[i] + " file found for " + resource
+                                + ": checking...");
+                        get(csRes, csFile);
+                        return algorithms[i];
+                    }
+                }
+                return null;
+            } finally {
+                boolean delete;
+                synchronized (this) {
+                    ended = true;
+                    delete = discarded;
+                }
+                if (delete) {
+                    csFile.delete();
+                }
+                releaseChecksumExecutor();
+            }
+        }
+
+        public void discard() {
+            boolean delete;
+            boolean neverStarted;
+            synchronized (this) {
+                discarded = true;
+                neverStarted = !started;
+                delete = ended || neverStarted;
+            }
+            if (delete) {
+                csFile.delete();
+            }
+            if (neverStarted) {
+                releaseChecksumExecutor();
+            }
+        }
+    }
+
+    private String waitFor(Future checksum) throws IOException {
+        try {
+            return (String) checksum.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("checksum download interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            IOException ioex = new IOException(String.valueOf(cause));
+            ioex.initCause(cause);
+            throw ioex;
         }
-        return size;
     }
 
     /**
-     * Checks the given resource checksum if a checksum resource exists.
+     * Checks the given resource checksum against the given checksum file.
      * 
      * @param resource
      *            the resource to check
@@ -996,35 +1180,25 @@ public abstract class BasicResolver extends AbstractResolver {
      *            the file where the resource has been downloaded
      * @param algorithm
      *            the checksum algorithm to use
-     * @return true if the checksum has been successfully checked, false if the checksum wasn't
-     *         available
+     * @param computed
+     *            the checksum computed during the download, or <code>null</code> if it has to be
+     *            computed from the downloaded file
+     * @param csFile
+     *            the downloaded checksum file
      * @throws IOException
-     *             if a checksum exist but do not match the downloaded file checksum
+     *             if the checksum do not match the downloaded file checksum
      */
-    private boolean check(Resource resource, File dest, String algorithm) throws IOException {
-        if (!ChecksumHelper.isKnownAlgorithm(algorithm)) {
-            throw new IllegalArgumentException("Unknown checksum algorithm: " + algorithm);
-        }
-
-        Resource csRes = resource.clone(resource.getName() + "." + algorithm);
-        if (csRes.exists()) {
-            Message.debug(algorithm + " file found for " + resource + ": checking...");
-            File csFile = File.createTempFile("ivytmp", algorithm);
-            try {
-                get(csRes, csFile);
-                try {
-                    ChecksumHelper.check(dest, csFile, algorithm);
-                    Message.verbose(algorithm + " OK for " + resource);
-                    return true;
-                } catch (IOException ex) {
-                    dest.delete();
-                    throw ex;
-                }
-            } finally {
-                csFile.delete();
+    private void check(Resource resource, File dest, String algorithm, String computed,
+            File csFile) throws IOException {
+        try {
+            if (computed == null) {
+                computed = ChecksumHelper.computeAsString(dest, algorithm);
             }
-        } else {
-            return false;
+            ChecksumHelper.check(computed, csFile, algorithm);
+            Message.verbose(algorithm + " OK for " + resource);
+        } catch (IOException ex) {
+            dest.delete();
+            throw ex;
         }
     }
 
@@ -28,7 +28,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -43,6 +49,7 @@ import org.apache.ivy.plugins.latest.ArtifactInfo;
 import org.apache.ivy.plugins.latest.LatestStrategy;
 import org.apache.ivy.plugins.resolver.util.HasLatestStrategy;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+import org.apache.ivy.util.ExecutorHelper;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.StringUtils;
 
@@ -67,12 +74,23 @@ public class ChainResolver extends AbstractResolver {
 
     }
 
+    /**
+     * The key of the flag telling, in the context of a parallel lookup, that its result is not
+     * needed anymore.
+     */
+    private static final String LOOKUP_CANCELLED_KEY = ChainResolver.class.getName()
+            + ".cancelled";
+
     private boolean returnFirst = false;
 
     private List chain = new ArrayList();
 
     private boolean dual;
 
+    private boolean parallel = false;
+
+    private ExecutorService executor;
+
     public void add(DependencyResolver resolver) {
         chain.add(resolver);
     }
@@ -95,25 +113,30 @@ public class ChainResolver extends AbstractResolver {
             }
         }
 
-        for (Iterator iter = chain.iterator(); iter.hasNext();) {
-            DependencyResolver resolver = (DependencyResolver) iter.next();
-            LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
-            try {
-                ResolvedModuleRevision previouslyResolved = mr;
-                data.setCurrentResolvedModuleRevision(previouslyResolved);
-                mr = resolver.getDependency(dd, data);
-                if (mr != previouslyResolved && isReturnFirst()) {
-                    mr = forcedRevision(mr);
-                }
-            } catch (Exception ex) {
-                Message.verbose("problem occurred while resolving " + dd + " with " + resolver, ex);
-                errors.add(ex);
-            } finally {
-                if (oldLatest != null) {
-                    setLatest(resolver, oldLatest);
+        if (isParallel() && chain.size() > 1 && canChange(dd, mr, 0)) {
+            mr = getDependencyInParallel(dd, data, mr, errors);
+        } else {
+            for (Iterator iter = chain.iterator(); iter.hasNext();) {
+                DependencyResolver resolver = (DependencyResolver) iter.next();
+                LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
+                try {
+                    ResolvedModuleRevision previouslyResolved = mr;
+                    data.setCurrentResolvedModuleRevision(previouslyResolved);
+                    mr = resolver.getDependency(dd, data);
+                    if (mr != previouslyResolved && isReturnFirst()) {
+                        mr = forcedRevision(mr);
+                    }
+                } catch (Exception ex) {
+                    Message.verbose("problem occurred while resolving " + dd + " with " + resolver,
+                        ex);
+                    errors.add(ex);
+                } finally {
+                    if (oldLatest != null) {
+                        setLatest(resolver, oldLatest);
+                    }
                 }
+                checkInterrupted();
             }
-            checkInterrupted();
         }
         if (mr == null && !errors.isEmpty()) {
             if (errors.size() == 1) {
@@ -143,6 +166,175 @@ public class ChainResolver extends AbstractResolver {
         return resolvedRevision(mr);
     }
 
+    /**
+     * Asks all the resolvers of the chain at once, each one being given the module revision
+     * resolved before the chain is traversed, and then combines their results in the chain order
+     * as a sequential traversal would do. Lookups are cancelled as soon as the result can't change
+     * anymore.
+     */
+    private ResolvedModuleRevision getDependencyInParallel(final DependencyDescriptor dd,
+            final ResolveData data, final ResolvedModuleRevision initial, List errors)
+            throws ParseException {
+        Message.verbose(getName() + ": querying " + chain.size() + " resolvers in parallel for "
+                + dd);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        LatestStrategy[] oldLatests = new LatestStrategy[chain.size()];
+        List futures = new ArrayList();
+        ResolvedModuleRevision mr = initial;
+        int winner = -1;
+        int found = 0;
+        int collected = 0;
+        try {
+            for (int i = 0; i < chain.size(); i++) {
+                final DependencyResolver resolver = (DependencyResolver) chain.get(i);
+                oldLatests[i] = setLatestIfRequired(resolver, getLatestStrategy());
+                futures.add(getExecutor().submit(
+                    ExecutorHelper.inCallerContext(new Callable() {
+                        public Object call() throws Exception {
+                            IvyContext.getContext().set(LOOKUP_CANCELLED_KEY, cancelled);
+                            if (cancelled.get()) {
+                                return initial;
+                            }
+                            ResolveData lookupData = new ResolveData(data, data.isValidate());
+                            lookupData.setCurrentResolvedModuleRevision(initial);
+                            return resolver.getDependency(dd, lookupData);
+                        }
+                    })));
+            }
+            for (int i = 0; i < chain.size() && canChange(dd, mr, i); i++) {
+                DependencyResolver resolver = (DependencyResolver) chain.get(i);
+                ResolvedModuleRevision rmr;
+                try {
+                    rmr = (ResolvedModuleRevision) ((Future) futures.get(i)).get();
+                } catch (ExecutionException e) {
+                    Exception ex = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    Message.verbose("problem occurred while resolving " + dd + " with " + resolver,
+                        ex);
+                    errors.add(ex);
+                    collected++;
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("operation interrupted");
+                }
+                collected++;
+                checkInterrupted();
+                if (rmr == initial) {
+                    continue;
+                }
+                found++;
+                if (mr == initial || isAfter(resolver, rmr, mr, data)) {
+                    mr = isReturnFirst() ? forcedRevision(rmr) : rmr;
+                    winner = i;
+                }
+            }
+        } finally {
+            // tell the lookups still running to stop, and wait for them: they must not write to
+            // the cache once the result is returned
+            cancelled.set(true);
+            waitForLookups(futures);
+            for (int i = 0; i < oldLatests.length; i++) {
+                if (oldLatests[i] != null) {
+                    setLatest((DependencyResolver) chain.get(i), oldLatests[i]);
+                }
+            }
+        }
+        if (winner != -1 && (found > 1 || collected < chain.size())
+                && chain.get(winner) instanceof AbstractResolver) {
+            // other lookups may have saved their own resolved revision, make sure the kept one
+            // is the saved one
+            ((AbstractResolver) chain.get(winner)).saveModuleRevisionIfNeeded(dd, mr);
+        }
+        return mr;
+    }
+
+    /**
+     * Waits for the given lookups to be done, whatever their outcome. The lookups are run as soon
+     * as they are submitted, so none of them is left waiting for a thread.
+     */
+    private void waitForLookups(List futures) {
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            while (true) {
+                try {
+                    ((Future) futures.get(i)).get();
+                    break;
+                } catch (ExecutionException e) {
+                    // already reported or not needed anymore
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tells whether resolvers starting at the given index in the chain could still change the
+     * given resolved module revision, as found by the previous resolvers.
+     */
+    private boolean canChange(DependencyDescriptor dd, ResolvedModuleRevision mr, int index) {
+        if (mr == null) {
+            return true;
+        }
+        boolean isDynamic = getSettings().getVersionMatcher().isDynamic(
+            dd.getDependencyRevisionId());
+        if (!mr.isForce() && (isDynamic || mr.getDescriptor().isDefault())) {
+            return true;
+        }
+        // resolvers return a forced or a fixed non default revision as is, unless they are forced
+        for (int i = index; i < chain.size(); i++) {
+            Object resolver = chain.get(i);
+            if (resolver instanceof BasicResolver && ((BasicResolver) resolver).isForce()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether a newly found module revision should replace the one found by previous
+     * resolvers, as {@link AbstractResolver#checkLatest(DependencyDescriptor, ResolvedModuleRevision,
+     * ResolveData)} does.
+     */
+    private boolean isAfter(DependencyResolver resolver, ResolvedModuleRevision newFound,
+            ResolvedModuleRevision previousFound, ResolveData data) {
+        if (newFound == null) {
+            return false;
+        }
+        if (previousFound == null) {
+            return true;
+        }
+        AbstractResolver comparator = resolver instanceof AbstractResolver
+                ? (AbstractResolver) resolver : this;
+        if (comparator.isAfter(newFound, previousFound, data.getDate())) {
+            return true;
+        }
+        return !newFound.getDescriptor().isDefault() && previousFound.getDescriptor().isDefault();
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = ExecutorHelper.newElasticThreadPool("chain-" + getName(), chain.size());
+        }
+        return executor;
+    }
+
+    /**
+     * Throws a runtime exception if the current thread is running a parallel lookup whose result
+     * is not needed anymore.
+     */
+    static void checkLookupCancelled() {
+        AtomicBoolean cancelled = (AtomicBoolean) IvyContext.getContext().get(
+            LOOKUP_CANCELLED_KEY);
+        if (cancelled != null && cancelled.get()) {
+            throw new RuntimeException("lookup cancelled");
+        }
+    }
+
     private ResolvedModuleRevision resolvedRevision(ResolvedModuleRevision mr) {
         if (isDual() && mr != null) {
             return new ResolvedModuleRevision(mr.getResolver(), this, mr.getDescriptor(),
@@ -271,10 +463,26 @@ public class ChainResolver extends AbstractResolver {
         this.returnFirst = returnFirst;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether all the resolvers of the chain are asked for a module at the same time, instead
+     * of one after the other. The returned module revision is the same in both modes.
+     * 
+     * @param parallel
+     *            true to ask resolvers in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     public void dumpSettings() {
         Message.verbose("\t" + getName() + " [chain] " + chain);
         Message.debug("\t\treturn first: " + isReturnFirst());
         Message.debug("\t\tdual: " + isDual());
+        Message.debug("\t\tparallel: " + isParallel());
         for (Iterator iter = chain.iterator(); iter.hasNext();) {
             DependencyResolver r = (DependencyResolver) iter.next();
             Message.debug("\t\t-> " + r.getName());
@@ -29,7 +29,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -37,11 +40,13 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
+import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.repository.AbstractRepository;
 import org.apache.ivy.plugins.repository.Repository;
 import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.plugins.resolver.util.ListingCache;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
 import org.apache.ivy.plugins.resolver.util.ResolverHelper;
 import org.apache.ivy.plugins.resolver.util.ResourceMDParser;
@@ -93,9 +98,17 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
                 String resourceName = IvyPatternHelper.substitute(pattern, mrid, artifact);
                 Message.debug("\t trying " + resourceName);
                 logAttempt(resourceName);
+                if (!versionMatcher.isDynamic(mrid) && isKnownMissing(mrid, resourceName)) {
+                    Message.debug("\t" + name + ": resource known to be missing for " + mrid
+                            + ": res=" + resourceName);
+                    return null;
+                }
                 Resource res = repository.getResource(resourceName);
                 boolean reachable = res.exists();
                 if (reachable) {
+                    if (!versionMatcher.isDynamic(mrid)) {
+                        removeMissing(mrid, resourceName);
+                    }
                     String revision;
                     if (pattern.indexOf(IvyPatternHelper.REVISION_KEY) == -1) {
                         if ("ivy".equals(artifact.getType()) || "pom".equals(artifact.getType())) {
@@ -124,6 +137,7 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
                 } else {
                     Message.debug("\t" + name + ": resource not reachable for " + mrid + ": res="
                             + res);
+                    saveMissing(mrid, resourceName);
                     return null;
                 }
             } else {
@@ -138,6 +152,33 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
         }
     }
 
+    private boolean isKnownMissing(ModuleRevisionId mrid, String resourceName) {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (!(cacheManager instanceof DefaultRepositoryCacheManager)
+                || (data != null && data.getOptions().isRefresh())) {
+            return false;
+        }
+        return ((DefaultRepositoryCacheManager) cacheManager).isKnownMissing(getName(), mrid,
+            resourceName);
+    }
+
+    private void saveMissing(ModuleRevisionId mrid, String resourceName) {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (cacheManager instanceof DefaultRepositoryCacheManager) {
+            ((DefaultRepositoryCacheManager) cacheManager).saveMissing(getName(), mrid,
+                resourceName);
+        }
+    }
+
+    private void removeMissing(ModuleRevisionId mrid, String resourceName) {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (cacheManager instanceof DefaultRepositoryCacheManager) {
+            ((DefaultRepositoryCacheManager) cacheManager).removeMissing(getName(), mrid,
+                resourceName);
+        }
+    }
+
     private ResolvedResource findDynamicResourceUsingPattern(ResourceMDParser rmdparser,
             ModuleRevisionId mrid, String pattern, Artifact artifact, Date date) {
         String name = getName();
@@ -181,7 +222,32 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
      */
     protected ResolvedResource[] listResources(Repository repository, ModuleRevisionId mrid,
             String pattern, Artifact artifact) {
-        return ResolverHelper.findAll(repository, mrid, pattern, artifact);
+        return ResolverHelper.findAll(repository, mrid, pattern, artifact, getListingCache());
+    }
+
+    /**
+     * Returns the cache keeping the listings made by this resolver from one resolve to the next, or
+     * <code>null</code> if they shouldn't be kept.
+     */
+    private ListingCache getListingCache() {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (!(cacheManager instanceof DefaultRepositoryCacheManager)
+                || ((DefaultRepositoryCacheManager) cacheManager).getListingTTL() <= 0
+                || (data != null && data.getOptions().isRefresh())) {
+            return null;
+        }
+        final DefaultRepositoryCacheManager cache = (DefaultRepositoryCacheManager) cacheManager;
+        final String name = getName();
+        return new ListingCache() {
+            public List getListing(String parent) {
+                return cache.getCachedListing(name, parent);
+            }
+
+            public void saveListing(String parent, List listing) {
+                cache.saveListing(name, parent, listing);
+            }
+        };
     }
 
     protected long get(Resource resource, File dest) throws IOException {
@@ -0,0 +1,49 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.resolver.util;
+
+import java.util.List;
+
+/**
+ * A cache of the listings of a repository, kept from one resolve to the next.
+ * 
+ * @see ResolverHelper#listTokenValues(org.apache.ivy.plugins.repository.Repository, String,
+ *      String, ListingCache)
+ */
+public interface ListingCache {
+    /**
+     * Returns the cached listing of the given location, or <code>null</code> if there is none up
+     * to date.
+     * 
+     * @param parent
+     *            the listed location
+     * @return the names of the resources found in the location, as returned by
+     *         {@link org.apache.ivy.plugins.repository.Repository#list(String)}
+     */
+    List getListing(String parent);
+
+    /**
+     * Saves the listing of the given location.
+     * 
+     * @param parent
+     *            the listed location
+     * @param listing
+     *            the names of the resources found in the location
+     */
+    void saveListing(String parent, List listing);
+}
@@ -27,19 +27,36 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.plugins.repository.Repository;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.util.Message;
 
 public final class ResolverHelper {
+    // marks the locations which couldn't be listed in the listings of a resolve
+    private static final List NO_LISTING = new ArrayList(0);
+
     private ResolverHelper() {
     }
 
     // lists all the values a token can take in a pattern, as listed by a given url lister
     public static String[] listTokenValues(Repository rep, String pattern, String token) {
+        return listTokenValues(rep, pattern, token, null);
+    }
+
+    /**
+     * Lists all the values a token can take in a pattern, as listed by the given repository.
+     * <p>
+     * The listings of the repository are kept for the duration of the current resolve, if any, and
+     * in the given listing cache, if any.
+     * </p>
+     */
+    public static String[] listTokenValues(Repository rep, String pattern, String token,
+            ListingCache listingCache) {
         String fileSep = rep.getFileSeparator();
         pattern = rep.standardize(pattern);
         String tokenString = IvyPatternHelper.getTokenString(token);
@@ -54,14 +71,14 @@ public final class ResolverHelper {
                 && (index == 0 || fileSep.equals(pattern.substring(index - 1, index)))) {
             // the searched token is a whole name
             String root = pattern.substring(0, index);
-            return listAll(rep, root);
+            return listAll(rep, root, listingCache);
         } else {
             int slashIndex = pattern.substring(0, index).lastIndexOf(fileSep);
             String root = slashIndex == -1 ? "" : pattern.substring(0, slashIndex);
 
             try {
                 Message.debug("\tusing " + rep + " to list all in " + root);
-                List all = rep.list(root);
+                List all = list(rep, root, listingCache);
                 if (all != null) {
                     Message.debug("\t\tfound " + all.size() + " urls");
                     List ret = new ArrayList(all.size());
@@ -99,10 +116,14 @@ public final class ResolverHelper {
     }
 
     public static String[] listAll(Repository rep, String parent) {
+        return listAll(rep, parent, null);
+    }
+
+    public static String[] listAll(Repository rep, String parent, ListingCache listingCache) {
         try {
             String fileSep = rep.getFileSeparator();
             Message.debug("\tusing " + rep + " to list all in " + parent);
-            List all = rep.list(parent);
+            List all = list(rep, parent, listingCache);
             if (all != null) {
                 Message.debug("\t\tfound " + all.size() + " resources");
                 List names = new ArrayList(all.size());
@@ -128,8 +149,66 @@ public final class ResolverHelper {
         }
     }
 
+    /**
+     * Lists the given location of the given repository, reusing the listing made earlier in the
+     * current resolve or saved in the given listing cache, if any.
+     */
+    private static List list(Repository rep, String parent, ListingCache listingCache)
+            throws IOException {
+        ResolveData data = IvyContext.getContext().getResolveData();
+        List key = Arrays.asList(new Object[] {rep, parent});
+        List all = data == null ? null : data.getListing(key);
+        if (all == NO_LISTING) {
+            return null;
+        }
+        if (all == null) {
+            all = listingCache == null ? null : listingCache.getListing(parent);
+            if (all == null) {
+                all = rep.list(parent);
+                if (all != null && listingCache != null) {
+                    listingCache.saveListing(parent, all);
+                }
+            } else {
+                Message.debug("\t\tusing cached listing of " + parent);
+            }
+            if (data != null) {
+                data.setListing(key, all == null ? NO_LISTING : all);
+            }
+        } else {
+            Message.debug("\t\tusing listing of " + parent + " made during this resolve");
+        }
+        return all;
+    }
+
+    private static List list(URLLister lister, URL root) throws IOException {
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (data == null) {
+            return lister.listAll(root);
+        }
+        List key = Arrays.asList(new Object[] {lister, root.toExternalForm()});
+        List all = data.getListing(key);
+        if (all == null) {
+            all = lister.listAll(root);
+            if (all != null) {
+                data.setListing(key, all);
+            }
+        } else {
+            Message.debug("\t\tusing listing of " + root + " made during this resolve");
+        }
+        return all;
+    }
+
     public static ResolvedResource[] findAll(Repository rep, ModuleRevisionId mrid, String pattern,
             Artifact artifact) {
+        return findAll(rep, mrid, pattern, artifact, null);
+    }
+
+    /**
+     * Finds all the resources matching the given pattern for all the revisions of the given
+     * module, using the given listing cache, if any, to list them.
+     */
+    public static ResolvedResource[] findAll(Repository rep, ModuleRevisionId mrid, String pattern,
+            Artifact artifact, ListingCache listingCache) {
         // substitute all but revision
         String partiallyResolvedPattern = IvyPatternHelper.substitute(
             pattern,
@@ -138,7 +217,7 @@ public final class ResolverHelper {
         Message.debug("\tlisting all in " + partiallyResolvedPattern);
 
         String[] revs = listTokenValues(rep, partiallyResolvedPattern,
-            IvyPatternHelper.REVISION_KEY);
+            IvyPatternHelper.REVISION_KEY, listingCache);
         if (revs != null) {
             Message.debug("\tfound revs: " + Arrays.asList(revs));
             List ret = new ArrayList(revs.length);
@@ -271,7 +350,7 @@ public final class ResolverHelper {
 
                 try {
                     Message.debug("\tusing " + lister + " to list all in " + root);
-                    List all = lister.listAll(new URL(root));
+                    List all = list(lister, new URL(root));
                     Message.debug("\t\tfound " + all.size() + " urls");
                     List ret = new ArrayList(all.size());
                     int endNameIndex = pattern.indexOf('/', slashIndex + 1);
@@ -313,7 +392,7 @@ public final class ResolverHelper {
         try {
             if (lister.accept(root.toExternalForm())) {
                 Message.debug("\tusing " + lister + " to list all in " + root);
-                List all = lister.listAll(root);
+                List all = list(lister, root);
                 Message.debug("\t\tfound " + all.size() + " urls");
                 List names = new ArrayList(all.size());
                 for (Iterator iter = all.iterator(); iter.hasNext();) {
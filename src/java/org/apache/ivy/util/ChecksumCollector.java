@@ -0,0 +1,165 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the checksums of a file while it is written by a download, so that it doesn't have to
+ * be read again to check them.
+ * <p>
+ * A collector is started for a file in the thread downloading it. The content written to this file
+ * by {@link FileUtil#copy(java.io.InputStream, File, CopyProgressListener)} in this thread is then
+ * digested as it arrives. When the file is written another way, for instance by a repository
+ * which doesn't copy the content through {@link FileUtil}, the checksums aren't available and must
+ * be computed from the file with {@link ChecksumHelper#computeAsString(File, String)}.
+ * </p>
+ */
+public final class ChecksumCollector {
+
+    private static final ThreadLocal/* <ChecksumCollector> */CURRENT = new ThreadLocal();
+
+    private final File file;
+
+    private final String[] algorithms;
+
+    private MessageDigest[] digests;
+
+    // the number of bytes digested since the file was last opened, -1 if it hasn't been
+    private long length = -1;
+
+    private final Map/* <String, String> */checksums = new HashMap();
+
+    private ChecksumCollector(File file, String[] algorithms) {
+        this.file = file;
+        this.algorithms = algorithms;
+    }
+
+    /**
+     * Starts collecting the checksums of the given file in the current thread.
+     *
+     * @param file
+     *            the file which is about to be downloaded
+     * @param algorithms
+     *            the checksum algorithms to compute
+     * @return the collector, which must be stopped once the download is done
+     */
+    public static ChecksumCollector start(File file, String[] algorithms) {
+        for (int i = 0; i < algorithms.length; i++) {
+            if (!ChecksumHelper.isKnownAlgorithm(algorithms[i])) {
+                throw new IllegalArgumentException("Unknown checksum algorithm: "
+                        + algorithms[i]);
+            }
+        }
+        ChecksumCollector collector = new ChecksumCollector(file, algorithms);
+        CURRENT.set(collector);
+        return collector;
+    }
+
+    /**
+     * Stops collecting checksums in the current thread. The checksums collected so far remain
+     * available.
+     */
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.set(null);
+        }
+    }
+
+    /**
+     * Returns a stream digesting what is written to the given stream, if the checksums of the given
+     * file are collected in the current thread. Returns the given stream otherwise.
+     *
+     * @param dest
+     *            the file opened for writing
+     * @param out
+     *            the stream writing to this file from its start
+     */
+    static OutputStream collect(File dest, OutputStream out) {
+        ChecksumCollector collector = (ChecksumCollector) CURRENT.get();
+        if (collector == null || !collector.file.equals(dest)) {
+            return out;
+        }
+        return collector.newStream(out);
+    }
+
+    private synchronized OutputStream newStream(OutputStream out) {
+        // the file is written again from its start
+        digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            digests[i] = ChecksumHelper.getMessageDigest(algorithms[i]);
+        }
+        length = 0;
+        checksums.clear();
+        final MessageDigest[] streamDigests = digests;
+        return new FilterOutputStream(out) {
+            public void write(int b) throws IOException {
+                out.write(b);
+                update(streamDigests, new byte[] {(byte) b}, 0, 1);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                update(streamDigests, b, off, len);
+            }
+        };
+    }
+
+    private synchronized void update(MessageDigest[] streamDigests, byte[] b, int off, int len) {
+        if (streamDigests != digests) {
+            // the file has been opened again meanwhile
+            return;
+        }
+        for (int i = 0; i < streamDigests.length; i++) {
+            streamDigests[i].update(b, off, len);
+        }
+        length += len;
+    }
+
+    /**
+     * Returns the checksum of the whole file computed with the given algorithm, or
+     * <code>null</code> if it hasn't been collected or if the file doesn't match what has been
+     * digested.
+     *
+     * @param algorithm
+     *            one of the algorithms given to {@link #start(File, String[])}
+     * @return the checksum as an hexadecimal string, or <code>null</code>
+     */
+    public synchronized String getChecksum(String algorithm) {
+        if (length < 0 || length != file.length()) {
+            return null;
+        }
+        String checksum = (String) checksums.get(algorithm);
+        if (checksum == null) {
+            for (int i = 0; i < algorithms.length; i++) {
+                if (algorithms[i].equals(algorithm)) {
+                    checksum = ChecksumHelper.byteArrayToHexString(digests[i].digest());
+                    checksums.put(algorithm, checksum);
+                    break;
+                }
+            }
+        }
+        return checksum;
+    }
+}
@@ -53,6 +53,25 @@ public final class ChecksumHelper {
      *             if an IO problem occur whle reading files or if the checksum is not compliant
      */
     public static void check(File dest, File checksumFile, String algorithm) throws IOException {
+        check(computeAsString(dest, algorithm), checksumFile, algorithm);
+    }
+
+    /**
+     * Checks the given checksum, already computed, against the given checksumFile, and throws an
+     * IOException if the checksum is not compliant
+     * 
+     * @param computed
+     *            the checksum of the file to test, as an hexadecimal string
+     * @param checksumFile
+     *            the file containing the expected checksum
+     * @param algorithm
+     *            the checksum algorithm used
+     * @throws IOException
+     *             if an IO problem occur whle reading the checksum file or if the checksum is not
+     *             compliant
+     */
+    public static void check(String computed, File checksumFile, String algorithm)
+            throws IOException {
         String csFileContent = FileUtil
                 .readEntirely(new BufferedReader(new FileReader(checksumFile))).trim()
                 .toLowerCase(Locale.US);
@@ -83,7 +102,7 @@ public final class ChecksumHelper {
             }
         }
 
-        String computed = computeAsString(dest, algorithm).trim().toLowerCase(Locale.US);
+        computed = computed.trim().toLowerCase(Locale.US);
         if (!expected.equals(computed)) {
             throw new IOException("invalid " + algorithm + ": expected=" + expected + " computed="
                     + computed);
@@ -116,7 +135,7 @@ public final class ChecksumHelper {
         return algorithms.containsKey(algorithm);
     }
 
-    private static MessageDigest getMessageDigest(String algorithm) {
+    static MessageDigest getMessageDigest(String algorithm) {
         String mdAlgorithm = (String) algorithms.get(algorithm);
         if (mdAlgorithm == null) {
             throw new IllegalArgumentException("unknown algorithm " + algorithm);
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ivy.core.IvyContext;
+
+/**
+ * Utility methods to run Ivy work on a bounded pool of threads.
+ * <p>
+ * The {@link IvyContext} and the stack of message loggers are bound to the thread which created
+ * them, so worker threads don't see them. Tasks wrapped with {@link #inCallerContext(Callable)} run
+ * with a copy of the submitting thread context and log through the logger which was current in the
+ * submitting thread.
+ * </p>
+ */
+public final class ExecutorHelper {
+
+    private static final long IDLE_TIMEOUT = 60;
+
+    private ExecutorHelper() {
+    }
+
+    /**
+     * Creates a pool of <code>threads</code> daemon threads, named after the given name.
+     *
+     * @param name
+     *            the name used to build the name of the pool threads
+     * @param threads
+     *            the maximum number of threads in the pool. Must be strictly positive.
+     * @return a new executor service
+     */
+    public static ExecutorService newFixedThreadPool(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, newThreadFactory(name));
+    }
+
+    /**
+     * Creates a pool of at most <code>threads</code> daemon threads, named after the given name,
+     * which are stopped when idle. Tasks submitted while all the threads are busy run in the
+     * submitting thread.
+     *
+     * @param name
+     *            the name used to build the name of the pool threads
+     * @param threads
+     *            the maximum number of threads in the pool. Must be strictly positive.
+     * @return a new executor service
+     */
+    public static ExecutorService newElasticThreadPool(String name, int threads) {
+        return new ThreadPoolExecutor(0, threads, IDLE_TIMEOUT, TimeUnit.SECONDS,
+                new SynchronousQueue(), newThreadFactory(name),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ivy-" + name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Wraps the given task so that it runs in a copy of the current {@link IvyContext}, with the
+     * current message logger.
+     * <p>
+     * This method must be called in the thread submitting the task.
+     * </p>
+     *
+     * @param task
+     *            the task to wrap
+     * @return a task which can be run in any thread
+     */
+    public static Callable inCallerContext(final Callable task) {
+        final IvyContext callerContext = IvyContext.getContext();
+        final MessageLogger callerLogger = getCurrentLogger();
+        return new Callable() {
+            public Object call() throws Exception {
+                IvyContext.pushContext(new IvyContext(callerContext));
+                MessageLogger logger = IvyContext.getContext().getMessageLogger();
+                boolean pushed = false;
+                if (logger instanceof MessageLoggerEngine && callerLogger != null) {
+                    ((MessageLoggerEngine) logger).pushLogger(callerLogger);
+                    pushed = true;
+                }
+                try {
+                    return task.call();
+                } finally {
+                    if (pushed) {
+                        ((MessageLoggerEngine) logger).popLogger();
+                    }
+                    IvyContext.popContext();
+                }
+            }
+        };
+    }
+
+    /**
+     * Shuts the given executor down, interrupting running tasks. Does nothing if executor is
+     * <code>null</code>.
+     *
+     * @param executor
+     *            the executor to shut down, may be <code>null</code>
+     */
+    public static void shutdown(ExecutorService executor) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static MessageLogger getCurrentLogger() {
+        MessageLogger logger = IvyContext.getContext().getMessageLogger();
+        if (logger instanceof MessageLoggerEngine) {
+            return ((MessageLoggerEngine) logger).peekLogger();
+        }
+        return logger;
+    }
+}
@@ -25,7 +25,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -50,13 +53,39 @@ public final class FileUtil {
     }
 
     // according to tests by users, 64kB seems to be a good value for the buffer used during copy
-    // further improvements could be obtained using NIO API
+    // file to file copies without listener use NIO file channels instead
     private static final int BUFFER_SIZE = 64 * 1024;
 
     private static final byte[] EMPTY_BUFFER = new byte[0];
 
+    // the maximum number of bytes transferred at once between file channels, so that an
+    // interruption is noticed during the copy of big files
+    private static final long TRANSFER_SIZE = 16 * 1024 * 1024;
+
     private static final Pattern ALLOWED_PATH_PATTERN = Pattern.compile("[\\w-./\\\\:~ %\\(\\)]+");
 
+    // File.toPath() and Files.createLink(Path, Path), when available
+    private static final Method TO_PATH;
+
+    private static final Method CREATE_LINK;
+
+    static {
+        Method toPath = null;
+        Method createLink = null;
+        try {
+            Class pathClass = Class.forName("java.nio.file.Path");
+            toPath = File.class.getMethod("toPath", (Class[]) null);
+            createLink = Class.forName("java.nio.file.Files").getMethod("createLink",
+                new Class[] {pathClass, pathClass});
+        } catch (Exception e) {
+            // hard links are not supported by this JVM
+            toPath = null;
+            createLink = null;
+        }
+        TO_PATH = toPath;
+        CREATE_LINK = createLink;
+    }
+
     public static void symlinkInMass(Map/* <File, File> */destToSrcMap, boolean overwrite)
             throws IOException {
 
@@ -210,7 +239,12 @@ public final class FileUtil {
             return deepCopy(src, dest, l, overwrite);
         }
         // else it is a file copy
-        copy(new FileInputStream(src), dest, l);
+        if (l == null) {
+            // nobody listens to the progress, let the file system do the copy if it can
+            transfer(src, dest);
+        } else {
+            copy(new FileInputStream(src), dest, l);
+        }
         long srcLen = src.length();
         long destLen = dest.length();
         if (srcLen != destLen) {
@@ -223,6 +257,85 @@ public final class FileUtil {
         return true;
     }
 
+    private static void transfer(File src, File dest) throws IOException {
+        FileInputStream in = new FileInputStream(src);
+        try {
+            FileOutputStream out = new FileOutputStream(dest);
+            try {
+                FileChannel inChannel = in.getChannel();
+                FileChannel outChannel = out.getChannel();
+                long size = inChannel.size();
+                long position = 0;
+                while (position < size) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IOException("transfer interrupted");
+                    }
+                    long count = inChannel.transferTo(position,
+                        Math.min(TRANSFER_SIZE, size - position), outChannel);
+                    if (count <= 0) {
+                        // the file has been truncated meanwhile, the size check will fail
+                        break;
+                    }
+                    position += count;
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates a hard link named <code>dest</code> to the file <code>src</code>, or copies it if a
+     * hard link can't be created, for instance because both files are not on the same file system,
+     * or because <code>src</code> is a directory.
+     * <p>
+     * Hard links are created with the file API of Java 7 and above: with older JVMs the file is
+     * always copied.
+     * </p>
+     * <p>
+     * Note that the content of a hard link is shared with the source file: writing to
+     * <code>dest</code> afterwards modifies <code>src</code> too.
+     * </p>
+     * 
+     * @param src
+     *            the file to link to
+     * @param dest
+     *            the link to create
+     * @param l
+     *            the listener to notify of the progress of the copy, if the file is copied
+     * @param overwrite
+     *            true to replace an existing <code>dest</code> file
+     * @return false if <code>dest</code> already exists and <code>overwrite</code> is false, true
+     *         otherwise
+     * @throws IOException
+     *             if neither a link nor a copy could be created
+     */
+    public static boolean hardLink(File src, File dest, CopyProgressListener l, boolean overwrite)
+            throws IOException {
+        if (src.isDirectory() || CREATE_LINK == null) {
+            return copy(src, dest, l, overwrite);
+        }
+        if (!prepareCopy(src, dest, overwrite)) {
+            return false;
+        }
+        if (dest.exists() && !dest.delete()) {
+            throw new IOException("impossible to replace " + dest);
+        }
+        try {
+            CREATE_LINK.invoke(null, new Object[] {TO_PATH.invoke(dest, (Object[]) null),
+                    TO_PATH.invoke(src, (Object[]) null)});
+            return true;
+        } catch (InvocationTargetException e) {
+            Message.verbose("hard link of " + src + " failed; falling back to copy: "
+                    + e.getCause());
+        } catch (IllegalAccessException e) {
+            Message.verbose("hard link of " + src + " failed; falling back to copy: " + e);
+        }
+        return copy(src, dest, l, overwrite);
+    }
+
     public static boolean deepCopy(File src, File dest, CopyProgressListener l, boolean overwrite)
             throws IOException {
         // the list of files which already exist in the destination folder
@@ -279,7 +392,7 @@ public final class FileUtil {
         if (dest.getParentFile() != null) {
             dest.getParentFile().mkdirs();
         }
-        copy(src, new FileOutputStream(dest), l);
+        copy(src, ChecksumCollector.collect(dest, new FileOutputStream(dest)), l);
     }
 
     public static void copy(InputStream src, OutputStream dest, CopyProgressListener l)
@@ -18,6 +18,7 @@
 package org.apache.ivy.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
@@ -38,11 +39,11 @@ public class MessageLoggerEngine implements MessageLogger {
 
     private MessageLogger defaultLogger = null;
 
-    private List problems = new ArrayList();
+    private List problems = Collections.synchronizedList(new ArrayList());
 
-    private List warns = new ArrayList();
+    private List warns = Collections.synchronizedList(new ArrayList());
 
-    private List errors = new ArrayList();
+    private List errors = Collections.synchronizedList(new ArrayList());
 
     private Stack getLoggerStack() {
         Stack stack = (Stack) loggerStacks.get();
@@ -52,6 +52,10 @@ public class PropertiesFile extends Properties {
         }
     }
 
+    public File getFile() {
+        return file;
+    }
+
     public void save() {
         FileOutputStream fos = null;
         try {
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -42,6 +43,10 @@ public class ApacheURLLister {
         "<a[^>]*href=\"([^\"]*)\"[^>]*>(?:<[^>]+>)*?([^<>]+?)(?:<[^>]+>)*?</a>",
         Pattern.CASE_INSENSITIVE);
 
+    private static final int HREF_LENGTH = "href=\"".length();
+
+    private static final int CLOSE_LENGTH = "</a>".length();
+
     // ~ Methods ----------------------------------------------------------------
 
     /**
@@ -114,84 +119,190 @@ public class ApacheURLLister {
 
         String htmlText = FileUtil.readEntirely(r);
 
-        Matcher matcher = PATTERN.matcher(htmlText);
-
-        while (matcher.find()) {
-            // get the href text and the displayed text
-            String href = matcher.group(1);
-            String text = matcher.group(2);
-
-            if ((href == null) || (text == null)) {
-                // the groups were not found (shouldn't happen, really)
+        List links = findLinks(htmlText);
+        for (Iterator iter = links.iterator(); iter.hasNext();) {
+            String[] link = (String[]) iter.next();
+            String href = getChildHref(url, link[0], link[1]);
+            if (href == null) {
                 continue;
             }
 
-            text = text.trim();
+            boolean directory = href.endsWith("/");
 
-            // handle complete URL listings
-            if (href.startsWith("http:") || href.startsWith("https:")) {
-                try {
-                    href = new URL(href).getPath();
-                    if (!href.startsWith(url.getPath())) {
-                        // ignore URLs which aren't children of the base URL
-                        continue;
-                    }
-                    href = href.substring(url.getPath().length());
-                } catch (Exception ignore) {
-                    // incorrect URL, ignore
-                    continue;
-                }
+            if ((directory && includeDirectories) || (!directory && includeFiles)) {
+                URL child = new URL(url, href);
+                urlList.add(child);
+                Message.debug("ApacheURLLister found URL=[" + child + "].");
             }
+        }
+
+        return urlList;
+    }
 
-            if (href.startsWith("../")) {
-                // we are only interested in sub-URLs, not parent URLs, so skip this one
+    /**
+     * Finds the links of the given html text, as an array of their href and their displayed text.
+     * <p>
+     * The links are found by a simple scan of the text, which handles the anchors made of an
+     * opening tag with a single href attribute and of a single text, maybe surrounded by other
+     * tags, like in the listings of the usual servers. The other anchors are matched with a
+     * regular expression from their position, so that the result is the same as if the whole text
+     * was matched with it, while large listings don't pay for the backtracking of the regular
+     * expression on every anchor.
+     * </p>
+     */
+    static List/* <String[]> */findLinks(String htmlText) {
+        List links = new ArrayList();
+        Matcher matcher = null;
+        int length = htmlText.length();
+        int index = htmlText.indexOf('<');
+        while (index != -1 && index + 1 < length) {
+            char c = htmlText.charAt(index + 1);
+            if (c != 'a' && c != 'A') {
+                index = htmlText.indexOf('<', index + 1);
                 continue;
             }
-
-            // absolute href: convert to relative one
-            if (href.startsWith("/")) {
-                int slashIndex = href.substring(0, href.length() - 1).lastIndexOf('/');
-                href = href.substring(slashIndex + 1);
+            int tagEnd = htmlText.indexOf('>', index + 2);
+            if (tagEnd == -1) {
+                break;
             }
-
-            // relative to current href: convert to simple relative one
-            if (href.startsWith("./")) {
-                href = href.substring("./".length());
+            int hrefIndex = indexOfIgnoreCase(htmlText, "href=\"", index + 2, tagEnd);
+            if (hrefIndex == -1) {
+                // not an anchor with a link
+                index = htmlText.indexOf('<', index + 1);
+                continue;
             }
-
-            // exclude those where they do not match
-            // href will never be truncated, text may be truncated by apache
-            if (text.endsWith("..>")) {
-                // text is probably truncated, we can only check if the href starts with text
-                if (!href.startsWith(text.substring(0, text.length() - 3))) {
-                    continue;
+            int hrefEnd = htmlText.indexOf('"', hrefIndex + HREF_LENGTH);
+            int closeIndex = indexOfIgnoreCase(htmlText, "</a>", tagEnd + 1, length);
+            String text = hrefEnd == -1 || hrefEnd > tagEnd || closeIndex == -1
+                    || indexOfIgnoreCase(htmlText, "href=\"", hrefIndex + 1, tagEnd) != -1 ? null
+                    : getSingleText(htmlText, tagEnd + 1, closeIndex);
+            if (text != null) {
+                links.add(new String[] {htmlText.substring(hrefIndex + HREF_LENGTH, hrefEnd),
+                        text});
+                index = htmlText.indexOf('<', closeIndex + CLOSE_LENGTH);
+            } else {
+                // not a simple anchor, let the regular expression decide
+                if (matcher == null) {
+                    matcher = PATTERN.matcher(htmlText);
                 }
-            } else if (text.endsWith("..&gt;")) {
-                // text is probably truncated, we can only check if the href starts with text
-                if (!href.startsWith(text.substring(0, text.length() - 6))) {
-                    continue;
+                if (!matcher.find(index)) {
+                    break;
                 }
+                links.add(new String[] {matcher.group(1), matcher.group(2)});
+                index = htmlText.indexOf('<', matcher.end());
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Returns the only text of the given region, which must otherwise be made of tags, or
+     * <code>null</code> if it contains something else.
+     */
+    private static String getSingleText(String htmlText, int start, int end) {
+        String text = null;
+        int index = start;
+        while (index < end) {
+            if (htmlText.charAt(index) == '<') {
+                int tagEnd = htmlText.indexOf('>', index + 1);
+                if (tagEnd == -1 || tagEnd >= end || tagEnd == index + 1) {
+                    return null;
+                }
+                index = tagEnd + 1;
             } else {
-                // text is not truncated, so it must match the url after stripping optional
-                // trailing slashes
-                String strippedHref = href.endsWith("/") ? href.substring(0, href.length() - 1)
-                        : href;
-                String strippedText = text.endsWith("/") ? text.substring(0, text.length() - 1)
-                        : text;
-                if (!strippedHref.equalsIgnoreCase(strippedText)) {
-                    continue;
+                if (text != null) {
+                    return null;
                 }
+                int textEnd = index;
+                while (textEnd < end && htmlText.charAt(textEnd) != '<') {
+                    if (htmlText.charAt(textEnd) == '>') {
+                        return null;
+                    }
+                    textEnd++;
+                }
+                text = htmlText.substring(index, textEnd);
+                index = textEnd;
             }
+        }
+        return text;
+    }
 
-            boolean directory = href.endsWith("/");
+    private static int indexOfIgnoreCase(String text, String searched, int from, int to) {
+        for (int i = from; i <= to - searched.length(); i++) {
+            if (text.regionMatches(true, i, searched, 0, searched.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-            if ((directory && includeDirectories) || (!directory && includeFiles)) {
-                URL child = new URL(url, href);
-                urlList.add(child);
-                Message.debug("ApacheURLLister found URL=[" + child + "].");
+    /**
+     * Returns the href, relative to the given url, of the child designated by the given link, or
+     * <code>null</code> if the link doesn't designate a child.
+     */
+    private String getChildHref(URL url, String href, String text) {
+        if ((href == null) || (text == null)) {
+            // the groups were not found (shouldn't happen, really)
+            return null;
+        }
+
+        text = text.trim();
+
+        // handle complete URL listings
+        if (href.startsWith("http:") || href.startsWith("https:")) {
+            try {
+                href = new URL(href).getPath();
+                if (!href.startsWith(url.getPath())) {
+                    // ignore URLs which aren't children of the base URL
+                    return null;
+                }
+                href = href.substring(url.getPath().length());
+            } catch (Exception ignore) {
+                // incorrect URL, ignore
+                return null;
             }
         }
 
-        return urlList;
+        if (href.startsWith("../")) {
+            // we are only interested in sub-URLs, not parent URLs, so skip this one
+            return null;
+        }
+
+        // absolute href: convert to relative one
+        if (href.startsWith("/")) {
+            int slashIndex = href.substring(0, href.length() - 1).lastIndexOf('/');
+            href = href.substring(slashIndex + 1);
+        }
+
+        // relative to current href: convert to simple relative one
+        if (href.startsWith("./")) {
+            href = href.substring("./".length());
+        }
+
+        // exclude those where they do not match
+        // href will never be truncated, text may be truncated by apache
+        if (text.endsWith("..>")) {
+            // text is probably truncated, we can only check if the href starts with text
+            if (!href.startsWith(text.substring(0, text.length() - 3))) {
+                return null;
+            }
+        } else if (text.endsWith("..&gt;")) {
+            // text is probably truncated, we can only check if the href starts with text
+            if (!href.startsWith(text.substring(0, text.length() - 6))) {
+                return null;
+            }
+        } else {
+            // text is not truncated, so it must match the url after stripping optional
+            // trailing slashes
+            String strippedHref = href.endsWith("/") ? href.substring(0, href.length() - 1)
+                    : href;
+            String strippedText = text.endsWith("/") ? text.substring(0, text.length() - 1)
+                    : text;
+            if (!strippedHref.equalsIgnoreCase(strippedText)) {
+                return null;
+            }
+        }
+
+        return href;
     }
 }
@@ -47,6 +47,7 @@ import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.util.CopyProgressListener;
@@ -270,6 +271,13 @@ public class HttpClientHandler extends AbstractURLHandler {
     private HttpClient getClient() {
         if (httpClient == null) {
             final MultiThreadedHttpConnectionManager connManager = new MultiThreadedHttpConnectionManager();
+            int maxPerHost = URLHandlerRegistry.getMaxConnectionsPerHost();
+            if (maxPerHost > 0) {
+                HttpConnectionManagerParams params = connManager.getParams();
+                params.setDefaultMaxConnectionsPerHost(maxPerHost);
+                params.setMaxTotalConnections(Math.max(maxPerHost,
+                    params.getMaxTotalConnections()));
+            }
             httpClient = new HttpClient(connManager);
 
             Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
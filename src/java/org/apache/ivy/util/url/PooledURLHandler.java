@@ -0,0 +1,550 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util.url;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import org.apache.ivy.util.CopyProgressListener;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * An http url handler which keeps connections alive and limits the number of concurrent
+ * connections to each host.
+ * <p>
+ * Connections are reused through the keep-alive cache of the jdk: response bodies are always read
+ * entirely, and connections are only disconnected when an error occurs.
+ * </p>
+ * <p>
+ * Small metadata files (ivy files, poms, checksums, ...) are usually checked for existence and
+ * then downloaded. For those files this handler sends a GET instead of a HEAD request when
+ * checking them, and keeps the body so that the following download doesn't need another request.
+ * Bodies are kept up to a configurable amount of memory: a larger body isn't read by the check,
+ * and is streamed by the download. Buffered bodies are revalidated with conditional
+ * requests (<code>If-None-Match</code> and <code>If-Modified-Since</code>), so that a file which
+ * didn't change on the server is not transferred again.
+ * </p>
+ * <p>
+ * Urls using another protocol than http or https are handled by a {@link BasicURLHandler}.
+ * </p>
+ */
+public class PooledURLHandler extends AbstractURLHandler {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+
+    public static final long DEFAULT_MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] METADATA_EXTENSIONS = new String[] {".xml", ".pom", ".sha1",
+            ".md5", ".properties"};
+
+    private final BasicURLHandler delegate = new BasicURLHandler();
+
+    private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+    private long maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+
+    private final Map/* <String, Semaphore> */hostPermits = new HashMap();
+
+    private final Map/* <String, Body> */bodies = new LinkedHashMap(16, 0.75f, true);
+
+    private long bufferedBytes;
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Sets the maximum number of connections this handler opens at the same time to a single host.
+     * Requests exceeding this limit wait for a connection to be released.
+     */
+    public synchronized void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be strictly positive: "
+                    + maxConnectionsPerHost);
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        hostPermits.clear();
+    }
+
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    /**
+     * Sets the maximum number of bytes of metadata files kept in memory. 0 disables the reuse of
+     * bodies, metadata files are then checked with the configured request method like any other
+     * file.
+     */
+    public synchronized void setMaxBufferedBytes(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+        evict();
+    }
+
+    public URLInfo getURLInfo(URL url) {
+        return getURLInfo(url, 0);
+    }
+
+    public URLInfo getURLInfo(URL url, int timeout) {
+        if (!isHttp(url)) {
+            return delegate.getURLInfo(url, timeout);
+        }
+        IvyAuthenticator.install();
+
+        try {
+            url = normalizeToURL(url);
+            if (isBuffered(url)) {
+                Body body = fetch(url, timeout);
+                if (body == null) {
+                    return UNAVAILABLE;
+                }
+                return new URLInfo(true, body.length, body.lastModified, body.charset);
+            }
+
+            Semaphore permit = acquire(url);
+            HttpURLConnection con = null;
+            try {
+                con = openConnection(url, timeout);
+                if (getRequestMethod() == URLHandler.REQUEST_METHOD_HEAD) {
+                    con.setRequestMethod("HEAD");
+                }
+                int status = con.getResponseCode();
+                URLInfo info = UNAVAILABLE;
+                if (status == HttpURLConnection.HTTP_OK
+                        || ("HEAD".equals(con.getRequestMethod()) && status == 204)) {
+                    info = new URLInfo(true, con.getContentLength(), con.getLastModified(),
+                            BasicURLHandler.getCharSetFromContentType(con.getContentType()));
+                } else {
+                    logStatus(url, con, status);
+                }
+                release(con);
+                con = null;
+                return info;
+            } finally {
+                if (con != null) {
+                    con.disconnect();
+                }
+                permit.release();
+            }
+        } catch (UnknownHostException e) {
+            Message.warn("Host " + e.getMessage() + " not found. url=" + url);
+            Message.info("You probably access the destination server through "
+                    + "a proxy server that is not well configured.");
+        } catch (IOException e) {
+            Message.error("Server access error at url " + url, e);
+        }
+        return UNAVAILABLE;
+    }
+
+    public InputStream openStream(URL url) throws IOException {
+        if (!isHttp(url)) {
+            return delegate.openStream(url);
+        }
+        IvyAuthenticator.install();
+
+        url = normalizeToURL(url);
+        Body body = takeBody(url);
+        if (body == null && getBody(url) != null) {
+            // revalidates the buffered body
+            body = fetch(url, 0);
+            if (body == null) {
+                throw new IOException("The HTTP response code for " + url
+                        + " did not indicate a success." + " See log for more detail.");
+            }
+            body.pending = false;
+        }
+        if (body != null && body.content != null) {
+            return new ByteArrayInputStream(body.content);
+        }
+
+        final Semaphore permit = acquire(url);
+        HttpURLConnection con = null;
+        try {
+            con = openConnection(url, 0);
+            con.setRequestProperty("Accept-Encoding", "gzip,deflate");
+            int status = con.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                logStatus(url, con, status);
+                throw new IOException("The HTTP response code for " + url
+                        + " did not indicate a success." + " See log for more detail.");
+            }
+            InputStream in = new FilterInputStream(getDecodingInputStream(
+                con.getContentEncoding(), con.getInputStream())) {
+                private boolean closed = false;
+
+                public void close() throws IOException {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        permit.release();
+                    }
+                }
+            };
+            con = null;
+            return in;
+        } finally {
+            if (con != null) {
+                con.disconnect();
+                permit.release();
+            }
+        }
+    }
+
+    public void download(URL src, File dest, CopyProgressListener l) throws IOException {
+        if (!isHttp(src)) {
+            delegate.download(src, dest, l);
+            return;
+        }
+        IvyAuthenticator.install();
+
+        src = normalizeToURL(src);
+        Body body = takeBody(src);
+        if (body == null && getBody(src) != null) {
+            // revalidates the buffered body
+            body = fetch(src, 0);
+            if (body == null) {
+                throw new IOException("The HTTP response code for " + src
+                        + " did not indicate a success." + " See log for more detail.");
+            }
+            body.pending = false;
+        }
+        if (body != null && body.content != null) {
+            FileUtil.copy(new ByteArrayInputStream(body.content), dest, l);
+            if (body.lastModified > 0) {
+                dest.setLastModified(body.lastModified);
+            }
+            return;
+        }
+
+        Semaphore permit = acquire(src);
+        HttpURLConnection con = null;
+        try {
+            con = openConnection(src, 0);
+            con.setRequestProperty("Accept-Encoding", "gzip,deflate");
+            int status = con.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                logStatus(src, con, status);
+                throw new IOException("The HTTP response code for " + src
+                        + " did not indicate a success." + " See log for more detail.");
+            }
+
+            InputStream in = con.getInputStream();
+            FileUtil.copy(getDecodingInputStream(con.getContentEncoding(), in), dest, l);
+
+            // check content length only if content was not encoded
+            if (con.getContentEncoding() == null) {
+                int contentLength = con.getContentLength();
+                if (contentLength != -1 && dest.length() != contentLength) {
+                    dest.delete();
+                    throw new IOException(
+                            "Downloaded file size doesn't match expected Content Length for "
+                                    + src + ". Please retry.");
+                }
+            }
+
+            long lastModified = con.getLastModified();
+            if (lastModified > 0) {
+                dest.setLastModified(lastModified);
+            }
+            release(con);
+            con = null;
+        } finally {
+            if (con != null) {
+                con.disconnect();
+            }
+            permit.release();
+        }
+    }
+
+    public void upload(File source, URL dest, CopyProgressListener l) throws IOException {
+        if (!isHttp(dest)) {
+            delegate.upload(source, dest, l);
+            return;
+        }
+        URL url = normalizeToURL(dest);
+        Semaphore permit = acquire(url);
+        try {
+            forget(url);
+            delegate.upload(source, dest, l);
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Gets the body of the given url, using a conditional request if a body is already buffered.
+     * Returns <code>null</code> if the url is not available. A body larger than the buffered
+     * bytes limit isn't read: the returned body then has no content.
+     */
+    private Body fetch(URL url, int timeout) throws IOException {
+        Body cached = getBody(url);
+        Semaphore permit = acquire(url);
+        HttpURLConnection con = null;
+        try {
+            con = openConnection(url, timeout);
+            con.setRequestProperty("Accept-Encoding", "gzip,deflate");
+            if (cached != null) {
+                if (cached.etag != null) {
+                    con.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified > 0) {
+                    con.setIfModifiedSince(cached.lastModified);
+                }
+            }
+            int status = con.getResponseCode();
+            Body body = null;
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                Message.debug("HTTP response status: 304 url=" + url + ": reusing buffered body");
+                release(con);
+                body = cached;
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                long maxBytes = getMaxBufferedBytes();
+                int contentLength = con.getContentLength();
+                byte[] content = null;
+                if (con.getContentEncoding() != null || contentLength <= maxBytes) {
+                    // the length of an encoded content is only known once it's decoded
+                    content = readAtMost(getDecodingInputStream(con.getContentEncoding(),
+                        con.getInputStream()), maxBytes);
+                }
+                if (content == null) {
+                    Message.debug("not buffering " + url + ": more than " + maxBytes + " bytes");
+                    body = new Body(null, con.getContentEncoding() == null ? contentLength : -1,
+                            con.getLastModified(), null,
+                            BasicURLHandler.getCharSetFromContentType(con.getContentType()));
+                    // the connection can't be reused without reading the body
+                    con.disconnect();
+                } else {
+                    if (con.getContentEncoding() == null && contentLength != -1
+                            && content.length != contentLength) {
+                        throw new IOException(
+                                "Downloaded file size doesn't match expected Content Length for "
+                                        + url + ". Please retry.");
+                    }
+                    body = new Body(content, content.length, con.getLastModified(),
+                            con.getHeaderField("ETag"),
+                            BasicURLHandler.getCharSetFromContentType(con.getContentType()));
+                    release(con);
+                }
+            } else {
+                logStatus(url, con, status);
+                release(con);
+            }
+            con = null;
+            putBody(url, body);
+            return body;
+        } finally {
+            if (con != null) {
+                forget(url);
+                con.disconnect();
+            }
+            permit.release();
+        }
+    }
+
+    private HttpURLConnection openConnection(URL url, int timeout) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        con.setRequestProperty("User-Agent", getUserAgent());
+        if (timeout > 0) {
+            con.setConnectTimeout(timeout);
+            con.setReadTimeout(timeout);
+        }
+        return con;
+    }
+
+    private Semaphore acquire(URL url) throws IOException {
+        Semaphore permit;
+        synchronized (this) {
+            String host = url.getProtocol() + "://" + url.getHost() + ":"
+                    + (url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+            permit = (Semaphore) hostPermits.get(host);
+            if (permit == null) {
+                permit = new Semaphore(maxConnectionsPerHost, true);
+                hostPermits.put(host, permit);
+            }
+        }
+        try {
+            permit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for a connection to " + url);
+        }
+        return permit;
+    }
+
+    /**
+     * Reads the remaining of the response and closes its stream, so that the connection can be
+     * reused by the next request to the same host.
+     */
+    private void release(HttpURLConnection con) {
+        InputStream in = null;
+        try {
+            in = con.getInputStream();
+        } catch (IOException e) {
+            in = con.getErrorStream();
+        }
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // skip content
+            }
+        } catch (IOException e) {
+            // ignore
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void logStatus(URL url, HttpURLConnection con, int status) throws IOException {
+        Message.debug("HTTP response status: " + status + " url=" + url);
+        if (status == 407) {
+            Message.warn("Your proxy requires authentication.");
+        } else if (String.valueOf(status).startsWith("4")) {
+            Message.verbose("CLIENT ERROR: " + con.getResponseMessage() + " url=" + url);
+        } else if (String.valueOf(status).startsWith("5")) {
+            Message.error("SERVER ERROR: " + con.getResponseMessage() + " url=" + url);
+        }
+    }
+
+    private boolean isBuffered(URL url) {
+        if (maxBufferedBytes <= 0 || url.getQuery() != null) {
+            return false;
+        }
+        String path = url.getPath().toLowerCase(Locale.US);
+        for (int i = 0; i < METADATA_EXTENSIONS.length; i++) {
+            if (path.endsWith(METADATA_EXTENSIONS[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHttp(URL url) {
+        return "http".equals(url.getProtocol()) || "https".equals(url.getProtocol());
+    }
+
+    private synchronized Body getBody(URL url) {
+        return (Body) bodies.get(url.toExternalForm());
+    }
+
+    /**
+     * Returns the body fetched by the last check of the given url if it hasn't been used yet, so
+     * that a download following a check doesn't need a new request.
+     */
+    private synchronized Body takeBody(URL url) {
+        Body body = (Body) bodies.get(url.toExternalForm());
+        if (body != null && body.pending) {
+            body.pending = false;
+            return body;
+        }
+        return null;
+    }
+
+    private synchronized void putBody(URL url, Body body) {
+        forget(url);
+        if (body != null && body.content != null && body.content.length <= maxBufferedBytes) {
+            body.pending = true;
+            bodies.put(url.toExternalForm(), body);
+            bufferedBytes += body.content.length;
+            evict();
+        }
+    }
+
+    private synchronized void forget(URL url) {
+        Body body = (Body) bodies.remove(url.toExternalForm());
+        if (body != null) {
+            bufferedBytes -= body.content.length;
+        }
+    }
+
+    private synchronized void evict() {
+        for (Iterator it = bodies.values().iterator(); bufferedBytes > maxBufferedBytes
+                && it.hasNext();) {
+            Body body = (Body) it.next();
+            it.remove();
+            bufferedBytes -= body.content.length;
+        }
+    }
+
+    /**
+     * Reads the given stream entirely, unless it holds more than the given number of bytes, in
+     * which case <code>null</code> is returned and the stream is left open.
+     */
+    private static byte[] readAtMost(InputStream in, long maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+            if (out.size() > maxBytes) {
+                return null;
+            }
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static final class Body {
+        // null if the body is too large to be buffered
+        private final byte[] content;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private final String etag;
+
+        private final String charset;
+
+        private boolean pending;
+
+        private Body(byte[] content, long length, long lastModified, String etag,
+                String charset) {
+            this.content = content;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.charset = charset;
+        }
+    }
+}
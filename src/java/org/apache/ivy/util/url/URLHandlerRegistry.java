@@ -28,6 +28,13 @@ public final class URLHandlerRegistry {
 
     private static URLHandler defaultHandler = new BasicURLHandler();
 
+    private static boolean pooledHttp = Boolean.getBoolean("ivy.http.pooled");
+
+    private static int maxConnectionsPerHost = Integer.getInteger(
+        "ivy.http.maxConnectionsPerHost", 0).intValue();
+
+    private static PooledURLHandler pooledHandler;
+
     public static URLHandler getDefault() {
         return defaultHandler;
     }
@@ -43,6 +50,10 @@ public final class URLHandlerRegistry {
      * @return most accurate http downloader
      */
     public static URLHandler getHttp() {
+        if (isPooledHttp()) {
+            Message.verbose("using pooled jdk url handling for http downloading");
+            return getPooledHttp();
+        }
         try {
             Class.forName("org.apache.commons.httpclient.HttpClient");
 
@@ -70,4 +81,56 @@ public final class URLHandlerRegistry {
         }
     }
 
+    /**
+     * Returns the {@link PooledURLHandler} shared by all the callers, so that they share its
+     * connection limits and buffered bodies.
+     * 
+     * @return the shared pooled http handler
+     */
+    public static synchronized URLHandler getPooledHttp() {
+        if (pooledHandler == null) {
+            pooledHandler = new PooledURLHandler();
+            if (maxConnectionsPerHost > 0) {
+                pooledHandler.setMaxConnectionsPerHost(maxConnectionsPerHost);
+            }
+        }
+        return pooledHandler;
+    }
+
+    public static boolean isPooledHttp() {
+        return pooledHttp;
+    }
+
+    /**
+     * Indicates if {@link #getHttp()} should return the pooled http handler instead of the
+     * HttpClient or jdk based ones. Defaults to the value of the <code>ivy.http.pooled</code>
+     * system property.
+     * 
+     * @param pooled
+     *            <code>true</code> to use the pooled http handler
+     */
+    public static void setPooledHttp(boolean pooled) {
+        pooledHttp = pooled;
+    }
+
+    public static int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Sets the maximum number of concurrent connections to a single host opened by the http
+     * handlers supporting it. Defaults to the value of the
+     * <code>ivy.http.maxConnectionsPerHost</code> system property, 0 keeping the handlers
+     * defaults.
+     * 
+     * @param max
+     *            the maximum number of connections per host, or 0 to use the handler default
+     */
+    public static synchronized void setMaxConnectionsPerHost(int max) {
+        maxConnectionsPerHost = max;
+        if (pooledHandler != null) {
+            pooledHandler.setMaxConnectionsPerHost(max > 0 ? max
+                    : PooledURLHandler.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link IvyPatternHelper#substitute}, {@link IvyPatternHelper#substituteTokens} and
+ * {@link CompiledIvyPattern} with patterns commonly found in repositories and caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IvyPatternHelperBenchmark {
+
+    @Param({"[organisation]/[module]/ivy-[revision].xml",
+            "[organisation]/[module](/[branch])/[type]s/[artifact]-[revision](-[classifier]).[ext]",
+            "[orgPath]/[module]/[revision]/[artifact]-[revision](-[classifier]).[ext]"})
+    private String pattern;
+
+    private ModuleRevisionId mrid;
+
+    private Artifact artifact;
+
+    private Map tokens;
+
+    private CompiledIvyPattern compiled;
+
+    @Setup
+    public void setUp() {
+        mrid = ModuleRevisionId.newInstance("org.apache.ivy", "ivy", "2.4.0");
+        artifact = new DefaultArtifact(mrid, new Date(0), "ivy", "source", "jar",
+                Collections.singletonMap("classifier", "sources"));
+        tokens = new HashMap();
+        tokens.put(IvyPatternHelper.ORGANISATION_KEY, mrid.getOrganisation());
+        tokens.put(IvyPatternHelper.MODULE_KEY, mrid.getName());
+        tokens.put(IvyPatternHelper.REVISION_KEY, mrid.getRevision());
+        tokens.put(IvyPatternHelper.ARTIFACT_KEY, artifact.getName());
+        tokens.put(IvyPatternHelper.TYPE_KEY, artifact.getType());
+        tokens.put(IvyPatternHelper.EXT_KEY, artifact.getExt());
+        compiled = CompiledIvyPattern.getInstance(pattern);
+    }
+
+    @Benchmark
+    public String substituteModuleRevision() {
+        return IvyPatternHelper.substitute(pattern, mrid);
+    }
+
+    @Benchmark
+    public String substituteArtifact() {
+        return IvyPatternHelper.substitute(pattern, artifact);
+    }
+
+    @Benchmark
+    public String substituteTokens() {
+        return IvyPatternHelper.substituteTokens(pattern, tokens);
+    }
+
+    @Benchmark
+    public String substituteCompiledArtifact() {
+        return compiled.substitute(mrid, artifact, null, null);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ResolveEngine#resolve(org.apache.ivy.core.module.id.ModuleRevisionId,
+ * ResolveOptions, boolean)}, through {@link Ivy#resolve}, over {@link SyntheticRepository synthetic repositories} of increasing
+ * size, with an empty cache and with a cache already containing everything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ResolveBenchmark {
+
+    private static final File BASE_DIR = new File("build/benchmark/resolve");
+
+    @Param({"100", "1000", "10000"})
+    private int modules;
+
+    private SyntheticRepository repository;
+
+    private File cacheDir;
+
+    private Ivy ivy;
+
+    @Setup(Level.Trial)
+    public void createRepository() throws Exception {
+        repository = new SyntheticRepository(modules);
+        File repoDir = new File(BASE_DIR, "repo-" + modules);
+        repository.write(repoDir);
+        cacheDir = new File(BASE_DIR, "cache-" + modules);
+        FileUtil.forceDelete(cacheDir);
+        ivy = repository.newIvy(repoDir, cacheDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCache() {
+        FileUtil.forceDelete(cacheDir);
+    }
+
+    @Benchmark
+    public ResolveReport resolveWithFilledCache() throws Exception {
+        return resolve(ivy);
+    }
+
+    @Benchmark
+    public ResolveReport resolveWithEmptyCache(EmptyCache emptyCache) throws Exception {
+        return resolve(emptyCache.ivy);
+    }
+
+    private ResolveReport resolve(Ivy ivy) throws Exception {
+        ResolveOptions options = new ResolveOptions().setConfs(new String[] {"default"})
+                .setOutputReport(false);
+        ResolveReport report = ivy.resolve(repository.getRoot(), options, false);
+        if (report.hasError()) {
+            throw new IllegalStateException("resolve failed: " + report.getAllProblemMessages());
+        }
+        return report;
+    }
+
+    /**
+     * An Ivy instance whose cache is emptied before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class EmptyCache {
+        private Ivy ivy;
+
+        private File cacheDir;
+
+        @Setup(Level.Invocation)
+        public void emptyCache(ResolveBenchmark benchmark) {
+            cacheDir = new File(BASE_DIR, "empty-cache-" + benchmark.modules);
+            FileUtil.forceDelete(cacheDir);
+            ivy = benchmark.repository.newIvy(new File(BASE_DIR, "repo-" + benchmark.modules),
+                cacheDir);
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteCache() {
+            FileUtil.forceDelete(cacheDir);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.apache.ivy.util.DefaultMessageLogger;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * Generates reproducible module graphs for the benchmarks, either in memory or as a file system
+ * repository.
+ * <p>
+ * Module <code>modN</code> depends on <code>mod(3N+1)</code> to <code>mod(3N+3)</code>, which keeps
+ * the graph shallow, and on one randomly chosen module with a higher index, which makes some
+ * modules reachable through several paths. Each module is available in two revisions, and
+ * dependencies ask for one or the other, so that the resolve has conflicts to manage.
+ * </p>
+ */
+public final class SyntheticRepository {
+
+    public static final String ORGANISATION = "synthetic";
+
+    private static final String[] REVISIONS = new String[] {"1.0", "1.1"};
+
+    private static final String PATTERN = "[module]/[artifact]-[revision].[ext]";
+
+    private final int size;
+
+    public SyntheticRepository(int size) {
+        this.size = size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public ModuleRevisionId getRoot() {
+        return getModuleRevisionId(0, REVISIONS[REVISIONS.length - 1]);
+    }
+
+    /**
+     * Returns the descriptors of all the revisions of all the modules of this repository.
+     */
+    public List/* <ModuleDescriptor> */getModuleDescriptors() {
+        List mds = new ArrayList();
+        for (int i = 0; i < size; i++) {
+            for (int r = 0; r < REVISIONS.length; r++) {
+                mds.add(newModuleDescriptor(i, REVISIONS[r]));
+            }
+        }
+        return mds;
+    }
+
+    /**
+     * Writes the ivy files and the (empty) artifacts of this repository in the given directory,
+     * unless it has already been done.
+     */
+    public void write(File dir) throws IOException {
+        File marker = new File(dir, ".complete");
+        if (marker.exists()) {
+            return;
+        }
+        FileUtil.forceDelete(dir);
+        for (Iterator it = getModuleDescriptors().iterator(); it.hasNext();) {
+            ModuleDescriptor md = (ModuleDescriptor) it.next();
+            ModuleRevisionId mrid = md.getModuleRevisionId();
+            File moduleDir = new File(dir, mrid.getName());
+            XmlModuleDescriptorWriter.write(md, new File(moduleDir, "ivy-" + mrid.getRevision()
+                    + ".xml"));
+            new File(moduleDir, mrid.getName() + "-" + mrid.getRevision() + ".jar")
+                    .createNewFile();
+        }
+        marker.createNewFile();
+    }
+
+    /**
+     * Creates an Ivy instance resolving from this repository written in <code>repoDir</code>, with
+     * its cache in <code>cacheDir</code> and logging only errors.
+     */
+    public Ivy newIvy(File repoDir, File cacheDir) {
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(cacheDir);
+
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("synthetic");
+        resolver.setSettings(settings);
+        resolver.addIvyPattern(repoDir.getAbsolutePath() + "/" + PATTERN);
+        resolver.addArtifactPattern(repoDir.getAbsolutePath() + "/" + PATTERN);
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("synthetic");
+
+        Ivy ivy = Ivy.newInstance(settings);
+        ivy.getLoggerEngine().setDefaultLogger(new DefaultMessageLogger(Message.MSG_ERR));
+        return ivy;
+    }
+
+    private DefaultModuleDescriptor newModuleDescriptor(int index, String revision) {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(getModuleRevisionId(index,
+            revision), "release", new Date(0));
+        md.addConfiguration(new Configuration("default"));
+        md.addArtifact("default", new DefaultArtifact(md.getModuleRevisionId(), new Date(0), "mod"
+                + index, "jar", "jar"));
+
+        // the dependencies only depend on the module, so that all revisions agree
+        Random random = new Random(index);
+        for (int child = 3 * index + 1; child <= 3 * index + 3 && child < size; child++) {
+            addDependency(md, child, REVISIONS[random.nextInt(REVISIONS.length)]);
+        }
+        if (index + 1 < size) {
+            int shared = index + 1 + random.nextInt(size - index - 1);
+            if (shared > 3 * index + 3) {
+                addDependency(md, shared, REVISIONS[random.nextInt(REVISIONS.length)]);
+            }
+        }
+        return md;
+    }
+
+    private void addDependency(DefaultModuleDescriptor md, int index, String revision) {
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md,
+                getModuleRevisionId(index, revision), false, false, true);
+        dd.addDependencyConfiguration("default", "default");
+        md.addDependency(dd);
+    }
+
+    private static ModuleRevisionId getModuleRevisionId(int index, String revision) {
+        return ModuleRevisionId.newInstance(ORGANISATION, "mod" + index, revision);
+    }
+}
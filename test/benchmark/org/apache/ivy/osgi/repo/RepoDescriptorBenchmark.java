@@ -0,0 +1,142 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
+import org.apache.ivy.osgi.core.ExportPackage;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookup of the modules providing a package in a version range, on a generated
+ * repository looking like a p2 update site: many bundles, each released in several versions and
+ * exporting packages shared with the other releases. The lookup through the capability index of
+ * {@link EditableRepoDescriptor} is compared with the check of the version of every provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RepoDescriptorBenchmark {
+
+    private static final int RELEASES = 20;
+
+    private static final int PACKAGES = 10;
+
+    @Param({"100", "1000", "5000"})
+    private int bundles;
+
+    private EditableRepoDescriptor indexed;
+
+    private RepoDescriptor unindexed;
+
+    private String[] packages;
+
+    private VersionRange[] ranges;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws ParseException {
+        indexed = new EditableRepoDescriptor(new File("repo").toURI(),
+                ExecutionEnvironmentProfileProvider.getInstance());
+        for (int i = 0; i < bundles; i++) {
+            for (int r = 0; r < RELEASES; r++) {
+                Version version = new Version(r / 10, r % 10, 0, "v2014");
+                BundleInfo bundle = new BundleInfo("bundle" + i, version);
+                for (int p = 0; p < PACKAGES; p++) {
+                    bundle.addCapability(new ExportPackage("bundle" + i + ".pkg" + p, version));
+                }
+                indexed.addBundle(bundle);
+            }
+        }
+        unindexed = new UnindexedRepoDescriptor(indexed);
+
+        Random random = new Random(bundles);
+        packages = new String[256];
+        ranges = new VersionRange[packages.length];
+        for (int i = 0; i < packages.length; i++) {
+            packages[i] = "bundle" + random.nextInt(bundles) + ".pkg" + random.nextInt(PACKAGES);
+            int minor = random.nextInt(10);
+            ranges[i] = new VersionRange("[" + (minor / 10) + "." + minor + "," + (minor / 10)
+                    + "." + (minor + 3) + ")");
+        }
+    }
+
+    @Benchmark
+    public List<ModuleDescriptorWrapper> findInRangeIndexed() {
+        int i = next++ & (packages.length - 1);
+        return indexed.findModules(BundleInfo.PACKAGE_TYPE, packages[i], ranges[i]);
+    }
+
+    @Benchmark
+    public List<ModuleDescriptorWrapper> findInRangeUnindexed() {
+        int i = next++ & (packages.length - 1);
+        return unindexed.findModules(BundleInfo.PACKAGE_TYPE, packages[i], ranges[i]);
+    }
+
+    /**
+     * Exposes the modules of a descriptor without its capability index, so that range queries
+     * use the default implementation of {@link RepoDescriptor}.
+     */
+    private static final class UnindexedRepoDescriptor extends RepoDescriptor {
+        private final RepoDescriptor delegate;
+
+        private UnindexedRepoDescriptor(RepoDescriptor delegate) {
+            this.delegate = delegate;
+        }
+
+        public Iterator<ModuleDescriptorWrapper> getModules() {
+            return delegate.getModules();
+        }
+
+        public Set<String> getCapabilities() {
+            return delegate.getCapabilities();
+        }
+
+        public Set<ModuleDescriptorWrapper> findModules(String requirement, String value) {
+            return delegate.findModules(requirement, value);
+        }
+
+        public Set<String> getCapabilityValues(String capabilityName) {
+            return delegate.getCapabilityValues(capabilityName);
+        }
+    }
+}
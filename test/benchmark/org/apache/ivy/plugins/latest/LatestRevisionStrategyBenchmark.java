@@ -0,0 +1,99 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.latest;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the sorting of revisions and the search of the latest one by
+ * {@link LatestRevisionStrategy}, on revisions mixing the usual version formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LatestRevisionStrategyBenchmark {
+
+    private static final String[] QUALIFIERS = new String[] {"", "-dev", "-alpha", "-beta2",
+            "-rc1", "-SNAPSHOT", "-final", "+build.5", ".20140101120000"};
+
+    @Param({"10", "100", "1000"})
+    private int revisions;
+
+    private LatestRevisionStrategy strategy;
+
+    private ArtifactInfo[] infos;
+
+    @Setup
+    public void setUp() {
+        strategy = new LatestRevisionStrategy();
+        Random random = new Random(revisions);
+        infos = new ArtifactInfo[revisions];
+        for (int i = 0; i < revisions; i++) {
+            StringBuffer revision = new StringBuffer();
+            revision.append(random.nextInt(5)).append('.').append(random.nextInt(20));
+            if (random.nextBoolean()) {
+                revision.append('.').append(random.nextInt(10));
+            }
+            revision.append(QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+            infos[i] = new Revision(revision.toString());
+        }
+    }
+
+    @Benchmark
+    public List sort() {
+        return strategy.sort(infos);
+    }
+
+    @Benchmark
+    public ArtifactInfo findLatest() {
+        return strategy.findLatest(infos, null);
+    }
+
+    private static final class Revision implements ArtifactInfo {
+        private final String revision;
+
+        private Revision(String revision) {
+            this.revision = revision;
+        }
+
+        public String getRevision() {
+            return revision;
+        }
+
+        public long getLastModified() {
+            return 0;
+        }
+    }
+}
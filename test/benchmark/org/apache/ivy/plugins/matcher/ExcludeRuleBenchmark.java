@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.matcher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of exclude rules as done while traversing an exclude heavy dependency
+ * graph: each artifact of the graph is checked against the exclude rules of each dependency
+ * leading to it, which asks the pattern matcher for a matcher for each expression of each rule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExcludeRuleBenchmark {
+
+    private static final int DEPENDENCIES = 50;
+
+    private static final int RULES_PER_DEPENDENCY = 10;
+
+    private static final int ARTIFACTS = 100;
+
+    private static final String[] CONFS = new String[] {"default"};
+
+    @Param({PatternMatcher.EXACT, PatternMatcher.REGEXP, PatternMatcher.EXACT_OR_REGEXP,
+            PatternMatcher.GLOB})
+    private String matcher;
+
+    private DefaultDependencyDescriptor[] dependencies;
+
+    private ArtifactId[] artifacts;
+
+    @Setup
+    public void setUp() {
+        PatternMatcher pm = new IvySettings().getMatcher(matcher);
+        boolean exact = PatternMatcher.EXACT.equals(matcher);
+        String wildcard = PatternMatcher.GLOB.equals(matcher) ? "*" : ".*";
+
+        dependencies = new DefaultDependencyDescriptor[DEPENDENCIES];
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            dependencies[i] = new DefaultDependencyDescriptor(ModuleRevisionId.newInstance(
+                "org" + i, "dep" + i, "1.0"), false);
+            dependencies[i].addDependencyConfiguration("default", "default");
+            for (int j = 0; j < RULES_PER_DEPENDENCY; j++) {
+                String module = exact ? "excluded" + j : "excluded" + j + wildcard;
+                dependencies[i].addExcludeRule("default", new DefaultExcludeRule(new ArtifactId(
+                        new ModuleId("org" + j, module), PatternMatcher.ANY_EXPRESSION,
+                        PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION), pm, null));
+            }
+        }
+
+        artifacts = new ArtifactId[ARTIFACTS];
+        for (int i = 0; i < ARTIFACTS; i++) {
+            artifacts[i] = new ArtifactId(new ModuleId("org" + (i % RULES_PER_DEPENDENCY),
+                    "module" + i), "module" + i, "jar", "jar");
+        }
+    }
+
+    @Benchmark
+    public int evaluateExcludeRules() {
+        int excluded = 0;
+        for (int i = 0; i < dependencies.length; i++) {
+            for (int j = 0; j < artifacts.length; j++) {
+                if (dependencies[i].doesExclude(CONFS, artifacts[j])) {
+                    excluded++;
+                }
+            }
+        }
+        return excluded;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util.url;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link BasicURLHandler} and the {@link PooledURLHandler} against a local
+ * {@link HttpStubServer}, replaying the requests done when resolving modules from an http
+ * repository: each ivy file, its checksum and its artifact are checked and then downloaded. The
+ * server answers every request after the given latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class URLHandlerBenchmark {
+
+    private static final File BASE_DIR = new File("build/benchmark/url-handler");
+
+    private static final int MODULES = 100;
+
+    @Param({"basic", "pooled"})
+    private String handlerName;
+
+    @Param({"0", "2"})
+    private long latency;
+
+    private HttpStubServer server;
+
+    private URLHandler handler;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = new HttpStubServer();
+        server.setDelay(latency);
+        for (int i = 0; i < MODULES; i++) {
+            server.addFile("/repo/mod" + i + "/ivy-1.0.xml", ("<ivy-module version=\"2.0\">"
+                    + "<info organisation=\"org\" module=\"mod" + i + "\"/></ivy-module>")
+                    .getBytes("UTF-8"), 1000000000000L);
+            server.addFile("/repo/mod" + i + "/ivy-1.0.xml.sha1",
+                "da39a3ee5e6b4b0d3255bfef95601890afd80709".getBytes("UTF-8"), 1000000000000L);
+            server.addFile("/repo/mod" + i + "/mod" + i + "-1.0.jar", new byte[20 * 1024],
+                1000000000000L);
+        }
+        handler = "pooled".equals(handlerName) ? (URLHandler) new PooledURLHandler()
+                : new BasicURLHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        server.stop();
+        FileUtil.forceDelete(BASE_DIR);
+    }
+
+    /**
+     * Checks and downloads the files of all the modules. From the second invocation on, the
+     * pooled handler revalidates the metadata files it has kept.
+     */
+    @Benchmark
+    public void fetchModules() throws Exception {
+        for (int i = 0; i < MODULES; i++) {
+            String base = "/repo/mod" + i + "/";
+            fetch(server.getURL(base + "ivy-1.0.xml"));
+            fetch(server.getURL(base + "ivy-1.0.xml.sha1"));
+            fetch(server.getURL(base + "mod" + i + "-1.0.jar"));
+        }
+    }
+
+    private void fetch(URL url) throws Exception {
+        if (!handler.isReachable(url)) {
+            throw new IllegalStateException(url + " not found");
+        }
+        handler.download(url, new File(BASE_DIR, url.getPath()), null);
+    }
+}
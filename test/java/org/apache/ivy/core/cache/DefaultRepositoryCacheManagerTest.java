@@ -18,7 +18,11 @@
 package org.apache.ivy.core.cache;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
@@ -106,6 +110,66 @@ public class DefaultRepositoryCacheManagerTest extends TestCase {
         assertTrue(ArtifactOrigin.isUnknown(found));
     }
 
+    public void testIndexedMetadataStore() {
+        cacheManager.setMetadataStore("indexed");
+        cacheManager.saveArtifactOrigin(artifact, origin);
+
+        ArtifactOrigin found = cacheManager.getSavedArtifactOrigin(artifact);
+        assertEquals(origin, found);
+        assertTrue(new File(cacheManager.getRepositoryCacheRoot(),
+                IndexedCacheMetadataStore.FILE_NAME).exists());
+
+        artifact = createArtifact("org", "module", "rev", "name", "type2", "ext");
+        found = cacheManager.getSavedArtifactOrigin(artifact);
+        assertTrue(ArtifactOrigin.isUnknown(found));
+    }
+
+    public void testNegativeCache() {
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "module", "rev");
+        cacheManager.saveMissing("resolver1", mrid, "org/module/ivy-rev.xml");
+        // misses are not cached by default
+        assertFalse(cacheManager.isKnownMissing("resolver1", mrid, "org/module/ivy-rev.xml"));
+
+        Map attributes = new HashMap();
+        attributes.put("resolver", "resolver1");
+        attributes.put("duration", "1h");
+        cacheManager.addConfiguredNegativeTtl(attributes);
+        cacheManager.saveMissing("resolver1", mrid, "org/module/ivy-rev.xml");
+        cacheManager.saveMissing("resolver2", mrid, "org/module/ivy-rev.xml");
+
+        assertTrue(cacheManager.isKnownMissing("resolver1", mrid, "org/module/ivy-rev.xml"));
+        assertFalse(cacheManager.isKnownMissing("resolver1", mrid, "org/module/module-rev.jar"));
+        assertFalse(cacheManager.isKnownMissing("resolver2", mrid, "org/module/ivy-rev.xml"));
+
+        cacheManager.setDefaultNegativeTTL(1000);
+        cacheManager.saveMissing("resolver2", mrid, "org/module/ivy-rev.xml");
+        assertTrue(cacheManager.isKnownMissing("resolver2", mrid, "org/module/ivy-rev.xml"));
+
+        cacheManager.removeMissing("resolver1", mrid, "org/module/ivy-rev.xml");
+        assertFalse(cacheManager.isKnownMissing("resolver1", mrid, "org/module/ivy-rev.xml"));
+        assertTrue(cacheManager.isKnownMissing("resolver2", mrid, "org/module/ivy-rev.xml"));
+    }
+
+    public void testListingCache() {
+        List listing = Arrays.asList(new String[] {"org/module/1.0", "org/module/1.1"});
+        cacheManager.saveListing("resolver1", "org/module", listing);
+        // listings are not cached by default
+        assertNull(cacheManager.getCachedListing("resolver1", "org/module"));
+
+        cacheManager.setListingTTL("1h");
+        cacheManager.saveListing("resolver1", "org/module", listing);
+        assertEquals(listing, cacheManager.getCachedListing("resolver1", "org/module"));
+        assertNull(cacheManager.getCachedListing("resolver2", "org/module"));
+        assertNull(cacheManager.getCachedListing("resolver1", "org/other"));
+
+        cacheManager.setListingTTL(1);
+        cacheManager.saveListing("resolver1", "org/module", listing);
+        File cached = new File(cacheManager.getRepositoryCacheRoot(), "_listings_")
+                .listFiles()[0];
+        cached.setLastModified(System.currentTimeMillis() - 1000);
+        assertNull(cacheManager.getCachedListing("resolver1", "org/module"));
+    }
+
     protected Artifact createArtifact(String org, String module, String rev, String name,
             String type, String ext) {
         ModuleId mid = new ModuleId(org, module);
@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.FileUtil;
+
+public class IndexedCacheMetadataStoreTest extends TestCase {
+
+    private File dir = new File("build/test/metadata-store");
+
+    private File file = new File(dir, IndexedCacheMetadataStore.FILE_NAME);
+
+    private ModuleRevisionId mrid1 = ModuleRevisionId.newInstance("org1", "mod1", "1.0");
+
+    private ModuleRevisionId mrid2 = ModuleRevisionId.newInstance("org1", "mod2", "trunk", "2.0");
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testSaveAndGet() throws Exception {
+        IndexedCacheMetadataStore store = new IndexedCacheMetadataStore(file);
+        assertTrue(store.getMetadata(mrid1).isEmpty());
+
+        store.saveMetadata(mrid1, metadata("resolver", "public"));
+        store.saveMetadata(mrid2, metadata("resolver", "local"));
+        store.saveMetadata(mrid1, metadata("resolver", "shared"));
+
+        assertEquals(metadata("resolver", "shared"), store.getMetadata(mrid1));
+        assertEquals(metadata("resolver", "local"), store.getMetadata(mrid2));
+        assertEquals(new HashSet(Arrays.asList(new ModuleRevisionId[] {mrid1, mrid2})),
+            new HashSet(Arrays.asList(store.listModules())));
+
+        store.saveMetadata(mrid2, new HashMap());
+        assertTrue(store.getMetadata(mrid2).isEmpty());
+        assertEquals(1, store.listModules().length);
+    }
+
+    public void testNullValuesAreNotStored() throws Exception {
+        IndexedCacheMetadataStore store = new IndexedCacheMetadataStore(file);
+        store.saveMetadata(mrid1, metadata("resolver", "public"));
+        store.saveMetadata(mrid1, metadata("resolver", null));
+
+        assertTrue(store.getMetadata(mrid1).isEmpty());
+        assertEquals(0, store.listModules().length);
+        // the file is read the same way
+        assertEquals(0, new IndexedCacheMetadataStore(file).listModules().length);
+    }
+
+    public void testClose() throws Exception {
+        IndexedCacheMetadataStore store = new IndexedCacheMetadataStore(file);
+        store.saveMetadata(mrid1, metadata("resolver", "public"));
+        store.close();
+
+        // the file isn't used anymore and can be deleted, as when cleaning the cache
+        assertTrue(file.delete());
+        assertTrue(store.getMetadata(mrid1).isEmpty());
+        store.saveMetadata(mrid2, metadata("resolver", "local"));
+        assertEquals(metadata("resolver", "local"), store.getMetadata(mrid2));
+    }
+
+    public void testChangesAreSeenByOtherStores() throws Exception {
+        // as another process sharing the cache would do
+        IndexedCacheMetadataStore store1 = new IndexedCacheMetadataStore(file);
+        IndexedCacheMetadataStore store2 = new IndexedCacheMetadataStore(file);
+
+        store1.saveMetadata(mrid1, metadata("resolver", "public"));
+        assertEquals(metadata("resolver", "public"), store2.getMetadata(mrid1));
+
+        store2.saveMetadata(mrid1, metadata("resolver", "local"));
+        store2.saveMetadata(mrid2, metadata("resolver", "local"));
+        assertEquals(metadata("resolver", "local"), store1.getMetadata(mrid1));
+        assertEquals(metadata("resolver", "local"), store1.getMetadata(mrid2));
+    }
+
+    public void testCorruptedTailIsIgnored() throws Exception {
+        IndexedCacheMetadataStore store = new IndexedCacheMetadataStore(file);
+        store.saveMetadata(mrid1, metadata("resolver", "public"));
+        store.saveMetadata(mrid2, metadata("resolver", "local"));
+
+        // simulate a process killed while writing the last record
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+
+        store = new IndexedCacheMetadataStore(file);
+        assertEquals(metadata("resolver", "public"), store.getMetadata(mrid1));
+        assertTrue(store.getMetadata(mrid2).isEmpty());
+
+        store.saveMetadata(mrid2, metadata("resolver", "shared"));
+        store = new IndexedCacheMetadataStore(file);
+        assertEquals(metadata("resolver", "public"), store.getMetadata(mrid1));
+        assertEquals(metadata("resolver", "shared"), store.getMetadata(mrid2));
+    }
+
+    public void testCompaction() throws Exception {
+        IndexedCacheMetadataStore store = new IndexedCacheMetadataStore(file);
+        IndexedCacheMetadataStore other = new IndexedCacheMetadataStore(file);
+        for (int i = 0; i < 100; i++) {
+            store.saveMetadata(mrid1, metadata("resolved.revision", String.valueOf(i)));
+        }
+        store.saveMetadata(mrid2, metadata("resolver", "local"));
+        assertEquals(metadata("resolved.revision", "99"), other.getMetadata(mrid1));
+        long length = file.length();
+
+        store.compact();
+
+        assertTrue(file.length() < length / 10);
+        assertFalse(new File(dir, IndexedCacheMetadataStore.FILE_NAME + ".compact").exists());
+        assertEquals(metadata("resolved.revision", "99"), store.getMetadata(mrid1));
+        assertEquals(metadata("resolver", "local"), store.getMetadata(mrid2));
+
+        // a store which indexed the file before compaction reloads it
+        other.saveMetadata(mrid1, metadata("resolved.revision", "100"));
+        assertEquals(metadata("resolved.revision", "100"), store.getMetadata(mrid1));
+        assertEquals(metadata("resolver", "local"), other.getMetadata(mrid2));
+    }
+
+    public void testMigrationFromProperties() throws Exception {
+        PropertiesCacheMetadataStore properties = new PropertiesCacheMetadataStore(dir,
+                DefaultRepositoryCacheManager.DEFAULT_DATA_FILE_PATTERN);
+        properties.saveMetadata(mrid1, metadata("resolver", "public"));
+        properties.saveMetadata(mrid2, metadata("resolver", "local"));
+        assertEquals(2, properties.listModules().length);
+
+        IndexedCacheMetadataStore store = new IndexedCacheMetadataStore(file);
+        assertEquals(2, CacheMetadataMigrator.migrate(properties, store));
+
+        store = new IndexedCacheMetadataStore(file);
+        assertEquals(metadata("resolver", "public"), store.getMetadata(mrid1));
+        assertEquals(metadata("resolver", "local"), store.getMetadata(mrid2));
+    }
+
+    private Map metadata(String key, String value) {
+        Map metadata = new HashMap();
+        metadata.put(key, value);
+        return metadata;
+    }
+}
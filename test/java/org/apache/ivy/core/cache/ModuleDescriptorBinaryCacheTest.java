@@ -0,0 +1,159 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.util.FileUtil;
+
+public class ModuleDescriptorBinaryCacheTest extends TestCase {
+
+    private File dir = new File("build/test/binary-cache");
+
+    private File ivyFile = new File(dir, "ivy-1.0.xml");
+
+    private IvySettings settings;
+
+    private ModuleDescriptorBinaryCache cache = new ModuleDescriptorBinaryCache();
+
+    protected void setUp() throws Exception {
+        dir.mkdirs();
+        settings = new IvySettings();
+        settings.setVariable("binary.test.revision", "1.0");
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testReadWrittenDescriptor() throws Exception {
+        ModuleDescriptor md = parseAndWrite("ivy-binary.xml");
+        assertTrue(ModuleDescriptorBinaryCache.getBinaryFile(ivyFile).exists());
+
+        ModuleDescriptor read = read(false);
+        assertNotNull(read);
+        assertEquals(md.getModuleRevisionId(), read.getModuleRevisionId());
+        assertEquals(toXml(md), toXml(read));
+    }
+
+    public void testUnsupportedDescriptorIsNotWritten() throws Exception {
+        // conflict managers and overrides can't be stored in binary form
+        FileUtil.copy(new File("test/java/org/apache/ivy/plugins/parser/xml/test-extrainfo.xml"),
+            ivyFile, null, true);
+        ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            monitor.getMonitoredSettings(), ivyFile.toURI().toURL(), false);
+        cache.write(ivyFile, md, monitor.getSubstitutes(), false);
+
+        assertFalse(ModuleDescriptorBinaryCache.getBinaryFile(ivyFile).exists());
+        assertNull(read(false));
+    }
+
+    public void testModifiedXmlInvalidatesBinary() throws Exception {
+        parseAndWrite("ivy-binary.xml");
+        ivyFile.setLastModified(ivyFile.lastModified() + 2000);
+
+        assertNull(read(false));
+    }
+
+    public void testChangedVariableInvalidatesBinary() throws Exception {
+        parseAndWrite("ivy-binary.xml");
+        assertNotNull(read(false));
+
+        settings.setVariable("binary.test.revision", "2.0");
+        assertNull(read(false));
+    }
+
+    public void testNotValidatedBinaryIsNotUsedForValidation() throws Exception {
+        parseAndWrite("ivy-binary.xml");
+
+        assertNotNull(read(false));
+        assertNull(read(true));
+    }
+
+    public void testCorruptedBinaryIsIgnored() throws Exception {
+        parseAndWrite("ivy-binary.xml");
+        File binFile = ModuleDescriptorBinaryCache.getBinaryFile(ivyFile);
+        RandomAccessFile raf = new RandomAccessFile(binFile, "rw");
+        try {
+            raf.seek(raf.length() - 10);
+            int b = raf.read();
+            raf.seek(raf.length() - 10);
+            raf.write(b ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        assertNull(read(false));
+    }
+
+    public void testTruncatedBinaryIsIgnored() throws Exception {
+        parseAndWrite("ivy-binary.xml");
+        File binFile = ModuleDescriptorBinaryCache.getBinaryFile(ivyFile);
+        RandomAccessFile raf = new RandomAccessFile(binFile, "rw");
+        try {
+            raf.setLength(raf.length() / 2);
+        } finally {
+            raf.close();
+        }
+
+        assertNull(read(false));
+    }
+
+    public void testInvalidPayloadLengthIsIgnored() throws Exception {
+        parseAndWrite("ivy-binary.xml");
+        File binFile = ModuleDescriptorBinaryCache.getBinaryFile(ivyFile);
+        RandomAccessFile raf = new RandomAccessFile(binFile, "rw");
+        try {
+            // the payload length follows the magic, version, ivy file length and date, validated
+            // flag and checksum
+            raf.seek(33);
+            raf.writeInt(Integer.MAX_VALUE);
+        } finally {
+            raf.close();
+        }
+
+        assertNull(read(false));
+    }
+
+    private ModuleDescriptor parseAndWrite(String resource) throws Exception {
+        FileUtil.copy(ModuleDescriptorBinaryCacheTest.class.getResource(resource), ivyFile, null);
+        ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            monitor.getMonitoredSettings(), ivyFile.toURI().toURL(), false);
+        cache.write(ivyFile, md, monitor.getSubstitutes(), false);
+        return md;
+    }
+
+    private ModuleDescriptor read(boolean validated) {
+        return cache.read(ivyFile, settings, XmlModuleDescriptorParser.getInstance(), validated);
+    }
+
+    private String toXml(ModuleDescriptor md) throws Exception {
+        File dest = new File(dir, "written.xml");
+        XmlModuleDescriptorWriter.write(md, dest);
+        return FileUtil.readEntirely(dest);
+    }
+}
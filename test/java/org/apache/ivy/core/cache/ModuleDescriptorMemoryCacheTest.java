@@ -145,6 +145,73 @@ public class ModuleDescriptorMemoryCacheTest extends TestCase {
         providerMock2.assertCalled();
     }
 
+    public void testWeightIsLimited() throws ParseException, IOException {
+        long weight = ModuleDescriptorMemoryCache.estimateWeight(md1);
+        cache = new ModuleDescriptorMemoryCache(10, 2 * weight, false);
+        ModuleDescriptorProviderMock providerMock1b = new ModuleDescriptorProviderMock(md1);
+        cache.get(url1, ivySettings, false, new ModuleDescriptorProviderMock(md1));
+        cache.get(url2, ivySettings, false, new ModuleDescriptorProviderMock(md2));
+        cache.get(url3, ivySettings, false, new ModuleDescriptorProviderMock(md3));
+        cache.get(url1, ivySettings, false, providerMock1b);
+        providerMock1b.assertCalled();
+        assertTrue(cache.getStatistics().getWeight() <= 2 * weight);
+    }
+
+    public void testStatistics() throws ParseException, IOException {
+        cache.get(url1, ivySettings, false, new ModuleDescriptorProviderMock(md1));
+        cache.get(url1, ivySettings, false, null);
+        cache.get(url2, ivySettings, false, new ModuleDescriptorProviderMock(md2));
+        cache.get(url3, ivySettings, false, new ModuleDescriptorProviderMock(md3));
+        cache.get(url3, ivySettings, false, null);
+
+        MemoryCacheStatistics stats = cache.getStatistics();
+        assertEquals(2, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+        assertEquals(ModuleDescriptorMemoryCache.estimateWeight(md2)
+                + ModuleDescriptorMemoryCache.estimateWeight(md3), stats.getWeight());
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final ModuleDescriptorMemoryCache sharedCache = new ModuleDescriptorMemoryCache(5);
+        final ModuleDescriptor[] mds = new ModuleDescriptor[10];
+        final File[] files = new File[mds.length];
+        for (int i = 0; i < mds.length; i++) {
+            mds[i] = DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance(
+                "org", "name", "rev" + i));
+            files[i] = new File("file://cached/concurrent" + i + ".txt");
+        }
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 1000; i++) {
+                            int index = (i + offset) % mds.length;
+                            assertEquals(mds[index], sharedCache.get(files[index], ivySettings,
+                                false, new ModuleDescriptorProviderMock(mds[index])));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        assertNull(failure[0]);
+        MemoryCacheStatistics stats = sharedCache.getStatistics();
+        assertEquals(4000, stats.getHits() + stats.getMisses());
+        assertTrue(stats.getSize() <= 5);
+    }
+
     private static class ModuleDescriptorProviderMock implements ModuleDescriptorProvider {
 
         private boolean called = false;
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.pack;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.util.ExecutorHelper;
+import org.apache.ivy.util.FileUtil;
+
+public class ZipPackingTest extends TestCase {
+
+    private static final int ENTRIES = 100;
+
+    private static final int ENTRY_SIZE = 16 * 1024;
+
+    private File dir;
+
+    private File zip;
+
+    protected void setUp() throws Exception {
+        dir = new File("build/test/pack");
+        dir.mkdirs();
+        zip = new File(dir, "archive.zip");
+
+        // random bytes don't compress, so the archive is large enough to be expanded in parallel
+        Random random = new Random(42);
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            out.putNextEntry(new ZipEntry("dir/"));
+            out.closeEntry();
+            for (int i = 0; i < ENTRIES; i++) {
+                byte[] content = new byte[ENTRY_SIZE];
+                random.nextBytes(content);
+                // some entries have no directory entry
+                out.putNextEntry(new ZipEntry((i % 2 == 0 ? "dir/" : "other/") + "entry" + i));
+                out.write(content);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        assertTrue(zip.length() >= ZipPacking.MIN_PARALLEL_SIZE);
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testParallelUnpack() throws Exception {
+        File sequential = new File(dir, "sequential");
+        new ZipPacking().unpack(zip, sequential, null);
+
+        File parallel = new File(dir, "parallel");
+        ExecutorService executor = ExecutorHelper.newElasticThreadPool("test", 4);
+        try {
+            new ZipPacking().unpack(zip, parallel, executor);
+        } finally {
+            ExecutorHelper.shutdown(executor);
+        }
+
+        for (int i = 0; i < ENTRIES; i++) {
+            String name = (i % 2 == 0 ? "dir/" : "other/") + "entry" + i;
+            File expected = new File(sequential, name);
+            File actual = new File(parallel, name);
+            assertTrue(name + " not expanded", actual.isFile());
+            assertTrue(name + " differs", Arrays.equals(read(expected), read(actual)));
+        }
+        assertEquals(2, parallel.listFiles().length);
+    }
+
+    private static byte[] read(File f) throws IOException {
+        byte[] content = new byte[(int) f.length()];
+        FileInputStream in = new FileInputStream(f);
+        try {
+            int read = 0;
+            while (read < content.length) {
+                read += in.read(content, read, content.length - read);
+            }
+        } finally {
+            in.close();
+        }
+        return content;
+    }
+}
@@ -20,14 +20,19 @@ package org.apache.ivy.core.publish;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.Configuration;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.MDArtifact;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolveEngine;
@@ -111,6 +116,101 @@ public class PublishEngineTest extends TestCase {
         resolveAndAssertFound(settings, resolver, "#A;1.0");
     }
 
+    public void testConcurrentPublish() throws Exception {
+        IvySettings settings = new IvySettings();
+        PublishEngine engine = new PublishEngine(settings, new EventManager());
+        DefaultModuleDescriptor md = newModuleDescriptor(6);
+        final List published = Collections.synchronizedList(new ArrayList());
+        final int[] concurrency = new int[] {0, 0};
+        FileSystemResolver resolver = new FileSystemResolver() {
+            public void publish(Artifact artifact, File src, boolean overwrite) throws IOException {
+                synchronized (concurrency) {
+                    concurrency[0]++;
+                    concurrency[1] = Math.max(concurrency[0], concurrency[1]);
+                }
+                sleepSilently(50);
+                try {
+                    super.publish(artifact, src, overwrite);
+                    published.add(artifact.getName());
+                } finally {
+                    synchronized (concurrency) {
+                        concurrency[0]--;
+                    }
+                }
+            }
+        };
+        configure(resolver, settings);
+
+        engine.publish(md,
+            Arrays.asList(new String[] {"build/test/publish/module/[artifact].[ext]"}), resolver,
+            new PublishOptions().setThreads(3).setSrcIvyPattern(
+                "build/test/publish/module/[artifact].[ext]"));
+
+        assertEquals(7, published.size());
+        assertEquals("ivy", published.get(6));
+        assertTrue("artifacts should be published concurrently", concurrency[1] > 1);
+        assertTrue(concurrency[1] <= 3);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(new File("build/test/publish/repo/A/1.0/A" + i + ".jar").exists());
+            assertTrue(new File("build/test/publish/repo/A/1.0/A" + i + ".jar.sha1").exists());
+        }
+        assertTrue(new File("build/test/publish/repo/A/1.0/ivy.xml").exists());
+        resolveAndAssertFound(settings, resolver, "#A;1.0");
+    }
+
+    public void testConcurrentPublishFailure() throws Exception {
+        IvySettings settings = new IvySettings();
+        PublishEngine engine = new PublishEngine(settings, new EventManager());
+        DefaultModuleDescriptor md = newModuleDescriptor(6);
+        final List published = Collections.synchronizedList(new ArrayList());
+        FileSystemResolver resolver = new FileSystemResolver() {
+            public void publish(Artifact artifact, File src, boolean overwrite) throws IOException {
+                if ("A2".equals(artifact.getName())) {
+                    throw new IOException("failed to publish " + artifact);
+                }
+                super.publish(artifact, src, overwrite);
+                published.add(artifact.getName());
+            }
+        };
+        configure(resolver, settings);
+
+        try {
+            engine.publish(md,
+                Arrays.asList(new String[] {"build/test/publish/module/[artifact].[ext]"}),
+                resolver, new PublishOptions().setThreads(3).setSrcIvyPattern(
+                    "build/test/publish/module/[artifact].[ext]"));
+            fail("the publish should fail");
+        } catch (IOException e) {
+            assertEquals("failed to publish #A;1.0!A2.jar", e.getMessage());
+        }
+        assertFalse(published.contains("ivy"));
+        // the transaction has been aborted
+        assertFalse(new File("build/test/publish/repo/A/1.0").exists());
+        resolveAndAssertNotFound(settings, resolver, "#A;latest.integration", "after failure");
+    }
+
+    private DefaultModuleDescriptor newModuleDescriptor(int artifacts) throws Exception {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(ModuleRevisionId.parse("#A;1.0"),
+                "release", null, true);
+        md.addConfiguration(new Configuration("default"));
+        for (int i = 0; i < artifacts; i++) {
+            md.addArtifact("default", new MDArtifact(md, "A" + i, "jar", "jar"));
+            FileUtil.copy(new File("test/repositories/1/org1/mod1.1/jars/mod1.1-1.0.jar"),
+                new File("build/test/publish/module/A" + i + ".jar"), null);
+        }
+        XmlModuleDescriptorWriter.write(md, new File("build/test/publish/module/ivy.xml"));
+        return md;
+    }
+
+    private void configure(FileSystemResolver resolver, IvySettings settings) {
+        resolver.setName("test");
+        resolver.setSettings(settings);
+        resolver.setChecksums("sha1");
+        String publishRepoDir = new File("build/test/publish/repo").getAbsolutePath();
+        resolver.addIvyPattern(publishRepoDir + "/[module]/[revision]/[artifact].[ext]");
+        resolver.addArtifactPattern(publishRepoDir + "/[module]/[revision]/[artifact].[ext]");
+    }
+
     private void resolveAndAssertNotFound(IvySettings settings, FileSystemResolver resolver,
             String module, String context) throws ParseException {
         ResolvedModuleRevision rmr = resolveModule(settings, resolver, module);
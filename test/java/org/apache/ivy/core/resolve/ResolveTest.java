@@ -40,7 +40,11 @@ import org.apache.ivy.Ivy;
 import org.apache.ivy.TestHelper;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.DefaultResolutionCacheManager;
 import org.apache.ivy.core.deliver.DeliverOptions;
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.event.IvyListener;
+import org.apache.ivy.core.event.download.EndArtifactDownloadEvent;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -2154,6 +2158,175 @@ public class ResolveTest extends TestCase {
         assertFalse(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
     }
 
+    public void testParallelResolveSameAsSequential() throws Exception {
+        // mod4.1 v 4.13 has several dependencies, some of them in conflict
+        ResolveReport sequential = ivy.resolve(
+            new File("test/repositories/2/mod4.1/ivy-4.13.xml"),
+            getResolveOptions(new String[] {"*"}).setThreads(1));
+        assertFalse(sequential.hasError());
+
+        CacheCleaner.deleteDir(cache);
+        createCache();
+        ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        ResolveReport parallel = ivy.resolve(new File("test/repositories/2/mod4.1/ivy-4.13.xml"),
+            getResolveOptions(new String[] {"*"}).setThreads(4));
+        assertFalse(parallel.hasError());
+
+        assertEquals(toString(sequential.getConfigurationReport("default").getModuleRevisionIds()),
+            toString(parallel.getConfigurationReport("default").getModuleRevisionIds()));
+        assertEquals(toString(sequential.getConfigurationReport("default").getEvictedNodes()),
+            toString(parallel.getConfigurationReport("default").getEvictedNodes()));
+        assertFalse(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
+    }
+
+    public void testParallelResolveThreadsFromSettings() throws Exception {
+        // IVY-448 settings use different conflict managers per module
+        Ivy ivy = new Ivy();
+        ivy.configure(new File("test/repositories/IVY-448/ivysettings.xml"));
+        ivy.getSettings().setVariable("ivy.resolve.threads", "3");
+        assertEquals(3, ivy.getSettings().getResolveThreads());
+
+        ResolveReport report = ivy.resolve(new File("test/repositories/IVY-448/ivy.xml"),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+
+        assertTrue(getArchiveFileInCache(ivy, "myorg", "module3", "2.0", "module3", "jar", "jar")
+                .exists());
+        assertFalse(getArchiveFileInCache(ivy, "myorg", "module3", "1.0", "module3", "jar", "jar")
+                .exists());
+    }
+
+    public void testParallelDownload() throws Exception {
+        ivy.getSettings().setVariable("ivy.download.threads", "4");
+        ResolveReport report = ivy.resolve(new File("test/repositories/2/mod4.1/ivy-4.13.xml"),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+
+        ArtifactDownloadReport[] adrs = report.getAllArtifactsReports();
+        assertEquals(report.getArtifacts().size(), adrs.length);
+        for (int i = 0; i < adrs.length; i++) {
+            assertEquals(DownloadStatus.SUCCESSFUL, adrs[i].getDownloadStatus());
+            assertTrue(adrs[i].getLocalFile().exists());
+        }
+        assertTrue(getArchiveFileInCache("org1", "mod1.2", "2.1", "mod1.2", "jar", "jar").exists());
+        assertFalse(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
+    }
+
+    public void testResolveWithBinaryDescriptors() throws Exception {
+        ResolveReport report = resolveWithBinaryDescriptors();
+        File ivyFile = getIvyFileInCache(ModuleRevisionId.newInstance("org1", "mod1.2", "2.1"));
+        File binFile = new File(ivyFile.getParentFile(), ivyFile.getName() + ".bin");
+        assertFalse(binFile.exists());
+
+        // descriptors found in the cache are stored in binary form...
+        ResolveReport report2 = resolveWithBinaryDescriptors();
+        assertTrue(binFile.exists());
+        // ... and loaded from this binary form the next time
+        ResolveReport report3 = resolveWithBinaryDescriptors();
+
+        assertEquals(toString(report.getDependencies()), toString(report2.getDependencies()));
+        assertEquals(toString(report.getDependencies()), toString(report3.getDependencies()));
+        assertEquals(toString(report.getArtifacts()), toString(report3.getArtifacts()));
+    }
+
+    private ResolveReport resolveWithBinaryDescriptors() throws Exception {
+        // use a new instance each time, to start with an empty memory cache
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setBinaryDescriptors(true);
+        ResolveReport report = ivy.resolve(new File("test/repositories/2/mod4.1/ivy-4.13.xml"),
+            getResolveOptions(ivy.getSettings(), new String[] {"*"}));
+        assertFalse(report.hasError());
+        return report;
+    }
+
+    public void testIncrementalResolve() throws Exception {
+        // the first resolve fills the cache, it can't be reused
+        ResolveReport report = resolveIncrementally("ivy-1.0.2.xml", null);
+        assertFalse(getIncrementalResolveData().exists());
+
+        // the second one finds everything in the cache
+        resolveIncrementally("ivy-1.0.2.xml", null);
+        assertTrue(getIncrementalResolveData().exists());
+
+        MockMessageLogger mockLogger = new MockMessageLogger();
+        ResolveReport report3 = resolveIncrementally("ivy-1.0.2.xml", mockLogger);
+        mockLogger.assertLogVerboseContains("\treusing the dependencies selected by the previous");
+        // the dynamic revision isn't resolved again
+        mockLogger.assertLogDoesntContain("found resolved revision in cache");
+        assertTrue(getIncrementalResolveData().exists());
+
+        assertEquals(toString(report.getDependencies()), toString(report3.getDependencies()));
+        assertEquals(toString(report.getArtifacts()), toString(report3.getArtifacts()));
+        ArtifactDownloadReport[] adrs = report3.getAllArtifactsReports();
+        assertEquals(report.getAllArtifactsReports().length, adrs.length);
+        for (int i = 0; i < adrs.length; i++) {
+            assertEquals(DownloadStatus.NO, adrs[i].getDownloadStatus());
+            assertTrue(adrs[i].getLocalFile().exists());
+        }
+        assertTrue(report3.getConfigurationReport("default").getModuleRevisionIds()
+                .contains(ModuleRevisionId.newInstance("org1", "mod1.2", "1.1")));
+    }
+
+    public void testIncrementalResolveWithChangedDescriptor() throws Exception {
+        resolveIncrementally("ivy-1.0.2.xml", null);
+        resolveIncrementally("ivy-1.0.2.xml", null);
+        assertTrue(getIncrementalResolveData().exists());
+
+        MockMessageLogger mockLogger = new MockMessageLogger();
+        ResolveReport report = resolveIncrementally("ivy-1.0.1.xml", mockLogger);
+        mockLogger.assertLogDoesntContain("reusing the dependencies selected by the previous");
+        assertTrue(report.getConfigurationReport("default").getModuleRevisionIds()
+                .contains(ModuleRevisionId.newInstance("org1", "mod1.2", "2.2")));
+    }
+
+    public void testIncrementalResolveWithExpiredDynamicRevision() throws Exception {
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setDefaultTTL(0);
+        resolveIncrementally("ivy-1.0.2.xml", null);
+        resolveIncrementally("ivy-1.0.2.xml", null);
+
+        // the dynamic revision is looked up in the repository each time
+        assertFalse(getIncrementalResolveData().exists());
+    }
+
+    private ResolveReport resolveIncrementally(String ivyFile, MockMessageLogger logger)
+            throws Exception {
+        if (logger != null) {
+            ivy.getLoggerEngine().pushLogger(logger);
+        }
+        try {
+            ResolveReport report = ivy.resolve(new File("test/repositories/1/org1/mod1.4/ivys/"
+                    + ivyFile), getResolveOptions(new String[] {"*"}).setResolveId("incremental")
+                    .setIncremental(true));
+            assertFalse(report.hasError());
+            return report;
+        } finally {
+            if (logger != null) {
+                ivy.getLoggerEngine().popLogger();
+            }
+        }
+    }
+
+    private File getIncrementalResolveData() {
+        return ((DefaultResolutionCacheManager) ivy.getSettings().getResolutionCacheManager())
+                .getIncrementalResolveDataInCache("incremental");
+    }
+
+    private static String toString(Collection c) {
+        return c.toString();
+    }
+
+    private static String toString(IvyNode[] nodes) {
+        List ids = new ArrayList();
+        for (int i = 0; i < nodes.length; i++) {
+            ids.add(nodes[i].getResolvedId());
+        }
+        return ids.toString();
+    }
+
     public void testTransitiveEvictionWithExtendingConf() throws Exception {
         // IVY-590
         ResolveReport report = ivy.resolve(ResolveTest.class.getResource("ivy-590.xml"),
@@ -5628,4 +5801,97 @@ public class ResolveTest extends TestCase {
         assertEquals(new File(adr.getUnpackedLocalFile(), "META-INF/MANIFEST.MF"),
             jarContents[0].listFiles()[0]);
     }
+
+    public void testLazyUnpack() throws Exception {
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setLazyUnpack(true);
+        ResolveOptions options = getResolveOptions(new String[] {"*"}).setOutputReport(false);
+
+        URL url = new File("test/repositories/1/packaging/module1/ivys/ivy-1.0.xml").toURI()
+                .toURL();
+
+        ResolveReport report = ivy.resolve(url, options);
+        assertFalse(report.hasError());
+
+        // the artifact is unpacked before the resolve returns
+        File cacheDir = ivy.getSettings().getDefaultRepositoryCacheBasedir();
+        File unpacked = new File(cacheDir, "packaging/module2/jar_unpackeds/module2-1.0");
+        ArtifactDownloadReport adr = report.getAllArtifactsReports()[0];
+        assertEquals(unpacked, adr.getUnpackedLocalFile());
+        assertTrue(new File(unpacked, "META-INF/MANIFEST.MF").exists());
+        assertTrue(new File(unpacked, "test.txt").exists());
+        assertFalse(new File(unpacked.getParentFile(), unpacked.getName() + ".part").exists());
+    }
+
+    public void testUnpackThreads() throws Exception {
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setUnpackThreads(4);
+        ResolveOptions options = getResolveOptions(new String[] {"*"});
+
+        URL url = new File("test/repositories/1/packaging/module1/ivys/ivy-1.0.xml").toURI()
+                .toURL();
+
+        ResolveReport report = ivy.resolve(url, options);
+        assertFalse(report.hasError());
+
+        ArtifactDownloadReport adr = report.getAllArtifactsReports()[0];
+        File cacheDir = ivy.getSettings().getDefaultRepositoryCacheBasedir();
+        assertEquals(new File(cacheDir, "packaging/module2/jar_unpackeds/module2-1.0"),
+            adr.getUnpackedLocalFile());
+        assertTrue(new File(adr.getUnpackedLocalFile(), "META-INF/MANIFEST.MF").exists());
+        assertTrue(new File(adr.getUnpackedLocalFile(), "test.txt").exists());
+    }
+
+    public void testUnpackThreadsChangedWhileUnpacking() throws Exception {
+        final DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) ivy
+                .getSettings().getDefaultRepositoryCacheManager();
+        cacheManager.setLazyUnpack(true);
+        cacheManager.setUnpackThreads(4);
+        // the pool is changed while the unpacking of the downloaded artifact is pending
+        ivy.getEventManager().addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                if (event instanceof EndArtifactDownloadEvent) {
+                    cacheManager.setUnpackThreads(2);
+                }
+            }
+        });
+        ResolveOptions options = getResolveOptions(new String[] {"*"});
+
+        URL url = new File("test/repositories/1/packaging/module1/ivys/ivy-1.0.xml").toURI()
+                .toURL();
+
+        ResolveReport report = ivy.resolve(url, options);
+        assertFalse(report.hasError());
+        assertEquals(2, cacheManager.getUnpackThreads());
+
+        ArtifactDownloadReport adr = report.getAllArtifactsReports()[0];
+        assertNotNull(adr.getUnpackedLocalFile());
+        assertTrue(new File(adr.getUnpackedLocalFile(), "test.txt").exists());
+    }
+
+    public void testUnpackThreadsFailure() throws Exception {
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setUnpackThreads(4);
+        ResolveOptions options = getResolveOptions(new String[] {"*"});
+
+        // the artifact can't be unpacked where a file stands in for the unpacked directories
+        File cacheDir = ivy.getSettings().getDefaultRepositoryCacheBasedir();
+        File unpackeds = new File(cacheDir, "packaging/module2/jar_unpackeds");
+        unpackeds.getParentFile().mkdirs();
+        unpackeds.createNewFile();
+
+        URL url = new File("test/repositories/1/packaging/module1/ivys/ivy-1.0.xml").toURI()
+                .toURL();
+
+        ResolveReport report = ivy.resolve(url, options);
+        assertTrue(report.hasError());
+        ArtifactDownloadReport adr = report.getAllArtifactsReports()[0];
+        assertEquals(DownloadStatus.FAILED, adr.getDownloadStatus());
+        assertNull(adr.getUnpackedLocalFile());
+
+        // the failure is in the xml report as well
+        File xmlReport = ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            report.getResolveId(), "default");
+        assertTrue(FileUtil.readEntirely(xmlReport).indexOf("status=\"failed\"") != -1);
+    }
 }
@@ -18,6 +18,7 @@
 package org.apache.ivy.core.retrieve;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -38,6 +39,7 @@ import org.apache.ivy.core.event.retrieve.StartRetrieveArtifactEvent;
 import org.apache.ivy.core.event.retrieve.StartRetrieveEvent;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.util.DefaultMessageLogger;
@@ -240,6 +242,97 @@ public class RetrieveTest extends TestCase {
             "jar", "default"));
     }
 
+    public void testRetrieveWithHardLinks() throws Exception {
+        // mod1.1 depends on mod1.2
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURI().toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertNotNull(report);
+        ModuleDescriptor md = report.getModuleDescriptor();
+        assertNotNull(md);
+
+        String pattern = "build/test/retrieve/[module]/[conf]/[artifact]-[revision].[ext]";
+        RetrieveReport retrieveReport = ivy.retrieve(md.getModuleRevisionId(),
+            getRetrieveOptions().setMakeHardLinks(true).setDestArtifactPattern(pattern));
+        assertEquals(1, retrieveReport.getNbrArtifactsCopied());
+
+        File file = new File(IvyPatternHelper.substitute(pattern, "org1", "mod1.2", "2.0",
+            "mod1.2", "jar", "jar", "default"));
+        File cacheFile = ((ArtifactDownloadReport) retrieveReport.getDownloadReport().get(
+            file.getAbsoluteFile())).getLocalFile();
+        assertTrue(file.exists());
+        // a hard link is not a symbolic link
+        assertEquals(file.getAbsoluteFile(), file.getCanonicalFile());
+        assertEquals(cacheFile.length(), file.length());
+        assertEquals(cacheFile.lastModified(), file.lastModified());
+        if (isHardLinkSupported()) {
+            // the retrieved file shares its content with the file in the cache: it's not a copy
+            long length = cacheFile.length();
+            FileOutputStream out = new FileOutputStream(file, true);
+            try {
+                out.write('\n');
+            } finally {
+                out.close();
+            }
+            assertEquals(length + 1, cacheFile.length());
+        }
+
+        // copying over the link must replace it rather than write to the file in the cache
+        long cacheLastModified = cacheFile.lastModified();
+        retrieveReport = ivy.retrieve(md.getModuleRevisionId(), getRetrieveOptions()
+                .setOverwriteMode(RetrieveOptions.OVERWRITEMODE_ALWAYS)
+                .setDestArtifactPattern(pattern));
+        assertEquals(1, retrieveReport.getNbrArtifactsCopied());
+        assertEquals(cacheFile.length(), file.length());
+        file.setLastModified(cacheLastModified - 60000);
+        assertEquals(cacheLastModified, cacheFile.lastModified());
+    }
+
+    private boolean isHardLinkSupported() {
+        try {
+            Class.forName("java.nio.file.Files");
+            return true;
+        } catch (ClassNotFoundException e) {
+            // hard links are created with the file API of Java 7 and above
+            return false;
+        }
+    }
+
+    public void testRetrieveWithThreads() throws Exception {
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org6/mod6.2/ivys/ivy-0.4.xml").toURI().toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertNotNull(report);
+        ModuleDescriptor md = report.getModuleDescriptor();
+
+        final List events = new ArrayList();
+        ivy.getEventManager().addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                events.add(event);
+            }
+        });
+        String pattern = "build/test/retrieve/[module]/[artifact]-[revision].[ext]";
+        RetrieveReport retrieveReport = ivy.retrieve(md.getModuleRevisionId(),
+            getRetrieveOptions().setThreads(4).setDestArtifactPattern(pattern));
+        int copied = retrieveReport.getNbrArtifactsCopied();
+        assertTrue(copied > 1);
+        assertEquals(2 + 2 * copied, events.size());
+        for (int i = 0; i < copied; i++) {
+            StartRetrieveArtifactEvent start = (StartRetrieveArtifactEvent) events.get(1 + 2 * i);
+            EndRetrieveArtifactEvent end = (EndRetrieveArtifactEvent) events.get(2 + 2 * i);
+            assertEquals(start.getDestFile(), end.getDestFile());
+            assertTrue(end.getDestFile().exists());
+            assertEquals(end.getReport().getLocalFile().length(), end.getDestFile().length());
+            assertEquals(end.getReport().getLocalFile().lastModified(), end.getDestFile()
+                    .lastModified());
+        }
+
+        retrieveReport = ivy.retrieve(md.getModuleRevisionId(), getRetrieveOptions()
+                .setThreads(4).setDestArtifactPattern(pattern));
+        assertEquals(0, retrieveReport.getNbrArtifactsCopied());
+        assertEquals(copied, retrieveReport.getNbrArtifactsUpToDate());
+    }
+
     private void assertLink(String filename) throws IOException {
         // if the OS is known to support symlink, check that the file is a symlink,
         // otherwise just check the file exist.
@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
+import org.apache.ivy.osgi.core.ExportPackage;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+
+public class EditableRepoDescriptorTest extends TestCase {
+
+    private EditableRepoDescriptor repo;
+
+    protected void setUp() throws Exception {
+        repo = new EditableRepoDescriptor(new File("test/test-repo").toURI(),
+                ExecutionEnvironmentProfileProvider.getInstance());
+        addBundle("org.example.api", "1.0.0", "org.example", "1.0.0");
+        addBundle("org.example.api", "1.1.0.v20120101", "org.example", "1.1.0");
+        addBundle("org.example.api", "2.0.0", "org.example", "2.0.0");
+        addBundle("org.example.impl", "1.5.0", "org.example", "1.5.0");
+        addBundle("org.other", "3.0.0", "org.other", null);
+    }
+
+    private void addBundle(String symbolicName, String version, String pkg, String pkgVersion)
+            throws Exception {
+        BundleInfo bundle = new BundleInfo(symbolicName, new Version(version));
+        bundle.addCapability(new ExportPackage(pkg, pkgVersion == null ? null : new Version(
+                pkgVersion)));
+        repo.addBundle(bundle);
+    }
+
+    public void testFindPackageInRange() throws Exception {
+        assertEquals(list("org.example.impl;1.5.0", "org.example.api;1.1.0.v20120101",
+            "org.example.api;1.0.0"), names(repo.findModules(BundleInfo.PACKAGE_TYPE,
+            "org.example", new VersionRange("[1.0,2.0)"))));
+        assertEquals(list("org.example.api;2.0.0", "org.example.impl;1.5.0"),
+            names(repo.findModules(BundleInfo.PACKAGE_TYPE, "org.example", new VersionRange(
+                    "(1.1,2.0]"))));
+        assertEquals(list("org.example.api;2.0.0"), names(repo.findModules(
+            BundleInfo.PACKAGE_TYPE, "org.example", new VersionRange("2.0"))));
+        assertEquals(list(), names(repo.findModules(BundleInfo.PACKAGE_TYPE, "org.example",
+            new VersionRange("[3.0,4.0)"))));
+        assertEquals(list(), names(repo.findModules(BundleInfo.PACKAGE_TYPE, "org.unknown",
+            new VersionRange("[1.0,2.0)"))));
+
+        // a package exported without version is exported in version 1.0.0
+        assertEquals(list("org.other;3.0.0"), names(repo.findModules(BundleInfo.PACKAGE_TYPE,
+            "org.other", new VersionRange("[1.0,1.0]"))));
+    }
+
+    public void testFindBundleInRange() throws Exception {
+        assertEquals(list("org.example.api;1.1.0.v20120101"), names(repo.findModules(
+            BundleInfo.BUNDLE_TYPE, "org.example.api", new VersionRange("[1.1,1.1]"))));
+    }
+
+    public void testFindModule() throws Exception {
+        assertEquals("org.example.api;1.1.0.v20120101",
+            name(repo.findModule("org.example.api", new Version("1.1.0.v20120101"))));
+        assertNull(repo.findModule("org.example.api", new Version("1.1.0")));
+        assertNull(repo.findModule("org.unknown", new Version("1.0.0")));
+    }
+
+    public void testAggregatedFindModules() throws Exception {
+        EditableRepoDescriptor other = new EditableRepoDescriptor(new File("test/test-repo")
+                .toURI(), ExecutionEnvironmentProfileProvider.getInstance());
+        BundleInfo bundle = new BundleInfo("org.example.other", new Version("1.2.0"));
+        bundle.addCapability(new ExportPackage("org.example", new Version("1.2.0")));
+        other.addBundle(bundle);
+
+        List<RepoDescriptor> repos = new ArrayList<RepoDescriptor>();
+        repos.add(repo);
+        repos.add(other);
+        assertEquals(list("org.example.impl;1.5.0", "org.example.other;1.2.0",
+            "org.example.api;1.1.0.v20120101"), names(new AggregatedRepoDescriptor(repos)
+                .findModules(BundleInfo.PACKAGE_TYPE, "org.example", new VersionRange(
+                        "[1.1,2.0)"))));
+    }
+
+    private static List<String> list(String... names) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, names);
+        return list;
+    }
+
+    private static List<String> names(List<ModuleDescriptorWrapper> modules) {
+        List<String> names = new ArrayList<String>();
+        for (ModuleDescriptorWrapper module : modules) {
+            names.add(name(module));
+        }
+        return names;
+    }
+
+    private static String name(ModuleDescriptorWrapper module) {
+        return module == null ? null : module.getBundleInfo().getSymbolicName() + ";"
+                + module.getBundleInfo().getVersion();
+    }
+}
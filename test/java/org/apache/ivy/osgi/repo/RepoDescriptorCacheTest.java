@@ -0,0 +1,168 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.osgi.core.BundleArtifact;
+import org.apache.ivy.osgi.core.BundleCapability;
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.BundleRequirement;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
+import org.apache.ivy.osgi.core.ExportPackage;
+import org.apache.ivy.osgi.repo.RepoDescriptorCache.Source;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
+
+public class RepoDescriptorCacheTest extends TestCase {
+
+    private File dir;
+
+    private File index;
+
+    private RepoDescriptorCache cache;
+
+    private EditableRepoDescriptor repo;
+
+    protected void setUp() throws Exception {
+        dir = new File("build/test/repodescriptorcache");
+        CacheCleaner.deleteDir(dir);
+        dir.mkdirs();
+        index = new File(dir, "repository.xml");
+        FileUtil.copy(new File("test/test-obr/sources.xml"), index, null);
+        cache = new RepoDescriptorCache(new File(dir, "cache/repodescriptor.bin"));
+
+        repo = new EditableRepoDescriptor(new URI("http://localhost/repo/"),
+                ExecutionEnvironmentProfileProvider.getInstance());
+        BundleInfo bundle = new BundleInfo("org.example.api", new Version("1.2.0.v2014"));
+        bundle.setId("api");
+        bundle.setPresentationName("Example API");
+        bundle.setDescription("the \u00e9xample API");
+        bundle.setLicense("ASL");
+        bundle.setSize(Integer.valueOf(1234));
+        bundle.setHasInnerClasspath(true);
+        bundle.setClasspath(Arrays.asList(new String[] {".", "lib/dep.jar"}));
+        bundle.addExecutionEnvironment("J2SE-1.5");
+        bundle.addRequirement(new BundleRequirement(BundleInfo.PACKAGE_TYPE, "org.dep",
+                new VersionRange("[1.0,2.0)"), "optional"));
+        bundle.addRequirement(new BundleRequirement(BundleInfo.BUNDLE_TYPE, "org.other",
+                new VersionRange("1.0"), null));
+        ExportPackage exportPackage = new ExportPackage("org.example", new Version("1.2.0"));
+        exportPackage.addUse("org.dep");
+        bundle.addCapability(exportPackage);
+        bundle.addCapability(new ExportPackage("org.example.internal", null));
+        bundle.addCapability(new BundleCapability(BundleInfo.SERVICE_TYPE, "org.example.Service",
+                null));
+        bundle.addArtifact(new BundleArtifact(false, new URI("org.example.api_1.2.0.jar"), null));
+        bundle.addArtifact(new BundleArtifact(true, new URI("org.example.api.source_1.2.0.jar"),
+                "packed"));
+        repo.addBundle(bundle);
+        repo.addBundle(new BundleInfo("org.example.impl", null));
+    }
+
+    protected void tearDown() throws Exception {
+        CacheCleaner.deleteDir(dir);
+    }
+
+    private EditableRepoDescriptor load() {
+        return cache.load(null, null, null, ExecutionEnvironmentProfileProvider.getInstance());
+    }
+
+    private List<Source> sources() {
+        return Collections.singletonList(Source.forFile(index));
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        cache.save(sources(), repo);
+        assertTrue(cache.getFile().exists());
+
+        EditableRepoDescriptor loaded = load();
+        assertNotNull(loaded);
+        assertEquals(repo.getBaseUri(), loaded.getBaseUri());
+        assertEquals(repo.getCapabilities(), loaded.getCapabilities());
+
+        Iterator<ModuleDescriptorWrapper> expected = repo.getModules();
+        Iterator<ModuleDescriptorWrapper> actual = loaded.getModules();
+        while (expected.hasNext()) {
+            BundleInfo expectedBundle = expected.next().getBundleInfo();
+            BundleInfo actualBundle = actual.next().getBundleInfo();
+            assertEquals(expectedBundle, actualBundle);
+            assertEquals(expectedBundle.getRawVersion(), actualBundle.getRawVersion());
+            assertEquals(expectedBundle.getId(), actualBundle.getId());
+            assertEquals(expectedBundle.getPresentationName(),
+                actualBundle.getPresentationName());
+            assertEquals(expectedBundle.getDescription(), actualBundle.getDescription());
+            assertEquals(expectedBundle.getLicense(), actualBundle.getLicense());
+            assertEquals(expectedBundle.getSize(), actualBundle.getSize());
+            assertEquals(expectedBundle.getArtifacts().size(), actualBundle.getArtifacts().size());
+            for (int i = 0; i < expectedBundle.getArtifacts().size(); i++) {
+                BundleArtifact expectedArtifact = expectedBundle.getArtifacts().get(i);
+                BundleArtifact actualArtifact = actualBundle.getArtifacts().get(i);
+                assertEquals(expectedArtifact.isSource(), actualArtifact.isSource());
+                assertEquals(expectedArtifact.getUri(), actualArtifact.getUri());
+                assertEquals(expectedArtifact.getFormat(), actualArtifact.getFormat());
+            }
+        }
+        assertFalse(actual.hasNext());
+
+        assertEquals(1, loaded.findModules(BundleInfo.PACKAGE_TYPE, "org.example",
+            new VersionRange("[1.0,2.0)")).size());
+        assertEquals(Collections.singleton("org.dep"), ((ExportPackage) loaded
+                .findModule("org.example.api", new Version("1.2.0.v2014")).getBundleInfo()
+                .getCapabilities().iterator().next()).getUses());
+    }
+
+    public void testOutOfDateSource() throws Exception {
+        cache.save(sources(), repo);
+        index.setLastModified(index.lastModified() - 10000);
+        assertNull(load());
+
+        cache.save(sources(), repo);
+        assertNotNull(load());
+        index.delete();
+        assertNull(load());
+    }
+
+    public void testCorrupted() throws Exception {
+        cache.save(sources(), repo);
+        RandomAccessFile raf = new RandomAccessFile(cache.getFile(), "rw");
+        try {
+            raf.seek(raf.length() - 10);
+            int b = raf.read();
+            raf.seek(raf.length() - 10);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        assertNull(load());
+    }
+
+    public void testNoCache() throws Exception {
+        assertNull(load());
+    }
+}
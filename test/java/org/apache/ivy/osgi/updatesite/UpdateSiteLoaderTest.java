@@ -22,32 +22,39 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.ParseException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.core.cache.CacheResourceOptions;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.p2.P2Descriptor;
 import org.apache.ivy.osgi.repo.ModuleDescriptorWrapper;
 import org.apache.ivy.osgi.repo.RepoDescriptor;
+import org.apache.ivy.osgi.repo.RepoDescriptorCache;
 import org.apache.ivy.util.CacheCleaner;
 import org.apache.ivy.util.CollectionUtils;
 import org.xml.sax.SAXException;
 
 public class UpdateSiteLoaderTest extends TestCase {
 
+    private IvySettings settings;
+
     private UpdateSiteLoader loader;
 
     private File cache;
 
     protected void setUp() throws Exception {
-        IvySettings ivySettings = new IvySettings();
+        settings = new IvySettings();
         cache = new File("build/cache");
         cache.mkdirs();
-        ivySettings.setDefaultCache(cache);
+        settings.setDefaultCache(cache);
         CacheResourceOptions options = new CacheResourceOptions();
-        loader = new UpdateSiteLoader(ivySettings.getDefaultRepositoryCacheManager(), null, options);
+        loader = new UpdateSiteLoader(settings.getDefaultRepositoryCacheManager(), null, options);
     }
 
     protected void tearDown() throws Exception {
@@ -87,4 +94,32 @@ public class UpdateSiteLoaderTest extends TestCase {
         ModuleDescriptor md = site.getModules().next().getModuleDescriptor();
         assertTrue(md.getAllArtifacts()[0].getUrl().toExternalForm().startsWith(path));
     }
+
+    public void testCachedDescriptor() throws Exception {
+        URI repoUri = new File("test/test-p2/sources/").toURI();
+        RepoDescriptor site = loader.load(repoUri);
+        File binFile = RepoDescriptorCache.getInstance(
+            settings.getDefaultRepositoryCacheManager(), repoUri.toString()).getFile();
+        assertTrue(binFile.exists());
+
+        // a new loader reads the bundles stored in the cache
+        UpdateSiteLoader cachedLoader = new UpdateSiteLoader(
+                settings.getDefaultRepositoryCacheManager(), null, new CacheResourceOptions());
+        RepoDescriptor cachedSite = cachedLoader.load(repoUri);
+        assertNotSame(site, cachedSite);
+        assertFalse(cachedSite instanceof P2Descriptor);
+        assertEquals(site.getCapabilities(), cachedSite.getCapabilities());
+        // the modules are not iterated in any particular order
+        assertEquals(getArtifactCounts(site), getArtifactCounts(cachedSite));
+    }
+
+    private Map<BundleInfo, Integer> getArtifactCounts(RepoDescriptor repo) {
+        Map<BundleInfo, Integer> counts = new HashMap<BundleInfo, Integer>();
+        for (Iterator<ModuleDescriptorWrapper> it = repo.getModules(); it.hasNext();) {
+            ModuleDescriptorWrapper module = it.next();
+            counts.put(module.getBundleInfo(),
+                Integer.valueOf(module.getModuleDescriptor().getAllArtifacts().length));
+        }
+        return counts;
+    }
 }
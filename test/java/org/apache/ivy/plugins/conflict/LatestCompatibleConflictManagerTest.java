@@ -120,6 +120,22 @@ public class LatestCompatibleConflictManagerTest extends TestCase {
         resolveAndAssert("#A;1", "#B;2, #C;2");
     }
 
+    public void testCompatibilityResolveManyRanges() throws Exception {
+        fixture.addMD("#A;7-> { #B;[1.0,2.0[ #C;[1.0,2.0[ #D;1.0 }")
+                .addMD("#B;1.0->#E;[1.0,2.0[").addMD("#B;1.1->#E;[1.0,2.0[")
+                .addMD("#C;1.0->#E;[1.0,1.8]").addMD("#C;1.1->#E;[1.0,1.8]")
+                .addMD("#D;1.0->#E;[1.0,1.3]");
+        for (int i = 0; i < 10; i++) {
+            fixture.addMD("#E;1." + i);
+        }
+        fixture.init();
+        ResolveReport report = resolveAndAssert("#A;7", "#B;1.1, #C;1.1, #D;1.0, #E;1.3");
+        // the ranges met before a restart are taken into account after it, instead of
+        // blacklisting the revisions of E one at a time
+        assertTrue("too many restarts: " + report.getRestartCount(),
+            report.getRestartCount() <= 2);
+    }
+
     public void testConflict() throws Exception {
         try {
             fixture.addMD("#A;conflict-> { #B;[1.5,1.6] #C;2.5 }").addMD("#B;1.5->#D;2.0")
@@ -150,11 +166,12 @@ public class LatestCompatibleConflictManagerTest extends TestCase {
         }
     }
 
-    private void resolveAndAssert(String mrid, String expectedModuleSet) throws ParseException,
-            IOException {
+    private ResolveReport resolveAndAssert(String mrid, String expectedModuleSet)
+            throws ParseException, IOException {
         ResolveReport report = fixture.resolve(mrid);
         assertFalse(report.hasError());
         ConfigurationResolveReport defaultReport = report.getConfigurationReport("default");
         TestHelper.assertModuleRevisionIds(expectedModuleSet, defaultReport.getModuleRevisionIds());
+        return report;
     }
 }
@@ -20,11 +20,18 @@ package org.apache.ivy.plugins.latest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
 public class LatestRevisionStrategyTest extends TestCase {
     public void testComparator() {
         ArtifactInfo[] revs = toMockAI(new String[] {"0.2a", "0.2_b", "0.2rc1", "0.2-final",
@@ -85,6 +92,102 @@ public class LatestRevisionStrategyTest extends TestCase {
         assertEquals(Arrays.asList(revs), shuffled);
     }
 
+    public void testSameOrderAsSplittingWithRegexps() {
+        List revisions = new ArrayList(Arrays.asList(new String[] {"", ".", "..", "1", "1.",
+                "1..", ".1", "1..0", "1-", "1_0", "1+build", "1.0", "01.0", "1.00", "1.0.0",
+                "1.0a", "1.0A", "1.0-a1", "1a1b2c", "a", "rc", "RC1", "1.0-RC", "1.0-final",
+                "1.0-FINAL", "1.0-dev", "1.0dev", "1.0-DEV-2", "1.0--dev", "1.0.", "1.0-",
+                "1.0-\u00e9", "1.0-alpha", "1.0.alpha.1", "20140101", "1.0-SNAPSHOT",
+                "1.0-20140101.120000-1", "2.0b", "2.0B", "10", "9", "1.10", "1.9"}));
+        Random random = new Random(1);
+        String chars = "0123456789.-_+abrcdefinlAZ";
+        for (int i = 0; i < 200; i++) {
+            StringBuffer revision = new StringBuffer();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                revision.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            revisions.add(revision.toString());
+        }
+
+        LatestRevisionStrategy strategy = new LatestRevisionStrategy();
+        Comparator comparator = strategy.new MridComparator();
+        for (Iterator it1 = revisions.iterator(); it1.hasNext();) {
+            String rev1 = (String) it1.next();
+            for (Iterator it2 = revisions.iterator(); it2.hasNext();) {
+                String rev2 = (String) it2.next();
+                int expected = compareWithRegexps(rev1, rev2, strategy.getSpecialMeanings());
+                int actual = comparator.compare(ModuleRevisionId.newInstance("", "", rev1),
+                    ModuleRevisionId.newInstance("", "", rev2));
+                assertEquals("'" + rev1 + "' compared to '" + rev2 + "'", sign(expected),
+                    sign(actual));
+            }
+        }
+    }
+
+    public void testLargeNumbers() {
+        ArtifactInfo[] revs = toMockAI(new String[] {"1.0", "1.0.99999999999999999999",
+                "1.0.100000000000000000000", "1.0.000200000000000000000000", "1.1"});
+        LatestRevisionStrategy latestRevisionStrategy = new LatestRevisionStrategy();
+        List shuffled = new ArrayList(Arrays.asList(revs));
+        Collections.reverse(shuffled);
+        assertEquals(Arrays.asList(revs), latestRevisionStrategy.sort((ArtifactInfo[]) shuffled
+                .toArray(new ArtifactInfo[revs.length])));
+    }
+
+    private static int sign(int i) {
+        return i < 0 ? -1 : (i == 0 ? 0 : 1);
+    }
+
+    /**
+     * The comparison of revisions as it was implemented with regular expressions, used as
+     * reference.
+     */
+    private static int compareWithRegexps(String rev1, String rev2, Map specialMeanings) {
+        rev1 = rev1.replaceAll("([a-zA-Z])(\\d)", "$1.$2");
+        rev1 = rev1.replaceAll("(\\d)([a-zA-Z])", "$1.$2");
+        rev2 = rev2.replaceAll("([a-zA-Z])(\\d)", "$1.$2");
+        rev2 = rev2.replaceAll("(\\d)([a-zA-Z])", "$1.$2");
+
+        String[] parts1 = rev1.split("[\\._\\-\\+]");
+        String[] parts2 = rev2.split("[\\._\\-\\+]");
+
+        int i = 0;
+        for (; i < parts1.length && i < parts2.length; i++) {
+            if (parts1[i].equals(parts2[i])) {
+                continue;
+            }
+            boolean is1Number = parts1[i].matches("\\d+");
+            boolean is2Number = parts2[i].matches("\\d+");
+            if (is1Number && !is2Number) {
+                return 1;
+            }
+            if (is2Number && !is1Number) {
+                return -1;
+            }
+            if (is1Number && is2Number) {
+                return Long.valueOf(parts1[i]).compareTo(Long.valueOf(parts2[i]));
+            }
+            Integer sm1 = (Integer) specialMeanings.get(parts1[i].toLowerCase(Locale.US));
+            Integer sm2 = (Integer) specialMeanings.get(parts2[i].toLowerCase(Locale.US));
+            if (sm1 != null) {
+                sm2 = sm2 == null ? new Integer(0) : sm2;
+                return sm1.compareTo(sm2);
+            }
+            if (sm2 != null) {
+                return new Integer(0).compareTo(sm2);
+            }
+            return parts1[i].compareTo(parts2[i]);
+        }
+        if (i < parts1.length) {
+            return parts1[i].matches("\\d+") ? 1 : -1;
+        }
+        if (i < parts2.length) {
+            return parts2[i].matches("\\d+") ? -1 : 1;
+        }
+        return 0;
+    }
+
     private static class MockArtifactInfo implements ArtifactInfo {
 
         private long _lastModified;
@@ -18,15 +18,26 @@
 package org.apache.ivy.plugins.lock;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolveEngine;
 import org.apache.ivy.core.resolve.ResolveOptions;
@@ -80,16 +91,124 @@ public class ArtifactLockStrategyTest extends TestCase {
         assertFound("org6#mod6.4;3", t3.getFinalResult());
     }
 
-    private RepositoryCacheManager newCacheManager(IvySettings settings) {
+    public void testConcurrentDownloadOfModuleArtifacts() throws Exception {
+        // two 'processes' (separate settings, see above) download different artifacts of the same
+        // module: with module metadata locking the transfers never overlap
+        assertEquals(1, downloadConcurrently(false));
+    }
+
+    public void testConcurrentDownloadOfModuleArtifactsWithArtifactLocking() throws Exception {
+        // with artifact locking, each transfer waits for the other one to start: it only
+        // succeeds if they can run at the same time
+        assertEquals(2, downloadConcurrently(true));
+    }
+
+    public void testArtifactNeverLockedUnderModuleMetadataLock() throws Exception {
+        // with artifact locking, locks must always be taken in the same order (artifact then
+        // module metadata), or two 'processes' could wait for each other forever
+        IvySettings settings = new IvySettings();
+        final List inversions = new ArrayList();
+        DefaultRepositoryCacheManager cacheManager = new DefaultRepositoryCacheManager("cache",
+                settings, new File("build/test/cache"));
+        cacheManager.setLockStrategy(new CreateFileLockStrategy(false) {
+            private int metadataLocks;
+
+            public boolean lockArtifact(Artifact artifact, File artifactFileToDownload)
+                    throws InterruptedException {
+                boolean metadata = "metadata".equals(artifact.getType());
+                if (!metadata && metadataLocks > 0) {
+                    inversions.add(artifact);
+                }
+                boolean locked = super.lockArtifact(artifact, artifactFileToDownload);
+                if (locked && metadata) {
+                    metadataLocks++;
+                }
+                return locked;
+            }
+
+            public void unlockArtifact(Artifact artifact, File artifactFileToDownload) {
+                super.unlockArtifact(artifact, artifactFileToDownload);
+                if ("metadata".equals(artifact.getType())) {
+                    metadataLocks--;
+                }
+            }
+        });
+        cacheManager.setArtifactLocking(true);
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setRepositoryCacheManager(cacheManager);
+        resolver.setName("test");
+        resolver.setSettings(settings);
+        resolver.addIvyPattern(settings.getBaseDir()
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+        resolver.addArtifactPattern(settings.getBaseDir()
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+
+        assertFound("org6#mod6.4;3", resolveModule(settings, resolver, "org6#mod6.4;3"));
+        Artifact artifact = new DefaultArtifact(ModuleRevisionId.parse("org6#mod6.4;3"), null,
+                "mod6.4", "jar", "jar");
+        DownloadReport report = resolver.download(new Artifact[] {artifact},
+            new DownloadOptions());
+        assertEquals(DownloadStatus.SUCCESSFUL, report.getArtifactReport(artifact)
+                .getDownloadStatus());
+        assertEquals(Collections.EMPTY_LIST, inversions);
+    }
+
+    /**
+     * Downloads two artifacts of the same module from two 'processes', and returns the maximum
+     * number of transfers which have been running at the same time.
+     */
+    private int downloadConcurrently(boolean artifactLocking) throws Exception {
+        IvySettings settings1 = new IvySettings();
+        IvySettings settings2 = new IvySettings();
+        Transfers transfers = new Transfers(artifactLocking ? 2 : 1);
+        ModuleRevisionId mrid = ModuleRevisionId.parse("org1#mod1.3;3.0");
+        DownloadThread t1 = new DownloadThread(createCountingResolver(settings1, transfers,
+            artifactLocking), new DefaultArtifact(mrid, null, "mod1.3-A", "jar", "jar"));
+        DownloadThread t2 = new DownloadThread(createCountingResolver(settings2, transfers,
+            artifactLocking), new DefaultArtifact(mrid, null, "mod1.3-B", "jar", "jar"));
+        t1.start();
+        t2.start();
+        t1.join(20000);
+        t2.join(20000);
+        assertEquals(DownloadStatus.SUCCESSFUL, t1.getStatus());
+        assertEquals(DownloadStatus.SUCCESSFUL, t2.getStatus());
+        return transfers.getMaxActive();
+    }
+
+    private FileSystemResolver createCountingResolver(IvySettings settings,
+            final Transfers transfers, boolean artifactLocking) {
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setRepositoryCacheManager(newCacheManager(settings, artifactLocking));
+        resolver.setRepository(new FileRepository() {
+            public void get(String source, File destination) throws IOException {
+                transfers.enter();
+                try {
+                    super.get(source, destination);
+                } finally {
+                    transfers.leave();
+                }
+            }
+        });
+        resolver.setName("test");
+        resolver.setSettings(settings);
+        resolver.addIvyPattern(settings.getBaseDir()
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+        resolver.addArtifactPattern(settings.getBaseDir()
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+        return resolver;
+    }
+
+    private RepositoryCacheManager newCacheManager(IvySettings settings, boolean artifactLocking) {
         DefaultRepositoryCacheManager cacheManager = new DefaultRepositoryCacheManager("cache",
                 settings, new File("build/test/cache"));
         cacheManager.setLockStrategy(new CreateFileLockStrategy(false));
+        cacheManager.setArtifactLocking(artifactLocking);
         return cacheManager;
     }
 
     private FileSystemResolver createSlowResolver(IvySettings settings, final int sleep) {
         FileSystemResolver resolver = new FileSystemResolver();
-        resolver.setRepositoryCacheManager(newCacheManager(settings));
+        resolver.setRepositoryCacheManager(newCacheManager(settings, false));
         resolver.setRepository(new FileRepository() {
             private RepositoryCopyProgressListener progress = new RepositoryCopyProgressListener(
                     this) {
@@ -139,6 +258,70 @@ public class ArtifactLockStrategyTest extends TestCase {
         }
     }
 
+    /**
+     * Counts the transfers running at the same time. A transfer waits until the expected number of
+     * transfers have started, or until the others are bound to be excluded by a lock.
+     */
+    private static class Transfers {
+        private final CountDownLatch started;
+
+        private int active;
+
+        private int maxActive;
+
+        public Transfers(int expectedConcurrency) {
+            started = new CountDownLatch(expectedConcurrency);
+        }
+
+        public void enter() throws IOException {
+            synchronized (this) {
+                active++;
+                maxActive = Math.max(maxActive, active);
+            }
+            started.countDown();
+            try {
+                if (!started.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("the transfers haven't run at the same time");
+                }
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            }
+        }
+
+        public synchronized void leave() {
+            active--;
+        }
+
+        public synchronized int getMaxActive() {
+            return maxActive;
+        }
+    }
+
+    private class DownloadThread extends Thread {
+        private FileSystemResolver resolver;
+
+        private Artifact artifact;
+
+        private DownloadStatus status;
+
+        public DownloadThread(FileSystemResolver resolver, Artifact artifact) {
+            this.resolver = resolver;
+            this.artifact = artifact;
+        }
+
+        public synchronized DownloadStatus getStatus() {
+            return status;
+        }
+
+        public void run() {
+            DownloadReport report = resolver.download(new Artifact[] {artifact},
+                new DownloadOptions());
+            synchronized (this) {
+                status = report.getArtifactReport(artifact).getDownloadStatus();
+            }
+        }
+    }
+
     private class ResolveThread extends Thread {
         private IvySettings settings;
 
@@ -109,4 +109,10 @@ public abstract class AbstractPatternMatcherTest extends TestCase {
             patternMatcher.getMatcher(expression);
         }
     }
+
+    public void testMatchersAreCached() {
+        Matcher matcher = patternMatcher.getMatcher("this.is.an.expression");
+        assertSame(matcher, patternMatcher.getMatcher("this.is.an.expression"));
+        assertNotSame(matcher, patternMatcher.getMatcher("this.is.another.expression"));
+    }
 }
@@ -50,4 +50,45 @@ public class RegexpPatternMatcherTest extends AbstractPatternMatcherTest {
 
         }
     }
+
+    public void testCacheStatistics() {
+        RegexpPatternMatcher matcher = (RegexpPatternMatcher) patternMatcher;
+        matcher.getMatcher("a.*");
+        matcher.getMatcher("a.*");
+        matcher.getMatcher("a.*");
+        matcher.getMatcher("b.*");
+        // the any expression doesn't need to be cached
+        matcher.getMatcher("*");
+
+        MatcherCacheStatistics statistics = matcher.getCacheStatistics();
+        assertEquals(2, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(0.5, statistics.getHitRate(), 0.001);
+        assertEquals(2, statistics.getSize());
+        assertEquals(0, statistics.getEvictions());
+    }
+
+    public void testCacheIsBounded() {
+        RegexpPatternMatcher matcher = (RegexpPatternMatcher) patternMatcher;
+        for (int i = 0; i <= AbstractPatternMatcher.MATCHER_CACHE_SIZE; i++) {
+            matcher.getMatcher("a" + i + ".*");
+        }
+        MatcherCacheStatistics statistics = matcher.getCacheStatistics();
+        assertEquals(1, statistics.getSize());
+        assertEquals(AbstractPatternMatcher.MATCHER_CACHE_SIZE, statistics.getEvictions());
+        assertTrue(matcher.getMatcher("a0.*").matches("a0b"));
+    }
+
+    public void testInvalidExpressionsAreNotCached() {
+        RegexpPatternMatcher matcher = (RegexpPatternMatcher) patternMatcher;
+        for (int i = 0; i < 2; i++) {
+            try {
+                matcher.getMatcher("(");
+                fail("Should fail on invalid syntax");
+            } catch (PatternSyntaxException e) {
+                // expected
+            }
+        }
+        assertEquals(0, matcher.getCacheStatistics().getSize());
+    }
 }
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
@@ -35,6 +36,7 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.parser.AbstractModuleDescriptorParserTester;
@@ -815,6 +817,45 @@ public class PomModuleDescriptorParserTest extends AbstractModuleDescriptorParse
             dds[2].getDependencyRevisionId());
     }
 
+    public void testParentLoadedOncePerResolve() throws Exception {
+        final int[] parentLoads = new int[1];
+        settings.setDictatorResolver(new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
+                    throws ParseException {
+                parentLoads[0]++;
+                try {
+                    ModuleDescriptor moduleDescriptor = PomModuleDescriptorParser.getInstance()
+                            .parseDescriptor(settings, getClass().getResource("test-version.pom"),
+                                false);
+                    return new ResolvedModuleRevision(null, null, moduleDescriptor, null);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+
+        ResolveData data = new ResolveData(IvyContext.getContext().getIvy().getResolveEngine(),
+                new ResolveOptions());
+        IvyContext.getContext().setResolveData(data);
+        try {
+            ModuleDescriptor md = PomModuleDescriptorParser.getInstance().parseDescriptor(
+                settings, getClass().getResource("test-parent-properties.pom"), false);
+            assertEquals("1.0", md.getRevision());
+            md = PomModuleDescriptorParser.getInstance().parseDescriptor(settings,
+                getClass().getResource("test-override-parent-properties.pom"), false);
+            assertEquals(ModuleRevisionId.newInstance("org.apache", "test-yet-other", "5.79"),
+                md.getDependencies()[1].getDependencyRevisionId());
+        } finally {
+            IvyContext.getContext().setResolveData(null);
+        }
+        assertEquals(1, parentLoads[0]);
+
+        // a new resolve loads it again
+        PomModuleDescriptorParser.getInstance().parseDescriptor(settings,
+            getClass().getResource("test-parent-properties.pom"), false);
+        assertEquals(2, parentLoads[0]);
+    }
+
     public void testPomWithEntity() throws Exception {
         ModuleDescriptor md = PomModuleDescriptorParser.getInstance().parseDescriptor(settings,
             getClass().getResource("test-entity.pom"), true);
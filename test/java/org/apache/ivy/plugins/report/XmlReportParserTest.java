@@ -18,11 +18,15 @@
 package org.apache.ivy.plugins.report;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.tools.ant.Project;
@@ -72,6 +76,137 @@ public class XmlReportParserTest extends TestCase {
         assertEquals("Resolved module doesn't equals parsed module", modRevId, parsedModRevId);
     }
 
+    public void testBinaryReport() throws Exception {
+        ResolveReport report = _ivy.resolve(new File(
+                "test/repositories/1/special-encoding-root-ivy.xml"),
+            getResolveOptions(new String[] {"default"}).setResolveId("testBinaryReport"));
+        assertNotNull(report);
+
+        assertBinaryReportMatchesXml("testBinaryReport", "default");
+    }
+
+    public void testBinaryReportWithEvictions() throws Exception {
+        ResolveReport report = _ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml"),
+            getResolveOptions(new String[] {"*"}).setResolveId("testBinaryReportWithEvictions"));
+        assertFalse(report.getConfigurationReport("default").getEvictedNodes().length == 0);
+
+        assertBinaryReportMatchesXml("testBinaryReportWithEvictions", "default");
+    }
+
+    public void testBinaryReportWithErrors() throws Exception {
+        ResolveReport report = _ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.4/ivys/ivy-1.2.xml"),
+            getResolveOptions(new String[] {"*"}).setResolveId("testBinaryReportWithErrors"));
+        assertTrue(report.hasError());
+
+        assertBinaryReportMatchesXml("testBinaryReportWithErrors", "default");
+    }
+
+    /**
+     * Checks that the binary report written with the xml report holds what is parsed from the xml
+     * report.
+     */
+    private void assertBinaryReportMatchesXml(String resolveId, String conf) throws Exception {
+        File xml = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            resolveId, conf);
+        File bin = BinaryReportCache.getBinaryFile(xml);
+        assertTrue("binary report not written with the xml report", bin.exists());
+
+        XmlReportParser fromBinary = new XmlReportParser();
+        fromBinary.parse(xml);
+
+        bin.delete();
+        XmlReportParser fromXml = new XmlReportParser();
+        fromXml.parse(xml);
+        assertTrue("binary report not written when parsing the xml report", bin.exists());
+
+        assertEquals(fromXml.getResolvedModule(), fromBinary.getResolvedModule());
+        assertEquals(fromXml.hasError(), fromBinary.hasError());
+        assertEquals(Arrays.asList(fromXml.getArtifacts()),
+            Arrays.asList(fromBinary.getArtifacts()));
+        assertEquals(Arrays.asList(fromXml.getDependencyRevisionIds()),
+            Arrays.asList(fromBinary.getDependencyRevisionIds()));
+        assertEquals(Arrays.asList(fromXml.getRealDependencyRevisionIds()),
+            Arrays.asList(fromBinary.getRealDependencyRevisionIds()));
+
+        ArtifactDownloadReport[] xmlReports = fromXml.getArtifactReports();
+        ArtifactDownloadReport[] binReports = fromBinary.getArtifactReports();
+        assertEquals(xmlReports.length, binReports.length);
+        for (int i = 0; i < xmlReports.length; i++) {
+            assertSameDownload(xmlReports[i], binReports[i]);
+            assertEquals(xmlReports[i].getUnpackedLocalFile(),
+                binReports[i].getUnpackedLocalFile());
+        }
+        ModuleRevisionId[] realMrids = fromXml.getRealDependencyRevisionIds();
+        for (int i = 0; i < realMrids.length; i++) {
+            MetadataArtifactDownloadReport xmlReport = fromXml
+                    .getMetadataArtifactReport(realMrids[i]);
+            MetadataArtifactDownloadReport binReport = fromBinary
+                    .getMetadataArtifactReport(realMrids[i]);
+            assertSameDownload(xmlReport, binReport);
+            assertEquals(xmlReport.isSearched(), binReport.isSearched());
+            assertEquals(xmlReport.getOriginalLocalFile(), binReport.getOriginalLocalFile());
+        }
+    }
+
+    private void assertSameDownload(ArtifactDownloadReport expected, ArtifactDownloadReport actual) {
+        assertEquals(expected.getArtifact(), actual.getArtifact());
+        assertEquals(expected.getDownloadStatus(), actual.getDownloadStatus());
+        assertEquals(expected.getDownloadDetails(), actual.getDownloadDetails());
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getDownloadTimeMillis(), actual.getDownloadTimeMillis());
+        assertEquals(expected.getLocalFile(), actual.getLocalFile());
+        assertEquals(expected.getArtifactOrigin(), actual.getArtifactOrigin());
+    }
+
+    public void testOutOfDateBinaryReport() throws Exception {
+        _ivy.resolve(new File("test/repositories/1/special-encoding-root-ivy.xml"),
+            getResolveOptions(new String[] {"default"}).setResolveId("testOutOfDateBinaryReport"));
+
+        File xml = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            "testOutOfDateBinaryReport", "default");
+        File bin = BinaryReportCache.getBinaryFile(xml);
+        assertNotNull(BinaryReportCache.read(xml));
+
+        xml.setLastModified(xml.lastModified() - 10000);
+        assertNull(BinaryReportCache.read(xml));
+
+        // parsing the xml report again replaces the out of date binary report
+        new XmlReportParser().parse(xml);
+        assertNotNull(BinaryReportCache.read(xml));
+        assertTrue(bin.exists());
+    }
+
+    public void testInvalidLengthInBinaryReport() throws Exception {
+        _ivy.resolve(new File("test/repositories/1/special-encoding-root-ivy.xml"),
+            getResolveOptions(new String[] {"default"}).setResolveId(
+                "testInvalidLengthInBinaryReport"));
+
+        File xml = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            "testInvalidLengthInBinaryReport", "default");
+        File bin = BinaryReportCache.getBinaryFile(xml);
+        assertNotNull(BinaryReportCache.read(xml));
+
+        // the payload length follows the magic, version, report length and date and checksum
+        RandomAccessFile raf = new RandomAccessFile(bin, "rw");
+        try {
+            raf.seek(32);
+            raf.writeInt(Integer.MAX_VALUE);
+        } finally {
+            raf.close();
+        }
+        assertNull(BinaryReportCache.read(xml));
+
+        raf = new RandomAccessFile(bin, "rw");
+        try {
+            raf.seek(32);
+            raf.writeInt(-1);
+        } finally {
+            raf.close();
+        }
+        assertNull(BinaryReportCache.read(xml));
+    }
+
     private ResolveOptions getResolveOptions(String[] confs) {
         return new ResolveOptions().setConfs(confs);
     }
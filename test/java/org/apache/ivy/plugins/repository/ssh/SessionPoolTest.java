@@ -0,0 +1,263 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.repository.ssh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SessionPoolTest extends TestCase {
+
+    /**
+     * Stands in for an ssh server: the sessions and channels are plain objects which can be
+     * closed by the test, and the connections are counted.
+     */
+    private static class Connection {
+        private boolean connected = true;
+
+        private boolean closed = false;
+    }
+
+    private static class InProcessPool extends SessionPool {
+        private final List sessions = Collections.synchronizedList(new ArrayList());
+
+        private final List channels = Collections.synchronizedList(new ArrayList());
+
+        private long connectDelay = 0;
+
+        protected Object connect() throws IOException {
+            try {
+                Thread.sleep(connectDelay);
+            } catch (InterruptedException e) {
+                throw new IOException(e.getMessage());
+            }
+            Connection session = new Connection();
+            sessions.add(session);
+            return session;
+        }
+
+        protected boolean isSessionConnected(Object session) {
+            return ((Connection) session).connected;
+        }
+
+        protected void closeSession(Object session) {
+            ((Connection) session).connected = false;
+            ((Connection) session).closed = true;
+        }
+
+        protected Object openChannel(Object session) throws IOException {
+            Connection channel = new Connection();
+            channels.add(channel);
+            return channel;
+        }
+
+        protected boolean isChannelConnected(Object channel) {
+            return ((Connection) channel).connected;
+        }
+
+        protected void closeChannel(Object channel) {
+            ((Connection) channel).connected = false;
+            ((Connection) channel).closed = true;
+        }
+    }
+
+    private InProcessPool pool;
+
+    protected void setUp() throws Exception {
+        pool = new InProcessPool();
+    }
+
+    protected void tearDown() throws Exception {
+        pool.clear();
+    }
+
+    public void testReuseSession() throws Exception {
+        pool.configure(4, 0);
+        Object session = pool.acquireSession();
+        pool.releaseSession(session);
+        assertSame(session, pool.acquireSession());
+        pool.releaseSession(session);
+        assertSame(session, pool.getSession());
+        assertEquals(1, pool.sessions.size());
+    }
+
+    public void testNewSessionWhenBusy() throws Exception {
+        pool.configure(2, 0);
+        Object first = pool.acquireSession();
+        Object second = pool.acquireSession();
+        assertNotSame(first, second);
+
+        // the pool is full: the transfers share the least used session
+        Object third = pool.acquireSession();
+        assertTrue(third == first || third == second);
+        assertEquals(2, pool.sessions.size());
+        assertEquals(2, pool.getSessionCount());
+    }
+
+    public void testWaitWhenFull() throws Exception {
+        pool.configure(1, 0);
+        final Object session = pool.acquireSession();
+        for (int i = 1; i < SessionPool.MAX_CHANNELS_PER_SESSION; i++) {
+            assertSame(session, pool.acquireSession());
+        }
+
+        final Object[] acquired = new Object[1];
+        Thread waiting = new Thread() {
+            public void run() {
+                try {
+                    acquired[0] = pool.acquireSession();
+                } catch (IOException e) {
+                    acquired[0] = e;
+                }
+            }
+        };
+        waiting.start();
+        waiting.join(200);
+        assertTrue("the transfer should wait for a session", waiting.isAlive());
+
+        pool.releaseSession(session);
+        waiting.join(5000);
+        assertFalse(waiting.isAlive());
+        assertSame(session, acquired[0]);
+        assertEquals(1, pool.sessions.size());
+    }
+
+    public void testConcurrentTransfers() throws Exception {
+        pool.configure(3, 0);
+        pool.connectDelay = 50;
+        final List errors = Collections.synchronizedList(new ArrayList());
+        Thread[] transfers = new Thread[20];
+        for (int i = 0; i < transfers.length; i++) {
+            transfers[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10; j++) {
+                            Object session = pool.acquireSession();
+                            Object channel = pool.acquireChannel(session);
+                            if (((Connection) channel).closed) {
+                                errors.add("closed channel acquired");
+                            }
+                            Thread.sleep(1);
+                            pool.releaseChannel(session, channel);
+                            pool.releaseSession(session);
+                        }
+                    } catch (Exception e) {
+                        errors.add(e);
+                    }
+                }
+            };
+            transfers[i].start();
+        }
+        for (int i = 0; i < transfers.length; i++) {
+            transfers[i].join(10000);
+        }
+        assertEquals(Collections.EMPTY_LIST, errors);
+        assertTrue(pool.sessions.size() <= 3);
+        assertTrue(pool.channels.size() <= 3 * SessionPool.MAX_CHANNELS_PER_SESSION);
+    }
+
+    public void testReuseChannel() throws Exception {
+        Object session = pool.acquireSession();
+        Object channel = pool.acquireChannel(session);
+        Object other = pool.acquireChannel(session);
+        assertNotSame(channel, other);
+        pool.releaseChannel(session, other);
+        pool.releaseChannel(session, channel);
+
+        assertSame(channel, pool.acquireChannel(session));
+
+        // a channel which has been closed isn't reused
+        ((Connection) other).connected = false;
+        Object third = pool.acquireChannel(session);
+        assertNotSame(other, third);
+        assertTrue(((Connection) other).closed);
+        assertEquals(3, pool.channels.size());
+    }
+
+    public void testIdleEviction() throws Exception {
+        pool.configure(1, 100);
+        Object session = pool.acquireSession();
+        Object channel = pool.acquireChannel(session);
+        pool.releaseChannel(session, channel);
+        pool.releaseSession(session);
+
+        Thread.sleep(200);
+        Object other = pool.acquireSession();
+        assertNotSame(session, other);
+        assertTrue(((Connection) session).closed);
+        assertTrue(((Connection) channel).closed);
+        assertFalse(pool.contains(session));
+        assertEquals(2, pool.sessions.size());
+    }
+
+    public void testIdleEvictionWithoutFurtherUse() throws Exception {
+        pool.configure(1, 100);
+        Object session = pool.acquireSession();
+        Object channel = pool.acquireChannel(session);
+        pool.releaseChannel(session, channel);
+        pool.releaseSession(session);
+
+        // the pool isn't used anymore: the idle session is closed anyway
+        for (int i = 0; i < 50 && pool.getSessionCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, pool.getSessionCount());
+        assertTrue(((Connection) session).closed);
+        assertTrue(((Connection) channel).closed);
+    }
+
+    public void testIdleChannelEvictedWhileSessionUsed() throws Exception {
+        pool.configure(1, 100);
+        Object session = pool.acquireSession();
+        Object channel = pool.acquireChannel(session);
+        pool.releaseChannel(session, channel);
+
+        for (int i = 0; i < 50 && !((Connection) channel).closed; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(((Connection) channel).closed);
+        // the session in use is kept
+        assertFalse(((Connection) session).closed);
+        assertEquals(1, pool.getSessionCount());
+    }
+
+    public void testDiscardSession() throws Exception {
+        Object session = pool.acquireSession();
+        Object channel = pool.acquireChannel(session);
+        pool.releaseChannel(session, channel);
+        pool.discardSession(session);
+        assertTrue(((Connection) session).closed);
+        assertTrue(((Connection) channel).closed);
+
+        // releasing a discarded session is harmless
+        pool.releaseSession(session);
+        assertNotSame(session, pool.acquireSession());
+    }
+
+    public void testDisconnectedSession() throws Exception {
+        Object session = pool.getSession();
+        ((Connection) session).connected = false;
+        Object other = pool.acquireSession();
+        assertNotSame(session, other);
+        assertTrue(((Connection) session).closed);
+        assertEquals(1, pool.getSessionCount());
+    }
+}
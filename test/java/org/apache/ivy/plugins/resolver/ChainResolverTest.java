@@ -18,11 +18,14 @@
 package org.apache.ivy.plugins.resolver;
 
 import java.io.File;
+import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.event.EventManager;
@@ -393,6 +396,142 @@ public class ChainResolverTest extends AbstractDependencyResolverTest {
         }
     }
 
+    public void testParallelLatestRevisionResolve() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setParallel(true);
+        chain.setLatestStrategy(new LatestRevisionStrategy());
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "1"), new GregorianCalendar(2005, 1, 20).getTime()),
+                MockResolver.buildMockResolver(settings, "2", false, null),
+                MockResolver.buildMockResolver(settings, "3", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "4"), new GregorianCalendar(2005, 1, 22).getTime(), true), // latest
+                // but default
+                MockResolver.buildMockResolver(settings, "4", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "4"), new GregorianCalendar(2005, 1, 22).getTime()), // latest ->
+                // should the one kept
+                MockResolver.buildMockResolver(settings, "5", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "3"), new GregorianCalendar(2005, 1, 18).getTime())};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("4", rmr.getResolver().getName());
+        List ddAsList = Arrays.asList(new DependencyDescriptor[] {dd});
+        for (int i = 0; i < resolvers.length; i++) {
+            assertEquals(ddAsList, resolvers[i].askedDeps);
+        }
+    }
+
+    public void testParallelFixedWithDefault() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setParallel(true);
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", false, null),
+                MockResolver.buildMockResolver(settings, "2", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "4"), new GregorianCalendar(2005, 1, 22).getTime(), true), // default
+                MockResolver.buildMockResolver(settings, "3", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "4"), new GregorianCalendar(2005, 1, 22).getTime()), // not
+                // default -> should the one kept
+                MockResolver.buildMockResolver(settings, "4", true, ModuleRevisionId.newInstance(
+                    "org", "mod", "4"), new GregorianCalendar(2005, 1, 25).getTime())};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance("org", "mod", "4"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("3", rmr.getResolver().getName());
+    }
+
+    public void testParallelReturnFirst() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setParallel(true);
+        chain.setReturnFirst(true);
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", false, null),
+                MockResolver.buildMockResolver(settings, "2", true, new GregorianCalendar(2005, 1,
+                        20).getTime()),
+                MockResolver.buildMockResolver(settings, "3", true, new GregorianCalendar(2005, 1,
+                        25).getTime())};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("2", rmr.getResolver().getName());
+        assertTrue(rmr.isForce());
+    }
+
+    public void testParallelLookupIsCancelled() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setParallel(true);
+        chain.setReturnFirst(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        MockResolver first = new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
+                    throws ParseException {
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getDependency(dd, data);
+            }
+        };
+        first.setName("1");
+        first.setSettings(settings);
+        first.rmr = MockResolver.buildMockResolver(settings, "1", true, new Date()).rmr;
+        MockResolver slow = new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
+                    throws ParseException {
+                started.countDown();
+                try {
+                    for (int i = 0; i < 100; i++) {
+                        Thread.sleep(100);
+                        checkInterrupted();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    cancelled.countDown();
+                    throw e;
+                }
+                return super.getDependency(dd, data);
+            }
+        };
+        slow.setName("2");
+        slow.setSettings(settings);
+        chain.add(first);
+        chain.add(slow);
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("1", rmr.getResolver().getName());
+        // the chain returns only once the cancelled lookup has stopped
+        assertEquals(0, cancelled.getCount());
+    }
+
     public void testReturnFirstWithDefaultAndCacheAndRealResolver() throws Exception {
         // test case for IVY-389
         DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
@@ -23,6 +23,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
@@ -439,6 +441,84 @@ public class FileSystemResolverTest extends AbstractDependencyResolverTest {
         r.close();
     }
 
+    public void testNegativeCache() throws Exception {
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("test");
+        resolver.setSettings(settings);
+        File repo = new File("build/test/negative-repo");
+        resolver.addIvyPattern(repo.getAbsolutePath() + FS + "ivy-[revision].xml");
+        resolver.addArtifactPattern(repo.getAbsolutePath() + FS + "[artifact]-[revision].[ext]");
+
+        Map attributes = new HashMap();
+        attributes.put("resolver", "test");
+        attributes.put("duration", "1h");
+        cacheManager.addConfiguredNegativeTtl(attributes);
+        assertEquals(0, cacheManager.getNegativeTTL("other",
+            ModuleRevisionId.newInstance("org1", "mod1.1", "1.0")));
+
+        try {
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org1", "mod1.1", "1.0");
+            assertNull(resolver.getDependency(new DefaultDependencyDescriptor(mrid, false), data));
+
+            FileUtil.copy(new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"), new File(
+                    repo, "ivy-1.0.xml"), null);
+            // the miss is cached: the repository isn't checked again
+            assertNull(resolver.getDependency(new DefaultDependencyDescriptor(mrid, false), data));
+
+            // unless in refresh mode
+            ResolveData refreshData = new ResolveData(engine, new ResolveOptions()
+                    .setRefresh(true));
+            ResolvedModuleRevision rmr = resolver.getDependency(new DefaultDependencyDescriptor(
+                    mrid, false), refreshData);
+            assertNotNull(rmr);
+            assertEquals(mrid, rmr.getId());
+
+            // the resource has been found: the miss is forgotten
+            assertFalse(cacheManager.isKnownMissing("test", mrid, repo.getAbsolutePath() + FS
+                    + "ivy-1.0.xml"));
+            assertNotNull(resolver.getDependency(new DefaultDependencyDescriptor(mrid, false),
+                data));
+        } finally {
+            FileUtil.forceDelete(repo);
+        }
+    }
+
+    public void testListingCache() throws Exception {
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("test");
+        resolver.setSettings(settings);
+        File repo = new File("build/test/listing-repo");
+        resolver.addIvyPattern(repo.getAbsolutePath() + FS + "ivy-[revision].xml");
+        resolver.addArtifactPattern(repo.getAbsolutePath() + FS + "[artifact]-[revision].[ext]");
+
+        cacheManager.setDefaultTTL(0);
+        cacheManager.setListingTTL("1h");
+
+        try {
+            FileUtil.copy(new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"), new File(
+                    repo, "ivy-1.0.xml"), null);
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org1", "mod1.1",
+                "latest.integration");
+            ResolvedModuleRevision rmr = resolver.getDependency(new DefaultDependencyDescriptor(
+                    mrid, false), data);
+            assertEquals("1.0", rmr.getId().getRevision());
+
+            FileUtil.copy(new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.1.xml"), new File(
+                    repo, "ivy-1.1.xml"), null);
+            // the listing is cached: the repository isn't listed again
+            rmr = resolver.getDependency(new DefaultDependencyDescriptor(mrid, false),
+                new ResolveData(engine, new ResolveOptions()));
+            assertEquals("1.0", rmr.getId().getRevision());
+
+            // unless in refresh mode
+            rmr = resolver.getDependency(new DefaultDependencyDescriptor(mrid, false),
+                new ResolveData(engine, new ResolveOptions().setRefresh(true)));
+            assertEquals("1.1", rmr.getId().getRevision());
+        } finally {
+            FileUtil.forceDelete(repo);
+        }
+    }
+
     public void testLatestTime() throws Exception {
         FileSystemResolver resolver = new FileSystemResolver();
         resolver.setName("test");
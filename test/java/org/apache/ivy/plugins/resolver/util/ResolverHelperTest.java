@@ -18,10 +18,15 @@
 package org.apache.ivy.plugins.resolver.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.plugins.repository.file.FileRepository;
 
 public class ResolverHelperTest extends TestCase {
@@ -39,4 +44,32 @@ public class ResolverHelperTest extends TestCase {
         assertEquals("2.0", revisions[1]);
     }
 
+    public void testListingsKeptDuringResolve() {
+        final int[] listings = new int[1];
+        FileRepository rep = new FileRepository(new File(".").getAbsoluteFile()) {
+            public List list(String parent) throws IOException {
+                listings[0]++;
+                return super.list(parent);
+            }
+        };
+        String pattern = "test/repositories/IVY-1238/ivy-org/modA/v[revision]/ivy.xml";
+
+        ResolverHelper.listTokenValues(rep, pattern, "revision");
+        ResolverHelper.listTokenValues(rep, pattern, "revision");
+        assertEquals(2, listings[0]);
+
+        IvyContext.pushNewContext();
+        try {
+            IvyContext.getContext().setResolveData(new ResolveData(null, new ResolveOptions()));
+            String[] revisions = ResolverHelper.listTokenValues(rep, pattern, "revision");
+            assertEquals(2, revisions.length);
+            revisions = ResolverHelper.listTokenValues(rep, pattern, "revision");
+            assertEquals(2, revisions.length);
+            assertNull(ResolverHelper.listAll(rep, "test/repositories/IVY-1238/missing"));
+            assertNull(ResolverHelper.listAll(rep, "test/repositories/IVY-1238/missing"));
+            assertEquals(4, listings[0]);
+        } finally {
+            IvyContext.popContext();
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+
+public class ChecksumCollectorTest extends TestCase {
+
+    private static final String[] ALGORITHMS = new String[] {"sha1", "md5"};
+
+    private File dir;
+
+    private File source;
+
+    protected void setUp() throws Exception {
+        dir = new File("build/test/checksumcollector");
+        dir.mkdirs();
+        source = new File("test/repositories/checksums/allright/allright-1.0.jar");
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testCollect() throws Exception {
+        File dest = new File(dir, "allright-1.0.jar");
+        ChecksumCollector collector = ChecksumCollector.start(dest, ALGORITHMS);
+        try {
+            FileUtil.copy(new FileInputStream(source), dest, null);
+        } finally {
+            collector.stop();
+        }
+        assertEquals(ChecksumHelper.computeAsString(source, "sha1"),
+            collector.getChecksum("sha1"));
+        assertEquals(ChecksumHelper.computeAsString(source, "md5"), collector.getChecksum("md5"));
+        // the checksums remain available
+        assertEquals(ChecksumHelper.computeAsString(source, "sha1"),
+            collector.getChecksum("sha1"));
+        ChecksumHelper.check(collector.getChecksum("sha1"), new File(source.getPath() + ".sha1"),
+            "sha1");
+    }
+
+    public void testWrittenAgain() throws Exception {
+        File dest = new File(dir, "allright-1.0.jar");
+        ChecksumCollector collector = ChecksumCollector.start(dest, ALGORITHMS);
+        try {
+            FileUtil.copy(new ByteArrayInputStream("partial content".getBytes()), dest, null);
+            FileUtil.copy(new FileInputStream(source), dest, null);
+        } finally {
+            collector.stop();
+        }
+        assertEquals(ChecksumHelper.computeAsString(source, "md5"), collector.getChecksum("md5"));
+    }
+
+    public void testNotCollected() throws Exception {
+        File dest = new File(dir, "allright-1.0.jar");
+        ChecksumCollector collector = ChecksumCollector.start(dest, ALGORITHMS);
+        try {
+            // another file
+            FileUtil.copy(new FileInputStream(source), new File(dir, "other.jar"), null);
+        } finally {
+            collector.stop();
+        }
+        assertNull(collector.getChecksum("sha1"));
+
+        // the file isn't written after the collector is stopped
+        FileUtil.copy(new FileInputStream(source), dest, null);
+        assertNull(collector.getChecksum("sha1"));
+    }
+
+    public void testModifiedAfterDownload() throws Exception {
+        File dest = new File(dir, "allright-1.0.jar");
+        ChecksumCollector collector = ChecksumCollector.start(dest, ALGORITHMS);
+        try {
+            FileUtil.copy(new FileInputStream(source), dest, null);
+        } finally {
+            collector.stop();
+        }
+        FileOutputStream out = new FileOutputStream(dest, true);
+        try {
+            out.write(1);
+        } finally {
+            out.close();
+        }
+        assertNull(collector.getChecksum("sha1"));
+    }
+
+    public void testUnknownAlgorithm() throws Exception {
+        try {
+            ChecksumCollector.start(new File(dir, "test.jar"), new String[] {"sha1", "crc"});
+            fail("unknown algorithm should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown checksum algorithm: crc", e.getMessage());
+        }
+    }
+}
@@ -22,7 +22,11 @@ import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.CompiledIvyPattern;
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
 
 public class IvyPatternHelperTest extends TestCase {
     public void testSubstitute() {
@@ -78,4 +82,188 @@ public class IvyPatternHelperTest extends TestCase {
         String pattern = "lib/([type]/)[artifact].[ext]";
         assertEquals("lib/", IvyPatternHelper.getTokenRoot(pattern));
     }
+
+    public void testOrgPath() {
+        assertEquals("org/apache/Test/1.0", IvyPatternHelper.substitute(
+            "[orgPath]/[module]/[revision]", "org.apache", "Test", "1.0", "test", "jar", "jar"));
+
+        Map tokens = new HashMap();
+        tokens.put("organisation", "org.apache");
+        assertEquals("org/apache/org.apache",
+            IvyPatternHelper.substituteTokens("[orgPath]/[organization]", tokens));
+        tokens.put("orgPath", "custom");
+        tokens.put("organization", "other");
+        assertEquals("custom/other",
+            IvyPatternHelper.substituteTokens("[orgPath]/[organization]", tokens));
+    }
+
+    public void testUnsetTokens() {
+        Map tokens = new HashMap();
+        tokens.put("token", "val");
+        assertEquals("[unset]-val", IvyPatternHelper.substituteTokens("[unset]-[token]", tokens));
+        assertEquals("-val", IvyPatternHelper.substituteTokens("([unset])-[token]", tokens));
+        // only the last token of an optional part decides if it is kept
+        assertEquals("nullval", IvyPatternHelper.substituteTokens("([unset][token])", tokens));
+        assertEquals("", IvyPatternHelper.substituteTokens("([token][unset])", tokens));
+        // optional parts without token are kept as is
+        assertEquals("a(b)c", IvyPatternHelper.substituteTokens("a(b)c", tokens));
+    }
+
+    public void testExtraAttributes() {
+        Map moduleAttributes = new HashMap();
+        moduleAttributes.put("color", "red");
+        moduleAttributes.put("e:shape", "round");
+        moduleAttributes.put("module", "ignored");
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0",
+            moduleAttributes);
+        Map artifactAttributes = new HashMap();
+        artifactAttributes.put("m:color", "blue");
+        Artifact artifact = new DefaultArtifact(mrid, null, "art", "jar", "jar",
+                artifactAttributes);
+
+        String pattern = "[module]/[color]-[shape](-[size])";
+        assertEquals("mod/red-round", IvyPatternHelper.substitute(pattern, mrid));
+        assertEquals("mod/blue-round", IvyPatternHelper.substitute(pattern, artifact));
+        assertEquals("mod/blue-round", CompiledIvyPattern.getInstance(pattern).substitute(mrid,
+            artifact, null, null));
+    }
+
+    public void testSameResultAsParsingEachTime() {
+        String[] patterns = new String[] {"", "plain", "[a]", "[a][b]", "x[a]y[b]z", "([a])",
+                "(-[a])(-[b])", "(-[a]-[b])", "(-[b]-[a])", "(lit)", "()", "a(b)c[a]",
+                "([a]-[unset])", "([unset]-[a])", "[unset]", "[o]/[orgPath]/[organization]",
+                "pre([empty])post", "[a](([b]", "[a(b]c)", "[a]]", "[[a]", "(a(b))", "a)",
+                "[a", "(a", "(a[b)]", "[organisation]", "[organization]"};
+        Map[] maps = new Map[3];
+        maps[0] = new HashMap();
+        maps[1] = new HashMap();
+        maps[1].put("a", "A");
+        maps[1].put("b", "B");
+        maps[1].put("empty", "");
+        maps[1].put("organisation", "org.apache");
+        maps[2] = new HashMap(maps[1]);
+        maps[2].put("a", "");
+        maps[2].put("b", null);
+        maps[2].put("organization", "other");
+        maps[2].put("a(b", "weird");
+
+        for (int i = 0; i < patterns.length; i++) {
+            for (int j = 0; j < maps.length; j++) {
+                String expected;
+                try {
+                    expected = substituteTokensByParsing(patterns[i], maps[j]);
+                } catch (IllegalArgumentException e) {
+                    expected = "error: " + e.getMessage();
+                }
+                String actual;
+                try {
+                    actual = IvyPatternHelper.substituteTokens(patterns[i], maps[j]);
+                } catch (IllegalArgumentException e) {
+                    actual = "error: " + e.getMessage();
+                }
+                assertEquals(patterns[i] + " with " + maps[j], expected, actual);
+            }
+        }
+    }
+
+    public void testCompiledPatternsAreShared() {
+        assertSame(CompiledIvyPattern.getInstance("[module]/[artifact].[ext]"),
+            CompiledIvyPattern.getInstance("[module]/[artifact].[ext]"));
+    }
+
+    /**
+     * The way tokens were substituted before patterns were compiled, used as a reference.
+     */
+    private static String substituteTokensByParsing(String pattern, Map tokens) {
+        Map tokensCopy = new HashMap(tokens);
+        if (tokensCopy.containsKey("organisation") && !tokensCopy.containsKey("organization")) {
+            tokensCopy.put("organization", tokensCopy.get("organisation"));
+        }
+        if (tokensCopy.containsKey("organisation") && !tokensCopy.containsKey("orgPath")) {
+            String org = (String) tokensCopy.get("organisation");
+            tokensCopy.put("orgPath", org == null ? "" : org.replace('.', '/'));
+        }
+        StringBuffer buffer = new StringBuffer();
+        char[] chars = pattern.toCharArray();
+        StringBuffer optionalPart = null;
+        StringBuffer tokenBuffer = null;
+        boolean insideOptionalPart = false;
+        boolean insideToken = false;
+        boolean tokenSeen = false;
+        boolean tokenHadValue = false;
+        for (int i = 0; i < chars.length; i++) {
+            switch (chars[i]) {
+                case '(':
+                    if (insideOptionalPart) {
+                        throw new IllegalArgumentException(
+                                "invalid start of optional part at position " + i + " in pattern "
+                                        + pattern);
+                    }
+                    optionalPart = new StringBuffer();
+                    insideOptionalPart = true;
+                    tokenSeen = false;
+                    tokenHadValue = false;
+                    break;
+                case ')':
+                    if (!insideOptionalPart || insideToken) {
+                        throw new IllegalArgumentException(
+                                "invalid end of optional part at position " + i + " in pattern "
+                                        + pattern);
+                    }
+                    if (tokenHadValue) {
+                        buffer.append(optionalPart.toString());
+                    } else if (!tokenSeen) {
+                        buffer.append('(').append(optionalPart.toString()).append(')');
+                    }
+                    insideOptionalPart = false;
+                    break;
+                case '[':
+                    if (insideToken) {
+                        throw new IllegalArgumentException("invalid start of token at position "
+                                + i + " in pattern " + pattern);
+                    }
+                    tokenBuffer = new StringBuffer();
+                    insideToken = true;
+                    break;
+                case ']':
+                    if (!insideToken) {
+                        throw new IllegalArgumentException("invalid end of token at position " + i
+                                + " in pattern " + pattern);
+                    }
+                    String token = tokenBuffer.toString();
+                    Object tokenValue = tokensCopy.get(token);
+                    String value = (tokenValue == null) ? null : tokenValue.toString();
+                    if (insideOptionalPart) {
+                        tokenHadValue = (value != null) && (value.length() > 0);
+                        optionalPart.append(value);
+                    } else {
+                        if (value == null) {
+                            value = "[" + token + "]";
+                        }
+                        buffer.append(value);
+                    }
+                    insideToken = false;
+                    tokenSeen = true;
+                    break;
+                default:
+                    if (insideToken) {
+                        tokenBuffer.append(chars[i]);
+                    } else if (insideOptionalPart) {
+                        optionalPart.append(chars[i]);
+                    } else {
+                        buffer.append(chars[i]);
+                    }
+                    break;
+            }
+        }
+        if (insideToken) {
+            throw new IllegalArgumentException("last token hasn't been closed in pattern "
+                    + pattern);
+        }
+        if (insideOptionalPart) {
+            throw new IllegalArgumentException("optional part hasn't been closed in pattern "
+                    + pattern);
+        }
+        return buffer.toString();
+    }
 }
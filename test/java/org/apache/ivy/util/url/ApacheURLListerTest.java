@@ -17,12 +17,19 @@
  */
 package org.apache.ivy.util.url;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.util.FileUtil;
+
 /**
  * Tests {@link ApacheURLLister}.
  */
@@ -108,4 +115,39 @@ public class ApacheURLListerTest extends TestCase {
         assertNotNull(d);
         assertEquals(3, d.size());
     }
+
+    public void testFindLinks() throws Exception {
+        String[] listings = new String[] {"apache-file-listing.html", "apache-dir-listing.html",
+                "listing-with-spaces.html", "artifactory-dir-listing.html", "archiva-listing.html",
+                "fixed-archiva-listing.html", "maven-proxy-listing.html"};
+        for (int i = 0; i < listings.length; i++) {
+            String html = FileUtil.readEntirely(new BufferedReader(new InputStreamReader(
+                    ApacheURLListerTest.class.getResource(listings[i]).openStream(), "UTF-8")));
+            assertLinks(listings[i], html);
+        }
+
+        // anchors which are not simple enough for the scan
+        assertLinks("several hrefs", "<a href=\"a/\" HREF=\"b/\">b/</a>");
+        assertLinks("several texts", "<A HREF=\"a/\">a<b>/</b></A> <a href=\"c\">c</a>");
+        assertLinks("no text", "<a href=\"a/\"><img src=\"a.gif\"></a> b/</a>");
+        assertLinks("quote after tag", "<a href=\"a>b\">ab</a><a name=\"x\">x</a>");
+        assertLinks("unclosed", "<a href=\"a/\">a/ <abbr href=\"c\">c</abbr>");
+        assertLinks("simple", "<td><a href=\"a/\"><tt>a/</tt></a></td><a href=\"b\">b</A>");
+    }
+
+    private void assertLinks(String message, String html) {
+        Matcher matcher = Pattern.compile(
+            "<a[^>]*href=\"([^\"]*)\"[^>]*>(?:<[^>]+>)*?([^<>]+?)(?:<[^>]+>)*?</a>",
+            Pattern.CASE_INSENSITIVE).matcher(html);
+        List expected = new ArrayList();
+        while (matcher.find()) {
+            expected.add(matcher.group(1) + " -> " + matcher.group(2));
+        }
+        List actual = new ArrayList();
+        for (Iterator iter = ApacheURLLister.findLinks(html).iterator(); iter.hasNext();) {
+            String[] link = (String[]) iter.next();
+            actual.add(link[0] + " -> " + link[1]);
+        }
+        assertEquals(message, expected, actual);
+    }
 }
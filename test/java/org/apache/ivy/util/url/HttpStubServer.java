@@ -0,0 +1,284 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util.url;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.ivy.util.Message;
+
+/**
+ * A minimal HTTP/1.1 server serving in memory files to GET and HEAD requests, with keep-alive and
+ * conditional requests support, which records what it receives.
+ */
+public class HttpStubServer {
+
+    private final ServerSocket serverSocket;
+
+    private final Map/* <String, byte[]> */files = new HashMap();
+
+    private final Map/* <String, Long> */lastModified = new HashMap();
+
+    private final Map/* <String, Integer> */requests = new HashMap();
+
+    private final List/* <IOException> */errors = new ArrayList();
+
+    private int connections;
+
+    private int active;
+
+    private int maxActive;
+
+    private long delay;
+
+    public HttpStubServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = serverSocket.accept();
+                        synchronized (HttpStubServer.this) {
+                            connections++;
+                        }
+                        Thread handler = new Thread(new Runnable() {
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                        handler.setDaemon(true);
+                        handler.start();
+                    }
+                } catch (IOException e) {
+                    // server stopped
+                }
+            }
+        }, "http-stub");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public URL getURL(String path) throws IOException {
+        return new URL("http", "127.0.0.1", serverSocket.getLocalPort(), path);
+    }
+
+    public synchronized void addFile(String path, byte[] content, long modified) {
+        files.put(path, content);
+        lastModified.put(path, new Long(modified / 1000 * 1000));
+    }
+
+    /**
+     * Makes every request wait the given number of milliseconds before being answered.
+     */
+    public synchronized void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * Returns the number of requests received for the given method and status, for instance
+     * <code>"GET 200"</code> or <code>"HEAD 404"</code>.
+     */
+    public synchronized int getRequests(String methodAndStatus) {
+        Integer count = (Integer) requests.get(methodAndStatus);
+        return count == null ? 0 : count.intValue();
+    }
+
+    public synchronized int getTotalRequests() {
+        int total = 0;
+        for (Iterator it = requests.values().iterator(); it.hasNext();) {
+            total += ((Integer) it.next()).intValue();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the errors which prevented requests from being served.
+     */
+    public synchronized List getErrors() {
+        return new ArrayList(errors);
+    }
+
+    public synchronized int getConnections() {
+        return connections;
+    }
+
+    public synchronized int getMaxActiveRequests() {
+        return maxActive;
+    }
+
+    public synchronized void reset() {
+        requests.clear();
+        connections = 0;
+        maxActive = 0;
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                String requestLine = readLine(in);
+                if (requestLine == null || requestLine.length() == 0) {
+                    break;
+                }
+                Map headers = new HashMap();
+                String line;
+                while ((line = readLine(in)) != null && line.length() > 0) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US),
+                            line.substring(colon + 1).trim());
+                    }
+                }
+                String[] parts = requestLine.split(" ");
+                boolean keepAlive = handle(parts[0], parts[1], headers, out);
+                if (!keepAlive) {
+                    break;
+                }
+            }
+        } catch (SocketException e) {
+            // connection closed by the client
+        } catch (IOException e) {
+            Message.error("http stub server failed to serve a request", e);
+            synchronized (this) {
+                errors.add(e);
+            }
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private boolean handle(String method, String path, Map headers, OutputStream out)
+            throws IOException {
+        byte[] content;
+        long modified;
+        long wait;
+        synchronized (this) {
+            content = (byte[]) files.get(path);
+            modified = content == null ? 0 : ((Long) lastModified.get(path)).longValue();
+            wait = delay;
+            active++;
+            maxActive = Math.max(maxActive, active);
+        }
+        try {
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int status;
+            String etag = null;
+            if (content == null) {
+                status = 404;
+                content = "not found".getBytes("US-ASCII");
+            } else {
+                etag = "\"" + Integer.toHexString(new String(content, "ISO-8859-1").hashCode())
+                        + "-" + modified + "\"";
+                if (etag.equals(headers.get("if-none-match"))) {
+                    status = 304;
+                } else {
+                    status = 200;
+                }
+            }
+
+            StringBuffer response = new StringBuffer();
+            response.append("HTTP/1.1 ").append(status).append(
+                status == 200 ? " OK" : status == 304 ? " Not Modified" : " Not Found").append(
+                "\r\n");
+            if (etag != null) {
+                response.append("ETag: ").append(etag).append("\r\n");
+                response.append("Last-Modified: ").append(formatDate(modified)).append("\r\n");
+            }
+            if (status != 304) {
+                response.append("Content-Type: text/plain\r\n");
+                response.append("Content-Length: ").append(content.length).append("\r\n");
+            }
+            response.append("\r\n");
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            buffer.write(response.toString().getBytes("US-ASCII"));
+            if (status != 304 && !"HEAD".equals(method)) {
+                buffer.write(content);
+            }
+
+            // counted before the response is sent, so that the client sees it once answered
+            synchronized (this) {
+                String key = method + " " + status;
+                Integer count = (Integer) requests.get(key);
+                requests.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+            }
+            buffer.writeTo(out);
+            out.flush();
+            return !"close".equalsIgnoreCase((String) headers.get("connection"));
+        } finally {
+            synchronized (this) {
+                active--;
+            }
+        }
+    }
+
+    private static String formatDate(long date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'",
+                Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(date));
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuffer line = new StringBuffer();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+}
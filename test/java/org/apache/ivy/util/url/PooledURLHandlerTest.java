@@ -0,0 +1,192 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util.url;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.url.URLHandler.URLInfo;
+
+public class PooledURLHandlerTest extends TestCase {
+
+    private File testDir = new File("build/PooledURLHandlerTest");
+
+    private HttpStubServer server;
+
+    private PooledURLHandler handler;
+
+    protected void setUp() throws Exception {
+        testDir.mkdirs();
+        server = new HttpStubServer();
+        handler = new PooledURLHandler();
+    }
+
+    protected void tearDown() throws Exception {
+        server.stop();
+        FileUtil.forceDelete(testDir);
+        assertEquals(Collections.EMPTY_LIST, server.getErrors());
+    }
+
+    public void testCheckThenDownloadUsesSingleRequest() throws Exception {
+        server.addFile("/repo/ivy-1.0.xml", "<ivy-module/>".getBytes(), 1000000000000L);
+        URL url = server.getURL("/repo/ivy-1.0.xml");
+
+        URLInfo info = handler.getURLInfo(url);
+        assertTrue(info.isReachable());
+        assertEquals(13, info.getContentLength());
+        assertEquals(1000000000000L, info.getLastModified());
+
+        File dest = new File(testDir, "ivy.xml");
+        handler.download(url, dest, null);
+        assertEquals("<ivy-module/>", FileUtil.readEntirely(dest));
+        assertEquals(1000000000000L, dest.lastModified());
+
+        assertEquals(1, server.getRequests("GET 200"));
+        assertEquals(1, server.getTotalRequests());
+    }
+
+    public void testUnchangedFileIsRevalidated() throws Exception {
+        server.addFile("/repo/ivy-1.0.xml", "<ivy-module/>".getBytes(), 1000000000000L);
+        URL url = server.getURL("/repo/ivy-1.0.xml");
+        handler.getURLInfo(url);
+        handler.download(url, new File(testDir, "ivy.xml"), null);
+
+        assertTrue(handler.isReachable(url));
+        File dest = new File(testDir, "ivy2.xml");
+        handler.download(url, dest, null);
+        assertEquals("<ivy-module/>", FileUtil.readEntirely(dest));
+
+        // a download which doesn't follow a check revalidates the body too
+        assertEquals("<ivy-module/>", FileUtil.readEntirely(handler.openStream(url)));
+
+        assertEquals(1, server.getRequests("GET 200"));
+        assertEquals(2, server.getRequests("GET 304"));
+        assertEquals(3, server.getTotalRequests());
+    }
+
+    public void testChangedFileIsDownloadedAgain() throws Exception {
+        server.addFile("/repo/ivy-1.0.xml", "<ivy-module/>".getBytes(), 1000000000000L);
+        URL url = server.getURL("/repo/ivy-1.0.xml");
+        handler.getURLInfo(url);
+        handler.download(url, new File(testDir, "ivy.xml"), null);
+
+        server.addFile("/repo/ivy-1.0.xml", "<ivy-module version=\"2.0\"/>".getBytes(),
+            1000000005000L);
+        URLInfo info = handler.getURLInfo(url);
+        assertEquals(1000000005000L, info.getLastModified());
+        File dest = new File(testDir, "ivy2.xml");
+        handler.download(url, dest, null);
+        assertEquals("<ivy-module version=\"2.0\"/>", FileUtil.readEntirely(dest));
+
+        assertEquals(2, server.getRequests("GET 200"));
+        assertEquals(2, server.getTotalRequests());
+    }
+
+    public void testLargeMetadataFileIsStreamed() throws Exception {
+        handler.setMaxBufferedBytes(100);
+        byte[] content = new byte[1000];
+        Arrays.fill(content, (byte) 'a');
+        server.addFile("/repo/big-1.0.pom", content, 1000000000000L);
+        URL url = server.getURL("/repo/big-1.0.pom");
+
+        // the check only reads the response headers
+        URLInfo info = handler.getURLInfo(url);
+        assertTrue(info.isReachable());
+        assertEquals(1000, info.getContentLength());
+        assertEquals(1000000000000L, info.getLastModified());
+
+        File dest = new File(testDir, "big.pom");
+        handler.download(url, dest, null);
+        assertEquals(new String(content), FileUtil.readEntirely(dest));
+        assertEquals(new String(content), FileUtil.readEntirely(handler.openStream(url)));
+
+        assertEquals(3, server.getRequests("GET 200"));
+        assertEquals(3, server.getTotalRequests());
+    }
+
+    public void testMissingFile() throws Exception {
+        URL url = server.getURL("/repo/unknown.pom");
+        assertFalse(handler.isReachable(url));
+        try {
+            handler.download(url, new File(testDir, "unknown.pom"), null);
+            fail("downloading a missing file should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        assertFalse(handler.isReachable(server.getURL("/repo/unknown.jar")));
+        assertEquals(2, server.getRequests("GET 404"));
+        assertEquals(1, server.getRequests("HEAD 404"));
+    }
+
+    public void testArtifactsReuseConnection() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.addFile("/repo/a-" + i + ".jar", new byte[10000], 1000000000000L);
+        }
+        for (int i = 0; i < 3; i++) {
+            URL url = server.getURL("/repo/a-" + i + ".jar");
+            assertTrue(handler.isReachable(url));
+            File dest = new File(testDir, "a-" + i + ".jar");
+            handler.download(url, dest, null);
+            assertEquals(10000, dest.length());
+        }
+        assertEquals(3, server.getRequests("HEAD 200"));
+        assertEquals(3, server.getRequests("GET 200"));
+        assertEquals(1, server.getConnections());
+    }
+
+    public void testMaxConnectionsPerHost() throws Exception {
+        handler.setMaxConnectionsPerHost(2);
+        server.setDelay(100);
+        final List errors = new ArrayList();
+        List threads = new ArrayList();
+        for (int i = 0; i < 6; i++) {
+            server.addFile("/repo/b-" + i + ".jar", new byte[100], 1000000000000L);
+            final int index = i;
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        handler.download(server.getURL("/repo/b-" + index + ".jar"), new File(
+                                testDir, "b-" + index + ".jar"), null);
+                    } catch (IOException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+        for (Iterator it = threads.iterator(); it.hasNext();) {
+            ((Thread) it.next()).join();
+        }
+        assertEquals(errors.toString(), 0, errors.size());
+        assertEquals(6, server.getRequests("GET 200"));
+        assertTrue("too many concurrent requests: " + server.getMaxActiveRequests(),
+            server.getMaxActiveRequests() <= 2);
+    }
+}